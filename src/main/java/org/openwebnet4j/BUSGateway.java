@@ -16,9 +16,17 @@ package org.openwebnet4j;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import org.openwebnet4j.communication.BUSConnector;
+import org.openwebnet4j.communication.CmdSessionPool;
 import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.RateLimiter;
 import org.openwebnet4j.communication.Response;
 import org.openwebnet4j.message.Alarm;
 import org.openwebnet4j.message.Automation;
@@ -26,6 +34,7 @@ import org.openwebnet4j.message.Auxiliary;
 import org.openwebnet4j.message.BaseOpenMessage;
 import org.openwebnet4j.message.CENPlusScenario;
 import org.openwebnet4j.message.EnergyManagementDiagnostic;
+import org.openwebnet4j.message.FrameException;
 import org.openwebnet4j.message.Lighting;
 import org.openwebnet4j.message.OpenMessage;
 import org.openwebnet4j.message.ThermoregulationDiagnostic;
@@ -34,6 +43,7 @@ import org.openwebnet4j.message.WhereAuxiliary;
 import org.openwebnet4j.message.WhereEnergyManagement;
 import org.openwebnet4j.message.WhereLightAutom;
 import org.openwebnet4j.message.WhereThermo;
+import org.openwebnet4j.message.Who;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,18 +56,6 @@ import org.slf4j.LoggerFactory;
  */
 public class BUSGateway extends OpenGateway {
 
-    private class DiscoveryResult {
-        public Where where;
-        public OpenDeviceType type;
-        public BaseOpenMessage message;
-
-        public DiscoveryResult(Where w, OpenDeviceType t, BaseOpenMessage m) {
-            this.where = w;
-            this.type = t;
-            this.message = m;
-        }
-    }
-
     private final Logger logger = LoggerFactory.getLogger(BUSGateway.class);
 
     private final int DEFAULT_PORT = 20000; // Default OWN gateway port is 20000
@@ -67,6 +65,10 @@ public class BUSGateway extends OpenGateway {
     private String host;
     private String pwd;
 
+    private static final int DEFAULT_DISCOVERY_SESSIONS = 3;
+    private int discoverySessions = DEFAULT_DISCOVERY_SESSIONS;
+    private DeepDiscoveryConfig deepDiscovery = null;
+
     /**
      * Creates a new BUSGateway instance with host, port and password.
      *
@@ -113,159 +115,378 @@ public class BUSGateway extends OpenGateway {
         logger.info("##BUS## Init BUS ({}:{})...", host, port);
     }
 
+    /**
+     * Sets the maximum number of CMD sessions opened to the gateway to run discovery requests concurrently. Default is
+     * 3. With 1, discovery requests are sent one after another on the main CMD connection.
+     *
+     * @param sessions maximum number of CMD sessions used by discovery
+     */
+    public void setDiscoverySessions(int sessions) {
+        this.discoverySessions = Math.max(1, sessions);
+    }
+
+    /**
+     * Returns the maximum number of CMD sessions used by discovery
+     *
+     * @return maximum number of CMD sessions
+     */
+    public int getDiscoverySessions() {
+        return discoverySessions;
+    }
+
+    /*
+     * Creates a new (not connected) connector to this gateway, to be used for additional CMD sessions
+     */
+    BUSConnector newCmdConnector() {
+        BUSConnector conn = new BUSConnector(host, port, pwd);
+        conn.setCommandCache(getCommandCache());
+        conn.setMetrics(getMetrics());
+        configureWireTaps(conn);
+        return conn;
+    }
+
+    /* A discovery request for a WHO family */
+    private class DiscoveryTask implements Callable<Void> {
+        final String name;
+        final OpenMessage request;
+        final Consumer<OpenMessage> consumer;
+        final Runnable onComplete;
+        final CmdSessionPool pool;
+
+        DiscoveryTask(CmdSessionPool pool, String name, OpenMessage request, Consumer<OpenMessage> consumer,
+                Runnable onComplete) {
+            this.pool = pool;
+            this.name = name;
+            this.request = request;
+            this.consumer = consumer;
+            this.onComplete = onComplete;
+        }
+
+        DiscoveryTask(CmdSessionPool pool, String name, OpenMessage request, Consumer<OpenMessage> consumer) {
+            this(pool, name, request, consumer, () -> {
+            });
+        }
+
+        @Override
+        public Void call() throws OWNException {
+            logger.debug("##BUS## ----- {} discovery -----", name);
+            Response res = pool.send(request.getFrameValue(), consumer);
+            updateStateCache(res);
+            if (!res.isSuccess()) {
+                // NACK or BUSY_NACK: devices of this family may still be there
+                logger.debug("##BUS## ----- {} discovery failed: {}", name, res.getFinalResponse());
+                Who who = BaseOpenMessage.peekWho(request.getFrameValue());
+                if (who != null) {
+                    notifyFamilyNotDiscovered(who);
+                }
+            }
+            onComplete.run();
+            logger.debug("##BUS## ----- {} discovery completed", name);
+            return null;
+        }
+    }
+
     @Override
     protected void discoverDevicesInternal() throws OWNException {
-        Response res;
         logger.debug("##BUS## ----- ### STARTING A NEW DISCOVERY...");
-        try {
+        DeepDiscoveryConfig deep = deepDiscovery;
+        int sessions = (deep != null) ? Math.max(discoverySessions, deep.concurrency) : discoverySessions;
+        ExecutorService executor = Executors.newFixedThreadPool(sessions, r -> {
+            Thread t = new Thread(r, "OWN-BUS-Discovery");
+            t.setDaemon(true);
+            return t;
+        });
+        try (CmdSessionPool pool = new CmdSessionPool(connector, this::newCmdConnector, sessions)) {
+            ThermoDiscovery thermo = new ThermoDiscovery();
+            AlarmDiscovery alarm = new AlarmDiscovery();
+            List<Callable<Void>> tasks = new ArrayList<>();
             // DISCOVER LIGHTS - request status for all lights: *#1*0##
-            logger.debug("##BUS## ----- LIGHTS discovery -----");
-            res = sendInternal(Lighting.requestStatus(WhereLightAutom.GENERAL.value()));
-            for (OpenMessage msg : res.getResponseMessages()) {
-                if (msg instanceof Lighting) {
-                    Lighting lmsg = ((Lighting) msg);
-                    OpenDeviceType type = lmsg.detectDeviceType();
-                    if (type != null) {
-                        Where w = lmsg.getWhere();
-                        notifyListeners((listener) -> listener.onNewDevice(w, type, lmsg));
-                    }
-                }
-            }
+            tasks.add(new DiscoveryTask(pool, "LIGHTS", Lighting.requestStatus(WhereLightAutom.GENERAL.value()),
+                    familyConsumer(Lighting.class)));
             // DISCOVER AUTOMATION - request status for all automations: *#2*0##
-            logger.debug("##BUS## ----- AUTOMATION discovery -----");
-            res = sendInternal(Automation.requestStatus(WhereLightAutom.GENERAL.value()));
-            for (OpenMessage msg : res.getResponseMessages()) {
-                if (msg instanceof Automation) {
-                    Automation amsg = ((Automation) msg);
-                    OpenDeviceType type = amsg.detectDeviceType();
-                    if (type != null) {
-                        Where w = amsg.getWhere();
-                        notifyListeners((listener) -> listener.onNewDevice(w, type, amsg));
-                    }
-                }
-            }
+            tasks.add(new DiscoveryTask(pool, "AUTOMATION", Automation.requestStatus(WhereLightAutom.GENERAL.value()),
+                    familyConsumer(Automation.class)));
             // DISCOVER ENERGY MANAGEMENT - request diagnostic for all energy devices: *#1018*0*7##
             // response <<<< *#1018*WHERE*7*BITS##
-            logger.debug("##BUS## ----- ENERGY MANAGEMENT discovery -----");
-            res = sendInternal(EnergyManagementDiagnostic.requestDiagnostic(WhereEnergyManagement.GENERAL.value()));
-            for (OpenMessage msg : res.getResponseMessages()) {
-                if (msg instanceof EnergyManagementDiagnostic) {
-                    EnergyManagementDiagnostic edmsg = ((EnergyManagementDiagnostic) msg);
-                    OpenDeviceType type = edmsg.detectDeviceType();
-                    if (type != null) {
-                        Where w = edmsg.getWhere();
-                        notifyListeners((listener) -> listener.onNewDevice(w, type, edmsg));
-                    }
-                }
-            }
+            tasks.add(new DiscoveryTask(pool, "ENERGY MANAGEMENT",
+                    EnergyManagementDiagnostic.requestDiagnostic(WhereEnergyManagement.GENERAL.value()),
+                    familyConsumer(EnergyManagementDiagnostic.class)));
             // DISCOVER THERMOREGULATION - request diagnostic for all thermoregulation devices:
             // *#1004*0*7##
             // response <<<< *#1004*WHERE*7*BITS##
-            logger.debug("##BUS## ----- THERMOREGULATION discovery");
-            List<DiscoveryResult> foundThermoDevices = new ArrayList<>(); // list of found thermo devices other than CU
-            res = sendInternal(ThermoregulationDiagnostic.requestDiagnostic(WhereThermo.ALL_MASTER_PROBES.value()));
-            boolean foundCU99 = false;
-            DiscoveryResult cu = null;
-            for (OpenMessage msg : res.getResponseMessages()) {
-                if (msg instanceof ThermoregulationDiagnostic) {
-                    ThermoregulationDiagnostic tdMsg = ((ThermoregulationDiagnostic) msg);
-                    OpenDeviceType type = tdMsg.detectDeviceType();
-                    if (type != null) {
-                        Where w = tdMsg.getWhere();
-                        if (OpenDeviceType.SCS_THERMO_CENTRAL_UNIT.equals(type)) {
-                            if (!foundCU99) {
-                                cu = new DiscoveryResult(w, type, tdMsg);
-                                if (w.value().charAt(0) == '#') {
-                                    foundCU99 = true;
-                                    logger.debug("##BUS## ----- THERMOREGULATION discovery - FOUND 99-CU where={}", w);
-                                } else {
-                                    logger.debug("##BUS## ----- THERMOREGULATION discovery - FOUND 4/99-CU where={}",
-                                            w);
-                                }
-                            }
-                        } else {
-                            foundThermoDevices.add(new DiscoveryResult(w, type, tdMsg));
-                        }
-                    }
-                }
-            }
-            final DiscoveryResult foundCU = cu;
-            if (foundCU != null) { // notify found CU...
-                notifyListeners((listener) -> listener.onNewDevice(foundCU.where, foundCU.type, foundCU.message));
+            tasks.add(new DiscoveryTask(pool, "THERMOREGULATION",
+                    ThermoregulationDiagnostic.requestDiagnostic(WhereThermo.ALL_MASTER_PROBES.value()), thermo,
+                    thermo::complete));
+            // DISCOVER DRY CONTACT / IR SENSOR - request: *#25*30##
+            // response <<<< *25*WHAT#0*WHERE##
+            // TODO use WhereScenario
+            tasks.add(new DiscoveryTask(pool, "DRY CONTACT / IR sensor", CENPlusScenario.requestStatus("30"),
+                    familyConsumer(CENPlusScenario.class)));
+            // DISCOVER AUX request:*#9*0##
+            // response <<<< *9*WHAT*0
+            tasks.add(new DiscoveryTask(pool, "AUX", Auxiliary.requestStatus(WhereAuxiliary.GENERAL.value()),
+                    familyConsumer(Auxiliary.class)));
+            // DISCOVER ALARM - request: *#5*0##
+            tasks.add(new DiscoveryTask(pool, "ALARM", Alarm.requestSystemStatus(), alarm));
+            runTasks(executor, tasks);
+
+            // DEEP DISCOVERY - probe address ranges, after general requests so that thermo CU is already notified
+            if (deep != null) {
+                logger.debug("##BUS## ----- DEEP discovery: {}", deep);
+                runTasks(executor, deepDiscoveryTasks(pool, deep));
             }
+            logger.debug("##BUS## ----- discovery used {} CMD sessions", pool.getSessions());
+        } catch (OWNException e) {
+            logger.error("##BUS## ----- # OWNException while discovering devices: {}", e.getMessage());
+            isDiscovering = false;
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // finished discovery
+        isDiscovering = false;
+        logger.debug("##BUS## ----- ### DISCOVERY COMPLETED");
+        notifyDiscoveryCompleted();
+    }
+
+    /*
+     * Runs tasks on the executor and waits for all of them to complete. Throws the first error.
+     */
+    private void runTasks(ExecutorService executor, List<Callable<Void>> tasks) throws OWNException {
+        List<Future<Void>> results = new ArrayList<>();
+        for (Callable<Void> task : tasks) {
+            results.add(executor.submit(task));
+        }
+        OWNException error = null;
+        for (Future<Void> result : results) {
             try {
-                Thread.sleep(500);
+                result.get();
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = (e.getCause() instanceof OWNException) ? (OWNException) e.getCause()
+                            : new OWNException("Error while discovering devices: " + e.getCause(), e.getCause());
+                }
             } catch (InterruptedException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+                Thread.currentThread().interrupt();
+                if (error == null) {
+                    error = new OWNException("Interrupted while discovering devices", e);
+                }
             }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
 
-            foundThermoDevices.forEach(fd -> { // ...then notify all found thermo zones and sensors
-                if (!OpenDeviceType.SCS_THERMO_CENTRAL_UNIT.equals(fd.type)) {
-                    notifyListeners((listener) -> listener.onNewDevice(fd.where, fd.type, fd.message));
-                }
-            });
+    /**
+     * Enables deep discovery: after general discovery requests, {@link #discoverDevices()} probes each address in the
+     * ranges set in {@link DeepDiscoveryConfig}, to find devices that do not answer general requests.
+     *
+     * @param config the {@link DeepDiscoveryConfig}, or null to disable deep discovery
+     */
+    public void setDeepDiscovery(DeepDiscoveryConfig config) {
+        this.deepDiscovery = config;
+    }
 
-            // DISCOVER DRY CONTACT / IR SENSOR - request: *#25*30##
-            // response <<<< *25*WHAT#0*WHERE##
-            logger.debug("##BUS## ----- DRY CONTACT / IR sensor discovery");
-            res = sendInternal(CENPlusScenario.requestStatus("30")); // TODO use WhereScenario
-            for (OpenMessage msg : res.getResponseMessages()) {
-                if (msg instanceof CENPlusScenario) {
-                    CENPlusScenario cenMsg = ((CENPlusScenario) msg);
-                    OpenDeviceType type = cenMsg.detectDeviceType();
-                    if (type != null) {
-                        Where w = cenMsg.getWhere();
-                        notifyListeners((listener) -> listener.onNewDevice(w, type, cenMsg));
+    /**
+     * Returns the deep discovery configuration
+     *
+     * @return the {@link DeepDiscoveryConfig}, or null if deep discovery is disabled
+     */
+    public DeepDiscoveryConfig getDeepDiscovery() {
+        return deepDiscovery;
+    }
+
+    /*
+     * Creates deep discovery tasks: one task per WHO and area for lights and automations (so that probing can stop
+     * early in an area), and tasks of up to PROBES_PER_TASK probes for the other address ranges
+     */
+    private List<Callable<Void>> deepDiscoveryTasks(CmdSessionPool pool, DeepDiscoveryConfig deep) {
+        RateLimiter rateLimiter = new RateLimiter(deep.rateLimit);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int a = deep.areaFrom; a <= deep.areaTo; a++) {
+            List<OpenMessage> lights = new ArrayList<>();
+            List<OpenMessage> automations = new ArrayList<>();
+            for (int pl = deep.plFrom; pl <= deep.plTo; pl++) {
+                String where = DeepDiscoveryConfig.lightPointWhere(a, pl);
+                lights.add(Lighting.requestStatus(where));
+                automations.add(Automation.requestStatus(where));
+            }
+            if (deep.lighting) {
+                tasks.add(new ProbeTask(pool, rateLimiter, "LIGHTS A=" + a, lights, Lighting.class,
+                        deep.areaMissLimit));
+            }
+            if (deep.automation) {
+                tasks.add(new ProbeTask(pool, rateLimiter, "AUTOMATION A=" + a, automations, Automation.class,
+                        deep.areaMissLimit));
+            }
+        }
+        List<OpenMessage> probes = new ArrayList<>();
+        for (int z = deep.thermoZoneFrom; z <= deep.thermoZoneTo; z++) {
+            probes.add(ThermoregulationDiagnostic.requestDiagnostic(String.valueOf(z)));
+        }
+        addProbeTasks(tasks, pool, rateLimiter, "THERMO ZONES", probes, ThermoregulationDiagnostic.class);
+        probes = new ArrayList<>();
+        for (int n = deep.energyMeterFrom; n <= deep.energyMeterTo; n++) {
+            probes.add(EnergyManagementDiagnostic.requestDiagnostic("5" + n));
+        }
+        addProbeTasks(tasks, pool, rateLimiter, "ENERGY METERS", probes, EnergyManagementDiagnostic.class);
+        probes = new ArrayList<>();
+        for (int n = deep.auxFrom; n <= deep.auxTo; n++) {
+            probes.add(Auxiliary.requestStatus(String.valueOf(n)));
+        }
+        addProbeTasks(tasks, pool, rateLimiter, "AUX", probes, Auxiliary.class);
+        return tasks;
+    }
+
+    private static final int PROBES_PER_TASK = 10;
+
+    private void addProbeTasks(List<Callable<Void>> tasks, CmdSessionPool pool, RateLimiter rateLimiter, String name,
+            List<OpenMessage> probes, Class<? extends BaseOpenMessage> msgType) {
+        for (int i = 0; i < probes.size(); i += PROBES_PER_TASK) {
+            tasks.add(new ProbeTask(pool, rateLimiter, name, probes.subList(i, Math.min(i + PROBES_PER_TASK,
+                    probes.size())), msgType, 0));
+        }
+    }
+
+    /* Probes a list of addresses in sequence, stopping after missLimit consecutive addresses not answering */
+    private class ProbeTask implements Callable<Void> {
+        final CmdSessionPool pool;
+        final RateLimiter rateLimiter;
+        final String name;
+        final List<OpenMessage> probes;
+        final Class<? extends BaseOpenMessage> msgType;
+        final int missLimit;
+
+        ProbeTask(CmdSessionPool pool, RateLimiter rateLimiter, String name, List<OpenMessage> probes,
+                Class<? extends BaseOpenMessage> msgType, int missLimit) {
+            this.pool = pool;
+            this.rateLimiter = rateLimiter;
+            this.name = name;
+            this.probes = probes;
+            this.msgType = msgType;
+            this.missLimit = missLimit;
+        }
+
+        @Override
+        public Void call() throws OWNException, InterruptedException {
+            Consumer<OpenMessage> notifier = familyConsumer(msgType);
+            int misses = 0;
+            for (OpenMessage probe : probes) {
+                rateLimiter.acquire();
+                boolean[] hit = { false };
+                updateStateCache(pool.send(probe.getFrameValue(), msg -> {
+                    if (msgType.isInstance(msg)) {
+                        hit[0] = true;
+                        notifier.accept(msg);
                     }
+                }));
+                misses = hit[0] ? 0 : misses + 1;
+                if (missLimit > 0 && misses >= missLimit) {
+                    logger.debug("##BUS## ----- DEEP {}: {} consecutive probes not answered, stopping at {}", name,
+                            misses, probe);
+                    break;
                 }
             }
-            // DISCOVER AUX request:*#9*0##
-            // response <<<< *9*WHAT*0
-            logger.debug("##BUS## ----- AUX discovery");
-            res = sendInternal(Auxiliary.requestStatus(WhereAuxiliary.GENERAL.value()));
-            for (OpenMessage msg : res.getResponseMessages()) {
-                if (msg instanceof Auxiliary) {
-                    Auxiliary auxMsg = (Auxiliary) msg;
-                    OpenDeviceType type = auxMsg.detectDeviceType();
+            return null;
+        }
+    }
+
+    /*
+     * Returns a consumer of response messages notifying a new device for each message of the given type
+     */
+    private Consumer<OpenMessage> familyConsumer(Class<? extends BaseOpenMessage> msgType) {
+        return msg -> {
+            if (msgType.isInstance(msg)) {
+                BaseOpenMessage bmsg = msgType.cast(msg);
+                try {
+                    OpenDeviceType type = bmsg.detectDeviceType();
                     if (type != null) {
-                        Where w = auxMsg.getWhere();
-                        notifyListeners((listener) -> listener.onNewDevice(w, type, auxMsg));
+                        notifyNewDevice(bmsg.getWhere(), type, bmsg);
                     }
+                } catch (FrameException e) {
+                    logger.debug("##BUS## ----- cannot detect device type for {}: {}", bmsg, e.getMessage());
                 }
             }
-            // DISCOVER ALARM - request: *#5*0##
-            logger.debug("##BUS## ----- ALARM discovery");
-            res = sendInternal(Alarm.requestSystemStatus());
-            boolean foundAlarmCentralUnit = false; // to notify central unit only once
-            for (OpenMessage msg : res.getResponseMessages()) {
-                if (msg instanceof Alarm) {
-                    Alarm alarmMsg = ((Alarm) msg);
-                    OpenDeviceType type = alarmMsg.detectDeviceType();
-                    if (type != null) {
-                        if (type == OpenDeviceType.SCS_ALARM_CENTRAL_UNIT) {
-                            if (!foundAlarmCentralUnit) {
-                                foundAlarmCentralUnit = true;
-                                notifyListeners((listener) -> listener.onNewDevice(null, type, alarmMsg));
+        };
+    }
+
+    /*
+     * Thermoregulation discovery: the CU must be notified before zones and sensors. A 99-zones CU is preferred over a
+     * 4-zones CU, so zones and sensors are kept until a 99-zones CU is found or the response is complete.
+     */
+    private class ThermoDiscovery implements Consumer<OpenMessage> {
+        private DiscoveredDevice cu = null;
+        private boolean cuNotified = false;
+        private final List<DiscoveredDevice> pending = new ArrayList<>(); // found thermo devices other than CU
+
+        @Override
+        public synchronized void accept(OpenMessage msg) {
+            if (msg instanceof ThermoregulationDiagnostic) {
+                ThermoregulationDiagnostic tdMsg = ((ThermoregulationDiagnostic) msg);
+                OpenDeviceType type = tdMsg.detectDeviceType();
+                if (type != null) {
+                    Where w = tdMsg.getWhere();
+                    if (OpenDeviceType.SCS_THERMO_CENTRAL_UNIT.equals(type)) {
+                        if (!cuNotified) {
+                            cu = new DiscoveredDevice(w, type, tdMsg);
+                            if (w.value().charAt(0) == '#') {
+                                logger.debug("##BUS## ----- THERMOREGULATION discovery - FOUND 99-CU where={}", w);
+                                notifyCU();
+                            } else {
+                                logger.debug("##BUS## ----- THERMOREGULATION discovery - FOUND 4/99-CU where={}", w);
                             }
-                        } else if (type == OpenDeviceType.SCS_ALARM_ZONE) {
-                            Where w = alarmMsg.getWhere();
-                            notifyListeners((listener) -> listener.onNewDevice(w, type, alarmMsg));
                         }
+                    } else if (cuNotified) {
+                        notifyNewDevice(w, type, tdMsg);
+                    } else {
+                        pending.add(new DiscoveredDevice(w, type, tdMsg));
                     }
                 }
             }
+        }
 
-        } catch (OWNException e) {
-            logger.error("##BUS## ----- # OWNException while discovering devices: {}", e.getMessage());
-            isDiscovering = false;
-            throw e;
+        synchronized void complete() {
+            if (!cuNotified && cu != null) {
+                notifyCU();
+            }
+            // ...then notify all found thermo zones and sensors
+            pending.forEach(fd -> notifyNewDevice(fd.getWhere(), fd.getType(), fd.getMessage()));
+            pending.clear();
         }
 
-        // finished discovery
-        isDiscovering = false;
-        logger.debug("##BUS## ----- ### DISCOVERY COMPLETED");
-        notifyListeners((listener) -> listener.onDiscoveryCompleted());
+        private void notifyCU() {
+            cuNotified = true;
+            notifyNewDevice(cu.getWhere(), cu.getType(), cu.getMessage());
+            pending.forEach(fd -> notifyNewDevice(fd.getWhere(), fd.getType(), fd.getMessage()));
+            pending.clear();
+        }
+    }
+
+    /*
+     * Alarm discovery: the central unit is notified only once
+     */
+    private class AlarmDiscovery implements Consumer<OpenMessage> {
+        private boolean foundAlarmCentralUnit = false;
+
+        @Override
+        public synchronized void accept(OpenMessage msg) {
+            if (msg instanceof Alarm) {
+                Alarm alarmMsg = ((Alarm) msg);
+                OpenDeviceType type = alarmMsg.detectDeviceType();
+                if (type != null) {
+                    if (type == OpenDeviceType.SCS_ALARM_CENTRAL_UNIT) {
+                        if (!foundAlarmCentralUnit) {
+                            foundAlarmCentralUnit = true;
+                            notifyNewDevice(null, type, alarmMsg);
+                        }
+                    } else if (type == OpenDeviceType.SCS_ALARM_ZONE) {
+                        notifyNewDevice(alarmMsg.getWhere(), type, alarmMsg);
+                    }
+                }
+            }
+        }
     }
 
     @Override
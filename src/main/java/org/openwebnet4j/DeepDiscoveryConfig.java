@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j;
+
+/**
+ * Configuration of deep discovery for {@link BUSGateway} (see {@link BUSGateway#setDeepDiscovery}): after the general
+ * discovery requests, each address in the configured ranges is probed with a point-to-point request, to find devices
+ * that do not answer general requests.
+ *
+ * <p>
+ * Default ranges are: light/automation areas 0-10 and light points 1-15, thermo zones 1-99, energy meters 51-59
+ * (<code>5N</code>, N=1-9), auxiliaries 1-9. Probes are sent on up to {@link #withConcurrency(int)} CMD sessions,
+ * with no rate limit. Probing of an area stops after {@link #withAreaMissLimit(int)} consecutive light points not
+ * answering (default 5). A range with from &gt; to disables probing of that device type.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class DeepDiscoveryConfig {
+
+    int areaFrom = 0;
+    int areaTo = 10;
+    int plFrom = 1;
+    int plTo = 15;
+    int thermoZoneFrom = 1;
+    int thermoZoneTo = 99;
+    int energyMeterFrom = 1;
+    int energyMeterTo = 9;
+    int auxFrom = 1;
+    int auxTo = 9;
+    boolean lighting = true;
+    boolean automation = true;
+    int concurrency = 3;
+    double rateLimit = 0;
+    int areaMissLimit = 5;
+
+    private static void checkRange(int from, int to, int min, int max) {
+        if (from <= to && (from < min || to > max)) {
+            throw new IllegalArgumentException("Invalid range [" + from + "-" + to + "], must be in [" + min + "-"
+                    + max + "]. Use from > to to disable it");
+        }
+    }
+
+    /**
+     * Sets the range of areas (0-10) and light points (1-15) to probe for lights and automations
+     *
+     * @param areaFrom first area
+     * @param areaTo last area
+     * @param plFrom first light point
+     * @param plTo last light point
+     * @return this config
+     */
+    public DeepDiscoveryConfig withLightPoints(int areaFrom, int areaTo, int plFrom, int plTo) {
+        checkRange(areaFrom, areaTo, 0, 10);
+        checkRange(plFrom, plTo, 1, 15);
+        this.areaFrom = areaFrom;
+        this.areaTo = areaTo;
+        this.plFrom = plFrom;
+        this.plTo = plTo;
+        return this;
+    }
+
+    /**
+     * Sets if lights and/or automations are probed in light points ranges
+     *
+     * @param lighting true to probe lights
+     * @param automation true to probe automations
+     * @return this config
+     */
+    public DeepDiscoveryConfig withLightPointTypes(boolean lighting, boolean automation) {
+        this.lighting = lighting;
+        this.automation = automation;
+        return this;
+    }
+
+    /**
+     * Sets the range of thermo zones (1-99) to probe
+     *
+     * @param from first zone
+     * @param to last zone
+     * @return this config
+     */
+    public DeepDiscoveryConfig withThermoZones(int from, int to) {
+        checkRange(from, to, 1, 99);
+        this.thermoZoneFrom = from;
+        this.thermoZoneTo = to;
+        return this;
+    }
+
+    /**
+     * Sets the range of energy meters N (1-255, WHERE=5N) to probe
+     *
+     * @param from first meter
+     * @param to last meter
+     * @return this config
+     */
+    public DeepDiscoveryConfig withEnergyMeters(int from, int to) {
+        checkRange(from, to, 1, 255);
+        this.energyMeterFrom = from;
+        this.energyMeterTo = to;
+        return this;
+    }
+
+    /**
+     * Sets the range of auxiliaries (1-9) to probe
+     *
+     * @param from first auxiliary
+     * @param to last auxiliary
+     * @return this config
+     */
+    public DeepDiscoveryConfig withAuxiliaries(int from, int to) {
+        checkRange(from, to, 1, 9);
+        this.auxFrom = from;
+        this.auxTo = to;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of CMD sessions used to send probes concurrently
+     *
+     * @param sessions maximum number of CMD sessions
+     * @return this config
+     */
+    public DeepDiscoveryConfig withConcurrency(int sessions) {
+        this.concurrency = Math.max(1, sessions);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of probes sent per second, over all sessions
+     *
+     * @param probesPerSecond maximum probes per second, &lt;= 0 for no limit
+     * @return this config
+     */
+    public DeepDiscoveryConfig withRateLimit(double probesPerSecond) {
+        this.rateLimit = probesPerSecond;
+        return this;
+    }
+
+    /**
+     * Sets after how many consecutive light points not answering probing of an area is stopped
+     *
+     * @param misses number of consecutive misses, 0 to always probe all light points
+     * @return this config
+     */
+    public DeepDiscoveryConfig withAreaMissLimit(int misses) {
+        this.areaMissLimit = Math.max(0, misses);
+        return this;
+    }
+
+    /*
+     * WHERE for area a (0-10) and light point pl (1-15)
+     */
+    static String lightPointWhere(int a, int pl) {
+        if (a == 10) {
+            return "10" + (pl < 10 ? "0" : "") + pl;
+        } else if (a == 0 || pl > 9) {
+            return "0" + a + (pl < 10 ? "0" : "") + pl;
+        } else {
+            return "" + a + pl;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DeepDiscoveryConfig{A=" + areaFrom + "-" + areaTo + ",PL=" + plFrom + "-" + plTo + ",thermo="
+                + thermoZoneFrom + "-" + thermoZoneTo + ",energy=5[" + energyMeterFrom + "-" + energyMeterTo
+                + "],aux=" + auxFrom + "-" + auxTo + ",concurrency=" + concurrency + ",rate=" + rateLimit
+                + ",missLimit=" + areaMissLimit + "}";
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.Dim;
+import org.openwebnet4j.message.Who;
+
+/**
+ * The last known state of a device (WHO + WHERE), or of one of its dimensions (WHO + WHERE + DIM), as stored in a
+ * {@link DeviceStateCache}. The state is the last message received for that key: values can be decoded using the
+ * message accessors (for example {@link org.openwebnet4j.message.Lighting#isOn()}). DeviceState is immutable.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public final class DeviceState {
+
+    private final Who who;
+    private final String where;
+    private final @Nullable Dim dim;
+    private final BaseOpenMessage message;
+    private final long lastUpdated;
+    private final long lastChanged;
+
+    DeviceState(Who who, String where, @Nullable Dim dim, BaseOpenMessage message, long lastUpdated,
+            long lastChanged) {
+        this.who = who;
+        this.where = where;
+        this.dim = dim;
+        this.message = message;
+        this.lastUpdated = lastUpdated;
+        this.lastChanged = lastChanged;
+    }
+
+    /**
+     * Returns the WHO of this state
+     *
+     * @return the Who
+     */
+    public Who getWho() {
+        return who;
+    }
+
+    /**
+     * Returns the WHERE value of this state
+     *
+     * @return the WHERE value
+     */
+    public String getWhere() {
+        return where;
+    }
+
+    /**
+     * Returns the DIM of this state, or null if this is the state set by command messages (WHAT)
+     *
+     * @return the Dim or null
+     */
+    public @Nullable Dim getDim() {
+        return dim;
+    }
+
+    /**
+     * Returns the last message received for this state
+     *
+     * @return the message
+     */
+    public BaseOpenMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the time this state was last confirmed by a message, even if the value did not change
+     *
+     * @return last update time (milliseconds since epoch)
+     */
+    public long getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * Returns the time the value of this state last changed
+     *
+     * @return last change time (milliseconds since epoch)
+     */
+    public long getLastChanged() {
+        return lastChanged;
+    }
+
+    /**
+     * Returns the time elapsed since this state was last updated
+     *
+     * @return age in milliseconds
+     */
+    public long getAge() {
+        return System.currentTimeMillis() - lastUpdated;
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceState{" + message.getFrameValue() + ",age=" + getAge() + "ms}";
+    }
+}
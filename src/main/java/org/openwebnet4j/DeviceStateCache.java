@@ -0,0 +1,363 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.message.Alarm;
+import org.openwebnet4j.message.Alarm.WhatAlarm;
+import org.openwebnet4j.message.Automation;
+import org.openwebnet4j.message.Automation.WhatAutomation;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.Dim;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.GatewayMgmt;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Thermoregulation;
+import org.openwebnet4j.message.Thermoregulation.DimThermo;
+import org.openwebnet4j.message.What;
+import org.openwebnet4j.message.Where;
+import org.openwebnet4j.message.WhereLightAutom;
+import org.openwebnet4j.message.Who;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory cache of the last known state of devices, updated from events and command responses received by an
+ * {@link OpenGateway} (see {@link OpenGateway#setStateCacheEnabled(boolean)}).
+ *
+ * <p>
+ * States are keyed by WHO + WHERE for command messages (<code>*WHO*WHAT*WHERE##</code>) and by WHO + WHERE + DIM for
+ * dimension messages (<code>*#WHO*WHERE*DIM*...##</code>). Each state keeps the time it was last updated and last
+ * changed. {@link DeviceStateListener}s are notified only when a state changes value.
+ *
+ * <p>
+ * Lighting and Automation commands sent to an area or to the general WHERE are applied to the known light points of
+ * that area. Group commands are not applied, since group membership is not known.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class DeviceStateCache {
+
+    private final Logger logger = LoggerFactory.getLogger(DeviceStateCache.class);
+
+    private final Map<String, DeviceState> states = new ConcurrentHashMap<>();
+    private final List<DeviceStateListener> listeners = new CopyOnWriteArrayList<>();
+
+    private static String key(Who who, String where, @Nullable Dim dim) {
+        if (dim == null) {
+            return who.value() + "|" + where;
+        } else {
+            return who.value() + "|" + where + "|" + dim.value();
+        }
+    }
+
+    /**
+     * Updates the cache with the messages of a {@link Response}: response messages, and the request itself if it was
+     * a command and it was successful
+     *
+     * @param res the Response
+     */
+    public void update(Response res) {
+        for (OpenMessage msg : res.getResponseMessages()) {
+            update(msg);
+        }
+        if (res.isSuccess() && res.getRequest().isCommand()) {
+            update(res.getRequest());
+        }
+    }
+
+    /**
+     * Updates the cache with a message. ACK/NACK, gateway management messages, status requests and dimension writing
+     * messages are ignored.
+     *
+     * @param msg the message
+     * @return true if a state has changed
+     */
+    public boolean update(OpenMessage msg) {
+        if (!(msg instanceof BaseOpenMessage) || msg instanceof GatewayMgmt) {
+            return false;
+        }
+        BaseOpenMessage bmsg = (BaseOpenMessage) msg;
+        Dim dim = null;
+        Where w;
+        try {
+            if (!bmsg.isCommand()) {
+                dim = bmsg.getDim();
+                if (dim == null || bmsg.isDimWriting()) {
+                    return false;
+                }
+            }
+            w = bmsg.getWhere();
+        } catch (RuntimeException e) {
+            logger.debug("Cannot update state from message {}: {}", msg, e.getMessage());
+            return false;
+        }
+        if (w == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        List<DeviceState[]> changes = new ArrayList<>(1);
+        synchronized (this) {
+            put(bmsg, w.value(), dim, now, changes);
+            if (dim == null && w instanceof WhereLightAutom && !((WhereLightAutom) w).isAPL()) {
+                propagate(bmsg, (WhereLightAutom) w, now, changes);
+            }
+        }
+        for (DeviceState[] change : changes) {
+            notifyChange(change[0], change[1]);
+        }
+        return !changes.isEmpty();
+    }
+
+    /*
+     * Restores a state, for example from a GatewaySnapshot, if no newer state is known. Listeners are not notified.
+     */
+    synchronized void restore(DeviceState state) {
+        String k = key(state.getWho(), state.getWhere(), state.getDim());
+        DeviceState current = states.get(k);
+        if (current == null || current.getLastUpdated() < state.getLastUpdated()) {
+            states.put(k, state);
+        }
+    }
+
+    private void put(BaseOpenMessage msg, String where, @Nullable Dim dim, long now, List<DeviceState[]> changes) {
+        String k = key(msg.getWho(), where, dim);
+        DeviceState previous = states.get(k);
+        if (previous != null && previous.getMessage().getFrameValue().equals(msg.getFrameValue())) {
+            states.put(k, new DeviceState(msg.getWho(), where, dim, msg, now, previous.getLastChanged()));
+        } else {
+            DeviceState current = new DeviceState(msg.getWho(), where, dim, msg, now, now);
+            states.put(k, current);
+            changes.add(new DeviceState[] { previous, current });
+        }
+    }
+
+    /*
+     * Applies an area/general Lighting or Automation command to the known light points of the area
+     */
+    private void propagate(BaseOpenMessage msg, WhereLightAutom w, long now, List<DeviceState[]> changes) {
+        if (w.isGroup()) {
+            return;
+        }
+        boolean isState;
+        if (msg instanceof Lighting) {
+            isState = ((Lighting) msg).isOn() || ((Lighting) msg).isOff();
+        } else if (msg instanceof Automation) {
+            isState = msg.getWhat() instanceof WhatAutomation;
+        } else {
+            isState = false;
+        }
+        if (!isState) {
+            return;
+        }
+        String frame = msg.getFrameValue();
+        String whatPart = frame.substring(frame.indexOf('*', 1) + 1, frame.lastIndexOf('*'));
+        for (DeviceState s : new ArrayList<>(states.values())) {
+            if (s.getDim() == null && s.getWho() == msg.getWho()
+                    && s.getMessage().getWhere() instanceof WhereLightAutom) {
+                WhereLightAutom sw = (WhereLightAutom) s.getMessage().getWhere();
+                if (sw.isAPL() && (w.isGeneral() || w.getArea() == sw.getArea())
+                        && Objects.equals(w.getBUSIfc(), sw.getBUSIfc())) {
+                    try {
+                        BaseOpenMessage pointMsg = (BaseOpenMessage) BaseOpenMessage
+                                .parse("*" + msg.getWho().value() + "*" + whatPart + "*" + sw.value() + "##");
+                        put(pointMsg, sw.value(), null, now, changes);
+                    } catch (FrameException e) {
+                        logger.debug("Cannot apply {} to WHERE {}: {}", msg, sw, e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private void notifyChange(@Nullable DeviceState previous, DeviceState current) {
+        for (DeviceStateListener l : listeners) {
+            try {
+                l.onStateChanged(previous, current);
+            } catch (Exception e) {
+                logger.warn("Error while notifying state change {} to {}: {}", current, l, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the state set by command messages for a WHO and WHERE
+     *
+     * @param who the Who
+     * @param where the WHERE value
+     * @return the {@link DeviceState}, or null if not known
+     */
+    public @Nullable DeviceState getState(Who who, String where) {
+        return states.get(key(who, where, null));
+    }
+
+    /**
+     * Returns the state of a dimension for a WHO and WHERE
+     *
+     * @param who the Who
+     * @param where the WHERE value
+     * @param dim the Dim
+     * @return the {@link DeviceState}, or null if not known
+     */
+    public @Nullable DeviceState getState(Who who, String where, Dim dim) {
+        return states.get(key(who, where, dim));
+    }
+
+    /**
+     * Returns all known states
+     *
+     * @return unmodifiable collection of states
+     */
+    public Collection<DeviceState> getStates() {
+        return Collections.unmodifiableCollection(states.values());
+    }
+
+    /**
+     * Returns all known states for a WHO
+     *
+     * @param who the Who
+     * @return list of states
+     */
+    public List<DeviceState> getStates(Who who) {
+        List<DeviceState> list = new ArrayList<>();
+        for (DeviceState s : states.values()) {
+            if (s.getWho() == who) {
+                list.add(s);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns if a light is on, from its last known state
+     *
+     * @param where the WHERE value
+     * @return true if on (including dimmer levels), false if off, null if not known
+     */
+    public @Nullable Boolean isLightOn(String where) {
+        DeviceState s = getState(Who.LIGHTING, where);
+        if (s == null || !(s.getMessage() instanceof Lighting)) {
+            return null;
+        }
+        Lighting l = (Lighting) s.getMessage();
+        if (l.isOff()) {
+            return Boolean.FALSE;
+        }
+        What what = l.getWhat();
+        if (what != null && what.value() >= 1 && what.value() <= 10) {
+            return Boolean.TRUE;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the last known movement (STOP/UP/DOWN) of an automation
+     *
+     * @param where the WHERE value
+     * @return the {@link WhatAutomation}, or null if not known
+     */
+    public @Nullable WhatAutomation getAutomationState(String where) {
+        DeviceState s = getState(Who.AUTOMATION, where);
+        if (s != null && s.getMessage() instanceof Automation) {
+            What what = s.getMessage().getWhat();
+            if (what instanceof WhatAutomation) {
+                return (WhatAutomation) what;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the last known temperature of a thermo zone or probe
+     *
+     * @param where the WHERE value
+     * @return the temperature in degrees Celsius, or null if not known
+     */
+    public @Nullable Double getTemperature(String where) {
+        DeviceState s = getState(Who.THERMOREGULATION, where, DimThermo.TEMPERATURE);
+        if (s == null) {
+            s = getState(Who.THERMOREGULATION, where, DimThermo.PROBE_TEMPERATURE);
+        }
+        if (s != null && s.getMessage() instanceof Thermoregulation) {
+            try {
+                return Thermoregulation.parseTemperature((Thermoregulation) s.getMessage());
+            } catch (NumberFormatException | FrameException e) {
+                logger.debug("Cannot parse temperature from {}: {}", s.getMessage(), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the last known state of an alarm zone
+     *
+     * @param where the WHERE value
+     * @return the {@link WhatAlarm}, or null if not known
+     */
+    public @Nullable WhatAlarm getAlarmZoneState(String where) {
+        DeviceState s = getState(Who.BURGLAR_ALARM, where);
+        if (s != null && s.getMessage() instanceof Alarm) {
+            What what = s.getMessage().getWhat();
+            if (what instanceof WhatAlarm) {
+                return (WhatAlarm) what;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a listener of state changes. Listeners are called on the thread updating the cache and should return
+     * quickly.
+     *
+     * @param listener the {@link DeviceStateListener}
+     */
+    public void addListener(DeviceStateListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener of state changes.
+     *
+     * @param listener the {@link DeviceStateListener}
+     */
+    public void removeListener(DeviceStateListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of known states
+     *
+     * @return number of states
+     */
+    public int size() {
+        return states.size();
+    }
+
+    /** Removes all states */
+    public void clear() {
+        states.clear();
+    }
+}
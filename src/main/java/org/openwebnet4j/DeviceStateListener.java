@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Interface {@link DeviceStateListener} to listen to state changes in a {@link DeviceStateCache}
+ *
+ * @author M. Valla - Initial contribution
+ */
+@FunctionalInterface
+public interface DeviceStateListener {
+
+    /**
+     * This method is called when a state has changed value. It is not called when a message confirms the current
+     * value.
+     *
+     * @param previous the previous {@link DeviceState}, or null if the state was not known
+     * @param current the new {@link DeviceState}
+     */
+    public void onStateChanged(@Nullable DeviceState previous, DeviceState current);
+}
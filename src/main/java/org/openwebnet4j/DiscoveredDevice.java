@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.Where;
+
+/**
+ * A device found by device discovery: its address (WHERE), device type and the message that identified it.
+ * DiscoveredDevice is immutable.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public final class DiscoveredDevice {
+
+    private final @Nullable Where where;
+    private final OpenDeviceType type;
+    private final BaseOpenMessage message;
+
+    DiscoveredDevice(@Nullable Where where, OpenDeviceType type, BaseOpenMessage message) {
+        this.where = where;
+        this.type = type;
+        this.message = message;
+    }
+
+    /**
+     * Returns the device address (WHERE)
+     *
+     * @return the Where, or null for devices without address (for example the alarm central unit)
+     */
+    public @Nullable Where getWhere() {
+        return where;
+    }
+
+    /**
+     * Returns the device type
+     *
+     * @return the OpenDeviceType
+     */
+    public OpenDeviceType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the message that identified the device
+     *
+     * @return the message
+     */
+    public BaseOpenMessage getMessage() {
+        return message;
+    }
+
+    /*
+     * key identifying a device: type + WHERE
+     */
+    String key() {
+        return type.name() + "|" + (where != null ? where.value() : "");
+    }
+
+    @Override
+    public String toString() {
+        return "DiscoveredDevice{" + type + (where != null ? ",w:" + where.value() : "") + "}";
+    }
+}
@@ -0,0 +1,456 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.message.Dim;
+import org.openwebnet4j.message.EnergyManagement;
+import org.openwebnet4j.message.EnergyManagement.DimEnergyMgmt;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Where;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory time series of {@link EnergyManagement} values (active power, current day and current month totalizers)
+ * per energy meter, updated from events and responses received by an {@link OpenGateway} (see
+ * {@link OpenGateway#setEnergyStoreEnabled(boolean)}).
+ *
+ * <p>
+ * Samples are stored compressed in chunks: timestamps (ms) as delta-of-delta and values as delta from the previous
+ * value, both zig-zag varint encoded, so that a sample with regular notification interval and small value changes
+ * takes 2-3 bytes. When the memory used by chunks exceeds the configured budget, the oldest chunks of all meters are
+ * discarded. Samples can be read back as is ({@link #getSamples}) or downsampled to min/max/avg per interval
+ * ({@link #downsample}).
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class EnergyStore {
+
+    public static final long DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+    private static final int CHUNK_SIZE = 512; // bytes
+    private static final int MAX_SAMPLE_SIZE = 20; // 2 varints of max 10 bytes
+
+    private final Logger logger = LoggerFactory.getLogger(EnergyStore.class);
+
+    private final long maxBytes;
+    private final Map<String, Series> series = new HashMap<>();
+    private long usedBytes = 0;
+    private long discardedChunks = 0;
+
+    /** A sample of a time series */
+    public static final class Sample {
+        private final long time;
+        private final long value;
+
+        Sample(long time, long value) {
+            this.time = time;
+            this.value = value;
+        }
+
+        /**
+         * Returns the sample time (epoch ms)
+         *
+         * @return the sample time (epoch ms)
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Returns the sample value (W for active power, Wh for totalizers)
+         *
+         * @return the sample value (W for active power, Wh for totalizers)
+         */
+        public long getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return time + "=" + value;
+        }
+    }
+
+    /** Min/max/avg of the samples in an interval */
+    public static final class Aggregate {
+        private final long start;
+        private final int count;
+        private final long min;
+        private final long max;
+        private final double avg;
+
+        Aggregate(long start, int count, long min, long max, double avg) {
+            this.start = start;
+            this.count = count;
+            this.min = min;
+            this.max = max;
+            this.avg = avg;
+        }
+
+        /**
+         * Returns the interval start time (epoch ms)
+         *
+         * @return the interval start time (epoch ms)
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the number of samples in the interval
+         *
+         * @return the number of samples in the interval
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the min value in the interval
+         *
+         * @return the min value in the interval
+         */
+        public long getMin() {
+            return min;
+        }
+
+        /**
+         * Returns the max value in the interval
+         *
+         * @return the max value in the interval
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the average value in the interval
+         *
+         * @return the average value in the interval
+         */
+        public double getAvg() {
+            return avg;
+        }
+
+        @Override
+        public String toString() {
+            return "{" + start + ",n=" + count + ",min=" + min + ",max=" + max + ",avg=" + avg + "}";
+        }
+    }
+
+    /* a chunk of compressed samples */
+    private static final class Chunk {
+        final long firstTime;
+        final long firstValue;
+        byte[] data = new byte[CHUNK_SIZE + MAX_SAMPLE_SIZE];
+        int size = 0;
+        int count = 1;
+        long lastTime;
+        long lastValue;
+        long lastDelta = 0;
+
+        Chunk(long time, long value) {
+            firstTime = time;
+            firstValue = value;
+            lastTime = time;
+            lastValue = value;
+        }
+
+        void add(long time, long value) {
+            long delta = time - lastTime;
+            putVarLong(delta - lastDelta);
+            putVarLong(value - lastValue);
+            lastDelta = delta;
+            lastTime = time;
+            lastValue = value;
+            count++;
+        }
+
+        private void putVarLong(long v) {
+            long z = (v << 1) ^ (v >> 63); // zig-zag
+            while ((z & ~0x7FL) != 0) {
+                data[size++] = (byte) ((z & 0x7F) | 0x80);
+                z >>>= 7;
+            }
+            data[size++] = (byte) z;
+        }
+
+        boolean isFull() {
+            return size >= CHUNK_SIZE;
+        }
+
+        /* trims data to the used size, returns bytes released */
+        int seal() {
+            int released = data.length - size;
+            data = Arrays.copyOf(data, size);
+            return released;
+        }
+
+        void read(long from, long to, List<Sample> out) {
+            long t = firstTime;
+            long v = firstValue;
+            long delta = 0;
+            int pos = 0;
+            long[] r = new long[2];
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    pos = getVarLong(data, pos, r, 0);
+                    pos = getVarLong(data, pos, r, 1);
+                    delta += r[0];
+                    t += delta;
+                    v += r[1];
+                }
+                if (t > to) {
+                    return;
+                }
+                if (t >= from) {
+                    out.add(new Sample(t, v));
+                }
+            }
+        }
+
+        private static int getVarLong(byte[] data, int pos, long[] out, int idx) {
+            long z = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                z |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            out[idx] = (z >>> 1) ^ -(z & 1);
+            return pos;
+        }
+    }
+
+    private static final class Series {
+        final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+    }
+
+    /** Creates a new EnergyStore with {@link #DEFAULT_MAX_BYTES} memory budget */
+    public EnergyStore() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a new EnergyStore
+     *
+     * @param maxBytes approximate max memory used by samples, in bytes
+     */
+    public EnergyStore(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    private static String key(String where, DimEnergyMgmt dim) {
+        return where + "|" + dim.value();
+    }
+
+    /**
+     * Updates the store with the messages of a {@link Response}
+     *
+     * @param res the Response
+     */
+    public void update(Response res) {
+        for (OpenMessage msg : res.getResponseMessages()) {
+            update(msg);
+        }
+    }
+
+    /**
+     * Adds a sample from an {@link EnergyManagement} active power or totalizer message, with current time. Other
+     * messages are ignored.
+     *
+     * @param msg the message
+     * @return true if a sample was added
+     */
+    public boolean update(OpenMessage msg) {
+        if (!(msg instanceof EnergyManagement) || msg.isCommand()) {
+            return false;
+        }
+        EnergyManagement em = (EnergyManagement) msg;
+        try {
+            Dim dim = em.getDim();
+            if (em.isDimWriting() || (dim != DimEnergyMgmt.ACTIVE_POWER
+                    && dim != DimEnergyMgmt.PARTIAL_TOTALIZER_CURRENT_DAY
+                    && dim != DimEnergyMgmt.PARTIAL_TOTALIZER_CURRENT_MONTH)) {
+                return false;
+            }
+            String[] values = em.getDimValues();
+            Where w = em.getWhere();
+            if (values.length == 0 || w == null) {
+                return false;
+            }
+            add(w.value(), (DimEnergyMgmt) dim, System.currentTimeMillis(),
+                    Long.parseLong(values[values.length - 1]));
+            return true;
+        } catch (FrameException | RuntimeException e) {
+            logger.debug("Cannot add energy sample from message {}: {}", msg, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Adds a sample. Samples must be added in time order: a sample older than the last one of the same series is
+     * stored with the time of the last sample.
+     *
+     * @param where the energy meter WHERE
+     * @param dim the dimension
+     * @param time sample time (epoch ms)
+     * @param value sample value
+     */
+    public synchronized void add(String where, DimEnergyMgmt dim, long time, long value) {
+        Series s = series.computeIfAbsent(key(where, dim), k -> new Series());
+        Chunk c = s.chunks.peekLast();
+        if (c == null || c.isFull()) {
+            if (c != null) {
+                usedBytes -= c.seal();
+            }
+            c = new Chunk(time, value);
+            s.chunks.addLast(c);
+            usedBytes += c.data.length;
+            evict();
+        } else {
+            c.add(Math.max(time, c.lastTime), value);
+        }
+    }
+
+    /*
+     * discards the oldest sealed chunks until memory used is within budget
+     */
+    private void evict() {
+        while (usedBytes > maxBytes) {
+            Series oldest = null;
+            for (Series s : series.values()) {
+                Chunk first = s.chunks.peekFirst();
+                if (s.chunks.size() > 1
+                        && (oldest == null || first.firstTime < oldest.chunks.peekFirst().firstTime)) {
+                    oldest = s;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            usedBytes -= oldest.chunks.removeFirst().data.length;
+            discardedChunks++;
+        }
+    }
+
+    /**
+     * Returns the samples of an energy meter and dimension in a time range
+     *
+     * @param where the energy meter WHERE
+     * @param dim the dimension
+     * @param from start time (epoch ms, inclusive)
+     * @param to end time (epoch ms, inclusive)
+     * @return list of samples in time order
+     */
+    public synchronized List<Sample> getSamples(String where, DimEnergyMgmt dim, long from, long to) {
+        List<Sample> out = new ArrayList<>();
+        Series s = series.get(key(where, dim));
+        if (s != null) {
+            for (Chunk c : s.chunks) {
+                if (c.lastTime >= from && c.firstTime <= to) {
+                    c.read(from, to, out);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Returns min/max/avg of the samples of an energy meter and dimension in a time range, per interval. Intervals are
+     * aligned to multiples of interval length since epoch; intervals without samples are not returned.
+     *
+     * @param where the energy meter WHERE
+     * @param dim the dimension
+     * @param from start time (epoch ms, inclusive)
+     * @param to end time (epoch ms, inclusive)
+     * @param interval the interval length, for example 1 minute or 1 hour
+     * @return list of aggregates in time order
+     */
+    public List<Aggregate> downsample(String where, DimEnergyMgmt dim, long from, long to, Duration interval) {
+        long len = interval.toMillis();
+        if (len <= 0) {
+            throw new IllegalArgumentException("interval must be >= 1ms");
+        }
+        List<Aggregate> out = new ArrayList<>();
+        long start = 0;
+        int count = 0;
+        long min = 0;
+        long max = 0;
+        long sum = 0;
+        for (Sample s : getSamples(where, dim, from, to)) {
+            long st = Math.floorDiv(s.time, len) * len;
+            if (count > 0 && st != start) {
+                out.add(new Aggregate(start, count, min, max, (double) sum / count));
+                count = 0;
+            }
+            if (count == 0) {
+                start = st;
+                min = s.value;
+                max = s.value;
+                sum = 0;
+            }
+            min = Math.min(min, s.value);
+            max = Math.max(max, s.value);
+            sum += s.value;
+            count++;
+        }
+        if (count > 0) {
+            out.add(new Aggregate(start, count, min, max, (double) sum / count));
+        }
+        return out;
+    }
+
+    /**
+     * Returns the approximate memory used by samples, in bytes
+     *
+     * @return used bytes
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Returns the number of chunks of samples discarded to stay within the memory budget
+     *
+     * @return number of discarded chunks
+     */
+    public synchronized long getDiscardedChunks() {
+        return discardedChunks;
+    }
+
+    /** Removes all samples */
+    public synchronized void clear() {
+        series.clear();
+        usedBytes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "EnergyStore{series=" + series.size() + ",usedBytes=" + usedBytes + "/" + maxBytes + "}";
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j;
+
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.BaseOpenMessage;
+
+/**
+ * A subscription to events of a given message type, and optionally of a given WHERE, created with
+ * {@link OpenGateway#subscribe(Class, Consumer)} or {@link OpenGateway#subscribe(Class, String, Consumer)}.
+ *
+ * @param <T> the message type
+ *
+ * @author M. Valla - Initial contribution
+ */
+public final class EventSubscription<T extends BaseOpenMessage> {
+
+    private final Class<T> type;
+    private final @Nullable String where;
+    private final @Nullable String whereKey;
+    private final Consumer<? super T> consumer;
+
+    EventSubscription(Class<T> type, @Nullable String where, Consumer<? super T> consumer) {
+        this.type = type;
+        this.where = where;
+        this.whereKey = (where != null ? SubscriptionIndex.canonicalWhere(type, where) : null);
+        this.consumer = consumer;
+    }
+
+    /**
+     * Returns the message type of this subscription
+     *
+     * @return the message type
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Returns the WHERE value of this subscription, or null if the subscription is for all WHEREs
+     *
+     * @return the WHERE value or null
+     */
+    public @Nullable String getWhere() {
+        return where;
+    }
+
+    /* the key of this subscription in the SubscriptionIndex */
+    @Nullable String getWhereKey() {
+        return whereKey;
+    }
+
+    void deliver(BaseOpenMessage msg) {
+        consumer.accept(type.cast(msg));
+    }
+
+    @Override
+    public String toString() {
+        return "EventSubscription{" + type.getSimpleName() + (where != null ? ",w:" + where : "") + "}";
+    }
+}
@@ -74,4 +74,24 @@ public interface GatewayListener {
      * discovery has been completed successfully
      */
     public void onDiscoveryCompleted();
+
+    /**
+     * This method is called during device discovery, for gateways that can report how many devices have been
+     * processed (ZigBee USB gateways)
+     *
+     * @param processed number of devices processed so far
+     * @param total total number of devices to be processed
+     */
+    public default void onDiscoveryProgress(int processed, int total) {
+    }
+
+    /**
+     * This method is called after {@link OpenGateway#reconcileDevices} is called, for each known device that has not
+     * been found again by the new discovery
+     *
+     * @param where the removed device's address (WHERE)
+     * @param deviceType device type of the removed device
+     */
+    public default void onDeviceRemoved(Where where, OpenDeviceType deviceType) {
+    }
 }
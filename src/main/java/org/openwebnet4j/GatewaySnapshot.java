@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.Dim;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Where;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A snapshot of the devices discovered by an {@link OpenGateway} and of their last known states, that can be saved to
+ * a local file and restored at next start to avoid waiting for a full discovery. See
+ * {@link OpenGateway#saveSnapshot(Path)} and {@link OpenGateway#restoreSnapshot(Path)}.
+ *
+ * <p>
+ * The file is a gzip-compressed text file with one device or state per line, each stored as its OpenWebNet frame:
+ *
+ * <pre>
+ * OWNSNAPSHOT 1
+ * D DEVICE_TYPE WHERE|- FRAME
+ * S LAST_UPDATED LAST_CHANGED FRAME
+ * </pre>
+ *
+ * @author M. Valla - Initial contribution
+ */
+public final class GatewaySnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewaySnapshot.class);
+
+    private static final String HEADER = "OWNSNAPSHOT 1";
+    private static final String NO_WHERE = "-";
+
+    private final List<DiscoveredDevice> devices;
+    private final List<DeviceState> states;
+
+    GatewaySnapshot(Collection<DiscoveredDevice> devices, Collection<DeviceState> states) {
+        this.devices = Collections.unmodifiableList(new ArrayList<>(devices));
+        this.states = Collections.unmodifiableList(new ArrayList<>(states));
+    }
+
+    /**
+     * Returns the devices in this snapshot
+     *
+     * @return unmodifiable list of devices
+     */
+    public List<DiscoveredDevice> getDevices() {
+        return devices;
+    }
+
+    /**
+     * Returns the device states in this snapshot
+     *
+     * @return unmodifiable list of states
+     */
+    public List<DeviceState> getStates() {
+        return states;
+    }
+
+    /**
+     * Saves this snapshot to a file. The file is first written to a temporary file in the same directory and then
+     * moved, so that an existing snapshot is replaced only when the new one is complete.
+     *
+     * @param file the file path
+     * @throws IOException in case of error while writing the file
+     */
+    public void save(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tmp)),
+                    StandardCharsets.UTF_8))) {
+                w.write(HEADER);
+                w.write('\n');
+                for (DiscoveredDevice d : devices) {
+                    Where where = d.getWhere();
+                    w.write("D " + d.getType().name() + " " + (where != null ? where.value() : NO_WHERE) + " "
+                            + d.getMessage().getFrameValue() + "\n");
+                }
+                for (DeviceState s : states) {
+                    w.write("S " + s.getLastUpdated() + " " + s.getLastChanged() + " "
+                            + s.getMessage().getFrameValue() + "\n");
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        logger.debug("##GW## saved snapshot to {}: {} devices, {} states", file, devices.size(), states.size());
+    }
+
+    /**
+     * Loads a snapshot from a file. Invalid lines are skipped.
+     *
+     * @param file the file path
+     * @return the GatewaySnapshot
+     * @throws IOException in case of error while reading the file, or if the file is not a snapshot
+     */
+    public static GatewaySnapshot load(Path file) throws IOException {
+        List<DiscoveredDevice> devices = new ArrayList<>();
+        List<DeviceState> states = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(
+                new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            if (!HEADER.equals(r.readLine())) {
+                throw new IOException("File " + file + " is not a valid gateway snapshot");
+            }
+            String line;
+            while ((line = r.readLine()) != null) {
+                String[] parts = line.split(" ");
+                try {
+                    if (parts.length == 4 && "D".equals(parts[0])) {
+                        OpenDeviceType type = OpenDeviceType.valueOf(parts[1]);
+                        BaseOpenMessage msg = parseFrame(parts[3]);
+                        Where where = NO_WHERE.equals(parts[2]) ? null : msg.getWhere();
+                        devices.add(new DiscoveredDevice(where, type, msg));
+                    } else if (parts.length == 4 && "S".equals(parts[0])) {
+                        BaseOpenMessage msg = parseFrame(parts[3]);
+                        Dim dim = msg.isCommand() ? null : msg.getDim();
+                        states.add(new DeviceState(msg.getWho(), msg.getWhere().value(), dim, msg,
+                                Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+                    } else {
+                        logger.warn("##GW## skipping invalid snapshot line: {}", line);
+                    }
+                } catch (FrameException | RuntimeException e) {
+                    logger.warn("##GW## skipping invalid snapshot line: {} - {}", line, e.getMessage());
+                }
+            }
+        }
+        return new GatewaySnapshot(devices, states);
+    }
+
+    private static BaseOpenMessage parseFrame(String frame) throws FrameException {
+        OpenMessage msg = BaseOpenMessage.parse(frame);
+        if (!(msg instanceof BaseOpenMessage)) {
+            throw new FrameException("not a device frame: " + frame);
+        }
+        return (BaseOpenMessage) msg;
+    }
+}
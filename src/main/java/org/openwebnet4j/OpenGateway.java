@@ -14,18 +14,44 @@
  */
 package org.openwebnet4j;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.communication.CommandCache;
 import org.openwebnet4j.communication.ConnectorListener;
+import org.openwebnet4j.communication.EventJournal;
+import org.openwebnet4j.communication.FlightRecorderEvents;
+import org.openwebnet4j.communication.FrameFilter;
+import org.openwebnet4j.communication.LoggingWireTap;
 import org.openwebnet4j.communication.OWNAuthException;
 import org.openwebnet4j.communication.OWNException;
 import org.openwebnet4j.communication.OpenConnector;
 import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.communication.WireCapture;
+import org.openwebnet4j.communication.WireTap;
+import org.openwebnet4j.message.BaseOpenMessage;
 import org.openwebnet4j.message.Dim;
 import org.openwebnet4j.message.FrameException;
 import org.openwebnet4j.message.GatewayMgmt;
 import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.ParseDepth;
+import org.openwebnet4j.message.Where;
+import org.openwebnet4j.message.Who;
+import org.openwebnet4j.metrics.ActuationTracker;
+import org.openwebnet4j.metrics.GatewayMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +68,7 @@ public abstract class OpenGateway implements ConnectorListener {
     protected boolean isDiscovering = false; // if true: we have already started a device discovery session
 
     protected final ArrayList<GatewayListener> listeners = new ArrayList<GatewayListener>();
+    private final SubscriptionIndex subscriptions = new SubscriptionIndex();
     protected OpenConnector connector;
 
     private static final int RECONNECT_RETRY_AFTER = 2500; // ms
@@ -52,6 +79,41 @@ public abstract class OpenGateway implements ConnectorListener {
     protected byte[] macAddr;
     private String firmwareVersion = null;
 
+    private final CommandCache commandCache = new CommandCache();
+    private ParseDepth monParseDepth = ParseDepth.FULL;
+    private final List<FrameFilter> eventFilters = new CopyOnWriteArrayList<FrameFilter>();
+    private volatile @Nullable EventJournal eventJournal = null;
+    private volatile @Nullable WireCapture wireCapture = null;
+    private volatile @Nullable LoggingWireTap loggingTap = LoggingWireTap.getDefault();
+    private final List<WireTap> wireTaps = new CopyOnWriteArrayList<>();
+    private volatile DeviceStateCache stateCache = null;
+    private volatile EnergyStore energyStore = null;
+    private final StatusCache statusCache = new StatusCache(this);
+    private PowerNotificationLeases powerLeases = null;
+    private volatile PollingScheduler poller = null;
+    private volatile GatewayMetrics metrics = null;
+
+    private final Object devicesLock = new Object();
+    private final Map<String, DiscoveredDevice> knownDevices = new LinkedHashMap<>();
+    private Map<String, DiscoveredDevice> sessionDevices = new LinkedHashMap<>();
+    private Set<Who> sessionFailedFamilies = EnumSet.noneOf(Who.class);
+    private volatile boolean isReconciling = false;
+    // single thread executor to notify discovery results in order
+    private final ThreadPoolExecutor discoveryNotifier = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), r -> {
+                Thread t = new Thread(r, "OWN-DiscoveryNotifier");
+                t.setDaemon(true);
+                return t;
+            });
+
+    // single thread executor to notify listeners in order, without creating a thread for each event
+    private final ThreadPoolExecutor listenerNotifier = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), r -> {
+                Thread t = new Thread(r, "OWN-ListenerNotifier");
+                t.setDaemon(true);
+                return t;
+            });
+
     /** Init the connector for this OpenGateway. */
     protected abstract void initConnector();
 
@@ -68,6 +130,12 @@ public abstract class OpenGateway implements ConnectorListener {
         connectionCloseRequested = false;
         initConnector();
         connector.setListener(this);
+        connector.setCommandCache(commandCache);
+        connector.setMonParseDepth(monParseDepth);
+        connector.setMonFilters(eventFilters);
+        connector.setJournal(eventJournal);
+        configureWireTaps(connector);
+        connector.setMetrics(getMetrics());
         try {
             connector.openMonConn();
             if (connector.isMonConnected()) {
@@ -126,6 +194,7 @@ public abstract class OpenGateway implements ConnectorListener {
                             handleManagementDimensions(sendInternal(GatewayMgmt.requestMACAddress()));
                             handleManagementDimensions(sendInternal(GatewayMgmt.requestFirmwareVersion()));
                             isConnected = true;
+                            getMetrics().reconnected();
                             notifyListeners((listener) -> listener.onReconnected());
                         }
                     }
@@ -172,8 +241,341 @@ public abstract class OpenGateway implements ConnectorListener {
         return send(msg);
     }
 
+    /**
+     * Send a status or dimension request message using the {@link StatusCache}: if a response to the same request has
+     * been received recently, or has been refreshed by events, it is returned without sending the request to the
+     * gateway. Other messages are sent as with {@link #send(OpenMessage)}.
+     *
+     * @param msg the {@link OpenMessage} to be sent
+     * @return the {@link Response} messages received as response, or cached
+     * @throws OWNException on send/response reading error
+     */
+    public Response sendCached(OpenMessage msg) throws OWNException {
+        return statusCache.send(msg);
+    }
+
+    /**
+     * Returns the {@link StatusCache} used by {@link #sendCached(OpenMessage)}, to configure TTLs and read hit/miss
+     * statistics
+     *
+     * @return the StatusCache
+     */
+    public StatusCache getStatusCache() {
+        return statusCache;
+    }
+
     protected Response sendInternal(OpenMessage msg) throws OWNException {
-        return connector.sendCommandSynch(msg.getFrameValue());
+        // tracked before sending, as the state event can be received before the response
+        ActuationTracker actuation = getMetrics().getActuation();
+        actuation.commandSent(msg, System.nanoTime());
+        Response res;
+        try {
+            res = connector.sendCommandSynch(msg.getFrameValue());
+        } catch (OWNException e) {
+            actuation.commandFailed(msg);
+            throw e;
+        }
+        if (!res.isSuccess()) {
+            actuation.commandFailed(msg);
+        }
+        return updateStateCache(res);
+    }
+
+    /**
+     * Updates the {@link DeviceStateCache} and the {@link EnergyStore}, if enabled, with a response received. To be
+     * called for responses to requests not sent using {@link #sendInternal(OpenMessage)}.
+     *
+     * @param res the Response
+     * @return the same Response
+     */
+    protected Response updateStateCache(Response res) {
+        DeviceStateCache cache = stateCache;
+        if (cache != null && res != null) {
+            cache.update(res);
+        }
+        EnergyStore energy = energyStore;
+        if (energy != null && res != null) {
+            energy.update(res);
+        }
+        return res;
+    }
+
+    /**
+     * Enables or disables the {@link DeviceStateCache} of this OpenGateway. When enabled, the cache is updated from
+     * events and from responses to commands sent, and can be queried with {@link #getStateCache()} to get the last
+     * known state of devices without sending status requests. Disabling the cache discards all states. The cache is
+     * kept across re-connections. Default is disabled.
+     *
+     * @param enabled true to enable the cache
+     */
+    public synchronized void setStateCacheEnabled(boolean enabled) {
+        if (enabled && stateCache == null) {
+            stateCache = new DeviceStateCache();
+        } else if (!enabled) {
+            stateCache = null;
+        }
+    }
+
+    /**
+     * Returns the {@link DeviceStateCache} of this OpenGateway
+     *
+     * @return the DeviceStateCache, or null if the cache is not enabled
+     */
+    public DeviceStateCache getStateCache() {
+        return stateCache;
+    }
+
+    /**
+     * Enables or disables the {@link EnergyStore} of this OpenGateway. When enabled, active power and totalizer values
+     * received from energy meters, as events or responses, are stored as compressed time series. Disabling the store
+     * discards all samples. Default is disabled.
+     *
+     * @param enabled true to enable the store
+     */
+    public synchronized void setEnergyStoreEnabled(boolean enabled) {
+        if (enabled && energyStore == null) {
+            energyStore = new EnergyStore();
+        } else if (!enabled) {
+            energyStore = null;
+        }
+    }
+
+    /**
+     * Returns the {@link EnergyStore} of this OpenGateway
+     *
+     * @return the EnergyStore, or null if the store is not enabled
+     */
+    public EnergyStore getEnergyStore() {
+        return energyStore;
+    }
+
+    /**
+     * Returns the {@link PowerNotificationLeases} of this OpenGateway, to keep active power notifications of energy
+     * meters running while they are needed. {@link #closeConnection()} closes it: a new one is returned afterwards.
+     *
+     * @return the PowerNotificationLeases
+     */
+    public synchronized PowerNotificationLeases getPowerNotificationLeases() {
+        if (powerLeases == null) {
+            powerLeases = new PowerNotificationLeases(this);
+        }
+        return powerLeases;
+    }
+
+    /**
+     * Returns the {@link PollingScheduler} of this OpenGateway, to poll values that are not notified as events.
+     * {@link #closeConnection()} closes it: a new one is returned afterwards.
+     *
+     * @return the PollingScheduler
+     */
+    public synchronized PollingScheduler getPollingScheduler() {
+        if (poller == null) {
+            poller = new PollingScheduler(this);
+        }
+        return poller;
+    }
+
+    /**
+     * Returns the {@link CommandCache} used by this OpenGateway to prepare command frames, including its hit/miss
+     * statistics. The cache is kept across re-connections.
+     *
+     * @return the CommandCache
+     */
+    public CommandCache getCommandCache() {
+        return commandCache;
+    }
+
+    /**
+     * Sets how deep events received from the gateway are parsed before being notified to listeners. With
+     * {@link ParseDepth#HEADER} only frame type and WHO are decoded upfront: this is cheaper when listeners are
+     * interested only in some WHOs and drop other events checking {@link BaseOpenMessage#getWho()}. Default is
+     * {@link ParseDepth#FULL}.
+     *
+     * @param depth the {@link ParseDepth} to use for events
+     */
+    public void setEventParseDepth(ParseDepth depth) {
+        monParseDepth = depth;
+        if (connector != null) {
+            connector.setMonParseDepth(depth);
+        }
+    }
+
+    /**
+     * Returns how deep events received from the gateway are parsed
+     *
+     * @return the {@link ParseDepth} used for events
+     */
+    public ParseDepth getEventParseDepth() {
+        return monParseDepth;
+    }
+
+    /**
+     * Adds a {@link FrameFilter} for events received from the gateway. When at least one filter has been added, only
+     * events matching one of the filters are parsed and notified to listeners: other frames are dropped on the receive
+     * thread. Filters can be added/removed while connected.
+     *
+     * @param filter the {@link FrameFilter} to add
+     */
+    public void addEventFilter(FrameFilter filter) {
+        eventFilters.add(filter);
+    }
+
+    /**
+     * Removes a {@link FrameFilter} for events received from the gateway.
+     *
+     * @param filter the {@link FrameFilter} to remove
+     */
+    public void removeEventFilter(FrameFilter filter) {
+        eventFilters.remove(filter);
+    }
+
+    /**
+     * Returns the {@link FrameFilter}s for events currently set. Per-filter hit counters are available via
+     * {@link FrameFilter#getHits()}.
+     *
+     * @return unmodifiable list of event filters
+     */
+    public List<FrameFilter> getEventFilters() {
+        return Collections.unmodifiableList(eventFilters);
+    }
+
+    /**
+     * Returns the number of events dropped because not matching any event filter, since last connection
+     *
+     * @return number of filtered events
+     */
+    public long getFilteredEventsCount() {
+        return (connector != null) ? connector.getFilteredMonFrames() : 0;
+    }
+
+    /**
+     * Returns the {@link GatewayMetrics} of this OpenGateway and its connectors. Metrics are always collected: to expose
+     * them via JMX call {@link GatewayMetrics#registerMBean()}, to export them to another metrics system use
+     * {@link GatewayMetrics#report(org.openwebnet4j.metrics.MetricsBridge)}.
+     *
+     * @return the GatewayMetrics
+     */
+    public GatewayMetrics getMetrics() {
+        GatewayMetrics m = metrics;
+        if (m == null) {
+            synchronized (this) {
+                m = metrics;
+                if (m == null) {
+                    // created lazily: toString() of subclasses is not ready in the constructor
+                    m = new GatewayMetrics(toString(), this::getEventQueueSize);
+                    metrics = m;
+                }
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Returns the number of events received and not yet notified: events waiting to be processed by this OpenGateway
+     * plus notifications waiting to be delivered to {@link GatewayListener}s. A number growing over time means
+     * subscribers and listeners cannot keep up with the rate of events.
+     *
+     * @return number of events waiting to be notified
+     */
+    public int getEventQueueSize() {
+        return ((connector != null) ? connector.getNotifierQueueSize() : 0) + listenerNotifier.getQueue().size();
+    }
+
+    /**
+     * Sets an {@link EventJournal} where all events received from the gateway are appended, before event filters are
+     * applied. The journal can be set while connected and is not closed by this OpenGateway.
+     *
+     * @param journal the EventJournal, or null to disable journaling
+     */
+    public void setEventJournal(@Nullable EventJournal journal) {
+        eventJournal = journal;
+        if (connector != null) {
+            connector.setJournal(journal);
+        }
+    }
+
+    /**
+     * Returns the {@link EventJournal} set for this OpenGateway
+     *
+     * @return the EventJournal, or null if not set
+     */
+    public @Nullable EventJournal getEventJournal() {
+        return eventJournal;
+    }
+
+    /**
+     * Sets a {@link WireCapture} where raw bytes sent to and received from the gateway are captured, to be replayed
+     * later with {@link org.openwebnet4j.communication.WireReplay}. The capture can be set while connected and is not
+     * closed by this OpenGateway.
+     *
+     * @param capture the WireCapture, or null to stop capturing
+     */
+    public void setWireCapture(@Nullable WireCapture capture) {
+        wireCapture = capture;
+        if (connector != null) {
+            connector.setCapture(capture);
+        }
+    }
+
+    /**
+     * Returns the {@link WireCapture} set for this OpenGateway
+     *
+     * @return the WireCapture, or null if not set
+     */
+    public @Nullable WireCapture getWireCapture() {
+        return wireCapture;
+    }
+
+    /**
+     * Sets the {@link LoggingWireTap} used to log frames sent to and received from the gateway. Default is
+     * {@link LoggingWireTap#getDefault()}.
+     *
+     * @param loggingTap the LoggingWireTap, or null to disable logging of frames
+     */
+    public void setLoggingTap(@Nullable LoggingWireTap loggingTap) {
+        this.loggingTap = loggingTap;
+        if (connector != null) {
+            connector.setLoggingTap(loggingTap);
+        }
+    }
+
+    /**
+     * Adds a {@link WireTap} notified of raw bytes sent to and received from the gateway. Can be added while
+     * connected.
+     *
+     * @param tap the WireTap to add
+     */
+    public void addWireTap(WireTap tap) {
+        wireTaps.add(tap);
+        if (connector != null) {
+            connector.addWireTap(tap);
+        }
+    }
+
+    /**
+     * Removes a {@link WireTap}
+     *
+     * @param tap the WireTap to remove
+     */
+    public void removeWireTap(WireTap tap) {
+        wireTaps.remove(tap);
+        if (connector != null) {
+            connector.removeWireTap(tap);
+        }
+    }
+
+    /**
+     * Sets capture, logging tap and wire taps of this OpenGateway on a connector
+     *
+     * @param conn the connector
+     */
+    protected void configureWireTaps(OpenConnector conn) {
+        conn.setCapture(wireCapture);
+        conn.setLoggingTap(loggingTap);
+        for (WireTap tap : wireTaps) {
+            conn.removeWireTap(tap);
+            conn.addWireTap(tap);
+        }
     }
 
     /**
@@ -186,7 +588,32 @@ public abstract class OpenGateway implements ConnectorListener {
 
     @Override
     public void onMessage(OpenMessage message) {
-        notifyListeners((listener) -> listener.onEventMessage(message));
+        DeviceStateCache cache = stateCache;
+        if (cache != null) {
+            cache.update(message);
+        }
+        EnergyStore energy = energyStore;
+        if (energy != null) {
+            energy.update(message);
+        }
+        statusCache.update(message);
+        getMetrics().getActuation().eventReceived(message, System.nanoTime());
+        PollingScheduler p = poller;
+        if (p != null) {
+            p.onEvent(message);
+        }
+        Object event = FlightRecorderEvents.beginDispatch();
+        long start = System.nanoTime();
+        subscriptions.dispatch(message);
+        getMetrics().subscriptionsDispatched(System.nanoTime() - start);
+        FlightRecorderEvents.endDispatch(event, subscriptions, message);
+        boolean hasListeners;
+        synchronized (listeners) {
+            hasListeners = !listeners.isEmpty();
+        }
+        if (hasListeners) {
+            notifyListeners((listener) -> listener.onEventMessage(message));
+        }
     }
 
     @Override
@@ -252,9 +679,56 @@ public abstract class OpenGateway implements ConnectorListener {
         }
     }
 
+    /**
+     * Subscribes to events of the given message type. Events are delivered to the consumer on the gateway notification
+     * thread, in the order they are received: consumers should return quickly and must not block.
+     *
+     * <p>
+     * Unlike {@link GatewayListener}s, subscriptions are indexed by message type (and WHERE): each event reaches only
+     * the consumers subscribed to it. Subscribing to a supertype, for example <code>BaseOpenMessage.class</code>,
+     * delivers events of all its subclasses.
+     *
+     * @param <T> the message type
+     * @param type the message class, for example <code>Lighting.class</code>
+     * @param consumer the consumer of events
+     * @return the {@link EventSubscription}, to be used to unsubscribe
+     */
+    public <T extends BaseOpenMessage> EventSubscription<T> subscribe(Class<T> type, Consumer<? super T> consumer) {
+        EventSubscription<T> sub = new EventSubscription<T>(type, null, consumer);
+        subscriptions.add(sub);
+        return sub;
+    }
+
+    /**
+     * Subscribes to events of the given message type and WHERE. See {@link #subscribe(Class, Consumer)}.
+     *
+     * @param <T> the message type
+     * @param type the message class, for example <code>Lighting.class</code>
+     * @param where the WHERE value of events to subscribe to, as returned by {@link Where#value()}. Equivalent forms
+     *            of the same address match (see {@link Where#canonicalValue()}), for example <code>0101</code> and
+     *            <code>11</code> for Lighting
+     * @param consumer the consumer of events
+     * @return the {@link EventSubscription}, to be used to unsubscribe
+     */
+    public <T extends BaseOpenMessage> EventSubscription<T> subscribe(Class<T> type, String where,
+            Consumer<? super T> consumer) {
+        EventSubscription<T> sub = new EventSubscription<T>(type, where, consumer);
+        subscriptions.add(sub);
+        return sub;
+    }
+
+    /**
+     * Removes a subscription to events.
+     *
+     * @param subscription the {@link EventSubscription} to remove
+     */
+    public void unsubscribe(EventSubscription<?> subscription) {
+        subscriptions.remove(subscription);
+    }
+
     /**
      * Generic method to notify registered OpenListener about 'method' event. Thread safe. A
-     * (single) notification thread is used.
+     * (single) notification thread is used: notifications are delivered in the order they are submitted.
      *
      * @param method the method to be notified
      */
@@ -263,15 +737,18 @@ public abstract class OpenGateway implements ConnectorListener {
         synchronized (listeners) {
             listenersCopy = new ArrayList<GatewayListener>(listeners);
         }
-        // TODO use notifierExecutor instead of Thread, like in OpenConnector
-        // Execute 'method' on each of the listeners, using a new notifier Thread
-        Thread notifier = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                listenersCopy.forEach(method);
+        GatewayMetrics m = getMetrics();
+        listenerNotifier.execute(() -> listenersCopy.forEach(listener -> {
+            Object event = FlightRecorderEvents.beginDispatch();
+            long start = System.nanoTime();
+            try {
+                method.accept(listener);
+                m.listenerExecuted(System.nanoTime() - start);
+                FlightRecorderEvents.endDispatch(event, listener, null);
+            } catch (Exception e) {
+                logger.warn("##GW## Error while notifying listener {}: {}", listener, e.getMessage());
             }
-        });
-        notifier.start();
+        }));
     }
 
     /**
@@ -287,10 +764,208 @@ public abstract class OpenGateway implements ConnectorListener {
             logger.warn("##GW## ----- discovery already in progress -> SKIPPING...");
         } else if (!isConnected) {
             logger.warn("##GW## ----- cannot perform discovery: gateway is not connected.");
+            isReconciling = false;
         } else {
             isDiscovering = true;
-            discoverDevicesInternal();
+            synchronized (devicesLock) {
+                sessionDevices = new LinkedHashMap<>();
+                sessionFailedFamilies = EnumSet.noneOf(Who.class);
+            }
+            try {
+                discoverDevicesInternal();
+            } catch (OWNException e) {
+                isReconciling = false;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Start in background a device discovery session and compare its results with the known devices (from a previous
+     * discovery or restored with {@link #restoreSnapshot(Path)}): {@link GatewayListener}s are notified only about
+     * changes, calling {@link GatewayListener#onNewDevice} for devices not known before and
+     * {@link GatewayListener#onDeviceRemoved} for known devices not found anymore.
+     * {@link GatewayListener#onDiscoveryCompleted} is called at the end.
+     */
+    public void reconcileDevices() {
+        if (isDiscovering) {
+            logger.warn("##GW## ----- discovery already in progress -> SKIPPING reconcile...");
+            return;
         }
+        isReconciling = true;
+        Thread reconciler = new Thread(() -> {
+            try {
+                discoverDevices();
+            } catch (OWNException e) {
+                logger.warn("##GW## ----- error while reconciling devices: {}", e.getMessage());
+            }
+        }, "OWN-Reconcile");
+        reconciler.setDaemon(true);
+        reconciler.start();
+    }
+
+    /**
+     * Called by discovery for each device found: records the device and notifies listeners, unless reconciling and the
+     * device was already known.
+     *
+     * @param where the device WHERE
+     * @param type the device type
+     * @param message the message that identified the device
+     */
+    protected void notifyNewDevice(Where where, OpenDeviceType type, BaseOpenMessage message) {
+        DiscoveredDevice device = new DiscoveredDevice(where, type, message);
+        boolean known;
+        synchronized (devicesLock) {
+            if (sessionDevices.putIfAbsent(device.key(), device) != null) {
+                logger.debug("##GW## ----- device {} already found in this discovery", device);
+                return;
+            }
+            known = knownDevices.containsKey(device.key());
+        }
+        if (isReconciling && known) {
+            logger.debug("##GW## ----- reconcile: device {} already known", device);
+        } else {
+            notifyListenersInOrder((listener) -> listener.onNewDevice(where, type, message));
+        }
+    }
+
+    /**
+     * Called by discovery when the request for a WHO family was not successful (NACK or BUSY_NACK): known devices of
+     * that family are kept and, when reconciling, are not notified as removed.
+     *
+     * @param who the WHO of the family not discovered
+     */
+    protected void notifyFamilyNotDiscovered(Who who) {
+        logger.debug("##GW## ----- discovery of WHO {} failed, keeping its known devices", who);
+        synchronized (devicesLock) {
+            sessionFailedFamilies.add(who);
+        }
+    }
+
+    /**
+     * Called when discovery has completed: the devices found become the known devices and listeners are notified.
+     * When reconciling, known devices not found are notified as removed, unless their family was not discovered
+     * (see {@link #notifyFamilyNotDiscovered(Who)}).
+     */
+    protected void notifyDiscoveryCompleted() {
+        List<DiscoveredDevice> removed = new ArrayList<>();
+        synchronized (devicesLock) {
+            List<DiscoveredDevice> kept = new ArrayList<>();
+            for (DiscoveredDevice d : knownDevices.values()) {
+                if (!sessionDevices.containsKey(d.key())) {
+                    if (sessionFailedFamilies.contains(d.getMessage().getWho())) {
+                        kept.add(d);
+                    } else if (isReconciling) {
+                        removed.add(d);
+                    }
+                }
+            }
+            knownDevices.clear();
+            knownDevices.putAll(sessionDevices);
+            kept.forEach(d -> knownDevices.put(d.key(), d));
+        }
+        isReconciling = false;
+        for (DiscoveredDevice d : removed) {
+            logger.debug("##GW## ----- reconcile: device {} removed", d);
+            notifyListenersInOrder((listener) -> listener.onDeviceRemoved(d.getWhere(), d.getType()));
+        }
+        notifyListenersInOrder((listener) -> listener.onDiscoveryCompleted());
+    }
+
+    /**
+     * Called during discovery to report progress to listeners, in order with device notifications.
+     *
+     * @param processed number of devices processed so far
+     * @param total total number of devices to be processed
+     */
+    protected void notifyDiscoveryProgress(int processed, int total) {
+        notifyListenersInOrder((listener) -> listener.onDiscoveryProgress(processed, total));
+    }
+
+    /*
+     * Notifies listeners on the discovery notifier thread: notifications are delivered in the order they are
+     * submitted, so that for example a thermo CU is notified before its zones and discovery completion after all
+     * devices.
+     */
+    private void notifyListenersInOrder(Consumer<? super GatewayListener> method) {
+        ArrayList<GatewayListener> listenersCopy;
+        synchronized (listeners) {
+            listenersCopy = new ArrayList<GatewayListener>(listeners);
+        }
+        discoveryNotifier.execute(() -> listenersCopy.forEach(listener -> {
+            try {
+                method.accept(listener);
+            } catch (Exception e) {
+                logger.warn("##GW## Error while notifying discovery to listener {}: {}", listener, e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * Returns the devices found by the last completed discovery, or restored from a snapshot
+     *
+     * @return list of known devices
+     */
+    public List<DiscoveredDevice> getKnownDevices() {
+        synchronized (devicesLock) {
+            return new ArrayList<>(knownDevices.values());
+        }
+    }
+
+    /**
+     * Creates a {@link GatewaySnapshot} with the known devices and, if the {@link DeviceStateCache} is enabled, the
+     * device states.
+     *
+     * @return the GatewaySnapshot
+     */
+    public GatewaySnapshot createSnapshot() {
+        DeviceStateCache cache = stateCache;
+        synchronized (devicesLock) {
+            return new GatewaySnapshot(knownDevices.values(),
+                    cache != null ? cache.getStates() : Collections.<DeviceState> emptyList());
+        }
+    }
+
+    /**
+     * Saves a snapshot of known devices and device states to a file. See {@link GatewaySnapshot}.
+     *
+     * @param file the file path
+     * @throws IOException in case of error while writing the file
+     */
+    public void saveSnapshot(Path file) throws IOException {
+        createSnapshot().save(file);
+    }
+
+    /**
+     * Restores known devices and device states from a snapshot file previously saved with {@link #saveSnapshot(Path)}.
+     * {@link GatewayListener#onNewDevice} is called for each restored device. States are restored in the
+     * {@link DeviceStateCache}, if enabled. Call {@link #reconcileDevices()} once connected to update the restored
+     * devices.
+     *
+     * @param file the file path
+     * @return the GatewaySnapshot restored
+     * @throws IOException in case of error while reading the file
+     */
+    public GatewaySnapshot restoreSnapshot(Path file) throws IOException {
+        GatewaySnapshot snapshot = GatewaySnapshot.load(file);
+        synchronized (devicesLock) {
+            knownDevices.clear();
+            for (DiscoveredDevice d : snapshot.getDevices()) {
+                knownDevices.put(d.key(), d);
+            }
+        }
+        DeviceStateCache cache = stateCache;
+        if (cache != null) {
+            for (DeviceState s : snapshot.getStates()) {
+                cache.restore(s);
+            }
+        }
+        for (DiscoveredDevice d : snapshot.getDevices()) {
+            notifyListenersInOrder((listener) -> listener.onNewDevice(d.getWhere(), d.getType(), d.getMessage()));
+        }
+        logger.info("##GW## restored snapshot from {}: {} devices, {} states", file, snapshot.getDevices().size(),
+                snapshot.getStates().size());
+        return snapshot;
     }
 
     /**
@@ -335,8 +1010,28 @@ public abstract class OpenGateway implements ConnectorListener {
 
     /** Closes connection to the gateway and releases resources */
     public void closeConnection() {
+        PowerNotificationLeases leases;
+        PollingScheduler p;
+        synchronized (this) {
+            leases = powerLeases;
+            powerLeases = null;
+            p = poller;
+            poller = null;
+        }
+        if (p != null) {
+            p.close();
+        }
+        if (leases != null) {
+            leases.close(); // stops notifications before disconnecting
+        }
+        GatewayMetrics m = metrics;
+        if (m != null) {
+            m.unregisterMBean();
+        }
         connectionCloseRequested = true;
-        connector.disconnect();
+        if (connector != null) { // not connected yet
+            connector.disconnect();
+        }
         isConnected = false;
     }
 }
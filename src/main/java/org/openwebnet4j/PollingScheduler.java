@@ -0,0 +1,384 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.RateLimiter;
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.message.OpenMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scheduler of periodic status/dimension requests for values that are not notified by the gateway, for example energy
+ * totalizers (see {@link OpenGateway#getPollingScheduler()}).
+ *
+ * <p>
+ * Polls are registered with a message factory and an interval and are sent by a single background thread with minimum
+ * priority:
+ * <ul>
+ * <li>the first poll of each registration is delayed by a fraction of its interval, so that polls with the same
+ * interval are spread over time; all polls are sent at most at {@link #setMaxRate(double)} requests per second</li>
+ * <li>when the event rate on the bus is above {@link #setBusyEventRate(double)} events per second, intervals are
+ * stretched proportionally, up to {@link #MAX_STRETCH} times</li>
+ * <li>a poll is skipped if an event with the same WHO, WHERE and DIM of the request has been received within its
+ * interval</li>
+ * <li>polls are skipped while the gateway is not connected</li>
+ * </ul>
+ * Responses are processed by the gateway as any other response (state cache, energy store) and passed to the
+ * optional response consumer of the poll. The background thread ends when no polls are registered and on
+ * {@link #close()}, called by {@link OpenGateway#closeConnection()}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class PollingScheduler {
+
+    public static final double DEFAULT_MAX_RATE = 2.0; // polls/s
+    public static final double DEFAULT_BUSY_EVENT_RATE = 5.0; // events/s
+    public static final double MAX_STRETCH = 4.0;
+
+    private static final long LOAD_WINDOW = 5000; // ms
+    private static final double PHASE_STEP = 0.618033988749895; // golden ratio, to spread first polls
+
+    private final Logger logger = LoggerFactory.getLogger(PollingScheduler.class);
+
+    private final OpenGateway gateway;
+    private final PriorityQueue<Poll> queue = new PriorityQueue<>(
+            (a, b) -> Long.compare(a.nextDue, b.nextDue));
+    private final Map<String, EventTime> lastEvents = new ConcurrentHashMap<>();
+    private @Nullable Thread thread;
+    private int registered = 0;
+    private boolean closed = false;
+
+    private volatile RateLimiter rateLimiter = new RateLimiter(DEFAULT_MAX_RATE);
+    private volatile double busyEventRate = DEFAULT_BUSY_EVENT_RATE;
+    private final AtomicInteger windowEvents = new AtomicInteger();
+    private long windowStart = System.currentTimeMillis();
+    private volatile double eventRate = 0;
+
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    /* time of last event for a WHO/WHERE/DIM key, shared by polls with the same key */
+    private static final class EventTime {
+        volatile long last = 0;
+        int polls = 0; // polls using this key, updated only in lastEvents.compute*
+    }
+
+    /** A poll registered in the scheduler. Close it to stop polling. */
+    public final class Poll implements AutoCloseable {
+        private final Supplier<? extends OpenMessage> factory;
+        private final long interval;
+        private final @Nullable Consumer<Response> responseConsumer;
+        private volatile @Nullable String key;
+        private long nextDue;
+        private volatile boolean cancelled = false;
+
+        private Poll(Supplier<? extends OpenMessage> factory, long interval,
+                @Nullable Consumer<Response> responseConsumer) {
+            this.factory = factory;
+            this.interval = interval;
+            this.responseConsumer = responseConsumer;
+        }
+
+        /**
+         * Returns the poll interval, before stretching
+         *
+         * @return interval in ms
+         */
+        public long getInterval() {
+            return interval;
+        }
+
+        /** Stops this poll */
+        @Override
+        public void close() {
+            synchronized (PollingScheduler.this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                queue.remove(this);
+                PollingScheduler.this.notifyAll();
+            }
+            String k = key;
+            if (k != null) {
+                lastEvents.computeIfPresent(k, (kk, e) -> --e.polls == 0 ? null : e);
+            }
+        }
+    }
+
+    PollingScheduler(OpenGateway gateway) {
+        this.gateway = gateway;
+    }
+
+    /**
+     * Registers a poll
+     *
+     * @param factory factory of the request message, called at each poll
+     * @param interval the poll interval
+     * @return the registered {@link Poll}
+     */
+    public Poll register(Supplier<? extends OpenMessage> factory, Duration interval) {
+        return register(factory, interval, null);
+    }
+
+    /**
+     * Registers a poll with a consumer of responses
+     *
+     * @param factory factory of the request message, called at each poll
+     * @param interval the poll interval (min 1s)
+     * @param responseConsumer consumer of responses, called on the scheduler thread. Can be null
+     * @return the registered {@link Poll}
+     */
+    public Poll register(Supplier<? extends OpenMessage> factory, Duration interval,
+            @Nullable Consumer<Response> responseConsumer) {
+        long ms = interval.toMillis();
+        if (ms < 1000) {
+            throw new IllegalArgumentException("Poll interval must be >= 1s");
+        }
+        Poll p = new Poll(factory, ms, responseConsumer);
+        String k = StatusCache.keyOf(factory.get(), true);
+        synchronized (this) {
+            if (closed) {
+                logger.debug("##POLL## scheduler closed, poll not registered: {}", k);
+                p.cancelled = true;
+                return p;
+            }
+            if (k != null) {
+                p.key = k;
+                lastEvents.compute(k, (kk, e) -> {
+                    EventTime et = (e != null) ? e : new EventTime();
+                    et.polls++;
+                    return et;
+                });
+            }
+            double phase = (registered++ * PHASE_STEP) % 1;
+            p.nextDue = System.currentTimeMillis() + (long) (ms * phase);
+            queue.add(p);
+            if (thread == null) {
+                Thread t = new Thread(this::run, "OWN-Poller");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                thread = t;
+                t.start();
+            }
+            notifyAll();
+        }
+        logger.debug("##POLL## registered poll every {}ms: {}", ms, k);
+        return p;
+    }
+
+    /*
+     * Called by the gateway for each event received
+     */
+    void onEvent(OpenMessage msg) {
+        windowEvents.incrementAndGet();
+        if (lastEvents.isEmpty()) {
+            return;
+        }
+        String k = StatusCache.keyOf(msg, false);
+        if (k != null) {
+            EventTime e = lastEvents.get(k);
+            if (e != null) {
+                e.last = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Poll p;
+                synchronized (this) {
+                    while (true) {
+                        p = queue.peek();
+                        if (p == null || closed) {
+                            // no polls: thread is started again by next register()
+                            thread = null;
+                            logger.debug("##POLL## poller thread ended");
+                            return;
+                        }
+                        long now = System.currentTimeMillis();
+                        if (p.nextDue <= now) {
+                            queue.poll();
+                            break;
+                        }
+                        wait(Math.min(p.nextDue - now, LOAD_WINDOW));
+                        updateLoad();
+                    }
+                }
+                updateLoad();
+                long next = execute(p);
+                synchronized (this) {
+                    if (!p.cancelled) {
+                        p.nextDue = next;
+                        queue.add(p);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                if (thread == Thread.currentThread()) {
+                    thread = null;
+                }
+            }
+            logger.debug("##POLL## poller thread interrupted");
+        }
+    }
+
+    /*
+     * Sends the poll request if needed, returns next due time
+     */
+    private long execute(Poll p) throws InterruptedException {
+        long interval = (long) (p.interval * getStretch());
+        String k = p.key;
+        EventTime et = (k != null) ? lastEvents.get(k) : null;
+        long lastEvent = (et != null) ? et.last : 0;
+        long now = System.currentTimeMillis();
+        if (now - lastEvent < interval) {
+            skipped.incrementAndGet();
+            return lastEvent + interval;
+        }
+        if (!gateway.isConnected()) {
+            skipped.incrementAndGet();
+            return now + interval;
+        }
+        rateLimiter.acquire();
+        try {
+            OpenMessage msg = p.factory.get();
+            Response res = gateway.send(msg);
+            polls.incrementAndGet();
+            Consumer<Response> c = p.responseConsumer;
+            if (c != null) {
+                c.accept(res);
+            }
+        } catch (OWNException | RuntimeException e) {
+            errors.incrementAndGet();
+            logger.debug("##POLL## poll failed: {}", e.getMessage());
+        }
+        return System.currentTimeMillis() + interval;
+    }
+
+    /** Stops all polls and the background thread. Polls registered afterwards are not scheduled. */
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Poll p : queue) {
+                p.cancelled = true;
+            }
+            queue.clear();
+            t = thread;
+            notifyAll();
+        }
+        lastEvents.clear();
+        if (t != null) {
+            t.interrupt(); // also if waiting for rate limiter or a response
+        }
+        logger.debug("##POLL## scheduler closed");
+    }
+
+    private synchronized void updateLoad() {
+        long now = System.currentTimeMillis();
+        long elapsed = now - windowStart;
+        if (elapsed >= LOAD_WINDOW) {
+            double rate = windowEvents.getAndSet(0) * 1000.0 / elapsed;
+            eventRate = (eventRate + rate) / 2;
+            windowStart = now;
+        }
+    }
+
+    /**
+     * Returns the factor intervals are currently stretched by, depending on the bus event rate (1.0 -
+     * {@link #MAX_STRETCH})
+     *
+     * @return the stretch factor
+     */
+    public double getStretch() {
+        return Math.min(MAX_STRETCH, Math.max(1.0, eventRate / busyEventRate));
+    }
+
+    /**
+     * Sets the max number of polls sent per second. Default is {@link #DEFAULT_MAX_RATE}.
+     *
+     * @param pollsPerSecond max polls per second
+     */
+    public void setMaxRate(double pollsPerSecond) {
+        if (pollsPerSecond <= 0) {
+            throw new IllegalArgumentException("Max rate must be > 0");
+        }
+        rateLimiter = new RateLimiter(pollsPerSecond);
+    }
+
+    /**
+     * Sets the bus event rate above which poll intervals are stretched. Default is {@link #DEFAULT_BUSY_EVENT_RATE}.
+     *
+     * @param eventsPerSecond events per second
+     */
+    public void setBusyEventRate(double eventsPerSecond) {
+        if (eventsPerSecond <= 0) {
+            throw new IllegalArgumentException("Busy event rate must be > 0");
+        }
+        busyEventRate = eventsPerSecond;
+    }
+
+    /**
+     * Returns the number of poll requests sent
+     *
+     * @return number of polls
+     */
+    public long getPolls() {
+        return polls.get();
+    }
+
+    /**
+     * Returns the number of polls skipped because of a recent event or because the gateway was not connected
+     *
+     * @return number of skipped polls
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Returns the number of poll requests failed
+     *
+     * @return number of failed polls
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PollingScheduler{polls=" + queue.size() + ",sent=" + polls.get() + ",skipped=" + skipped.get()
+                + ",stretch=" + getStretch() + "}";
+    }
+}
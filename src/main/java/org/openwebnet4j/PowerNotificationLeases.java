@@ -0,0 +1,320 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.message.EnergyManagement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages active power change notifications of energy meters for an {@link OpenGateway} (see
+ * {@link OpenGateway#getPowerNotificationLeases()}).
+ *
+ * <p>
+ * Notifications are started on a meter with {@link EnergyManagement#setActivePowerNotificationsTime(String, int)} and
+ * stop after the given time. Consumers {@link #acquire(String)} a {@link Lease} on a meter instead of sending the
+ * message themselves: notifications are started when the first lease on a meter is acquired, renewed shortly before
+ * they expire as long as at least one lease is held, and stopped when the last lease is closed. Renewals of different
+ * meters are spaced by at least {@link #setMinSpacing(Duration)} to avoid bursts on the CMD connection. If a renewal
+ * fails (for example because the gateway is not connected) it is retried every {@link #RETRY_AFTER} ms. On
+ * {@link #close()} (called by {@link OpenGateway#closeConnection()}) notifications of held leases are stopped.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class PowerNotificationLeases {
+
+    public static final int DEFAULT_LEASE_MINUTES = 15;
+    public static final long DEFAULT_RENEW_BEFORE = 60000; // ms
+    public static final long DEFAULT_MIN_SPACING = 250; // ms
+    public static final long RETRY_AFTER = 10000; // ms
+    public static final long CLOSE_TIMEOUT = 5000; // ms
+
+    private final Logger logger = LoggerFactory.getLogger(PowerNotificationLeases.class);
+
+    private final OpenGateway gateway;
+    private final Map<String, MeterLease> meters = new HashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private int leaseMinutes = DEFAULT_LEASE_MINUTES;
+    private long renewBefore = DEFAULT_RENEW_BEFORE;
+    private volatile long minSpacing = DEFAULT_MIN_SPACING;
+    private long lastSent = 0; // accessed only by the scheduler thread
+    private boolean closed = false;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /** A lease on active power notifications of a meter. Close it when notifications are no longer needed. */
+    public final class Lease implements AutoCloseable {
+        private final String where;
+        private boolean closed = false;
+
+        private Lease(String where) {
+            this.where = where;
+        }
+
+        /**
+         * Returns the WHERE of the meter
+         *
+         * @return the meter WHERE
+         */
+        public String getWhere() {
+            return where;
+        }
+
+        /** Releases this lease. Notifications are stopped when the last lease on the meter is released. */
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        @Override
+        public String toString() {
+            return "Lease{" + where + (closed ? ",closed" : "") + "}";
+        }
+    }
+
+    /* state of notifications of a meter */
+    private static final class MeterLease {
+        int holders = 0;
+        boolean started = false;
+        long expiry = 0;
+        ScheduledFuture<?> renewal;
+    }
+
+    PowerNotificationLeases(OpenGateway gateway) {
+        this.gateway = gateway;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "OWN-PowerLeases");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Acquires a lease on active power notifications of a meter. If no other lease is held on the meter, notifications
+     * are started immediately. After {@link #close()} the returned lease has no effect.
+     *
+     * @param where the meter WHERE
+     * @return the Lease
+     */
+    public Lease acquire(String where) {
+        synchronized (this) {
+            if (closed) {
+                logger.debug("PowerLeases: closed, lease on {} not started", where);
+                return new Lease(where);
+            }
+            MeterLease m = meters.computeIfAbsent(where, w -> new MeterLease());
+            m.holders++;
+            if (m.holders == 1) {
+                schedule(where, m, 0);
+            }
+            logger.debug("PowerLeases: acquired lease on {}, holders={}", where, m.holders);
+        }
+        return new Lease(where);
+    }
+
+    private synchronized void release(Lease lease) {
+        if (lease.closed) {
+            return;
+        }
+        lease.closed = true;
+        MeterLease m = meters.get(lease.where);
+        if (m != null && --m.holders == 0) {
+            meters.remove(lease.where);
+            // stop is queued holding the lock, so that it runs before the start of a new lease on the same meter
+            stop(lease.where, m);
+        }
+    }
+
+    /* cancels renewal of a released meter and queues the stop of its notifications if they are running */
+    private void stop(String where, MeterLease m) {
+        if (m.renewal != null) {
+            m.renewal.cancel(false);
+        }
+        if (m.started && (m.expiry == 0 || m.expiry > System.currentTimeMillis())) {
+            scheduler.execute(() -> sendTime(where, 0));
+        }
+    }
+
+    /**
+     * Stops notifications of all meters with a lease and releases resources. Waits at most {@link #CLOSE_TIMEOUT} ms
+     * for pending messages to be sent.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            meters.forEach(this::stop);
+            meters.clear();
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.debug("PowerLeases: closed");
+    }
+
+    /*
+     * Schedules sending the notification time for a meter after delay. Spacing between meters is kept when sending,
+     * and the expiry is computed from the actual send time, so meters started together are renewed staggered.
+     */
+    private synchronized void schedule(String where, MeterLease m, long delay) {
+        m.renewal = scheduler.schedule(() -> renew(where, m), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void renew(String where, MeterLease m) {
+        synchronized (this) {
+            if (meters.get(where) != m) {
+                return; // released
+            }
+            m.started = true;
+        }
+        boolean ok = false;
+        long start = 0;
+        try {
+            awaitSpacing(); // so that next renewals are spaced as well
+            start = System.currentTimeMillis();
+            ok = sendTime(where, leaseMinutes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (meters.get(where) != m) {
+                return;
+            }
+            if (ok) {
+                m.expiry = start + leaseMinutes * 60000L;
+                schedule(where, m, Math.max(0, m.expiry - renewBefore - System.currentTimeMillis()));
+            } else {
+                schedule(where, m, RETRY_AFTER);
+            }
+        }
+    }
+
+    /* tasks can run late: keep spacing between actual sends, from the end of the previous one */
+    private void awaitSpacing() throws InterruptedException {
+        long wait = lastSent + minSpacing - System.currentTimeMillis();
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+
+    private boolean sendTime(String where, int minutes) {
+        try {
+            awaitSpacing();
+            Response res;
+            try {
+                res = gateway.send(EnergyManagement.setActivePowerNotificationsTime(where, minutes));
+            } finally {
+                lastSent = System.currentTimeMillis();
+            }
+            sent.incrementAndGet();
+            if (res.isSuccess()) {
+                logger.debug("PowerLeases: set notifications time of {} to {} min", where, minutes);
+                return true;
+            }
+            logger.debug("PowerLeases: set notifications time of {} failed: {}", where, res);
+        } catch (OWNException | RuntimeException e) {
+            logger.debug("PowerLeases: set notifications time of {} failed: {}", where, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failed.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Sets for how many minutes (1-255) notifications are started at each renewal. Default is
+     * {@link #DEFAULT_LEASE_MINUTES}. Applies from next renewal.
+     *
+     * @param minutes the lease duration in minutes
+     */
+    public synchronized void setLeaseMinutes(int minutes) {
+        if (minutes < 1 || minutes > 255) {
+            throw new IllegalArgumentException("Lease minutes must be in [1-255]");
+        }
+        this.leaseMinutes = minutes;
+    }
+
+    /**
+     * Sets how long before expiry notifications are renewed. Default is {@link #DEFAULT_RENEW_BEFORE} ms.
+     *
+     * @param renewBefore time before expiry
+     */
+    public synchronized void setRenewBefore(Duration renewBefore) {
+        this.renewBefore = Math.max(0, renewBefore.toMillis());
+    }
+
+    /**
+     * Sets the minimum time between two renewals. Default is {@link #DEFAULT_MIN_SPACING} ms.
+     *
+     * @param spacing the minimum time between renewals
+     */
+    public synchronized void setMinSpacing(Duration spacing) {
+        this.minSpacing = Math.max(0, spacing.toMillis());
+    }
+
+    /**
+     * Returns the number of meters with at least one lease
+     *
+     * @return number of meters
+     */
+    public synchronized int getMeters() {
+        return meters.size();
+    }
+
+    /**
+     * Returns the number of notification time messages sent to the gateway
+     *
+     * @return number of messages sent
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    /**
+     * Returns the number of notification time messages failed
+     *
+     * @return number of failed messages
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PowerNotificationLeases{meters=" + meters.size() + ",sent=" + sent.get() + ",failed=" + failed.get()
+                + "}";
+    }
+}
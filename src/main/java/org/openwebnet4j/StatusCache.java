@@ -0,0 +1,378 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.Dim;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Where;
+import org.openwebnet4j.message.Who;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-through cache of responses to status and dimension requests (<code>*#WHO*WHERE##</code>,
+ * <code>*#WHO*WHERE*DIM##</code>) sent with {@link OpenGateway#sendCached(OpenMessage)}.
+ *
+ * <p>
+ * A cached response is returned as is for the TTL of its WHO (see {@link #setTtl(Who, long)}). After the TTL has
+ * expired and for the following stale window (see {@link #setStaleWindow(long)}) the stale response is still returned
+ * while a refresh request is sent in background; after that the request is sent again and the caller waits for the
+ * response. An event received from the gateway with the same WHO, WHERE and DIM of a cached request replaces the
+ * response messages with the same WHO, WHERE and DIM; the age of the response is reset only if the event replaced all its
+ * messages. If the response has no such message (for example an area command event and the cached area status) the
+ * response is removed from cache.
+ *
+ * <p>
+ * Commands and dimension writing requests are never cached.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class StatusCache {
+
+    public static final long DEFAULT_TTL = 10000; // ms
+    public static final long DEFAULT_STALE_WINDOW = 30000; // ms
+
+    private final Logger logger = LoggerFactory.getLogger(StatusCache.class);
+
+    private final OpenGateway gateway;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Who, Long> ttls = new ConcurrentHashMap<>();
+    private volatile long defaultTtl = DEFAULT_TTL;
+    private volatile long staleWindow = DEFAULT_STALE_WINDOW;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong refreshErrors = new AtomicLong();
+
+    // single thread executor for background refreshes
+    private final ThreadPoolExecutor refresher = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), r -> {
+                Thread t = new Thread(r, "OWN-StatusRefresh");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private static class Entry {
+        final OpenMessage request;
+        volatile List<OpenMessage> messages;
+        volatile long time;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(OpenMessage request, List<OpenMessage> messages, long time) {
+            this.request = request;
+            this.messages = messages;
+            this.time = time;
+        }
+    }
+
+    StatusCache(OpenGateway gateway) {
+        this.gateway = gateway;
+    }
+
+    private static String key(Who who, String where, @Nullable Dim dim) {
+        if (dim == null) {
+            return who.value() + "|" + where;
+        } else {
+            return who.value() + "|" + where + "|" + dim.value();
+        }
+    }
+
+    /*
+     * Returns the key of a status/dimension request or response, or null if the message cannot be cached
+     */
+    static @Nullable String keyOf(OpenMessage msg, boolean request) {
+        if (!(msg instanceof BaseOpenMessage)) {
+            return null;
+        }
+        BaseOpenMessage bmsg = (BaseOpenMessage) msg;
+        try {
+            Dim dim = null;
+            if (bmsg.isCommand()) {
+                if (request) {
+                    return null;
+                }
+            } else {
+                // isDimWriting() is only set for messages with a DIM
+                dim = bmsg.getDim();
+                if (dim != null && bmsg.isDimWriting()) {
+                    return null;
+                }
+            }
+            Where w = bmsg.getWhere();
+            if (w == null) {
+                return null;
+            }
+            Who who = whoOf(bmsg);
+            return (who != null) ? key(who, w.value(), dim) : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /*
+     * messages created by request methods do not have WHO set: get it from the frame
+     */
+    private static @Nullable Who whoOf(BaseOpenMessage msg) {
+        Who who = msg.getWho();
+        return (who != null) ? who : BaseOpenMessage.peekWho(msg.getFrameValue());
+    }
+
+    /**
+     * Returns true if responses to this request message can be cached
+     *
+     * @param msg the request message
+     * @return true if msg is a status or dimension request
+     */
+    public boolean isCacheable(OpenMessage msg) {
+        return keyOf(msg, true) != null;
+    }
+
+    /*
+     * Sends a request, using the cache if the request can be cached
+     */
+    Response send(OpenMessage msg) throws OWNException {
+        String k = keyOf(msg, true);
+        Who who = (k != null) ? whoOf((BaseOpenMessage) msg) : null;
+        long ttl = (who != null) ? getTtl(who) : 0;
+        if (ttl <= 0) {
+            return gateway.send(msg);
+        }
+        Entry e = entries.get(k);
+        if (e != null && e.request.getFrameValue().equals(msg.getFrameValue())) {
+            long age = System.currentTimeMillis() - e.time;
+            if (age < ttl) {
+                hits.incrementAndGet();
+                return Response.fromMessages(msg, e.messages);
+            } else if (age < ttl + staleWindow) {
+                staleHits.incrementAndGet();
+                refreshAsync(k, e);
+                return Response.fromMessages(msg, e.messages);
+            }
+        }
+        misses.incrementAndGet();
+        Response res = gateway.send(msg);
+        put(k, msg, res);
+        return res;
+    }
+
+    private void put(String k, OpenMessage request, Response res) {
+        if (res.isSuccess()) {
+            List<OpenMessage> msgs = res.getResponseMessages();
+            // the last message is the ACK
+            entries.put(k, new Entry(request, Collections.unmodifiableList(msgs.subList(0, msgs.size() - 1)),
+                    System.currentTimeMillis()));
+        }
+    }
+
+    private void refreshAsync(String k, Entry e) {
+        if (!e.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        refresher.execute(() -> {
+            try {
+                refreshes.incrementAndGet();
+                put(k, e.request, gateway.send(e.request));
+            } catch (OWNException | RuntimeException ex) {
+                refreshErrors.incrementAndGet();
+                logger.debug("StatusCache: refresh of {} failed: {}", e.request, ex.getMessage());
+            } finally {
+                e.refreshing.set(false);
+            }
+        });
+    }
+
+    /*
+     * Replaces the messages with the same WHO, WHERE and DIM of an event in the cached response with the same key, if
+     * any, or removes the cached response if it has no such message
+     */
+    void update(OpenMessage event) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        String k = keyOf(event, false);
+        if (k != null) {
+            Entry e = entries.get(k);
+            if (e != null) {
+                List<OpenMessage> msgs = e.messages;
+                List<OpenMessage> updated = new ArrayList<>(msgs.size());
+                int replaced = 0;
+                for (OpenMessage m : msgs) {
+                    if (k.equals(keyOf(m, false))) {
+                        updated.add(event);
+                        replaced++;
+                    } else {
+                        updated.add(m);
+                    }
+                }
+                if (replaced == 0) {
+                    entries.remove(k, e);
+                } else {
+                    e.messages = Collections.unmodifiableList(updated);
+                    if (replaced == msgs.size()) {
+                        e.time = System.currentTimeMillis();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the TTL of cached responses for all WHOs without a specific TTL. Default is {@link #DEFAULT_TTL}.
+     *
+     * @param ttl TTL in ms, 0 to disable caching
+     */
+    public void setDefaultTtl(long ttl) {
+        this.defaultTtl = ttl;
+    }
+
+    /**
+     * Sets the TTL of cached responses for a WHO
+     *
+     * @param who the WHO
+     * @param ttl TTL in ms, 0 to disable caching for this WHO
+     */
+    public void setTtl(Who who, long ttl) {
+        ttls.put(who, ttl);
+    }
+
+    /**
+     * Returns the TTL of cached responses for a WHO
+     *
+     * @param who the WHO
+     * @return TTL in ms
+     */
+    public long getTtl(Who who) {
+        Long ttl = ttls.get(who);
+        return ttl != null ? ttl : defaultTtl;
+    }
+
+    /**
+     * Sets for how long after the TTL has expired a stale response is still returned while refreshing it in
+     * background. Default is {@link #DEFAULT_STALE_WINDOW}.
+     *
+     * @param window stale window in ms, 0 to always wait for a new response after the TTL has expired
+     */
+    public void setStaleWindow(long window) {
+        this.staleWindow = Math.max(0, window);
+    }
+
+    /**
+     * Returns the stale window
+     *
+     * @return stale window in ms
+     */
+    public long getStaleWindow() {
+        return staleWindow;
+    }
+
+    /**
+     * Returns the number of responses currently in cache
+     *
+     * @return number of cached responses
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of requests answered from cache within TTL
+     *
+     * @return number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of requests answered from cache with a stale response
+     *
+     * @return number of stale hits
+     */
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    /**
+     * Returns the number of cacheable requests sent to the gateway because not in cache or expired
+     *
+     * @return number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of background refreshes started
+     *
+     * @return number of refreshes
+     */
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    /**
+     * Returns the number of background refreshes failed
+     *
+     * @return number of failed refreshes
+     */
+    public long getRefreshErrors() {
+        return refreshErrors.get();
+    }
+
+    /**
+     * Returns the hit rate (0.0-1.0) of this cache, including stale hits, or 0 if no cacheable request has been sent
+     * yet
+     *
+     * @return hit rate
+     */
+    public double getHitRate() {
+        long h = hits.get() + staleHits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /** Removes all responses from the cache and resets counters */
+    public void clear() {
+        entries.clear();
+        hits.set(0);
+        staleHits.set(0);
+        misses.set(0);
+        refreshes.set(0);
+        refreshErrors.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "StatusCache{size=" + size() + ",hits=" + hits.get() + ",staleHits=" + staleHits.get() + ",misses="
+                + misses.get() + ",refreshes=" + refreshes.get() + "}";
+    }
+}
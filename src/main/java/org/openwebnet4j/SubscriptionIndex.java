@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.Automation;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Thermoregulation;
+import org.openwebnet4j.message.Where;
+import org.openwebnet4j.message.WhereLightAutom;
+import org.openwebnet4j.message.WhereThermo;
+import org.openwebnet4j.message.WhereZigBee;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of {@link EventSubscription}s by message type and canonical WHERE (see {@link Where#canonicalValue()}). An
+ * event is delivered only to subscriptions whose keys match, whatever the number of subscriptions: subscriptions to a
+ * supertype of the event class (for example <code>BaseOpenMessage</code>) also match. The types matching an event
+ * class are resolved once per class and cached until subscriptions change.
+ *
+ * ZigBee WHEREs are indexed by device (unit <code>00</code>): units are then compared, unit <code>00</code> matching
+ * all units.
+ *
+ * @author M. Valla - Initial contribution
+ */
+class SubscriptionIndex {
+
+    private final Logger logger = LoggerFactory.getLogger(SubscriptionIndex.class);
+
+    /* subscriptions for a message type */
+    private static class TypeEntry {
+        final List<EventSubscription<?>> allWheres = new CopyOnWriteArrayList<>();
+        final Map<String, List<EventSubscription<?>>> byWhere = new ConcurrentHashMap<>();
+    }
+
+    private static final TypeEntry[] NO_ENTRIES = new TypeEntry[0];
+
+    private final Map<Class<?>, TypeEntry> byType = new ConcurrentHashMap<>();
+
+    // TypeEntries matching an event class (the class and its supertypes), replaced when subscriptions change
+    private volatile Map<Class<?>, TypeEntry[]> resolved = new ConcurrentHashMap<>();
+
+    synchronized void add(EventSubscription<?> sub) {
+        TypeEntry entry = byType.computeIfAbsent(sub.getType(), t -> new TypeEntry());
+        String w = sub.getWhereKey();
+        if (w == null) {
+            entry.allWheres.add(sub);
+        } else {
+            entry.byWhere.computeIfAbsent(w, k -> new CopyOnWriteArrayList<>()).add(sub);
+        }
+        resolved = new ConcurrentHashMap<>();
+    }
+
+    synchronized boolean remove(EventSubscription<?> sub) {
+        TypeEntry entry = byType.get(sub.getType());
+        if (entry == null) {
+            return false;
+        }
+        boolean removed;
+        String w = sub.getWhereKey();
+        if (w == null) {
+            removed = entry.allWheres.remove(sub);
+        } else {
+            List<EventSubscription<?>> subs = entry.byWhere.get(w);
+            removed = subs != null && subs.remove(sub);
+            if (subs != null && subs.isEmpty()) {
+                entry.byWhere.remove(w);
+            }
+        }
+        if (entry.allWheres.isEmpty() && entry.byWhere.isEmpty()) {
+            byType.remove(sub.getType());
+        }
+        resolved = new ConcurrentHashMap<>();
+        return removed;
+    }
+
+    boolean isEmpty() {
+        return byType.isEmpty();
+    }
+
+    /**
+     * Delivers the message to matching subscriptions, on the calling thread
+     *
+     * @param msg the message
+     * @return number of subscriptions the message has been delivered to
+     */
+    int dispatch(OpenMessage msg) {
+        if (!(msg instanceof BaseOpenMessage)) {
+            return 0;
+        }
+        TypeEntry[] entries = resolve(msg.getClass());
+        if (entries.length == 0) {
+            return 0;
+        }
+        BaseOpenMessage bmsg = (BaseOpenMessage) msg;
+        int delivered = 0;
+        String key = null;
+        for (TypeEntry entry : entries) {
+            for (EventSubscription<?> sub : entry.allWheres) {
+                delivered += deliver(sub, bmsg);
+            }
+            if (!entry.byWhere.isEmpty()) {
+                if (key == null) {
+                    key = canonicalWhere(bmsg.getWhere());
+                    if (key == null) {
+                        continue;
+                    }
+                }
+                List<EventSubscription<?>> subs = entry.byWhere.get(key);
+                if (subs != null) {
+                    for (EventSubscription<?> sub : subs) {
+                        if (unitMatches(sub, bmsg.getWhere())) {
+                            delivered += deliver(sub, bmsg);
+                        }
+                    }
+                }
+            }
+        }
+        return delivered;
+    }
+
+    private TypeEntry[] resolve(Class<?> cls) {
+        Map<Class<?>, TypeEntry[]> cache = resolved;
+        TypeEntry[] entries = cache.get(cls);
+        if (entries == null) {
+            List<TypeEntry> list = new ArrayList<>();
+            for (Class<?> c = cls; c != null && c != Object.class; c = c.getSuperclass()) {
+                TypeEntry entry = byType.get(c);
+                if (entry != null) {
+                    list.add(entry);
+                }
+            }
+            entries = list.isEmpty() ? NO_ENTRIES : list.toArray(NO_ENTRIES);
+            cache.put(cls, entries);
+        }
+        return entries;
+    }
+
+    /* ZigBee subscriptions are indexed by device: the unit must match too, unit 00 matching all units */
+    private static boolean unitMatches(EventSubscription<?> sub, @Nullable Where where) {
+        if (!(where instanceof WhereZigBee)) {
+            return true;
+        }
+        String unit = ((WhereZigBee) where).getUnit();
+        String w = sub.getWhere();
+        if (w == null || w.length() < 4 || WhereZigBee.UNIT_ALL.equals(unit)) {
+            return true;
+        }
+        int pos = w.length() - 4;
+        return w.startsWith(unit, pos) || w.startsWith(WhereZigBee.UNIT_ALL, pos);
+    }
+
+    private int deliver(EventSubscription<?> sub, BaseOpenMessage msg) {
+        try {
+            sub.deliver(msg);
+            return 1;
+        } catch (Exception e) {
+            logger.warn("Error while delivering message {} to {}: {}", msg, sub, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the key used to index a WHERE: its canonical value, the device for ZigBee WHEREs
+     *
+     * @param where the Where
+     * @return the WHERE key, or null if where is null
+     */
+    static @Nullable String canonicalWhere(@Nullable Where where) {
+        if (where instanceof WhereZigBee) {
+            return ((WhereZigBee) where).valueWithUnit(WhereZigBee.UNIT_ALL);
+        }
+        return where != null ? where.canonicalValue() : null;
+    }
+
+    /**
+     * Returns the key used to index the WHERE of a subscription, parsing it with the Where class used by the
+     * subscription message type. WHEREs that cannot be parsed are used as they are.
+     *
+     * @param type the message type
+     * @param where the WHERE value
+     * @return the WHERE key
+     */
+    static String canonicalWhere(Class<?> type, String where) {
+        try {
+            Where w;
+            if (where.endsWith(WhereZigBee.ZB_NETWORK)) {
+                w = new WhereZigBee(where);
+            } else if (type == Lighting.class || type == Automation.class) {
+                w = new WhereLightAutom(where);
+            } else if (type == Thermoregulation.class) {
+                w = new WhereThermo(where);
+            } else {
+                return where;
+            }
+            String key = canonicalWhere(w);
+            return key != null ? key : where;
+        } catch (IllegalArgumentException e) {
+            return where;
+        }
+    }
+}
@@ -15,6 +15,8 @@
 package org.openwebnet4j;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -43,6 +45,9 @@ public class USBGateway extends OpenGateway {
     private int receivedProducts = 0; // number of products returned from PRODUCT INFORMATION
     // requests during a device discovery
 
+    private static final int DEFAULT_DISCOVERY_WINDOW = 4;
+    private int discoveryWindow = DEFAULT_DISCOVERY_WINDOW; // product info requests in flight during discovery
+
     private SerialPortProvider serialPortProvider;
 
     public USBGateway(String serialPortName) {
@@ -113,26 +118,66 @@ public class USBGateway extends OpenGateway {
         super.onMessage(message);
     }
 
+    /**
+     * Sets the maximum number of product information requests sent to the USB gateway without waiting for the
+     * previous responses, during device discovery. Default is 4. With 1, requests are sent one after another.
+     *
+     * @param window maximum number of product information requests in flight
+     */
+    public void setDiscoveryWindow(int window) {
+        this.discoveryWindow = Math.max(1, window);
+    }
+
+    /**
+     * Returns the maximum number of product information requests in flight during discovery
+     *
+     * @return the discovery window
+     */
+    public int getDiscoveryWindow() {
+        return discoveryWindow;
+    }
+
     /*
-     * handle a discovery event msg (number of products in the network)
+     * handle a discovery event msg (number of products in the network). Product infos are requested on a separate
+     * thread, not to block events notification while discovering.
      */
     private void handleDiscoveryEvent(GatewayMgmt message) {
         if (message.getDim() == GatewayMgmt.DimGatewayMgmt.NB_NETW_PROD) {
             try {
                 discoveredProducts = Integer.parseInt(message.getDimValues()[0]);
                 logger.debug("##USB## ----- # {} products found!", discoveredProducts);
-                // request product infos, starting from index 0
-                for (int p = 0; p < discoveredProducts; p++) {
-                    handleDiscoveryResponse(sendInternal(GatewayMgmt.requestProductInfo(p)));
-                    receivedProducts++;
-                    logger.debug("##USB## ----- # DISCOVERED {} / {} products", receivedProducts, discoveredProducts);
-                }
-                logger.debug("##USB## ----- ### DISCOVERY COMPLETED - DISCOVERED {} / {} products", receivedProducts,
-                        discoveredProducts);
-                notifyListeners((listener) -> listener.onDiscoveryCompleted());
             } catch (Exception e) {
                 logger.debug("##USB## ----- # Error while discovering devices: " + e.getMessage());
+                isDiscovering = false;
+                return;
             }
+            Thread discoveryThread = new Thread(this::requestProductInfos, "OWN-USB-Discovery");
+            discoveryThread.setDaemon(true);
+            discoveryThread.start();
+        }
+    }
+
+    /*
+     * request product infos, starting from index 0, keeping up to discoveryWindow requests in flight
+     */
+    private void requestProductInfos() {
+        List<String> frames = new ArrayList<>(discoveredProducts);
+        for (int p = 0; p < discoveredProducts; p++) {
+            frames.add(GatewayMgmt.requestProductInfo(p).getFrameValue());
+        }
+        try {
+            ((USBConnector) connector).sendCommandsPipelined(frames, discoveryWindow, res -> {
+                handleDiscoveryResponse(updateStateCache(res));
+                receivedProducts++;
+                logger.debug("##USB## ----- # DISCOVERED {} / {} products", receivedProducts, discoveredProducts);
+                notifyDiscoveryProgress(receivedProducts, discoveredProducts);
+            });
+            logger.debug("##USB## ----- ### DISCOVERY COMPLETED - DISCOVERED {} / {} products", receivedProducts,
+                    discoveredProducts);
+            isDiscovering = false;
+            notifyDiscoveryCompleted();
+        } catch (Exception e) {
+            logger.debug("##USB## ----- # Error while discovering devices: " + e.getMessage());
             isDiscovering = false;
         }
     }
@@ -145,14 +190,14 @@ public class USBGateway extends OpenGateway {
         int i = 0;
         // get messages in the response and notify all endpoints in the response, before last
         // ACK/NACK
-        while (r.getResponseMessages().get(i) instanceof GatewayMgmt) {
+        while (i < r.getResponseMessages().size() && r.getResponseMessages().get(i) instanceof GatewayMgmt) {
             gMsg = (GatewayMgmt) r.getResponseMessages().get(i);
             if (gMsg != null && gMsg.getDim() == GatewayMgmt.DimGatewayMgmt.PRODUCT_INFO) {
                 WhereZigBee w = (WhereZigBee) (gMsg.getWhere());
                 logger.debug("##USB## ----- # new product found: WHERE={}", w);
                 // notify new endpoint found
                 final GatewayMgmt m = gMsg;
-                notifyListeners((listener) -> listener.onNewDevice(w, getZigBeeDeviceType(m), m));
+                notifyNewDevice(w, getZigBeeDeviceType(m), m);
             }
             i++;
         }
@@ -31,6 +31,9 @@ public class Auth {
 
     // private final Logger logger = LoggerFactory.getLogger(Auth.class);
 
+    protected static final String SHA1 = "SHA-1";
+    protected static final String SHA256 = "SHA-256";
+
     /**
      * Convert [0-9] digits string to hex string
      *
@@ -87,7 +90,17 @@ public class Auth {
      * @return the generated Rb HMAC
      */
     protected static String calcHmacRb() {
-        return calcSHA256("time" + System.currentTimeMillis());
+        return calcHmacRb(SHA256);
+    }
+
+    /**
+     * Generate Rb HMAC random hex string from: key=timeMSEC_SINCE_EPOCH using the given algorithm
+     *
+     * @param algorithm {@link #SHA1} or {@link #SHA256}
+     * @return the generated Rb HMAC
+     */
+    protected static String calcHmacRb(String algorithm) {
+        return calcHash(algorithm, "time" + System.currentTimeMillis());
     }
 
     /**
@@ -97,11 +110,22 @@ public class Auth {
      * @return the hash string
      */
     protected static String calcSHA256(String message) {
+        return calcHash(SHA256, message);
+    }
+
+    /**
+     * Return hash of the input string using the given algorithm
+     *
+     * @param algorithm {@link #SHA1} or {@link #SHA256}
+     * @param message string to hash
+     * @return the hash string
+     */
+    protected static String calcHash(String algorithm, String message) {
         String response = null;
         try {
             MessageDigest md;
             byte[] encodedhash;
-            md = MessageDigest.getInstance("SHA-256");
+            md = MessageDigest.getInstance(algorithm);
             encodedhash = md.digest(message.getBytes(StandardCharsets.UTF_8));
             response = bytesToHex(encodedhash);
         } catch (NoSuchAlgorithmException e) {
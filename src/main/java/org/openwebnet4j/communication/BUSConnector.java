@@ -20,6 +20,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -27,6 +28,7 @@ import org.openwebnet4j.message.BaseOpenMessage;
 import org.openwebnet4j.message.FrameException;
 import org.openwebnet4j.message.OpenMessage;
 import org.openwebnet4j.message.UnsupportedFrameException;
+import org.openwebnet4j.metrics.GatewayMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -124,7 +126,12 @@ public class BUSConnector extends OpenConnector {
         logger.debug("##BUS-conn## Establishing {} connection to BUS Gateway on {}:{}...", type, host, port);
         try {
             FrameChannel ch = connectSocket(type);
+            long start = System.nanoTime();
             doHandshake(ch, type);
+            GatewayMetrics m = metrics;
+            if (m != null) {
+                m.handshakeCompleted(System.nanoTime() - start);
+            }
         } catch (IOException e) {
             throw new OWNException("Could not open BUS-" + type + " connection to " + host + ":" + port
                     + " (IOException: " + e.getMessage() + ")", e);
@@ -133,8 +140,14 @@ public class BUSConnector extends OpenConnector {
 
     @Override
     protected synchronized Response sendCommandSynchInternal(String frame) throws IOException, FrameException {
+        return sendCommandSynchInternal(frame, null);
+    }
+
+    @Override
+    protected synchronized Response sendCommandSynchInternal(String frame, Consumer<OpenMessage> responseConsumer)
+            throws IOException, FrameException {
         try {
-            Response r = sendCmdAndReadResp(frame, false);
+            Response r = sendCmdAndReadResp(frame, false, responseConsumer);
             logger.debug("##BUS-conn## ^^^^^^^^ REUSED    CONNECTION    ^^^^^^^^");
             return r;
         } catch (IOException ie) {
@@ -154,7 +167,7 @@ public class BUSConnector extends OpenConnector {
             }
 
             try {
-                Response r = sendCmdAndReadResp(frame, true);
+                Response r = sendCmdAndReadResp(frame, true, responseConsumer);
                 logger.debug("##BUS-conn## ^^^^^^^^ USED NEW    CONNECTION    ^^^^^^^^");
                 return r;
             } catch (IOException | FrameException e) {
@@ -165,46 +178,68 @@ public class BUSConnector extends OpenConnector {
         }
     }
 
-    /** helper method for sendCommandSynchInternal() */
-    private Response sendCmdAndReadResp(String frame, boolean reopen) throws IOException, FrameException {
+    /**
+     * helper method for sendCommandSynchInternal(). Response messages are passed to responseConsumer (if not null) as
+     * soon as they are read: if the command is re-sent on a new connection, the consumer can receive the same
+     * messages again.
+     */
+    private Response sendCmdAndReadResp(String frame, boolean reopen, Consumer<OpenMessage> responseConsumer)
+            throws IOException, FrameException {
         // TODO add timeout? or CMD_SOCKET_READ_TIMEOUT is enough?
-        Response res = new Response(BaseOpenMessage.parse(frame));
-        cmdChannel.sendFrame(frame);
+        PreparedCommand cmd = commandCache.prepare(frame);
+        Response res = new Response(cmd.getMessage());
+        cmdChannel.sendFrame(frame, cmd.getFrameBytes());
         lastCmdFrameSentTs = System.currentTimeMillis();
-        msgLogger.info("BUS-CMD ====>>>> `{}`" + (reopen ? " [ REOPEN ]" : ""), frame);
+        msgLogger.debug("BUS-CMD ====>>>> `{}`{}", frame, reopen ? " [ REOPEN ]" : "");
         String fr;
         while (!res.hasFinalResponse()) {
             logger.trace("now reading new frame...");
             fr = cmdChannel.readFrames();
             if (fr != null) {
                 try {
-                    res.addResponse(BaseOpenMessage.parse(fr));
+                    OpenMessage respMsg = BaseOpenMessage.parse(fr);
+                    res.addResponse(respMsg);
                     msgLogger.debug("BUS-CMD   <<==   `{}`", fr);
+                    if (responseConsumer != null && !respMsg.isACK() && !respMsg.isNACK()
+                            && !respMsg.isBUSY_NACK()) {
+                        try {
+                            responseConsumer.accept(respMsg);
+                        } catch (RuntimeException e) {
+                            logger.warn("##BUS-conn## Error in response consumer for frame {}: {}", fr,
+                                    e.getMessage());
+                        }
+                    }
                 } catch (UnsupportedFrameException ufe) {
                     msgLogger.debug("BUS-CMD   <<=X   `{}` ignoring unsupported response frame ({})", fr,
                             ufe.getMessage());
                 }
             } else {
-                msgLogger.info("BUS-CMD <<<<==== X [no frames]");
+                msgLogger.debug("BUS-CMD <<<<==== X [no frames]");
                 throw new IOException("Received null frame while reading responses to command");
             }
         }
-        msgLogger.info("BUS-CMD <<<<==== {}", res.getResponseMessages());
+        msgLogger.debug("BUS-CMD <<<<==== {}", res.getResponseMessages());
 
         return res;
     }
 
     @Override
     protected void processFrame(String newFrame) {
-        eventLogger.info("BUS-MON <<<<<<<< `{}`", newFrame);
+        eventLogger.debug("BUS-MON <<<<<<<< `{}`", newFrame);
         OpenMessage msg;
+        Object event = FlightRecorderEvents.beginParse();
         try {
-            msg = BaseOpenMessage.parse(newFrame);
+            msg = BaseOpenMessage.parse(newFrame, monParseDepth);
+            FlightRecorderEvents.endParse(event, newFrame, null);
             notifyListener(msg);
         } catch (UnsupportedFrameException e) {
+            FlightRecorderEvents.endParse(event, newFrame, e);
             logger.debug("##BUS-conn## UNSUPPORTED FRAME ON MON: `{}`, skipping it", newFrame);
+            countParseError(newFrame, true);
         } catch (FrameException e) {
+            FlightRecorderEvents.endParse(event, newFrame, e);
             logger.warn("##BUS-conn## INVALID FRAME RECEIVED ON MON: `{}`, skipping it", newFrame);
+            countParseError(newFrame, false);
         }
     }
 
@@ -257,6 +292,8 @@ public class BUSConnector extends OpenConnector {
             monChannel = new FrameChannel(sk.getInputStream(), sk.getOutputStream(), "BUS-" + MON_TYPE);
 
             monChannel.blockingMode = true;
+            monChannel.setMetrics(metrics);
+            monChannel.setTaps(getMonTaps());
 
             monSk = sk;
             return monChannel;
@@ -264,6 +301,8 @@ public class BUSConnector extends OpenConnector {
             cmdChannel = new FrameChannel(sk.getInputStream(), sk.getOutputStream(), "BUS-" + CMD_TYPE);
 
             cmdChannel.blockingMode = true;
+            cmdChannel.setMetrics(metrics);
+            cmdChannel.setTaps(getTaps());
 
             cmdSk = sk;
             return cmdChannel;
@@ -301,7 +340,9 @@ public class BUSConnector extends OpenConnector {
 
         // STEP-1: wait for ACK from GW
         hsLogger.debug("(HS) ... STEP-1: receive ACK from GW");
+        Object event = FlightRecorderEvents.beginHandshake();
         fr = frCh.readFrames();
+        FlightRecorderEvents.endHandshake(event, frCh.getName(), "STEP-1", fr);
         hsLogger.info("(HS) {} <<<<==HS `{}`", frCh.getName(), fr);
         if (!(OpenMessage.FRAME_ACK.equals(fr))) {
             hsLogger.warn("(HS) ... STEP-1: HANDSHAKE FAILED, no ACK recevied, received: {}", fr);
@@ -314,9 +355,11 @@ public class BUSConnector extends OpenConnector {
         // STEP-2: send session request and check for ACK/NACK/NONCE/HMAC from GW
         String session = (type == MON_TYPE ? MON_SESSION : CMD_SESSION);
         hsLogger.debug("(HS) ... STEP-2: send session request {} ... ", session);
+        event = FlightRecorderEvents.beginHandshake();
         frCh.sendFrame(session);
         hsLogger.info("(HS) BUS-{} HS==>>>> `{}`", type, session);
         fr = frCh.readFrames();
+        FlightRecorderEvents.endHandshake(event, frCh.getName(), "STEP-2", fr);
         if (fr == null) {
             hsLogger.warn("(HS) ... STEP-2: cannot authenticate with gateway (null answer)");
             stopHandshakeTimeout();
@@ -326,9 +369,11 @@ public class BUSConnector extends OpenConnector {
             if (OpenMessage.FRAME_NACK.equals(fr) && type == CMD_TYPE) {
                 // try alt CMD session
                 hsLogger.debug("(HS) ... STEP-2: received NACK, trying CMD_SESSION_ALT ...");
+                event = FlightRecorderEvents.beginHandshake();
                 frCh.sendFrame(CMD_SESSION_ALT);
                 hsLogger.info("(HS) {} HS==>>>> `{}`", frCh.getName(), CMD_SESSION_ALT);
                 fr = frCh.readFrames();
+                FlightRecorderEvents.endHandshake(event, frCh.getName(), "STEP-2 ALT", fr);
                 hsLogger.info("(HS) {} <<<<==HS `{}`", frCh.getName(), fr);
             }
             if (OpenMessage.FRAME_ACK.equals(fr)) {
@@ -367,9 +412,11 @@ public class BUSConnector extends OpenConnector {
                     "Invalid gateway password. An OPEN password must contain only digits (OPEN_AUTH)");
         }
         hsLogger.debug("(HS) ... STEP-3: OPEN_AUTH: sending encoded pwd ... ");
+        Object event = FlightRecorderEvents.beginHandshake();
         frCh.sendFrame(pwdMessage);
         hsLogger.info("(HS) {} HS==>>>> `{}`", frCh.getName(), pwdMessage);
         String fr = frCh.readFrames();
+        FlightRecorderEvents.endHandshake(event, frCh.getName(), "OPEN STEP-3", fr);
         hsLogger.info("(HS) {} <<<<==HS `{}`", frCh.getName(), fr);
         if (OpenMessage.FRAME_ACK.equals(fr)) {
             hsLogger.debug("(HS) ... STEP-3: OPEN_AUTH: pwd accepted ==HANDSHAKE COMPLETED==");
@@ -383,11 +430,15 @@ public class BUSConnector extends OpenConnector {
 
     private void doHMACHandshake(String hmacType, FrameChannel frCh) throws IOException, OWNAuthException {
         hsLogger.debug("(HS) ... STEP-2: HMAC_AUTH: HMAC type received: {}, sending ACK ... ", hmacType);
+        // *98*1## requires SHA-1, *98*2## SHA-256
+        String alg = HMAC_SHA1.equals(hmacType) ? Auth.SHA1 : Auth.SHA256;
 
         // STEP-3: send ACK, wait for HMAC Ra and -based on that- calculate HMAC-encoded pwd
+        Object event = FlightRecorderEvents.beginHandshake();
         frCh.sendFrame(OpenMessage.FRAME_ACK);
         hsLogger.info("(HS) {} HS==>>>> `{}`", frCh.getName(), OpenMessage.FRAME_ACK);
         String fr = frCh.readFrames();
+        FlightRecorderEvents.endHandshake(event, frCh.getName(), "HMAC STEP-3", fr);
         hsLogger.info("(HS) {} <<<<==HS `{}`", frCh.getName(), fr);
         Pattern pattern = Pattern.compile("\\*#(\\d{80,128})##");
         Matcher matcher = pattern.matcher(fr);
@@ -397,25 +448,27 @@ public class BUSConnector extends OpenConnector {
             hsLogger.debug("(HS) ... STEP-3: HMAC_AUTH: Ra digits received: {} ...", raDigits);
             String ra = Auth.digitToHex(raDigits);
             hsLogger.trace("(HS) ...       Ra  = {}", ra);
-            String rb = Auth.calcHmacRb();
+            String rb = Auth.calcHmacRb(alg);
             hsLogger.trace("(HS) ...       Rb  = {}", rb);
             String a = "736F70653E";
             logger.trace("(HS) ...       A   = {}", a);
             String b = "636F70653E";
             hsLogger.trace("(HS) ...       B   = {}", b);
             hsLogger.trace("(HS) ...       pwd = {}", pwd);
-            String kab = Auth.calcSHA256(pwd);
+            String kab = Auth.calcHash(alg, pwd);
             hsLogger.trace("(HS) ...       Kab = {}", kab);
-            String hmacRaRbABKab = Auth.calcSHA256(ra + rb + a + b + kab);
+            String hmacRaRbABKab = Auth.calcHash(alg, ra + rb + a + b + kab);
             hsLogger.trace("(HS) ... STEP-3: HMAC_AUTH: HMAC(Ra,Rb,A,B,Kab) = {}", hmacRaRbABKab);
 
             // STEP-4: send calculated HMAC-encoded pwd and check final hash
             String hmacMessage = OpenMessage.FRAME_START_DIM + Auth.hexToDigit(rb) + "*"
                     + Auth.hexToDigit(hmacRaRbABKab) + OpenMessage.FRAME_END;
             hsLogger.debug("(HS) ... STEP-4: HMAC_AUTH: sending <Rb, HMAC(Ra,Rb,A,B,Kab)> ... ");
+            event = FlightRecorderEvents.beginHandshake();
             frCh.sendFrame(hmacMessage);
             hsLogger.info("(HS) {} HS==>>>> `{}`", frCh.getName(), hmacMessage);
             fr = frCh.readFrames();
+            FlightRecorderEvents.endHandshake(event, frCh.getName(), "HMAC STEP-4", fr);
             hsLogger.info("(HS) {} <<<<==HS `{}`", frCh.getName(), fr);
 
             if (OpenMessage.FRAME_NACK.equals(fr)) {
@@ -428,7 +481,7 @@ public class BUSConnector extends OpenConnector {
                     String hmacRaRbKab = Auth.digitToHex(matcher.group(1));
                     hsLogger.trace("(HS) ... STEP-4: HMAC_AUTH: final hash HMAC(Ra, Rb, Kab) received: {} ...",
                             hmacRaRbKab);
-                    if (Auth.calcSHA256(ra + rb + kab).equals(hmacRaRbKab)) {
+                    if (Auth.calcHash(alg, ra + rb + kab).equals(hmacRaRbKab)) {
                         hsLogger.trace("(HS) ... STEP-4: HMAC_AUTH:  HMAC(Ra, Rb, Kab) --MATCH--, sending ACK ...");
                         frCh.sendFrame(OpenMessage.FRAME_ACK);
                         hsLogger.info("(HS) {} HS==>>>> `{}`", frCh.getName(), OpenMessage.FRAME_ACK);
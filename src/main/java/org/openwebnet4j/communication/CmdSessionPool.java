@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.openwebnet4j.message.OpenMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of command (CMD) sessions to send requests concurrently to the same gateway. The pool always contains the
+ * main connector; additional connectors are created on demand (opening only their CMD connection) up to the maximum
+ * number of sessions. If the gateway refuses a new session, no other session is opened and requests wait for a free
+ * session, eventually using only the main connector.
+ *
+ * <p>
+ * Additional sessions are closed by {@link #close()}; the main connector is never closed by the pool.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class CmdSessionPool implements AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(CmdSessionPool.class);
+
+    private final OpenConnector mainConnector;
+    private final Supplier<? extends OpenConnector> connectorFactory;
+    private final int maxSessions;
+
+    private final BlockingQueue<OpenConnector> idle = new LinkedBlockingQueue<>();
+    private final List<OpenConnector> extraSessions = new ArrayList<>();
+    private int sessions = 1;
+    private boolean canOpenMore;
+    private boolean closed = false;
+
+    /**
+     * Creates a new pool
+     *
+     * @param mainConnector the main connector, already connected
+     * @param connectorFactory factory of new (not connected) connectors to the same gateway
+     * @param maxSessions maximum number of CMD sessions, including the main connector
+     */
+    public CmdSessionPool(OpenConnector mainConnector, Supplier<? extends OpenConnector> connectorFactory,
+            int maxSessions) {
+        this.mainConnector = mainConnector;
+        this.connectorFactory = connectorFactory;
+        this.maxSessions = Math.max(1, maxSessions);
+        this.canOpenMore = this.maxSessions > 1;
+        idle.add(mainConnector);
+    }
+
+    /**
+     * Sends a command frame using a free session, waiting for one if all sessions are busy. See
+     * {@link OpenConnector#sendCommandSynch(String, Consumer)}.
+     *
+     * @param frame the frame String to send
+     * @param responseConsumer the consumer of response messages, can be null
+     * @return {@link Response} object with messages received as response
+     * @throws OWNException in case of error while sending command frame or reading response
+     */
+    public Response send(String frame, Consumer<OpenMessage> responseConsumer) throws OWNException {
+        OpenConnector conn = acquire();
+        try {
+            return conn.sendCommandSynch(frame, responseConsumer);
+        } finally {
+            release(conn);
+        }
+    }
+
+    private OpenConnector acquire() throws OWNException {
+        boolean open;
+        synchronized (this) {
+            if (closed) {
+                throw new OWNException("CMD session pool is closed");
+            }
+            OpenConnector conn = idle.poll();
+            if (conn != null) {
+                return conn;
+            }
+            open = canOpenMore && sessions < maxSessions;
+            if (open) {
+                sessions++;
+            }
+        }
+        if (open) {
+            OpenConnector conn = connectorFactory.get();
+            try {
+                conn.openCmdConn();
+                synchronized (this) {
+                    extraSessions.add(conn);
+                }
+                logger.debug("##POOL## opened new CMD session ({}/{})", sessions, maxSessions);
+                return conn;
+            } catch (OWNException e) {
+                logger.debug("##POOL## cannot open new CMD session, using existing sessions only: {}",
+                        e.getMessage());
+                conn.disconnect();
+                synchronized (this) {
+                    sessions--;
+                    canOpenMore = false;
+                }
+            }
+        }
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OWNException("Interrupted while waiting for a free CMD session", e);
+        }
+    }
+
+    private void release(OpenConnector conn) {
+        synchronized (this) {
+            if (closed && conn != mainConnector) {
+                conn.disconnect();
+                return;
+            }
+        }
+        idle.add(conn);
+    }
+
+    /**
+     * Returns the number of CMD sessions currently open, including the main connector
+     *
+     * @return number of sessions
+     */
+    public synchronized int getSessions() {
+        return sessions;
+    }
+
+    /** Closes all additional sessions. Sessions in use are closed when released. */
+    @Override
+    public void close() {
+        List<OpenConnector> toClose = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (OpenConnector conn : extraSessions) {
+                if (idle.remove(conn)) {
+                    toClose.add(conn);
+                }
+            }
+            extraSessions.clear();
+        }
+        for (OpenConnector conn : toClose) {
+            conn.disconnect();
+        }
+        logger.debug("##POOL## closed {} additional CMD sessions", toClose.size());
+    }
+}
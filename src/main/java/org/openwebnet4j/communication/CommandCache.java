@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.FrameException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded LRU cache of {@link PreparedCommand}s, keyed by frame String. Most commands sent to a gateway are a small set
+ * of (WHO, WHAT, WHERE) combinations: caching them avoids parsing and encoding the same frame again at every send.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class CommandCache {
+
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private final Logger logger = LoggerFactory.getLogger(CommandCache.class);
+
+    private final int maxSize;
+    private final Map<String, PreparedCommand> commands;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Creates a new {@link CommandCache} with {@link #DEFAULT_MAX_SIZE} */
+    public CommandCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new {@link CommandCache} holding at most maxSize commands. With maxSize=0 caching is disabled.
+     *
+     * @param maxSize max number of commands to keep in cache
+     */
+    public CommandCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must be >= 0");
+        }
+        this.maxSize = maxSize;
+        this.commands = new LinkedHashMap<String, PreparedCommand>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedCommand> eldest) {
+                return size() > CommandCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the {@link PreparedCommand} for the given frame, from cache if present, otherwise parsing the frame and
+     * adding the result to the cache.
+     *
+     * @param frame the frame String
+     * @return the {@link PreparedCommand}
+     * @throws FrameException in case the frame is not valid
+     */
+    public PreparedCommand prepare(String frame) throws FrameException {
+        PreparedCommand cmd;
+        synchronized (commands) {
+            cmd = commands.get(frame);
+        }
+        if (cmd != null) {
+            hits.incrementAndGet();
+            return cmd;
+        }
+        misses.incrementAndGet();
+        cmd = new PreparedCommand(frame, BaseOpenMessage.parse(frame));
+        if (maxSize > 0) {
+            synchronized (commands) {
+                commands.put(frame, cmd);
+            }
+            logger.trace("CommandCache: added {}", cmd);
+        }
+        return cmd;
+    }
+
+    /**
+     * Returns the number of commands currently in cache
+     *
+     * @return number of cached commands
+     */
+    public int size() {
+        synchronized (commands) {
+            return commands.size();
+        }
+    }
+
+    /**
+     * Returns the max number of commands this cache can hold
+     *
+     * @return max size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of cache hits
+     *
+     * @return number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of cache misses
+     *
+     * @return number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the hit rate (0.0-1.0) of this cache, or 0 if no command has been prepared yet
+     *
+     * @return hit rate
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /** Removes all commands from the cache and resets hit/miss counters */
+    public void clear() {
+        synchronized (commands) {
+            commands.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "CommandCache{size=" + size() + "/" + maxSize + ",hits=" + hits.get() + ",misses=" + misses.get()
+                + "}";
+    }
+}
@@ -0,0 +1,609 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.OpenMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of raw frames received on the MON connection, stored in memory-mapped segment files in a
+ * directory. Each frame is stored with its reception time (epoch nanoseconds). When the current segment is full a new
+ * segment is started, and the oldest segments are deleted to keep at most the configured number of segments. See
+ * {@link org.openwebnet4j.OpenGateway#setEventJournal(EventJournal)}.
+ *
+ * <p>
+ * A sparse index is kept in memory for every {@link #INDEX_INTERVAL} frames, with their time range and a bit filter of
+ * their WHEREs, so that {@link #query(Instant, Instant, String)} reads only the parts of the segments that can contain
+ * matching frames. The index is rebuilt from segment files when the journal is opened. Appending a frame does not
+ * allocate, except for a new index block every {@link #INDEX_INTERVAL} frames.
+ *
+ * <p>
+ * Segment record format: <code>[timestamp:long][length:short][frame:ASCII bytes]</code>; a record with length 0 marks
+ * the end of written data.
+ *
+ * <p>
+ * Segments with new frames are flushed to disk every flush interval (default {@link #DEFAULT_FLUSH_INTERVAL_MILLIS})
+ * by a background thread, and on close. Deleted and closed segments are unmapped as soon as no query is reading them,
+ * so that disk space is released (and files can be deleted on Windows) without waiting for GC.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class EventJournal implements AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+    public static final int INDEX_INTERVAL = 64; // frames per index block
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    private static final String SEGMENT_PREFIX = "events-";
+    private static final String SEGMENT_SUFFIX = ".jnl";
+    private static final int RECORD_HEADER = Long.BYTES + Short.BYTES;
+    private static final int MAX_FRAME_LENGTH = Short.MAX_VALUE;
+
+    // releases the memory mapping of a buffer, or null if not supported by the JVM
+    private static final @Nullable MethodHandle UNMAPPER = unmapper();
+
+    private final Logger logger = LoggerFactory.getLogger(EventJournal.class);
+
+    private final Path dir;
+    private final int segmentSize;
+    private final int maxSegments;
+    // epoch nanos = clockBase + System.nanoTime()
+    private final long clockBase = System.currentTimeMillis() * 1000000L - System.nanoTime();
+
+    private final List<Segment> segments = new ArrayList<>();
+    private @Nullable Segment current;
+    private boolean closed = false;
+    private final @Nullable ScheduledThreadPoolExecutor flusher;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private static final int WHERE_FILTER_BITS = 256;
+
+    /* a range of INDEX_INTERVAL records in a segment */
+    private static class Block {
+        final int offset;
+        final long firstTime;
+        volatile long lastTime;
+        int records;
+        // one bit per WHERE hash: a block without the bit of a WHERE has no frame with that WHERE
+        final long[] whereFilter = new long[WHERE_FILTER_BITS / 64];
+
+        Block(int offset, long time) {
+            this.offset = offset;
+            this.firstTime = time;
+            this.lastTime = time;
+        }
+    }
+
+    private static class Segment {
+        final long id;
+        final Path file;
+        final MappedByteBuffer buf;
+        final List<Block> blocks = new ArrayList<>();
+        volatile boolean dirty; // written since last flush
+        // guarded by the journal lock
+        int readers; // queries and flushes using buf
+        boolean retired; // removed from the journal, to be unmapped when readers is 0
+        boolean delete; // file to be deleted when unmapped
+
+        Segment(long id, Path file, MappedByteBuffer buf) {
+            this.id = id;
+            this.file = file;
+            this.buf = buf;
+        }
+    }
+
+    /**
+     * Opens a journal in a directory with {@link #DEFAULT_SEGMENT_SIZE}, {@link #DEFAULT_MAX_SEGMENTS} and
+     * {@link #DEFAULT_FLUSH_INTERVAL_MILLIS}
+     *
+     * @param dir the journal directory, created if it does not exist
+     * @throws IOException in case of error while opening segment files
+     */
+    public EventJournal(Path dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * Opens a journal in a directory with {@link #DEFAULT_FLUSH_INTERVAL_MILLIS}. Existing segments are kept and new
+     * frames are appended to the last one.
+     *
+     * @param dir the journal directory, created if it does not exist
+     * @param segmentSize size of each segment file in bytes (min 1024)
+     * @param maxSegments max number of segment files to keep (min 1)
+     * @throws IOException in case of error while opening segment files
+     */
+    public EventJournal(Path dir, int segmentSize, int maxSegments) throws IOException {
+        this(dir, segmentSize, maxSegments, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Opens a journal in a directory. Existing segments are kept and new frames are appended to the last one.
+     *
+     * @param dir the journal directory, created if it does not exist
+     * @param segmentSize size of each segment file in bytes (min 1024)
+     * @param maxSegments max number of segment files to keep (min 1)
+     * @param flushIntervalMillis interval between flushes of new frames to disk, or 0 to flush only on close
+     * @throws IOException in case of error while opening segment files
+     */
+    public EventJournal(Path dir, int segmentSize, int maxSegments, long flushIntervalMillis) throws IOException {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("segmentSize must be >= 1024");
+        }
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("maxSegments must be >= 1");
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(dir);
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                try {
+                    ids.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warn("EventJournal: skipping invalid segment file {}", f);
+                }
+            }
+        }
+        Collections.sort(ids);
+        for (long id : ids) {
+            Segment seg = openSegment(id, false);
+            load(seg);
+            segments.add(seg);
+        }
+        if (segments.isEmpty()) {
+            segments.add(openSegment(0, true));
+        }
+        current = segments.get(segments.size() - 1);
+        deleteOldSegments();
+        if (flushIntervalMillis > 0) {
+            ScheduledThreadPoolExecutor f = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "OWN-JournalFlush");
+                t.setDaemon(true);
+                return t;
+            });
+            f.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            flusher = f;
+        } else {
+            flusher = null;
+        }
+        logger.debug("EventJournal: opened {} with {} segments", dir, segments.size());
+    }
+
+    private Path segmentFile(long id) {
+        return dir.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private Segment openSegment(long id, boolean create) throws IOException {
+        Path file = segmentFile(id);
+        try (FileChannel ch = create
+                ? FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = create ? segmentSize : Math.min(ch.size(), Integer.MAX_VALUE);
+            return new Segment(id, file, ch.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    /*
+     * rebuilds the index of an existing segment and sets its position at the end of written data
+     */
+    private void load(Segment seg) {
+        ByteBuffer b = seg.buf;
+        while (b.remaining() >= RECORD_HEADER) {
+            int offset = b.position();
+            long time = b.getLong();
+            int len = b.getShort();
+            if (len <= 0 || len > b.remaining()) {
+                b.position(offset);
+                break;
+            }
+            byte[] bytes = new byte[len];
+            b.get(bytes);
+            index(seg, offset, time, new String(bytes, StandardCharsets.US_ASCII));
+        }
+    }
+
+    private void index(Segment seg, int offset, long time, String frame) {
+        List<Block> blocks = seg.blocks;
+        Block block = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+        if (block == null || block.records >= INDEX_INTERVAL) {
+            block = new Block(offset, time);
+            blocks.add(block);
+        }
+        block.records++;
+        block.lastTime = time;
+        long range = whereRange(frame);
+        if (range >= 0) {
+            // same as hashCode() of the WHERE String, without allocating it
+            int h = 0;
+            for (int i = (int) (range >>> 32); i < (int) range; i++) {
+                h = 31 * h + frame.charAt(i);
+            }
+            int bit = whereBit(h);
+            block.whereFilter[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private static int whereBit(int hash) {
+        return (hash ^ (hash >>> 16)) & (WHERE_FILTER_BITS - 1);
+    }
+
+    /**
+     * Appends a frame to the journal with current time. If the frame cannot be written (journal closed or I/O error
+     * while starting a new segment) it is dropped.
+     *
+     * @param frame the frame String
+     */
+    public void append(String frame) {
+        long time = clockBase + System.nanoTime();
+        int len = frame.length();
+        if (len == 0 || len > MAX_FRAME_LENGTH) {
+            dropped.incrementAndGet();
+            return;
+        }
+        synchronized (this) {
+            Segment seg = current;
+            if (closed || seg == null) {
+                dropped.incrementAndGet();
+                return;
+            }
+            ByteBuffer b = seg.buf;
+            if (b.remaining() < RECORD_HEADER + len) {
+                seg = nextSegment();
+                if (seg == null) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                b = seg.buf;
+            }
+            int offset = b.position();
+            b.putLong(time);
+            b.putShort((short) len);
+            for (int i = 0; i < len; i++) {
+                b.put((byte) frame.charAt(i));
+            }
+            seg.dirty = true;
+            index(seg, offset, time, frame);
+        }
+        appended.incrementAndGet();
+    }
+
+    private @Nullable Segment nextSegment() {
+        Segment last = segments.get(segments.size() - 1);
+        try {
+            Segment seg = openSegment(last.id + 1, true);
+            segments.add(seg);
+            current = seg;
+            deleteOldSegments();
+            logger.debug("EventJournal: started new segment {}", seg.file);
+            return seg;
+        } catch (IOException e) {
+            logger.error("EventJournal: cannot create new segment, events will not be journaled: {}", e.getMessage());
+            current = null;
+            return null;
+        }
+    }
+
+    private void deleteOldSegments() {
+        while (segments.size() > maxSegments) {
+            retire(segments.remove(0), true);
+        }
+    }
+
+    /* must be called holding the lock */
+    private void retire(Segment seg, boolean delete) {
+        seg.retired = true;
+        seg.delete = delete;
+        if (seg.readers == 0) {
+            release(seg);
+        }
+    }
+
+    /* must be called holding the lock */
+    private void unuse(List<Segment> used) {
+        for (Segment seg : used) {
+            if (--seg.readers == 0 && seg.retired) {
+                release(seg);
+            }
+        }
+    }
+
+    /* unmaps a retired segment and deletes its file if requested */
+    private void release(Segment seg) {
+        unmap(seg.buf);
+        if (seg.delete) {
+            try {
+                Files.deleteIfExists(seg.file);
+                logger.debug("EventJournal: deleted old segment {}", seg.file);
+            } catch (IOException e) {
+                logger.warn("EventJournal: cannot delete old segment {}: {}", seg.file, e.getMessage());
+            }
+        }
+    }
+
+    private void unmap(MappedByteBuffer buf) {
+        MethodHandle u = UNMAPPER;
+        if (u != null) {
+            try {
+                u.invokeExact((ByteBuffer) buf);
+            } catch (Throwable e) {
+                logger.debug("EventJournal: cannot unmap segment: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static @Nullable MethodHandle unmapper() {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try { // Java 9+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return lookup.findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // not available: try Java 8
+        }
+        try {
+            MethodHandle cleaner = lookup.unreflect(Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner"));
+            MethodHandle clean = lookup.unreflect(Class.forName("sun.misc.Cleaner").getMethod("clean"));
+            return MethodHandles.filterReturnValue(cleaner, clean)
+                    .asType(MethodType.methodType(void.class, ByteBuffer.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Flushes to disk the segments with frames appended since the last flush. Called periodically by the flush thread,
+     * if enabled.
+     */
+    public void flush() {
+        List<Segment> dirty = new ArrayList<>();
+        synchronized (this) {
+            for (Segment seg : segments) {
+                if (seg.dirty) {
+                    seg.dirty = false;
+                    seg.readers++;
+                    dirty.add(seg);
+                }
+            }
+        }
+        try {
+            for (Segment seg : dirty) {
+                seg.buf.force();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("EventJournal: error while flushing segments: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                unuse(dirty);
+            }
+        }
+    }
+
+    /**
+     * Returns the frames in the journal received in a time range and, if where is not null, with that WHERE, parsed
+     * as {@link OpenMessage}s, in order of reception. Frames that cannot be parsed are skipped.
+     *
+     * @param from start of the time range (inclusive)
+     * @param to end of the time range (inclusive)
+     * @param where the WHERE value to match, or null for any WHERE
+     * @return list of messages
+     */
+    public List<OpenMessage> query(Instant from, Instant to, @Nullable String where) {
+        long fromNanos = toNanos(from);
+        long toNanos = toNanos(to);
+        List<Segment> used = new ArrayList<>();
+        List<ByteBuffer> bufs = new ArrayList<>();
+        List<List<Block>> blockLists = new ArrayList<>();
+        List<Integer> limits = new ArrayList<>();
+        synchronized (this) {
+            for (Segment seg : segments) {
+                // segments deleted while reading are unmapped when the query is done
+                seg.readers++;
+                used.add(seg);
+                bufs.add(seg.buf.duplicate());
+                blockLists.add(new ArrayList<>(seg.blocks));
+                limits.add(seg.buf.position());
+            }
+        }
+        try {
+            return read(bufs, blockLists, limits, fromNanos, toNanos, where);
+        } finally {
+            synchronized (this) {
+                unuse(used);
+            }
+        }
+    }
+
+    private List<OpenMessage> read(List<ByteBuffer> bufs, List<List<Block>> blockLists, List<Integer> limits,
+            long fromNanos, long toNanos, @Nullable String where) {
+        List<OpenMessage> result = new ArrayList<>();
+        int whereBit = (where != null) ? whereBit(where.hashCode()) : 0;
+        for (int s = 0; s < bufs.size(); s++) {
+            ByteBuffer b = bufs.get(s);
+            List<Block> blocks = blockLists.get(s);
+            for (int i = 0; i < blocks.size(); i++) {
+                Block block = blocks.get(i);
+                if (block.lastTime < fromNanos || block.firstTime > toNanos
+                        || (where != null && (block.whereFilter[whereBit >>> 6] & (1L << whereBit)) == 0)) {
+                    continue;
+                }
+                int end = (i + 1 < blocks.size()) ? blocks.get(i + 1).offset : limits.get(s);
+                b.limit(end).position(block.offset);
+                while (b.remaining() >= RECORD_HEADER) {
+                    long time = b.getLong();
+                    byte[] bytes = new byte[b.getShort()];
+                    b.get(bytes);
+                    if (time < fromNanos || time > toNanos) {
+                        continue;
+                    }
+                    String frame = new String(bytes, StandardCharsets.US_ASCII);
+                    if (where != null && !where.equals(whereOf(frame))) {
+                        continue;
+                    }
+                    try {
+                        result.add(BaseOpenMessage.parse(frame));
+                    } catch (FrameException e) {
+                        logger.debug("EventJournal: skipping invalid frame {}: {}", frame, e.getMessage());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the frames in the journal received in a time range, parsed as {@link OpenMessage}s
+     *
+     * @param from start of the time range (inclusive)
+     * @param to end of the time range (inclusive)
+     * @return list of messages
+     */
+    public List<OpenMessage> query(Instant from, Instant to) {
+        return query(from, to, null);
+    }
+
+    private static long toNanos(Instant i) {
+        try {
+            return Math.addExact(Math.multiplyExact(i.getEpochSecond(), 1000000000L), i.getNano());
+        } catch (ArithmeticException e) {
+            return i.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    /*
+     * Returns the WHERE part of a raw frame (*WHO*WHAT*WHERE## or *#WHO*WHERE*...##), or null
+     */
+    static @Nullable String whereOf(String frame) {
+        long range = whereRange(frame);
+        return range >= 0 ? frame.substring((int) (range >>> 32), (int) range) : null;
+    }
+
+    /*
+     * Returns start (high 32 bits) and end (low 32 bits) of the WHERE part of a raw frame, or -1 if it has no WHERE
+     */
+    private static long whereRange(String frame) {
+        int end = frame.length() - 2; // exclude ##
+        if (end < 3 || frame.charAt(0) != '*') {
+            return -1;
+        }
+        boolean isStatus = frame.charAt(1) == '#';
+        int pos = frame.indexOf('*', 1) + 1; // after WHO
+        if (pos <= 0 || pos > end) {
+            return -1;
+        }
+        if (!isStatus) {
+            pos = frame.indexOf('*', pos) + 1; // after WHAT
+            if (pos <= 0 || pos > end) {
+                return -1;
+            }
+        }
+        int whereEnd = frame.indexOf('*', pos);
+        if (whereEnd < 0 || whereEnd > end) {
+            whereEnd = end;
+        }
+        return whereEnd > pos ? ((long) pos << 32) | whereEnd : -1;
+    }
+
+    /**
+     * Returns the number of frames appended since the journal was opened
+     *
+     * @return number of appended frames
+     */
+    public long getAppended() {
+        return appended.get();
+    }
+
+    /**
+     * Returns the number of frames that could not be appended
+     *
+     * @return number of dropped frames
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the number of segment files currently in the journal
+     *
+     * @return number of segments
+     */
+    public synchronized int getSegments() {
+        return segments.size();
+    }
+
+    /**
+     * Flushes segments to disk, unmaps them and closes the journal. Frames appended after close are dropped and
+     * queries return no frames.
+     */
+    @Override
+    public void close() {
+        ScheduledThreadPoolExecutor f = flusher;
+        if (f != null) {
+            f.shutdownNow();
+        }
+        flush();
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                current = null;
+                for (Segment seg : segments) {
+                    retire(seg, false);
+                }
+                segments.clear();
+                logger.debug("EventJournal: closed {}", dir);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EventJournal{dir=" + dir + ",segments=" + getSegments() + ",appended=" + appended.get() + ",dropped="
+                + dropped.get() + "}";
+    }
+}
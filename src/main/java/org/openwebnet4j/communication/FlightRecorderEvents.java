@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.OpenMessage;
+
+/**
+ * Facade to emit Java Flight Recorder (JFR) events for frame I/O, parsing, commands, handshake phases and listener
+ * dispatch.
+ *
+ * This is the Java 8 version, where all methods do nothing. On Java 11+ the version in
+ * <code>META-INF/versions/11</code> of the multi-release jar is used, emitting <code>org.openwebnet4j.*</code> JFR
+ * events. There, <code>begin*</code> methods return null (and allocate nothing) when the event is not enabled in a
+ * running recording, and <code>end*</code> methods do nothing with a null event.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public final class FlightRecorderEvents {
+
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * @return true if JFR events are supported by this runtime
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Begins a frame sent event, to be ended with {@link #endFrameSent}
+     *
+     * @return the event, or null if not recording
+     */
+    public static @Nullable Object beginFrameSent() {
+        return null;
+    }
+
+    /**
+     * Ends and commits a frame sent event
+     *
+     * @param event the event returned by {@link #beginFrameSent()}
+     * @param channel channel name
+     * @param frame frame sent
+     */
+    public static void endFrameSent(@Nullable Object event, String channel, String frame) {
+    }
+
+    /**
+     * Commits a frame received event
+     *
+     * @param channel channel name
+     * @param frame frame received
+     */
+    public static void frameReceived(String channel, String frame) {
+    }
+
+    /**
+     * Begins a frame parse event, to be ended with {@link #endParse}
+     *
+     * @return the event, or null if not recording
+     */
+    public static @Nullable Object beginParse() {
+        return null;
+    }
+
+    /**
+     * Ends and commits a frame parse event
+     *
+     * @param event the event returned by {@link #beginParse()}
+     * @param frame frame parsed
+     * @param error the error if the frame could not be parsed, or null
+     */
+    public static void endParse(@Nullable Object event, String frame, @Nullable FrameException error) {
+    }
+
+    /**
+     * Begins a command round trip event, to be ended with {@link #endCommand}
+     *
+     * @return the event, or null if not recording
+     */
+    public static @Nullable Object beginCommand() {
+        return null;
+    }
+
+    /**
+     * Ends and commits a command round trip event
+     *
+     * @param event the event returned by {@link #beginCommand()}
+     * @param frame command frame sent
+     * @param response the Response received, or null in case of error
+     */
+    public static void endCommand(@Nullable Object event, String frame, @Nullable Response response) {
+    }
+
+    /**
+     * Begins a handshake phase event, to be ended with {@link #endHandshake}
+     *
+     * @return the event, or null if not recording
+     */
+    public static @Nullable Object beginHandshake() {
+        return null;
+    }
+
+    /**
+     * Ends and commits a handshake phase event
+     *
+     * @param event the event returned by {@link #beginHandshake()}
+     * @param channel channel name
+     * @param phase handshake phase
+     * @param received frame received from the gateway at the end of the phase, or null
+     */
+    public static void endHandshake(@Nullable Object event, String channel, String phase, @Nullable String received) {
+    }
+
+    /**
+     * Begins a listener dispatch event, to be ended with {@link #endDispatch}
+     *
+     * @return the event, or null if not recording
+     */
+    public static @Nullable Object beginDispatch() {
+        return null;
+    }
+
+    /**
+     * Ends and commits a listener dispatch event
+     *
+     * @param event the event returned by {@link #beginDispatch()}
+     * @param listener the listener notified
+     * @param message the message notified, or null if the notification is not about a message
+     */
+    public static void endDispatch(@Nullable Object event, Object listener, @Nullable OpenMessage message) {
+    }
+}
@@ -21,7 +21,9 @@ import java.util.LinkedList;
 import java.util.Queue;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.metrics.GatewayMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +35,8 @@ import org.slf4j.LoggerFactory;
 public class FrameChannel {
 
     protected Queue<String> readFrames = new LinkedList<>(); // the list of frames already read from InputStream
+    // read buffer, reused by readFrames(): frames on a channel are read by a single thread
+    private final byte[] readBuffer = new byte[OpenConnector.OWN_MAX_DATA];
 
     private OutputStream out;
     private InputStream in;
@@ -41,6 +45,9 @@ public class FrameChannel {
 
     protected boolean blockingMode = false;
 
+    private volatile @Nullable GatewayMetrics metrics;
+    private volatile WireTap[] taps = OpenConnector.NO_TAPS;
+
     private final Logger logger = LoggerFactory.getLogger(FrameChannel.class);
 
     protected FrameChannel(InputStream in, OutputStream out, String name) {
@@ -53,6 +60,51 @@ public class FrameChannel {
         return name;
     }
 
+    /**
+     * Sets the {@link GatewayMetrics} where frames and bytes sent and received on this channel are counted
+     *
+     * @param metrics the GatewayMetrics, or null
+     */
+    void setMetrics(@Nullable GatewayMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the {@link WireTap}s notified of raw bytes sent and received on this channel
+     *
+     * @param taps the WireTaps
+     */
+    void setTaps(WireTap[] taps) {
+        this.taps = taps;
+    }
+
+    private void tap(boolean outbound, byte[] data, int length) {
+        WireTap[] t = taps;
+        if (t.length > 0) {
+            long now = System.nanoTime();
+            for (WireTap tap : t) {
+                tap.onData(name, outbound, data, length, now);
+            }
+        }
+    }
+
+    /* counts a frame received and returns it */
+    private String received(String frame) {
+        GatewayMetrics m = metrics;
+        if (m != null) {
+            m.frameIn(frame.length());
+        }
+        FlightRecorderEvents.frameReceived(name, frame);
+        return frame;
+    }
+
+    private void sent(int bytes) {
+        GatewayMetrics m = metrics;
+        if (m != null) {
+            m.frameOut(bytes);
+        }
+    }
+
     /**
      * Sends a frame on the channel
      *
@@ -61,9 +113,33 @@ public class FrameChannel {
      */
     protected synchronized void sendFrame(String frame) throws IOException {
         if (out != null) {
-            out.write(frame.getBytes());
+            Object event = FlightRecorderEvents.beginFrameSent();
+            byte[] bytes = frame.getBytes();
+            out.write(bytes);
+            out.flush();
+            sent(bytes.length);
+            tap(true, bytes, bytes.length);
+            FlightRecorderEvents.endFrameSent(event, name, frame);
+        } else {
+            throw new IOException("Cannot sendFrame, OutputStream is null");
+        }
+    }
+
+    /**
+     * Sends a frame already encoded as bytes on the channel
+     *
+     * @param frame the frame
+     * @param frameBytes the frame encoded as bytes
+     * @throws IOException in case of problems while writing on the OutputStream
+     */
+    protected synchronized void sendFrame(String frame, byte[] frameBytes) throws IOException {
+        if (out != null) {
+            Object event = FlightRecorderEvents.beginFrameSent();
+            out.write(frameBytes);
             out.flush();
-            logger.info("-FC-{} -------> {}", name, frame);
+            sent(frameBytes.length);
+            tap(true, frameBytes, frameBytes.length);
+            FlightRecorderEvents.endFrameSent(event, name, frame);
         } else {
             throw new IOException("Cannot sendFrame, OutputStream is null");
         }
@@ -82,7 +158,7 @@ public class FrameChannel {
     protected String readFrames() throws IOException {
         if (readFrames.isEmpty()) { // no frames in queue, try reading from stream
             if (in != null) {
-                byte[] buf = new byte[1024];
+                byte[] buf = readBuffer;
                 int size = readUntilDelimiter(in, buf);
                 if (size > 0) {
                     String longFrame = new String(buf, 0, size);
@@ -115,18 +191,23 @@ public class FrameChannel {
                     }
                     // end-of-fix
 
-                    if (longFrame.contains(OpenMessage.FRAME_END)) {
-                        logger.debug("-FC-{} <------- {}", name, longFrame);
-                        String[] frames = longFrame.split(OpenMessage.FRAME_END);
-                        // add each single frame to the queue
-                        for (String singleFrame : frames) {
-                            readFrames.add(singleFrame + OpenMessage.FRAME_END);
-                        }
-                    } else {
+                    int end = longFrame.indexOf(OpenMessage.FRAME_END);
+                    if (end < 0) {
                         throw new IOException("Error in readFrames(): no delimiter found on stream: " + longFrame);
                     }
-                    logger.info("-FC-{} <------- {}", name, readFrames.toString());
-                    return readFrames.remove();
+                    logger.debug("-FC-{} <------- {}", name, longFrame);
+                    if (end + OpenMessage.FRAME_END.length() == longFrame.length()) {
+                        // a single frame, the common case: no need to split
+                        return received(longFrame);
+                    }
+                    // add each single frame to the queue
+                    int start = 0;
+                    while (end >= 0) {
+                        readFrames.add(longFrame.substring(start, end + OpenMessage.FRAME_END.length()));
+                        start = end + OpenMessage.FRAME_END.length();
+                        end = longFrame.indexOf(OpenMessage.FRAME_END, start);
+                    }
+                    return received(readFrames.remove());
                 } else {
                     logger.debug("-FC-{} |<--     NO DATA (size={})", name, size);
                     return null;
@@ -135,7 +216,7 @@ public class FrameChannel {
                 throw new IOException("Error in readFrames(): InputStream is null");
             }
         } else {
-            return readFrames.remove();
+            return received(readFrames.remove());
         }
     }
 
@@ -150,7 +231,7 @@ public class FrameChannel {
         int numBytes = 0;
         int cint = 0, available = 0;
         char cchar = ' ';
-        Boolean hashFound = false;
+        boolean hashFound = false;
         // reads one char each cycle and stop when the sequence ends with ## (OpenWebNet delimiter)
         do {
 
@@ -165,7 +246,7 @@ public class FrameChannel {
             cint = is.read();
             if (cint == -1) {
                 logger.debug("-FC-{} read() in readUntilDelimiter() returned -1 (end of stream)", name);
-                return numBytes;
+                break;
             } else {
                 buffer[numBytes++] = (byte) cint;
 
@@ -183,6 +264,9 @@ public class FrameChannel {
             }
         } while (true);
 
+        if (numBytes > 0) {
+            tap(false, buffer, numBytes);
+        }
         return numBytes;
     }
 
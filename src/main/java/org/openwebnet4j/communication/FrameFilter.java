@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.Dim;
+import org.openwebnet4j.message.Who;
+
+/**
+ * A filter on raw frames received on the MON connection. A filter matches frames by WHO, WHERE prefix, DIM and frame
+ * type (command <code>*WHO*WHAT*WHERE##</code> / status <code>*#WHO*WHERE*DIM...##</code>). Criteria not set match
+ * any frame.
+ *
+ * <p>
+ * Criteria are compiled into fixed prefixes that are compared directly against the frame String, so that frames can be
+ * filtered on the receive thread before being parsed. Filters are immutable: each <code>with...</code> method returns
+ * a new filter. Each filter counts the frames it has matched.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public final class FrameFilter {
+
+    /** Frame types a {@link FrameFilter} can match */
+    public enum FrameType {
+        ANY,
+        COMMAND,
+        STATUS
+    }
+
+    private final @Nullable Who who;
+    private final @Nullable String wherePrefix;
+    private final @Nullable String dimValue;
+    private final FrameType frameType;
+
+    // compiled prefixes
+    private final @Nullable String commandPrefix; // *WHO*
+    private final @Nullable String statusPrefix; // *#WHO*
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private FrameFilter(@Nullable Who who, @Nullable String wherePrefix, @Nullable String dimValue,
+            FrameType frameType) {
+        if (dimValue != null && frameType == FrameType.COMMAND) {
+            throw new IllegalArgumentException("A filter on DIM cannot match COMMAND frames");
+        }
+        this.who = who;
+        this.wherePrefix = wherePrefix;
+        this.dimValue = dimValue;
+        this.frameType = (dimValue != null) ? FrameType.STATUS : frameType;
+        if (who != null) {
+            commandPrefix = "*" + who.value() + "*";
+            statusPrefix = "*#" + who.value() + "*";
+        } else {
+            commandPrefix = null;
+            statusPrefix = null;
+        }
+    }
+
+    /**
+     * Returns a filter matching all frames with the given WHO
+     *
+     * @param who the {@link Who}
+     * @return a new FrameFilter
+     */
+    public static FrameFilter forWho(Who who) {
+        return new FrameFilter(who, null, null, FrameType.ANY);
+    }
+
+    /**
+     * Returns a filter matching all frames with WHERE starting with the given prefix, regardless of WHO
+     *
+     * @param wherePrefix the WHERE prefix
+     * @return a new FrameFilter
+     */
+    public static FrameFilter forWherePrefix(String wherePrefix) {
+        return new FrameFilter(null, checkWhere(wherePrefix), null, FrameType.ANY);
+    }
+
+    /**
+     * Returns a copy of this filter matching only frames with WHERE starting with the given prefix
+     *
+     * @param prefix the WHERE prefix
+     * @return a new FrameFilter
+     */
+    public FrameFilter withWherePrefix(String prefix) {
+        return new FrameFilter(who, checkWhere(prefix), dimValue, frameType);
+    }
+
+    /**
+     * Returns a copy of this filter matching only status frames with the given DIM
+     *
+     * @param dim the {@link Dim}
+     * @return a new FrameFilter
+     */
+    public FrameFilter withDim(Dim dim) {
+        return new FrameFilter(who, wherePrefix, dim.value().toString(), FrameType.STATUS);
+    }
+
+    /**
+     * Returns a copy of this filter matching only frames of the given {@link FrameType}
+     *
+     * @param type the FrameType
+     * @return a new FrameFilter
+     */
+    public FrameFilter withFrameType(FrameType type) {
+        return new FrameFilter(who, wherePrefix, dimValue, type);
+    }
+
+    private static String checkWhere(String w) {
+        for (int i = 0; i < w.length(); i++) {
+            char c = w.charAt(i);
+            if (!((c >= '0' && c <= '9') || c == '#')) {
+                throw new IllegalArgumentException("WHERE prefix can only contain '#' or digits [0-9]");
+            }
+        }
+        return w;
+    }
+
+    /**
+     * Checks if the raw frame matches this filter. If it matches, the hit counter of this filter is incremented.
+     *
+     * @param frame the raw frame String
+     * @return true if the frame matches this filter
+     */
+    public boolean matches(String frame) {
+        if (test(frame)) {
+            hits.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean test(String frame) {
+        int len = frame.length();
+        if (len < 5 || frame.charAt(0) != '*') {
+            return false;
+        }
+        boolean isStatus = frame.charAt(1) == '#';
+        if ((frameType == FrameType.COMMAND && isStatus) || (frameType == FrameType.STATUS && !isStatus)) {
+            return false;
+        }
+        // find end of WHO part
+        int pos;
+        if (who != null) {
+            String prefix = isStatus ? statusPrefix : commandPrefix;
+            if (!frame.startsWith(prefix)) {
+                return false;
+            }
+            pos = prefix.length();
+        } else {
+            pos = frame.indexOf('*', 1) + 1;
+            if (pos <= (isStatus ? 3 : 2)) {
+                return false; // no WHO or no WHO terminator: ACK/NACK, *#WHO## frames
+            }
+        }
+        if (wherePrefix == null && dimValue == null) {
+            return true;
+        }
+        int end = len - 2; // exclude ##
+        if (!isStatus) {
+            // skip WHAT part: *WHO*WHAT*WHERE##
+            pos = frame.indexOf('*', pos) + 1;
+            if (pos <= 0 || pos > end) {
+                return false;
+            }
+        }
+        // now pos is at WHERE start
+        int whereEnd = frame.indexOf('*', pos);
+        if (whereEnd < 0 || whereEnd > end) {
+            whereEnd = end;
+        }
+        if (wherePrefix != null) {
+            if (whereEnd - pos < wherePrefix.length() || !frame.startsWith(wherePrefix, pos)) {
+                return false;
+            }
+        }
+        if (dimValue != null) {
+            int dimStart = whereEnd + 1;
+            if (dimStart > end) {
+                return false;
+            }
+            if (frame.charAt(dimStart) == '#') { // dim writing
+                dimStart++;
+            }
+            int dimEnd = dimStart + dimValue.length();
+            if (dimEnd > end || !frame.startsWith(dimValue, dimStart)) {
+                return false;
+            }
+            char c = frame.charAt(dimEnd);
+            return dimEnd == end || c == '*' || c == '#';
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of frames matched by this filter
+     *
+     * @return number of matched frames
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public String toString() {
+        return "FrameFilter{who=" + who + ",wherePrefix=" + wherePrefix + ",dim=" + dimValue + ",type=" + frameType
+                + ",hits=" + hits.get() + "}";
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link WireTap} logging frames sent and received at INFO level on the
+ * <code>org.openwebnet4j.communication.FrameChannel</code> logger, with sampling and rate limit.
+ *
+ * On the I/O thread data is only sampled, rate limited and copied: formatting and logging are done by a single
+ * background thread, in order. Frames are not logged (and counted as skipped) when not sampled or over the rate
+ * limit, and counted as dropped when the logging queue is full; the number of frames not logged is logged with the
+ * next frame. Nothing is done if the logger is not enabled at INFO level.
+ *
+ * {@link #getDefault()} is used by connectors unless changed with
+ * {@link OpenConnector#setLoggingTap(LoggingWireTap)}. On the MON connection received frames are not tapped: they are
+ * passed to {@link #onFrame(String, String, long)} after MON filters, so that filtered frames are not logged.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class LoggingWireTap implements WireTap {
+
+    public static final int DEFAULT_SAMPLE_EVERY = 1;
+    public static final int DEFAULT_MAX_PER_SECOND = 200;
+    public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    private static final LoggingWireTap DEFAULT = new LoggingWireTap();
+
+    private final Logger logger = LoggerFactory.getLogger(FrameChannel.class);
+
+    private final int sampleEvery;
+    private final int maxPerSecond;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong frames = new AtomicLong();
+    private volatile long currentSecond = 0;
+    private final AtomicLong inCurrentSecond = new AtomicLong();
+
+    private final AtomicLong logged = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong notLoggedSinceLast = new AtomicLong();
+
+    /**
+     * Creates a LoggingWireTap logging all frames, at most {@link #DEFAULT_MAX_PER_SECOND} per second
+     */
+    public LoggingWireTap() {
+        this(DEFAULT_SAMPLE_EVERY, DEFAULT_MAX_PER_SECOND, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Creates a LoggingWireTap
+     *
+     * @param sampleEvery log one frame every <code>sampleEvery</code> frames (1 to log all frames)
+     * @param maxPerSecond max number of frames logged per second (approximate), or 0 for no limit
+     * @param queueSize max number of frames waiting to be logged
+     */
+    public LoggingWireTap(int sampleEvery, int maxPerSecond, int queueSize) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be >= 1");
+        }
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("queueSize must be >= 1");
+        }
+        this.sampleEvery = sampleEvery;
+        this.maxPerSecond = Math.max(0, maxPerSecond);
+        executor = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread t = new Thread(r, "OWN-WireLogger");
+            t.setDaemon(true);
+            return t;
+        }, (r, ex) -> {
+            dropped.incrementAndGet();
+            notLoggedSinceLast.incrementAndGet();
+        });
+    }
+
+    /**
+     * Returns the LoggingWireTap shared by connectors by default
+     *
+     * @return the default LoggingWireTap
+     */
+    public static LoggingWireTap getDefault() {
+        return DEFAULT;
+    }
+
+    @Override
+    public void onData(String channel, boolean outbound, byte[] data, int length, long timeNanos) {
+        if (!logger.isInfoEnabled() || !admit(timeNanos)) {
+            return;
+        }
+        byte[] copy = Arrays.copyOf(data, length);
+        executor.execute(() -> log(channel, outbound, new String(copy, StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Logs a frame received on the MON connection and accepted by MON filters
+     *
+     * @param channel the channel name
+     * @param frame the frame
+     * @param timeNanos time the frame was read, from {@link System#nanoTime()}
+     */
+    void onFrame(String channel, String frame, long timeNanos) {
+        if (!logger.isInfoEnabled() || !admit(timeNanos)) {
+            return;
+        }
+        executor.execute(() -> log(channel, false, frame));
+    }
+
+    private boolean admit(long timeNanos) {
+        if (sampleEvery > 1 && frames.getAndIncrement() % sampleEvery != 0) {
+            skip();
+            return false;
+        }
+        if (maxPerSecond > 0) {
+            long second = timeNanos / 1000000000L;
+            if (second != currentSecond) {
+                // races between I/O threads only make the limit approximate
+                currentSecond = second;
+                inCurrentSecond.set(0);
+            }
+            if (inCurrentSecond.incrementAndGet() > maxPerSecond) {
+                skip();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skip() {
+        skipped.incrementAndGet();
+        notLoggedSinceLast.incrementAndGet();
+    }
+
+    private void log(String channel, boolean outbound, String frame) {
+        long notLogged = notLoggedSinceLast.getAndSet(0);
+        if (notLogged > 0) {
+            logger.info("-FC- ... {} frames not logged (sampling, rate limit or queue full)", notLogged);
+        }
+        if (outbound) {
+            logger.info("-FC-{} -------> {}", channel, frame);
+        } else {
+            logger.info("-FC-{} <------- {}", channel, frame);
+        }
+        logged.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of frames logged
+     *
+     * @return number of frames logged
+     */
+    public long getLogged() {
+        return logged.get();
+    }
+
+    /**
+     * Returns the number of frames not logged because not sampled or over the rate limit
+     *
+     * @return number of frames skipped
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Returns the number of frames not logged because the logging queue was full
+     *
+     * @return number of frames dropped
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the number of frames waiting to be logged
+     *
+     * @return logging queue size
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+}
@@ -16,13 +16,23 @@ package org.openwebnet4j.communication;
 
 import java.io.IOException;
 import java.net.SocketTimeoutException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.openwebnet4j.message.AckOpenMessage;
 import org.openwebnet4j.message.FrameException;
 import org.openwebnet4j.message.GatewayMgmt;
 import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.ParseDepth;
+import org.openwebnet4j.metrics.GatewayMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,6 +44,7 @@ import org.slf4j.LoggerFactory;
  */
 public abstract class OpenConnector {
     protected static final int OWN_MAX_DATA = 1024;
+    static final WireTap[] NO_TAPS = new WireTap[0];
 
     private final Logger logger = LoggerFactory.getLogger(OpenConnector.class);
 
@@ -48,8 +59,22 @@ public abstract class OpenConnector {
     protected OWNReceiveThread monRcvThread;
 
     protected ConnectorListener listener;
-    protected ExecutorService notifierExecutor = Executors.newSingleThreadExecutor(); // single thread executor to
-    // notify listener
+    protected CommandCache commandCache = new CommandCache();
+    protected ParseDepth monParseDepth = ParseDepth.FULL;
+    protected List<FrameFilter> monFilters = Collections.emptyList();
+    private final AtomicLong filteredMonFrames = new AtomicLong();
+    protected volatile @Nullable EventJournal journal = null;
+    protected volatile @Nullable GatewayMetrics metrics = null;
+    private volatile @Nullable WireCapture capture = null;
+    private volatile @Nullable LoggingWireTap loggingTap = LoggingWireTap.getDefault();
+    private final List<WireTap> wireTaps = new CopyOnWriteArrayList<>();
+    // single thread executor to notify listener, in the order messages are received
+    protected final ThreadPoolExecutor notifierExecutor = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), r -> {
+                Thread t = new Thread(r, "OWN-MonNotifier");
+                t.setDaemon(true);
+                return t;
+            });
 
     /**
      * Opens command (CMD) connection
@@ -101,6 +126,239 @@ public abstract class OpenConnector {
         this.listener = listener;
     }
 
+    /**
+     * Sets the {@link CommandCache} used by this OpenConnector to prepare command frames
+     *
+     * @param cache the CommandCache to set
+     */
+    public void setCommandCache(CommandCache cache) {
+        this.commandCache = cache;
+    }
+
+    /**
+     * Returns the {@link CommandCache} used by this OpenConnector to prepare command frames
+     *
+     * @return the CommandCache
+     */
+    public CommandCache getCommandCache() {
+        return commandCache;
+    }
+
+    /**
+     * Sets the {@link ParseDepth} used to parse frames received on the MON connection
+     *
+     * @param depth the ParseDepth to set
+     */
+    public void setMonParseDepth(ParseDepth depth) {
+        this.monParseDepth = depth;
+    }
+
+    /**
+     * Returns the {@link ParseDepth} used to parse frames received on the MON connection
+     *
+     * @return the ParseDepth
+     */
+    public ParseDepth getMonParseDepth() {
+        return monParseDepth;
+    }
+
+    /**
+     * Sets the list of {@link FrameFilter}s applied to frames received on the MON connection. If the list is not empty,
+     * only frames matching at least one filter are parsed and notified to the listener. The list is not copied: it
+     * must be thread-safe if it is going to be modified while connected.
+     *
+     * @param filters the list of FrameFilter
+     */
+    public void setMonFilters(List<FrameFilter> filters) {
+        this.monFilters = filters;
+    }
+
+    /**
+     * Returns the number of frames received on the MON connection and dropped because not matching any
+     * {@link FrameFilter}
+     *
+     * @return number of frames dropped by filters
+     */
+    public long getFilteredMonFrames() {
+        return filteredMonFrames.get();
+    }
+
+    /**
+     * Returns the number of messages received on the MON connection and waiting to be notified to the listener. A
+     * number growing over time means the listener cannot keep up with the rate of events.
+     *
+     * @return number of messages waiting to be notified
+     */
+    public int getNotifierQueueSize() {
+        return notifierExecutor.getQueue().size();
+    }
+
+    /**
+     * Sets the {@link EventJournal} where frames received on the MON connection are appended
+     *
+     * @param journal the EventJournal, or null to disable journaling
+     */
+    public void setJournal(@Nullable EventJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Sets the {@link GatewayMetrics} updated by this OpenConnector. To be set before opening connections.
+     *
+     * @param metrics the GatewayMetrics, or null to disable metrics
+     */
+    public void setMetrics(@Nullable GatewayMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the {@link WireCapture} where raw bytes sent and received by this OpenConnector are captured. Can be set
+     * while connected.
+     *
+     * @param capture the WireCapture, or null to stop capturing
+     */
+    public void setCapture(@Nullable WireCapture capture) {
+        this.capture = capture;
+        updateTaps();
+    }
+
+    /**
+     * Sets the {@link LoggingWireTap} used to log frames sent and received by this OpenConnector. Default is
+     * {@link LoggingWireTap#getDefault()}. Can be set while connected.
+     *
+     * @param loggingTap the LoggingWireTap, or null to disable logging of frames
+     */
+    public void setLoggingTap(@Nullable LoggingWireTap loggingTap) {
+        this.loggingTap = loggingTap;
+        updateTaps();
+    }
+
+    /**
+     * Adds a {@link WireTap} notified of raw bytes sent and received by this OpenConnector. Can be added while
+     * connected.
+     *
+     * @param tap the WireTap to add
+     */
+    public void addWireTap(WireTap tap) {
+        wireTaps.add(tap);
+        updateTaps();
+    }
+
+    /**
+     * Removes a {@link WireTap}
+     *
+     * @param tap the WireTap to remove
+     */
+    public void removeWireTap(WireTap tap) {
+        wireTaps.remove(tap);
+        updateTaps();
+    }
+
+    /**
+     * Returns the {@link WireTap}s to be set on channels of this OpenConnector: logging tap, capture and added taps
+     *
+     * @return array of WireTaps
+     */
+    protected WireTap[] getTaps() {
+        List<WireTap> taps = new ArrayList<>(wireTaps.size() + 2);
+        LoggingWireTap l = loggingTap;
+        if (l != null) {
+            taps.add(l);
+        }
+        WireCapture c = capture;
+        if (c != null) {
+            taps.add(c);
+        }
+        taps.addAll(wireTaps);
+        return taps.isEmpty() ? NO_TAPS : taps.toArray(new WireTap[0]);
+    }
+
+    /**
+     * Returns the {@link WireTap}s to be set on the MON channel of this OpenConnector: as {@link #getTaps()}, but once
+     * the MON connection is established the logging tap only sees sent data: received frames are logged by
+     * {@link #handleMonFrame(String)} if accepted by MON filters.
+     *
+     * @return array of WireTaps
+     */
+    protected WireTap[] getMonTaps() {
+        WireTap[] taps = getTaps();
+        LoggingWireTap l = loggingTap;
+        if (l != null) {
+            taps[0] = (channel, outbound, data, length, timeNanos) -> {
+                if (outbound || !isMonConnected) {
+                    l.onData(channel, outbound, data, length, timeNanos);
+                }
+            };
+        }
+        return taps;
+    }
+
+    private void updateTaps() {
+        FrameChannel ch = monChannel;
+        if (ch != null) {
+            ch.setTaps(getMonTaps());
+        }
+        ch = cmdChannel;
+        if (ch != null) {
+            ch.setTaps(getTaps());
+        }
+    }
+
+    /**
+     * Returns the {@link GatewayMetrics} updated by this OpenConnector
+     *
+     * @return the GatewayMetrics, or null if not set
+     */
+    public @Nullable GatewayMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Counts a frame received on the MON connection that could not be parsed
+     *
+     * @param frame the frame
+     * @param unsupported true if the frame is valid but not supported
+     */
+    protected void countParseError(String frame, boolean unsupported) {
+        GatewayMetrics m = metrics;
+        if (m != null) {
+            m.parseError(frame, unsupported);
+        }
+    }
+
+    /**
+     * Appends the raw frame to the journal, if set
+     *
+     * @param frame the raw frame
+     */
+    protected void journalMonFrame(String frame) {
+        EventJournal j = journal;
+        if (j != null) {
+            j.append(frame);
+        }
+    }
+
+    /**
+     * Checks the raw frame against MON filters
+     *
+     * @param frame the raw frame
+     * @return true if the frame must be processed, false if it must be dropped
+     */
+    protected boolean acceptMonFrame(String frame) {
+        List<FrameFilter> filters = monFilters;
+        if (filters.isEmpty()) {
+            return true;
+        }
+        for (FrameFilter f : filters) {
+            if (f.matches(frame)) {
+                return true;
+            }
+        }
+        filteredMonFrames.incrementAndGet();
+        logger.trace("##OPEN-conn## frame filtered: {}", frame);
+        return false;
+    }
+
     /**
      * Send a command frame String on the connection, waits for a {@link AckOpenMessage} (ACN/NACK)
      * or timeout and returns the received messages in a {@link Response} object
@@ -111,17 +369,48 @@ public abstract class OpenConnector {
      */
     // TODO add timeout??
     public synchronized Response sendCommandSynch(String frame) throws OWNException {
+        return sendCommandSynch(frame, null);
+    }
+
+    /**
+     * Send a command frame String on the connection like {@link #sendCommandSynch(String)}, passing each message
+     * received as response (other than the final ACK/NACK) to a consumer as soon as it is received. Connectors that
+     * cannot stream responses pass messages to the consumer when the response is complete.
+     *
+     * @param frame the frame String to send
+     * @param responseConsumer the consumer of response messages, can be null
+     * @return {@link Response} object with messages received as response
+     * @throws OWNException in case of error while sending command frame or reading response
+     */
+    public synchronized Response sendCommandSynch(String frame, Consumer<OpenMessage> responseConsumer)
+            throws OWNException {
         if (!isCmdConnected()) {
             throw new OWNException("CMD is not connected");
         }
+        GatewayMetrics m = metrics;
+        Object event = FlightRecorderEvents.beginCommand();
+        long start = System.nanoTime();
         try {
-            return sendCommandSynchInternal(frame);
+            Response res = sendCommandSynchInternal(frame, responseConsumer);
+            if (m != null) {
+                m.commandCompleted(System.nanoTime() - start, res.getFinalResponse());
+            }
+            FlightRecorderEvents.endCommand(event, frame, res);
+            return res;
         } catch (IOException e) {
+            if (m != null) {
+                m.commandFailed();
+            }
+            FlightRecorderEvents.endCommand(event, frame, null);
             logger.debug("##OPEN-conn## IOException while sending frame {} or reading response: {}", frame,
                     e.getMessage());
             throw new OWNException(
                     "IOException while sending frame " + frame + " or reading response: " + e.getMessage(), e);
         } catch (FrameException e) {
+            if (m != null) {
+                m.commandFailed();
+            }
+            FlightRecorderEvents.endCommand(event, frame, null);
             logger.warn("##OPEN-conn## FrameException while sending frame {} or reading response: {}", frame,
                     e.getMessage());
             throw new OWNException(
@@ -131,6 +420,47 @@ public abstract class OpenConnector {
 
     protected abstract Response sendCommandSynchInternal(String frame) throws IOException, FrameException;
 
+    /**
+     * Sends a command frame and passes response messages to responseConsumer. This default implementation waits for
+     * the complete response: connectors that can read response frames one by one should override it.
+     *
+     * @param frame the frame String to send
+     * @param responseConsumer the consumer of response messages, can be null
+     * @return {@link Response} object with messages received as response
+     * @throws IOException in case of error while sending command frame or reading response
+     * @throws FrameException in case of error in frame
+     */
+    protected Response sendCommandSynchInternal(String frame, Consumer<OpenMessage> responseConsumer)
+            throws IOException, FrameException {
+        Response res = sendCommandSynchInternal(frame);
+        if (responseConsumer != null) {
+            for (OpenMessage msg : res.getResponseMessages()) {
+                if (!msg.isACK() && !msg.isNACK() && !msg.isBUSY_NACK()) {
+                    responseConsumer.accept(msg);
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Handles a frame read from the MON connection: appends it to the journal and, if accepted by MON filters, logs
+     * it with the logging tap and processes it. Also used by {@link WireReplay} to feed captured frames.
+     *
+     * @param frame the frame read
+     */
+    protected void handleMonFrame(String frame) {
+        journalMonFrame(frame);
+        if (acceptMonFrame(frame)) {
+            LoggingWireTap l = loggingTap;
+            FrameChannel ch = monChannel;
+            if (l != null && ch != null) {
+                l.onFrame(ch.getName(), frame, System.nanoTime());
+            }
+            processFrame(frame);
+        }
+    }
+
     /**
      * Process a frame string received
      *
@@ -149,7 +479,9 @@ public abstract class OpenConnector {
             try {
                 logger.trace("##OPEN-conn## notifyListener:Executing EXECUTOR : {}, message={}",
                         Thread.currentThread().getName(), msg);
+                Object event = FlightRecorderEvents.beginDispatch();
                 listener.onMessage(msg);
+                FlightRecorderEvents.endDispatch(event, listener, msg);
             } catch (Exception e) {
                 logger.warn("##OPEN-conn## Error while notifying message {} to listener: {}", msg, e.getMessage());
                 e.printStackTrace();
@@ -182,7 +514,7 @@ public abstract class OpenConnector {
                             break;
                         }
                     } else {
-                        processFrame(fr);
+                        handleMonFrame(fr);
                     }
                 } catch (SocketTimeoutException st) {
                     logger.debug("{} - got SocketTimeoutException", getName());
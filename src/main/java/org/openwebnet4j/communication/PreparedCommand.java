@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import java.nio.charset.StandardCharsets;
+
+import org.openwebnet4j.message.OpenMessage;
+
+/**
+ * A command frame prepared for sending: the parsed {@link OpenMessage} and the encoded wire bytes. Instances are
+ * immutable and are shared by the {@link CommandCache}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public final class PreparedCommand {
+
+    private final String frame;
+    private final OpenMessage message;
+    private final byte[] frameBytes;
+
+    PreparedCommand(String frame, OpenMessage message) {
+        this.frame = frame;
+        this.message = message;
+        this.frameBytes = frame.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns the frame String of this command
+     *
+     * @return the frame String
+     */
+    public String getFrame() {
+        return frame;
+    }
+
+    /**
+     * Returns the parsed message of this command
+     *
+     * @return the {@link OpenMessage}
+     */
+    public OpenMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the frame encoded as bytes, ready to be written on the channel. The returned array must not be modified.
+     *
+     * @return frame bytes
+     */
+    byte[] getFrameBytes() {
+        return frameBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "`" + frame + "`";
+    }
+}
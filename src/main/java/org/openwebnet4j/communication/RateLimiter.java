@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simple rate limiter spacing requests evenly: each call to {@link #acquire()} waits until at least
+ * <code>1/rate</code> seconds have passed since the previous permit. Thread-safe.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private long nextPermit = 0;
+
+    /**
+     * Creates a new RateLimiter
+     *
+     * @param permitsPerSecond maximum number of permits per second. If &lt;= 0, permits are not limited
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    }
+
+    /**
+     * Waits for a permit
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (nextPermit < now) {
+                nextPermit = now;
+            }
+            wait = nextPermit - now;
+            nextPermit += intervalNanos;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
@@ -17,6 +17,7 @@ package org.openwebnet4j.communication;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.openwebnet4j.message.AckOpenMessage;
 import org.openwebnet4j.message.OpenMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +45,25 @@ public class Response {
         this.requestMessage = request;
     }
 
+    /**
+     * Creates a successful {@link Response} to a request from messages already received, for example from a cache. An
+     * ACK is added as final response.
+     *
+     * @param request the {@link OpenMessage} request message
+     * @param messages the messages received as response, excluding the final ACK
+     * @return the Response
+     */
+    public static Response fromMessages(OpenMessage request, List<OpenMessage> messages) {
+        Response res = new Response(request);
+        for (OpenMessage msg : messages) {
+            res.responses.add(msg);
+        }
+        res.finalResponse = AckOpenMessage.ACK;
+        res.responses.add(AckOpenMessage.ACK);
+        res.isSuccess = true;
+        return res;
+    }
+
     /**
      * Returns the initial request message
      *
@@ -94,7 +114,7 @@ public class Response {
         responses.add(msg);
         logger.debug("`{}`   <<add   `{}`", requestMessage, msg);
         logger.debug("now: `{}`   <<==    `{}`", requestMessage, getResponseMessages());
-        if (msg.isACK() || msg.isNACK()) { // ACK/NACK -> the response is final
+        if (msg.isACK() || msg.isNACK() || msg.isBUSY_NACK()) { // ACK/NACK/BUSY_NACK -> the response is final
             finalResponse = msg;
             if (msg.isACK()) {
                 isSuccess = true;
@@ -103,9 +123,9 @@ public class Response {
     }
 
     /**
-     * Returns true if an ACK/NACK has been received
+     * Returns true if an ACK/NACK/BUSY_NACK has been received
      *
-     * @return true if an ACK/NACK has been received
+     * @return true if an ACK/NACK/BUSY_NACK has been received
      */
     protected boolean hasFinalResponse() {
         return finalResponse != null;
@@ -114,7 +134,9 @@ public class Response {
     protected synchronized void waitResponse() {
         if (finalResponse == null) {
             try {
-                wait();
+                while (finalResponse == null) {
+                    wait();
+                }
             } catch (InterruptedException e) {
                 e.printStackTrace();
             } catch (IllegalMonitorStateException e) {
@@ -126,7 +148,30 @@ public class Response {
         }
     }
 
+    /**
+     * Waits until an ACK/NACK has been received, or timeout
+     *
+     * @param timeout the maximum time to wait (ms)
+     * @return true if an ACK/NACK has been received, false on timeout or if interrupted
+     */
+    protected synchronized boolean waitResponse(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        try {
+            while (finalResponse == null) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
     protected synchronized void responseReady() {
-        notify();
+        notifyAll();
     }
 }
@@ -15,6 +15,10 @@
 package org.openwebnet4j.communication;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -65,7 +69,10 @@ public class USBConnector extends OpenConnector implements SerialPortEventListen
 
     private SerialPortProvider serialPortProvider;
 
-    private Response currentResponse;
+    static final int PIPELINE_RESPONSE_TIMEOUT = 5000; // (ms) time to wait for each response to pipelined requests
+
+    // responses waiting for an ACK/NACK, in the order requests were sent: the gateway answers requests in order
+    private final Deque<Response> pendingResponses = new ArrayDeque<>();
     private final Object requestSentSynchObj = new Object(); // Synch object to synchronise sending a request frame and
     // processing its answer
 
@@ -174,6 +181,8 @@ public class USBConnector extends OpenConnector implements SerialPortEventListen
             serialPort = connectSerialPort(portN);
             try {
                 cmdChannel = new FrameChannel(serialPort.getInputStream(), serialPort.getOutputStream(), "USB");
+                cmdChannel.setMetrics(metrics);
+                cmdChannel.setTaps(getTaps());
             } catch (IOException e) {
                 disconnectSerialPort();
                 throw new OWNException(
@@ -182,10 +191,10 @@ public class USBConnector extends OpenConnector implements SerialPortEventListen
         }
         try {
             // send requestKeepConnect (*13*60*##) to see if USB stick is ready to receive commands
-            GatewayMgmt frame = GatewayMgmt.requestKeepConnect();
-            cmdChannel.sendFrame(frame.getFrameValue());
+            PreparedCommand keepConnect = commandCache.prepare(GatewayMgmt.requestKeepConnect().getFrameValue());
+            cmdChannel.sendFrame(keepConnect.getFrame(), keepConnect.getFrameBytes());
 
-            hsLogger.info("(HS) USB HS==>>>> `{}`", frame.getFrameValue());
+            hsLogger.info("(HS) USB HS==>>>> `{}`", keepConnect.getFrame());
             Thread.sleep(50); // we must wait few ms for the answer to be ready
             String resp = cmdChannel.readFrames();
             hsLogger.info("(HS) USB <<<<==HS `{}`", resp);
@@ -205,7 +214,7 @@ public class USBConnector extends OpenConnector implements SerialPortEventListen
             }
         } catch (InterruptedException e) {
             e.printStackTrace();
-        } catch (IOException e) {
+        } catch (IOException | FrameException e) {
             disconnectSerialPort();
             throw new OWNException("Failed to communicate with Zigbee USB Gateway on serial port: " + portN, e);
         }
@@ -269,60 +278,132 @@ public class USBConnector extends OpenConnector implements SerialPortEventListen
     @Override
     protected synchronized Response sendCommandSynchInternal(String frame) throws IOException, FrameException {
         // TODO add timeout?
-        OpenMessage msg = BaseOpenMessage.parse(frame);
-        OpenMessage fixedMsg = fixInvertedUpDownBug(msg);
-        synchronized (requestSentSynchObj) {
-            currentResponse = new Response(fixedMsg); // FIXME check if we have to store original or modified
-            // message
-            String frameSend = fixedMsg.getFrameValue();
-            cmdChannel.sendFrame(frameSend);
-            lastCmdFrameSentTs = System.currentTimeMillis();
-            msgLogger.info("USB-CMD ====>>>> `{}`", frameSend);
-        }
+        final Response res = sendRequest(frame);
         try {
-            currentResponse.waitResponse();
+            res.waitResponse();
             logger.debug("##USB-conn## [{}] response COMPLETE!", Thread.currentThread().getName());
         } catch (IllegalMonitorStateException e) {
             e.printStackTrace();
         }
-        final Response res = currentResponse;
-        currentResponse = null;
-        msgLogger.info("USB-CMD <<<<==== `{}`", res.getResponseMessages());
+        msgLogger.debug("USB-CMD <<<<==== `{}`", res.getResponseMessages());
+        return res;
+    }
+
+    /**
+     * Sends a list of command frames keeping up to <code>window</code> requests in flight, without waiting for the
+     * response to a request before sending the next one. Responses are passed to responseConsumer in the order
+     * requests were sent, as soon as each one is complete. Other commands wait until all frames have been sent and
+     * answered.
+     *
+     * @param frames the frames to send
+     * @param window maximum number of requests waiting for a response
+     * @param responseConsumer the consumer of responses
+     * @throws OWNException in case of error while sending frames, or if a response is not received within
+     *             {@value #PIPELINE_RESPONSE_TIMEOUT}ms
+     */
+    public synchronized void sendCommandsPipelined(List<String> frames, int window, Consumer<Response> responseConsumer)
+            throws OWNException {
+        if (!isCmdConnected()) {
+            throw new OWNException("CMD is not connected");
+        }
+        Deque<Response> inFlight = new ArrayDeque<>();
+        int next = 0;
+        try {
+            while (next < frames.size() || !inFlight.isEmpty()) {
+                while (next < frames.size() && inFlight.size() < Math.max(1, window)) {
+                    inFlight.add(sendRequest(frames.get(next++)));
+                }
+                Response res = inFlight.poll();
+                if (!res.waitResponse(PIPELINE_RESPONSE_TIMEOUT)) {
+                    throw new IOException("no response received within " + PIPELINE_RESPONSE_TIMEOUT + "ms");
+                }
+                msgLogger.debug("USB-CMD <<<<==== `{}`", res.getResponseMessages());
+                responseConsumer.accept(res);
+            }
+        } catch (IOException | FrameException e) {
+            synchronized (requestSentSynchObj) {
+                pendingResponses.removeAll(inFlight);
+            }
+            logger.debug("##USB-conn## Exception while sending pipelined frames: {}", e.getMessage());
+            throw new OWNException("Exception while sending pipelined frames (" + next + "/" + frames.size()
+                    + " sent) or reading responses: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Sends a request frame and adds its Response to pendingResponses
+     */
+    private Response sendRequest(String frame) throws IOException, FrameException {
+        PreparedCommand cmd = commandCache.prepare(frame);
+        OpenMessage fixedMsg = fixInvertedUpDownBug(cmd.getMessage());
+        if (fixedMsg != cmd.getMessage()) {
+            // converted frames are cached as well
+            cmd = commandCache.prepare(fixedMsg.getFrameValue());
+        }
+        Response res = new Response(fixedMsg); // FIXME check if we have to store original or modified message
+        synchronized (requestSentSynchObj) {
+            pendingResponses.add(res);
+            String frameSend = cmd.getFrame();
+            try {
+                cmdChannel.sendFrame(frameSend, cmd.getFrameBytes());
+            } catch (IOException e) {
+                pendingResponses.remove(res);
+                throw e;
+            }
+            lastCmdFrameSentTs = System.currentTimeMillis();
+            msgLogger.debug("USB-CMD ====>>>> `{}`", frameSend);
+        }
         return res;
     }
 
+    /**
+     * On USB frames are journaled and filtered in {@link #processFrame(String)}, after parsing
+     */
+    @Override
+    protected void handleMonFrame(String frame) {
+        processFrame(frame);
+    }
+
     @Override
     protected void processFrame(String newFrame) {
         logger.debug("##USB-conn## processing frame: `{}`", newFrame);
         OpenMessage msg;
+        Object event = FlightRecorderEvents.beginParse();
         try {
-            msg = BaseOpenMessage.parse(newFrame);
+            msg = BaseOpenMessage.parse(newFrame, monParseDepth);
+            FlightRecorderEvents.endParse(event, newFrame, null);
         } catch (UnsupportedFrameException e) {
-            logger.info("##USB-conn## UNSUPPORTED FRAME: `{}`, skipping it", newFrame);
+            FlightRecorderEvents.endParse(event, newFrame, e);
+            logger.debug("##USB-conn## UNSUPPORTED FRAME: `{}`, skipping it", newFrame);
+            countParseError(newFrame, true);
             return;
         } catch (FrameException e) {
+            FlightRecorderEvents.endParse(event, newFrame, e);
             logger.warn("##USB-conn## INVALID FRAME: `{}`, skipping it", newFrame);
+            countParseError(newFrame, false);
             return;
         }
         synchronized (requestSentSynchObj) {
             // fix up/down bug for older gateways
             msg = fixInvertedUpDownBug(msg);
+            Response currentResponse = pendingResponses.peek();
             if (currentResponse == null) { // no request is currently waiting
-                if (msg.isACK() || msg.isNACK()) {
+                if (msg.isACK() || msg.isNACK() || msg.isBUSY_NACK()) {
                     logger.warn("##USB-conn## Recevied ACK/NACK without a request waiting, skipping it");
-                } else {
-                    eventLogger.info("USB-MON <<<<<<<< `{}`", msg.getFrameValue());
+                } else if (acceptUSBEvent(msg)) {
+                    eventLogger.debug("USB-MON <<<<<<<< `{}`", msg.getFrameValue());
                     notifyListener(msg);
                 }
             } else { // some request is currently waiting
                 logger.debug("##USB-conn## a request is waiting");
                 if (msg.isCommand()) {
                     // perform fixes to compensate bugs of older gateways
-                    fixDimensionResponseBug();
-                    eventLogger.info("USB-MON <<<<<<<< `{}`", msg.getFrameValue());
-                    notifyListener(msg);
+                    fixDimensionResponseBug(currentResponse);
+                    if (acceptUSBEvent(msg)) {
+                        eventLogger.debug("USB-MON <<<<<<<< `{}`", msg.getFrameValue());
+                        notifyListener(msg);
+                    }
                 } else { // add them to the response object
-                    // TODO handle the BUSY_NACK case
                     msgLogger.debug("USB-CMD   <<==   `{}`", newFrame);
                     currentResponse.addResponse(msg);
                 }
@@ -330,17 +411,27 @@ public class USBConnector extends OpenConnector implements SerialPortEventListen
                     // we received an ACK/NACK, so let's signal response is ready to the waiting
                     // thread
                     logger.debug("##USB-conn## USB final response: `{}`", currentResponse);
+                    pendingResponses.poll();
                     currentResponse.responseReady();
                 }
             }
         }
     }
 
+    /*
+     * Append events to the journal and apply MON filters. GatewayMgmt events are always accepted as they are needed
+     * during device discovery
+     */
+    private boolean acceptUSBEvent(OpenMessage msg) {
+        journalMonFrame(msg.getFrameValue());
+        return (msg instanceof GatewayMgmt) || acceptMonFrame(msg.getFrameValue());
+    }
+
     /*
      * Add final ACK to response for older USB gateways that do not return an ACK after dimension response.
      * See OpenWebNet Zigbee docs page 35 / page 17 of older version
      */
-    private void fixDimensionResponseBug() {
+    private void fixDimensionResponseBug(Response currentResponse) {
         if (isOldFirmware && !currentResponse.getRequest().isCommand()
                 && (currentResponse.getRequest() instanceof Lighting
                         || currentResponse.getRequest() instanceof Automation)) {
@@ -380,8 +471,10 @@ public class USBConnector extends OpenConnector implements SerialPortEventListen
                     try {
                         frame = cmdChannel.readFrames();
                     } catch (IOException e) {
+                        // port closed or unplugged: stop reading, disconnection is handled by the caller
                         logger.error("##USB-conn## IOException while reading frames from EVENT_DATA_AVAILABLE: {}",
                                 e.getMessage());
+                        break;
                     }
                     if (frame == null) {
                         logger.trace(
@@ -390,7 +483,7 @@ public class USBConnector extends OpenConnector implements SerialPortEventListen
                     } else {
                         processFrame(frame);
                     }
-                } while (frame != null);
+                } while (frame != null && !Thread.currentThread().isInterrupted());
                 logger.trace("##USB-conn## END processing EVENT_DATA_AVAILABLE");
                 break;
             case SerialPortEvent.EVENT_PORT_DISCONNECTED:
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link WireTap} capturing the raw bytes sent and received on {@link FrameChannel}s, with their time, into a binary
+ * file, to reproduce traffic from a real installation with {@link WireReplay}. See
+ * {@link OpenConnector#setCapture(WireCapture)} and {@link org.openwebnet4j.OpenGateway#setWireCapture(WireCapture)}.
+ *
+ * <p>
+ * File format: a header <code>[magic:int][version:byte][start time:long epoch millis]</code> followed by records
+ * starting with a type byte:
+ * <ul>
+ * <li><code>CHANNEL</code>: <code>[id:byte][name length:byte][name:ASCII bytes]</code>, written the first time a
+ * channel is captured</li>
+ * <li><code>IN</code>/<code>OUT</code>: <code>[channel id:byte][micros since previous record:varint]
+ * [length:varint][data]</code></li>
+ * </ul>
+ * Each record takes 4-6 bytes plus its data.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class WireCapture implements WireTap, AutoCloseable {
+
+    static final int MAGIC = 0x4F574E43; // "OWNC"
+    static final byte VERSION = 1;
+    static final byte TYPE_CHANNEL = 0;
+    static final byte TYPE_IN = 1;
+    static final byte TYPE_OUT = 2;
+    static final int MAX_CHANNELS = 127;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(WireCapture.class);
+
+    private final Path file;
+    private final DataOutputStream out;
+    private final Map<String, Integer> channelIds = new HashMap<>();
+    private long lastMicros;
+    private boolean closed = false;
+    private boolean failed = false;
+
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Creates a new capture file, replacing it if it exists
+     *
+     * @param file the capture file
+     * @throws IOException in case of error while creating the file
+     */
+    public WireCapture(Path file) throws IOException {
+        this.file = file;
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        lastMicros = System.nanoTime() / 1000;
+        logger.debug("WireCapture: capturing to {}", file);
+    }
+
+    @Override
+    public synchronized void onData(String channel, boolean outbound, byte[] data, int len, long timeNanos) {
+        if (closed || failed) {
+            dropped.incrementAndGet();
+            return;
+        }
+        try {
+            Integer id = channelIds.get(channel);
+            if (id == null) {
+                if (channelIds.size() >= MAX_CHANNELS) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                id = channelIds.size();
+                byte[] name = channel.getBytes(StandardCharsets.US_ASCII);
+                out.writeByte(TYPE_CHANNEL);
+                out.writeByte(id);
+                out.writeByte(Math.min(name.length, 255));
+                out.write(name, 0, Math.min(name.length, 255));
+                channelIds.put(channel, id);
+            }
+            long delta = Math.max(0, timeNanos / 1000 - lastMicros); // taps of different channels can race
+            out.writeByte(outbound ? TYPE_OUT : TYPE_IN);
+            out.writeByte(id);
+            writeVarint(delta);
+            writeVarint(len);
+            out.write(data, 0, len);
+            lastMicros += delta;
+        } catch (IOException e) {
+            logger.error("WireCapture: cannot write to {}, capture stopped: {}", file, e.getMessage());
+            failed = true;
+            dropped.incrementAndGet();
+            return;
+        }
+        records.incrementAndGet();
+        bytes.addAndGet(len);
+    }
+
+    private void writeVarint(long value) throws IOException {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    /**
+     * Writes buffered records to the file
+     *
+     * @throws IOException in case of error while writing
+     */
+    public synchronized void flush() throws IOException {
+        if (!closed && !failed) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Returns the capture file
+     *
+     * @return the capture file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of send/receive records captured
+     *
+     * @return number of records
+     */
+    public long getRecords() {
+        return records.get();
+    }
+
+    /**
+     * Returns the number of data bytes captured
+     *
+     * @return number of bytes
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Returns the number of records that could not be captured
+     *
+     * @return number of dropped records
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+            logger.debug("WireCapture: closed {}, {} records", file, records.get());
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.OpenMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replays a capture file written by {@link WireCapture}: frames received on a channel are passed, in the same order
+ * and split in the same way, to an {@link OpenConnector} (as if read from the MON connection) or to any frame
+ * consumer, for example a simulated gateway broadcasting them to its MON sessions. Frames are replayed with the
+ * original timing, accelerated by a speed factor, or at {@link #MAX_SPEED}.
+ *
+ * Channel names are those of {@link FrameChannel}s: <code>BUS-MON</code> and <code>BUS-CMD</code> for BUS gateways,
+ * <code>USB</code> for the ZigBee USB gateway.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class WireReplay {
+
+    /** replays frames without waiting */
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    private static final int MAX_RECORD_LENGTH = 1024 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(WireReplay.class);
+
+    private final long startTime;
+    private final List<Record> records;
+
+    /**
+     * Data sent or received on a channel
+     */
+    public static class Record {
+        private final String channel;
+        private final boolean outbound;
+        private final long timeNanos;
+        private final byte[] data;
+
+        Record(String channel, boolean outbound, long timeNanos, byte[] data) {
+            this.channel = channel;
+            this.outbound = outbound;
+            this.timeNanos = timeNanos;
+            this.data = data;
+        }
+
+        /**
+         * @return the channel name
+         */
+        public String getChannel() {
+            return channel;
+        }
+
+        /**
+         * @return true if data was sent, false if received
+         */
+        public boolean isOutbound() {
+            return outbound;
+        }
+
+        /**
+         * @return time since the start of the capture, in nanoseconds
+         */
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        /**
+         * @return a copy of the raw data
+         */
+        public byte[] getData() {
+            return data.clone();
+        }
+
+        @Override
+        public String toString() {
+            return channel + (outbound ? " --> " : " <-- ") + new String(data, StandardCharsets.US_ASCII) + " @"
+                    + timeNanos / 1000 + "us";
+        }
+    }
+
+    /**
+     * Result of a replay
+     */
+    public static class Result {
+        private final long frames;
+        private final long durationNanos;
+        private final long maxLagNanos;
+
+        Result(long frames, long durationNanos, long maxLagNanos) {
+            this.frames = frames;
+            this.durationNanos = durationNanos;
+            this.maxLagNanos = maxLagNanos;
+        }
+
+        /**
+         * @return number of frames replayed
+         */
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * @return duration of the replay in nanoseconds
+         */
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        /**
+         * @return max delay of a frame with respect to its scheduled time, in nanoseconds: a high value means the
+         *         frame consumer could not keep up with the replay speed
+         */
+        public long getMaxLagNanos() {
+            return maxLagNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "{frames=" + frames + ", duration=" + durationNanos / 1000000 + "ms, maxLag="
+                    + maxLagNanos / 1000000 + "ms}";
+        }
+    }
+
+    /**
+     * Reads a capture file
+     *
+     * @param file the capture file written by {@link WireCapture}
+     * @throws IOException in case of error while reading the file or if it is not a valid capture file
+     */
+    public WireReplay(Path file) throws IOException {
+        List<Record> recs = new ArrayList<>();
+        Map<Integer, String> channels = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != WireCapture.MAGIC) {
+                throw new IOException("Not a capture file: " + file);
+            }
+            int version = in.readByte();
+            if (version != WireCapture.VERSION) {
+                throw new IOException("Unsupported capture file version " + version + ": " + file);
+            }
+            startTime = in.readLong();
+            long timeMicros = 0;
+            int type;
+            while ((type = in.read()) >= 0) {
+                try {
+                    int id = in.readUnsignedByte();
+                    if (type == WireCapture.TYPE_CHANNEL) {
+                        byte[] name = new byte[in.readUnsignedByte()];
+                        in.readFully(name);
+                        channels.put(id, new String(name, StandardCharsets.US_ASCII));
+                    } else if (type == WireCapture.TYPE_IN || type == WireCapture.TYPE_OUT) {
+                        timeMicros += readVarint(in);
+                        long len = readVarint(in);
+                        if (len > MAX_RECORD_LENGTH) {
+                            throw new IOException("Invalid record length " + len + " in capture file: " + file);
+                        }
+                        byte[] data = new byte[(int) len];
+                        in.readFully(data);
+                        String channel = channels.get(id);
+                        if (channel == null) {
+                            throw new IOException("Unknown channel " + id + " in capture file: " + file);
+                        }
+                        recs.add(new Record(channel, type == WireCapture.TYPE_OUT, timeMicros * 1000, data));
+                    } else {
+                        throw new IOException("Invalid record type " + type + " in capture file: " + file);
+                    }
+                } catch (EOFException e) {
+                    // capture not closed: ignore last incomplete record
+                    logger.debug("WireReplay: incomplete last record in {}", file);
+                    break;
+                }
+            }
+        }
+        records = Collections.unmodifiableList(recs);
+        logger.debug("WireReplay: read {} records from {}", records.size(), file);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid varint in capture file");
+    }
+
+    /**
+     * Returns the start time of the capture
+     *
+     * @return start time in epoch milliseconds
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns all records in the capture, in order
+     *
+     * @return list of records
+     */
+    public List<Record> getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns the time of the last record in the capture
+     *
+     * @return duration of the capture in nanoseconds
+     */
+    public long getDurationNanos() {
+        return records.isEmpty() ? 0 : records.get(records.size() - 1).timeNanos;
+    }
+
+    /**
+     * Returns the frames received on a channel, in order
+     *
+     * @param channel the channel name, or null for all channels
+     * @return list of frames
+     */
+    public List<String> getReceivedFrames(@Nullable String channel) {
+        List<String> frames = new ArrayList<>();
+        replay(channel, MAX_SPEED, frames::add);
+        return frames;
+    }
+
+    /**
+     * Replays frames received on a channel, passing them to a consumer from the calling thread
+     *
+     * @param channel the channel name, or null for all channels
+     * @param speed replay speed: 1 for original timing, 10 for 10x faster, or {@link #MAX_SPEED}
+     * @param consumer the frame consumer
+     * @return the {@link Result} of the replay
+     */
+    public Result replay(@Nullable String channel, double speed, Consumer<String> consumer) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("speed must be > 0");
+        }
+        Map<String, StringBuilder> partial = new HashMap<>();
+        long frames = 0;
+        long maxLag = 0;
+        long start = System.nanoTime();
+        long firstTime = -1;
+        for (Record rec : records) {
+            if (rec.outbound || (channel != null && !channel.equals(rec.channel))) {
+                continue;
+            }
+            if (firstTime < 0) {
+                firstTime = rec.timeNanos;
+            }
+            if (speed != MAX_SPEED) {
+                long due = start + (long) ((rec.timeNanos - firstTime) / speed);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                maxLag = Math.max(maxLag, System.nanoTime() - due);
+            }
+            // split data into frames as FrameChannel does, keeping incomplete frames for next record
+            StringBuilder sb = partial.computeIfAbsent(rec.channel, c -> new StringBuilder());
+            sb.append(new String(rec.data, StandardCharsets.US_ASCII));
+            int begin = 0;
+            int end;
+            while ((end = sb.indexOf(OpenMessage.FRAME_END, begin)) >= 0) {
+                end += OpenMessage.FRAME_END.length();
+                consumer.accept(sb.substring(begin, end));
+                frames++;
+                begin = end;
+            }
+            sb.delete(0, begin);
+        }
+        Result result = new Result(frames, System.nanoTime() - start, maxLag);
+        logger.debug("WireReplay: replayed channel {} at speed {}: {}", channel, speed, result);
+        return result;
+    }
+
+    /**
+     * Replays frames received on a channel into a connector, as if read from its MON connection: frames are
+     * journaled, filtered and processed, and resulting messages are notified to the connector listener
+     *
+     * @param connector the connector
+     * @param channel the channel name, usually <code>BUS-MON</code> or <code>USB</code>
+     * @param speed replay speed: 1 for original timing, 10 for 10x faster, or {@link #MAX_SPEED}
+     * @return the {@link Result} of the replay
+     */
+    public Result replayTo(OpenConnector connector, String channel, double speed) {
+        return replay(channel, speed, connector::handleMonFrame);
+    }
+}
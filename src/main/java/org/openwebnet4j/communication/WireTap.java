@@ -0,0 +1,39 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+/**
+ * Hook notified of raw data sent and received on {@link FrameChannel}s. See
+ * {@link OpenConnector#addWireTap(WireTap)}, {@link LoggingWireTap} and {@link WireCapture}.
+ *
+ * Taps are called on the I/O threads, just after data is written or read: implementations must be fast and must not
+ * block. The data buffer is only valid during the call and must be copied if kept.
+ *
+ * @author M. Valla - Initial contribution
+ */
+@FunctionalInterface
+public interface WireTap {
+
+    /**
+     * Called when data is sent or received on a channel
+     *
+     * @param channel channel name (<code>BUS-MON</code>, <code>BUS-CMD</code> or <code>USB</code>)
+     * @param outbound true if data was sent, false if received
+     * @param data buffer with the raw data: do not modify, only valid during the call
+     * @param length number of bytes of data in the buffer
+     * @param timeNanos time of the I/O operation ({@link System#nanoTime()})
+     */
+    void onData(String channel, boolean outbound, byte[] data, int length, long timeNanos);
+}
@@ -24,6 +24,10 @@ import org.slf4j.LoggerFactory;
 /**
  * BaseOpenMessage class is the abstract base class for other OpenWebNet message types.
  *
+ * <p>
+ * Lazy parsing of frame parts (WHAT, WHERE, DIM, parameters and values) is thread-safe: a message can be shared
+ * between threads and its getters called concurrently.
+ *
  * @author M. Valla - Initial contribution
  */
 public abstract class BaseOpenMessage extends OpenMessage {
@@ -45,22 +49,25 @@ public abstract class BaseOpenMessage extends OpenMessage {
     protected static final String FORMAT_STATUS_NO_WHERE = "*#%d##";
 
     // private String whoStr = null; // WHO part of the frame
-    private String whatStr = null; // WHAT part of the frame
-    protected String whereStr = null; // WHERE part of the frame
-    private String dimStr = null; // DIM part of the frame
+    private volatile String whatStr = null; // WHAT part of the frame
+    protected volatile String whereStr = null; // WHERE part of the frame
+    private volatile String dimStr = null; // DIM part of the frame
+
+    private volatile boolean partsParsed = false; // true if frame has been already split into parts
+    private boolean headerOnly = false; // true if frame was parsed with ParseDepth.HEADER and not checked yet
 
     protected Who who = null;
-    private What what = null;
-    protected Where where = null;
-    private Dim dim = null;
+    private volatile What what = null;
+    protected volatile Where where = null;
+    private volatile Dim dim = null;
 
-    private Boolean isCommand = null;
-    private Boolean isCommandTranslation = null;
+    private volatile Boolean isCommand = null;
+    private volatile Boolean isCommandTranslation = null;
 
-    private Boolean isDimWriting = null; // true if dim writing *#WHO*WHERE*#DIM...##
-    private int[] dimParams = null; // list of dimension params PAR1...PARn in the frame
+    private volatile Boolean isDimWriting = null; // true if dim writing *#WHO*WHERE*#DIM...##
+    private volatile int[] dimParams = null; // list of dimension params PAR1...PARn in the frame
     // *#WHO*WHERE*DIM#PAR1...#PARn*...##
-    private String[] dimValues = null; // list of dimension values VAL1...VALn in the frame
+    private volatile String[] dimValues = null; // list of dimension values VAL1...VALn in the frame
     // *#WHO*WHERE*DIM...*VAL1*...*VALn##
 
     /*
@@ -69,7 +76,7 @@ public abstract class BaseOpenMessage extends OpenMessage {
      * // *WHO*WHAT#PAR1...#PARn*WHERE##
      */
 
-    private String[] whatParams = null; // list of What parameters PAR1...PARn in the frame
+    private volatile String[] whatParams = null; // list of What parameters PAR1...PARn in the frame
     // *WHO*WHAT#PAR1...#PARn*WHERE##
 
     protected BaseOpenMessage(String frame) {
@@ -97,6 +104,28 @@ public abstract class BaseOpenMessage extends OpenMessage {
      *             OpenWebNet frame
      */
     public static OpenMessage parse(String frame) throws MalformedFrameException, UnsupportedFrameException {
+        return parse(frame, ParseDepth.FULL);
+    }
+
+    /**
+     * Parses the frame up to the given {@link ParseDepth} and returns a new {@link OpenMessage} object.
+     *
+     * <p>
+     * With {@link ParseDepth#HEADER} only frame type and WHO are decoded: the frame is not split into parts and its
+     * characters are not checked until WHAT, WHERE or DIM are accessed for the first time. If the frame turns out to be
+     * malformed at that point, getters return null (as for other invalid frame parts) instead of this method throwing a
+     * {@link MalformedFrameException}.
+     *
+     * @param frame the frame String to parse
+     * @param depth the {@link ParseDepth}
+     * @return a new {@link OpenMessage} object representing the OpenWebNet frame
+     * @throws MalformedFrameException in case the provided frame String is not a valid OpenWebNet
+     *             frame
+     * @throws UnsupportedFrameException in case the provided frame String is not a supported
+     *             OpenWebNet frame
+     */
+    public static OpenMessage parse(String frame, ParseDepth depth)
+            throws MalformedFrameException, UnsupportedFrameException {
         boolean isCmd = true;
         if (frame == null) {
             throw new MalformedFrameException("Frame is null");
@@ -116,24 +145,88 @@ public abstract class BaseOpenMessage extends OpenMessage {
         if (frame.length() > MAX_FRAME_LENGTH) {
             throw new MalformedFrameException("Frame length is > " + MAX_FRAME_LENGTH);
         }
-        // check if there are bad characters
-        for (char c : frame.toCharArray()) {
+        BaseOpenMessage baseMsg;
+        if (depth == ParseDepth.HEADER) {
+            int whoInt = decodeWhoValue(frame);
+            if (whoInt < 0) {
+                throw new MalformedFrameException("WHO not recognized in frame: " + frame);
+            }
+            baseMsg = newMessage(whoFromValue(whoInt), frame);
+            baseMsg.isCommand = isCmd;
+            baseMsg.headerOnly = true;
+        } else {
+            checkCharacters(frame);
+            String[] parts = getPartsStrings(frame);
+            // parts[0] is empty, first is WHO
+            String whoStr = parts[1];
+            if (!isCmd) {
+                whoStr = parts[1].substring(1); // remove '#' from WHO part
+            }
+            baseMsg = parseWho(whoStr, frame);
+            baseMsg.isCommand = isCmd;
+            baseMsg.parseParts(parts);
+        }
+        return baseMsg;
+    }
+
+    /**
+     * Decodes only the WHO of the given frame, without allocating a message. Useful to drop frames that are not of
+     * interest before parsing them.
+     *
+     * @param frame the frame String
+     * @return the frame {@link Who}, or null if the frame has no valid/known WHO (for example ACK/NACK frames)
+     */
+    public static @Nullable Who peekWho(String frame) {
+        if (frame == null) {
+            return null;
+        }
+        int whoInt = decodeWhoValue(frame);
+        if (whoInt < 0 || !Who.isValidValue(whoInt)) {
+            return null;
+        }
+        return Who.fromValue(whoInt);
+    }
+
+    /*
+     * Returns the int value of WHO for *WHO... and *#WHO... frames, or -1 if no valid WHO can be found
+     */
+    private static int decodeWhoValue(String frame) {
+        int len = frame.length();
+        if (len < 4 || frame.charAt(0) != '*') {
+            return -1;
+        }
+        int i = (frame.charAt(1) == '#') ? 2 : 1;
+        int value = 0;
+        int digits = 0;
+        while (i < len) {
+            char c = frame.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 4) {
+                    return -1;
+                }
+                value = value * 10 + (c - '0');
+            } else if (c == '*' || c == '#') {
+                break;
+            } else {
+                return -1;
+            }
+            i++;
+        }
+        return (digits > 0 && i < len) ? value : -1;
+    }
+
+    /*
+     * Check if there are bad characters in the frame
+     */
+    private static void checkCharacters(String frame) throws MalformedFrameException {
+        for (int i = 0; i < frame.length(); i++) {
+            char c = frame.charAt(i);
             if (!Character.isDigit(c)) {
                 if (c != '#' && c != '*') {
                     throw new MalformedFrameException("Frame can only contain '#', '*' or digits [0-9]");
                 }
             }
         }
-        String[] parts = getPartsStrings(frame);
-        // parts[0] is empty, first is WHO
-        String whoStr = parts[1];
-        if (!isCmd) {
-            whoStr = parts[1].substring(1); // remove '#' from WHO part
-        }
-        BaseOpenMessage baseMsg = parseWho(whoStr, frame);
-        baseMsg.isCommand = isCmd;
-        baseMsg.parseParts(parts);
-        return baseMsg;
     }
 
     private static String[] getPartsStrings(String frame) throws MalformedFrameException {
@@ -165,10 +258,20 @@ public abstract class BaseOpenMessage extends OpenMessage {
                 dimValues = Arrays.copyOfRange(parts, 4, parts.length);
             }
         }
+        partsParsed = true;
     }
 
-    private void parseParts() throws MalformedFrameException {
-        parseParts(getPartsStrings(frameValue));
+    /*
+     * Split the frame into parts, if not already done. Must be called holding the lock on this message.
+     */
+    private void ensureParts() throws MalformedFrameException {
+        if (!partsParsed) {
+            if (headerOnly) {
+                checkCharacters(frameValue);
+                headerOnly = false;
+            }
+            parseParts(getPartsStrings(frameValue));
+        }
     }
 
     /**
@@ -187,13 +290,15 @@ public abstract class BaseOpenMessage extends OpenMessage {
      */
     public What getWhat() {
         if (what == null) {
-            try {
-                if (whatStr == null) {
-                    parseParts();
+            synchronized (this) {
+                if (what == null) {
+                    try {
+                        ensureParts();
+                        parseWhat();
+                    } catch (FrameException e) {
+                        logger.warn("{} for frame {}", e.getMessage(), frameValue);
+                    }
                 }
-                parseWhat();
-            } catch (FrameException e) {
-                logger.warn("{} for frame {}", e.getMessage(), frameValue);
             }
         }
         return what;
@@ -206,13 +311,15 @@ public abstract class BaseOpenMessage extends OpenMessage {
      */
     public Where getWhere() {
         if (where == null) {
-            try {
-                if (whereStr == null) {
-                    parseParts();
+            synchronized (this) {
+                if (where == null) {
+                    try {
+                        ensureParts();
+                        parseWhere();
+                    } catch (FrameException e) {
+                        logger.warn("{} for frame {}", e.getMessage(), frameValue);
+                    }
                 }
-                parseWhere();
-            } catch (FrameException e) {
-                logger.warn("{} for frame {}", e.getMessage(), frameValue);
             }
         }
         return where;
@@ -225,13 +332,15 @@ public abstract class BaseOpenMessage extends OpenMessage {
      */
     public Dim getDim() {
         if (dim == null) {
-            try {
-                if (dimStr == null) {
-                    parseParts();
+            synchronized (this) {
+                if (dim == null) {
+                    try {
+                        ensureParts();
+                        parseDim();
+                    } catch (FrameException e) {
+                        logger.warn("{} - frame {}", e.getMessage(), frameValue);
+                    }
                 }
-                parseDim();
-            } catch (FrameException e) {
-                logger.warn("{} - frame {}", e.getMessage(), frameValue);
             }
         }
         return dim;
@@ -258,18 +367,32 @@ public abstract class BaseOpenMessage extends OpenMessage {
      */
     private static BaseOpenMessage parseWho(String whoPart, String frame)
             throws MalformedFrameException, UnsupportedFrameException {
-        Who who = null;
         try {
             int whoInt = Integer.parseInt(whoPart);
-            if (Who.isValidValue(whoInt)) {
-                who = Who.fromValue(whoInt);
-            } else {
+            if (!Who.isValidValue(whoInt)) {
                 throw new MalformedFrameException("WHO not recognized: " + whoPart);
             }
+            return newMessage(Who.fromValue(whoInt), frame);
         } catch (NumberFormatException nf) {
             throw new MalformedFrameException("WHO not recognized: " + whoPart);
         }
+    }
+
+    private static Who whoFromValue(int whoInt) throws MalformedFrameException {
+        if (!Who.isValidValue(whoInt)) {
+            throw new MalformedFrameException("WHO not recognized: " + whoInt);
+        }
+        return Who.fromValue(whoInt);
+    }
 
+    /**
+     * Returns a new BaseOpenMessage of the type corresponding to the given WHO
+     *
+     * @param who the {@link Who}
+     * @param frame the frame string
+     * @throws UnsupportedFrameException in case WHO is not supported
+     */
+    private static BaseOpenMessage newMessage(Who who, String frame) throws UnsupportedFrameException {
         BaseOpenMessage baseopenmsg = null;
         switch (who) {
             case SCENARIO:
@@ -340,17 +463,18 @@ public abstract class BaseOpenMessage extends OpenMessage {
                 } else {
                     isCommandTranslation = false;
                 }
-                whatParams = new String[0];
-                what = whatFromValue(Integer.parseInt(parts[partsIndex]));
-                if (what == null) {
+                What w = whatFromValue(Integer.parseInt(parts[partsIndex]));
+                if (w == null) {
+                    whatParams = new String[0];
                     throw new UnsupportedFrameException("Unsupported WHAT=" + whatStr);
                 }
-                if (parts.length > 1) { // copy What parameters into whatParams
-                    whatParams = new String[parts.length - partsIndex - 1];
-                    for (int i = 0; i < whatParams.length; i++) {
-                        whatParams[i] = parts[i + partsIndex + 1];
-                    }
+                // copy What parameters into whatParams
+                String[] params = new String[Math.max(parts.length - partsIndex - 1, 0)];
+                for (int i = 0; i < params.length; i++) {
+                    params[i] = parts[i + partsIndex + 1];
                 }
+                whatParams = params;
+                what = w; // assigned last: once what is visible, what params are visible too
             } catch (NumberFormatException e) {
                 throw new MalformedFrameException("Invalid integer format in WHAT=" + whatStr);
             }
@@ -381,12 +505,13 @@ public abstract class BaseOpenMessage extends OpenMessage {
         }
         String[] dimParts = ds.split("#");
         try {
-            dim = dimFromValue(Integer.parseInt(dimParts[0]));
-            if (dim == null) {
+            Dim d = dimFromValue(Integer.parseInt(dimParts[0]));
+            if (d == null) {
                 throw new UnsupportedFrameException("Unsupported DIM: " + dimStr);
             }
             // copy last parts of dimStr as dim params
             setDimParams(Arrays.copyOfRange(dimParts, 1, dimParts.length));
+            dim = d; // assigned last: once dim is visible, dim params are visible too
         } catch (NumberFormatException nfe) {
             throw new MalformedFrameException("Invalid DIM in frame: " + dimStr);
         }
@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.message;
+
+/**
+ * How much of a frame is decoded by {@link BaseOpenMessage#parse(String, ParseDepth)}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public enum ParseDepth {
+    /**
+     * Only frame type (command/status), terminator and WHO are decoded. Frame parts (WHAT, WHERE, DIM, values) are
+     * split and checked on first access.
+     */
+    HEADER,
+    /** The whole frame is checked and split into parts at parse time. WHAT, WHERE and DIM are still decoded lazily. */
+    FULL
+}
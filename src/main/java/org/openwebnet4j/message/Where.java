@@ -51,6 +51,16 @@ public abstract class Where {
         return whereStr;
     }
 
+    /**
+     * Returns the canonical value of this WHERE: equivalent forms of the same address have the same canonical value.
+     * Default is {@link #value()}.
+     *
+     * @return a String with the canonical value of this WHERE
+     */
+    public String canonicalValue() {
+        return whereStr;
+    }
+
     @Override
     public boolean equals(@Nullable Object o) {
         if (o instanceof Where) {
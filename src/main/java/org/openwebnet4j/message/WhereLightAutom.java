@@ -205,4 +205,33 @@ public class WhereLightAutom extends Where {
         return !isAPL && group == -1 && area == -1; // GEN if it's not APL/A/G
     }
 
+    /**
+     * Returns the canonical value of this WHERE: APL with the shortest form (<code>0101</code> -&gt; <code>11</code>,
+     * <code>1001</code> unchanged), area without leading zero (<code>01</code> -&gt; <code>1</code>), followed by the
+     * BUS interface, if present.
+     *
+     * @return a String with the canonical value of this WHERE
+     */
+    @Override
+    public String canonicalValue() {
+        String c;
+        if (isAPL) {
+            if (area >= 1 && area <= 9 && lightPoint <= 9) {
+                c = "" + area + lightPoint;
+            } else {
+                c = (area == 10 ? "10" : "0" + area) + (lightPoint < 10 ? "0" : "") + lightPoint;
+            }
+        } else if (isGroup()) {
+            c = "#" + group;
+        } else if (isArea()) {
+            c = (area == 0 ? "00" : area == 10 ? "100" : String.valueOf(area));
+        } else {
+            c = "0";
+        }
+        if (busIfc != null) {
+            c = c + busIfc;
+        }
+        return c.equals(whereStr) ? whereStr : c;
+    }
+
 }
@@ -154,4 +154,25 @@ public class WhereThermo extends Where {
     public boolean isProbe() {
         return (probe >= 0);
     }
+
+    /**
+     * Returns the canonical value of this WHERE: the zone <code>Z</code> for a zone, the zone via central unit
+     * (<code>#Z</code>) and its actuators (<code>Z#N</code>), <code>pZZ</code> for probes. WHEREs of zone 0 (all
+     * probes, central units, all zones) are unchanged.
+     *
+     * @return a String with the canonical value of this WHERE
+     */
+    @Override
+    public String canonicalValue() {
+        if (zone == 0) {
+            return whereStr;
+        }
+        String c;
+        if (probe >= 0) {
+            c = probe + (zone < 10 ? "0" : "") + zone;
+        } else {
+            c = String.valueOf(zone);
+        }
+        return c.equals(whereStr) ? whereStr : c;
+    }
 }
@@ -15,6 +15,9 @@
 package org.openwebnet4j.message;
 
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -62,6 +65,14 @@ public enum Who {
     DEVICE_DIAGNOSTIC(1013),
     UNKNOWN(9999);
 
+    private static final Map<Integer, Who> VALUE_MAPPING = new HashMap<Integer, Who>();
+
+    static {
+        for (Who w : values()) {
+            VALUE_MAPPING.put(w.value, w);
+        }
+    }
+
     private final Integer value;
 
     Who(Integer value) {
@@ -77,7 +88,7 @@ public enum Who {
     }
 
     public static boolean isValidValue(Integer value) {
-        return value != null && findWho(isEqualValue(value)).isPresent();
+        return value != null && VALUE_MAPPING.containsKey(value);
     }
 
     public static Who fromName(String name) {
@@ -85,7 +96,11 @@ public enum Who {
     }
 
     public static Who fromValue(Integer value) {
-        return findWho(isEqualValue(value)).get();
+        Who w = VALUE_MAPPING.get(value);
+        if (w == null) {
+            throw new NoSuchElementException("No WHO with value: " + value);
+        }
+        return w;
     }
 
     @Override
@@ -97,10 +112,6 @@ public enum Who {
         return who -> who.name().equals(name);
     }
 
-    private static Predicate<Who> isEqualValue(Integer value) {
-        return who -> who.value().intValue() == value.intValue();
-    }
-
     private static Optional<Who> findWho(Predicate<Who> isEqual) {
         return EnumSet.allOf(Who.class).stream().filter(isEqual).findFirst();
     }
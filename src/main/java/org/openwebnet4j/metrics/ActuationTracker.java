@@ -0,0 +1,314 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.metrics;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.Lighting.WhatLighting;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.What;
+import org.openwebnet4j.message.Where;
+import org.openwebnet4j.message.WhereLightAutom;
+import org.openwebnet4j.message.Who;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks actuation latency: the time from when a command (<code>*WHO*WHAT*WHERE##</code>) is sent to when the
+ * matching state event (same WHO, WHERE and WHAT) is received on MON, that is the latency users actually feel.
+ * Latencies are recorded in a {@link LatencyHistogram} per WHO. Commands not confirmed by an event within the timeout
+ * are counted as unconfirmed, per device (<code>WHO*WHERE</code>).
+ *
+ * Only WHOs whose devices answer a command with a state event with the same WHAT are tracked, by default
+ * {@link #DEFAULT_TRACKED_WHOS} (see {@link #setTrackedWhos(Set)}): other WHOs (for example thermoregulation, CEN or
+ * scenarios) would always be counted as unconfirmed. Histograms are per WHO and not per
+ * {@link org.openwebnet4j.OpenDeviceType}, which is not known from a command frame: with the default WHOs they
+ * separate lights (switches and dimmers) from automations. Only commands to a single device are tracked: commands to
+ * general, area or group WHEREs, and dimension writings, are ignored. A Lighting ON command is also confirmed by a dimmer level event. A new command to a device replaces the
+ * pending one. Pending commands are kept also in order of time sent, so that expiring them only checks the oldest one.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class ActuationTracker {
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
+    // max number of pending commands and of distinct devices counted as unconfirmed, to bound memory
+    private static final int MAX_PENDING = 1024;
+    private static final int MAX_DEVICE_KEYS = 64;
+    private static final String DEVICE_OTHER = "other";
+    private static final String LIGHTING = String.valueOf(Who.LIGHTING.value());
+
+    private final Logger logger = LoggerFactory.getLogger(ActuationTracker.class);
+
+    /** WHOs tracked by default: Lighting and Automation */
+    public static final Set<Who> DEFAULT_TRACKED_WHOS = Collections
+            .unmodifiableSet(EnumSet.of(Who.LIGHTING, Who.AUTOMATION));
+
+    private final long timeoutNanos;
+    private volatile Set<Who> trackedWhos = DEFAULT_TRACKED_WHOS;
+
+    private static class Pending {
+        final String key;
+        final String frame;
+        final String who;
+        final int what;
+        final long sentNanos;
+
+        Pending(String key, String frame, String who, int what, long sentNanos) {
+            this.key = key;
+            this.frame = frame;
+            this.who = who;
+            this.what = what;
+            this.sentNanos = sentNanos;
+        }
+    }
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    // commands in order of time sent (and of expiry); those no longer pending are dropped when they reach the head
+    private final ArrayDeque<Pending> bySentTime = new ArrayDeque<>();
+    private final Map<String, LatencyHistogram> latencyByWho = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> unconfirmedByDevice = new ConcurrentHashMap<>();
+    private final AtomicLong unconfirmed = new AtomicLong();
+
+    /**
+     * Creates a new ActuationTracker with {@link #DEFAULT_TIMEOUT_MILLIS}
+     */
+    public ActuationTracker() {
+        this(DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a new ActuationTracker
+     *
+     * @param timeoutMillis time after which a command not confirmed by an event is counted as unconfirmed
+     */
+    public ActuationTracker(long timeoutMillis) {
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Sets the WHOs whose commands are tracked. Default is {@link #DEFAULT_TRACKED_WHOS}.
+     *
+     * @param whos the WHOs to track
+     */
+    public void setTrackedWhos(Set<Who> whos) {
+        trackedWhos = Collections.unmodifiableSet(whos.isEmpty() ? EnumSet.noneOf(Who.class) : EnumSet.copyOf(whos));
+    }
+
+    /**
+     * Returns the WHOs whose commands are tracked
+     *
+     * @return set of tracked WHOs
+     */
+    public Set<Who> getTrackedWhos() {
+        return trackedWhos;
+    }
+
+    /*
+     * Returns the device key WHO*WHERE of a command to a single device of a tracked WHO, or null if the message is not
+     * such a command
+     */
+    private @Nullable String deviceKey(OpenMessage msg) {
+        if (!(msg instanceof BaseOpenMessage) || !msg.isCommand()) {
+            return null;
+        }
+        BaseOpenMessage bmsg = (BaseOpenMessage) msg;
+        Who who = bmsg.getWho();
+        if (who == null || !trackedWhos.contains(who)) {
+            return null;
+        }
+        Where where = bmsg.getWhere();
+        if (where == null || bmsg.getWhat() == null) {
+            return null;
+        }
+        if (where instanceof WhereLightAutom) {
+            WhereLightAutom wla = (WhereLightAutom) where;
+            if (wla.isGeneral() || wla.isArea() || wla.isGroup()) {
+                return null;
+            }
+        }
+        return who.value() + "*" + where.value();
+    }
+
+    /**
+     * Records a command sent. To be called before sending the command, as the event can be received before the
+     * response.
+     *
+     * @param command the command message
+     * @param sentNanos time the command is sent ({@link System#nanoTime()})
+     */
+    public void commandSent(OpenMessage command, long sentNanos) {
+        expire(sentNanos);
+        String key = deviceKey(command);
+        if (key == null || (pending.size() >= MAX_PENDING && !pending.containsKey(key))) {
+            return;
+        }
+        BaseOpenMessage bmsg = (BaseOpenMessage) command;
+        Pending p = new Pending(key, command.getFrameValue(), String.valueOf(bmsg.getWho().value()),
+                bmsg.getWhat().value(), sentNanos);
+        pending.put(key, p);
+        synchronized (bySentTime) {
+            bySentTime.add(p);
+        }
+    }
+
+    /**
+     * Records a command that was not accepted by the gateway (NACK or error): it is not tracked anymore
+     *
+     * @param command the command message
+     */
+    public void commandFailed(OpenMessage command) {
+        String key = deviceKey(command);
+        if (key != null) {
+            Pending p = pending.get(key);
+            if (p != null && p.frame.equals(command.getFrameValue())) {
+                pending.remove(key, p);
+            }
+        }
+    }
+
+    /**
+     * Records an event received on MON: if it confirms a pending command, the actuation latency is recorded
+     *
+     * @param event the event message
+     * @param receivedNanos time the event was received ({@link System#nanoTime()})
+     */
+    public void eventReceived(OpenMessage event, long receivedNanos) {
+        expire(receivedNanos);
+        if (pending.isEmpty()) {
+            return;
+        }
+        String key = deviceKey(event);
+        if (key == null) {
+            return;
+        }
+        Pending p = pending.get(key);
+        if (p != null && confirms(p, ((BaseOpenMessage) event).getWhat()) && pending.remove(key, p)) {
+            latencyByWho.computeIfAbsent(p.who, k -> new LatencyHistogram()).record(receivedNanos - p.sentNanos);
+        }
+    }
+
+    private static boolean confirms(Pending p, What what) {
+        int w = what.value();
+        if (w == p.what) {
+            return true;
+        }
+        // Lighting ON is confirmed by a dimmer level
+        return LIGHTING.equals(p.who) && p.what == WhatLighting.ON.value()
+                && w >= WhatLighting.DIMMER_LEVEL_2.value() && w <= WhatLighting.DIMMER_LEVEL_10.value();
+    }
+
+    /**
+     * Counts as unconfirmed the pending commands sent more than timeout ago
+     *
+     * @param nowNanos current time ({@link System#nanoTime()})
+     */
+    public void expire(long nowNanos) {
+        while (true) {
+            Pending p;
+            synchronized (bySentTime) {
+                p = bySentTime.peek();
+                if (p == null) {
+                    return;
+                }
+                boolean isPending = pending.get(p.key) == p;
+                if (isPending && nowNanos - p.sentNanos <= timeoutNanos) {
+                    return; // commands sent later are not expired either
+                }
+                bySentTime.poll();
+                if (!isPending) {
+                    continue; // confirmed, failed or replaced
+                }
+            }
+            if (pending.remove(p.key, p)) {
+                unconfirmed.incrementAndGet();
+                String device = p.key;
+                AtomicLong c = unconfirmedByDevice.get(device);
+                if (c == null) {
+                    c = unconfirmedByDevice.computeIfAbsent(
+                            unconfirmedByDevice.size() < MAX_DEVICE_KEYS ? device : DEVICE_OTHER,
+                            k -> new AtomicLong());
+                }
+                c.incrementAndGet();
+                logger.debug("##METRICS## no state event for command {} after {}ms", p.frame,
+                        TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+            }
+        }
+    }
+
+    /**
+     * Returns the actuation latency histograms, per WHO
+     *
+     * @return map of WHO to histogram
+     */
+    public Map<String, LatencyHistogram> getLatencyByWho() {
+        return new TreeMap<>(latencyByWho);
+    }
+
+    /**
+     * Returns the number of commands confirmed by an event
+     *
+     * @return number of confirmed commands
+     */
+    public long getConfirmed() {
+        long total = 0;
+        for (LatencyHistogram h : latencyByWho.values()) {
+            total += h.getCount();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of commands not confirmed by an event within the timeout
+     *
+     * @return number of unconfirmed commands
+     */
+    public long getUnconfirmed() {
+        expire(System.nanoTime());
+        return unconfirmed.get();
+    }
+
+    /**
+     * Returns the number of unconfirmed commands per device (<code>WHO*WHERE</code>)
+     *
+     * @return map of device to number of unconfirmed commands
+     */
+    public Map<String, Long> getUnconfirmedByDevice() {
+        expire(System.nanoTime());
+        Map<String, Long> res = new TreeMap<>();
+        unconfirmedByDevice.forEach((k, v) -> res.put(k, v.get()));
+        return res;
+    }
+
+    /**
+     * Returns the number of commands waiting for an event
+     *
+     * @return number of pending commands
+     */
+    public int getPending() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,537 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.OpenMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Metrics of an OpenGateway and its connectors: frames and bytes in/out, parse errors and unsupported frames per WHO,
+ * command latency and ACK/NACK/BUSY_NACK counts, reconnects, handshake durations, event queue size, listener
+ * execution time, subscriptions dispatch time and actuation latency (see {@link ActuationTracker}). Metrics are always
+ * collected and can be read directly, exposed as a JMX MXBean with {@link #registerMBean()}, or exported with a
+ * {@link MetricsBridge}. Counters and histograms do not allocate; parse errors and unsupported frames (not on the
+ * normal frame path) allocate the WHO key of the frame, and actuation tracking allocates an entry per command.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class GatewayMetrics implements GatewayMetricsMXBean {
+
+    public static final String JMX_DOMAIN = "org.openwebnet4j";
+
+    public static final String FRAMES_IN = "frames_in";
+    public static final String FRAMES_OUT = "frames_out";
+    public static final String BYTES_IN = "bytes_in";
+    public static final String BYTES_OUT = "bytes_out";
+    public static final String PARSE_ERRORS = "parse_errors";
+    public static final String UNSUPPORTED_FRAMES = "unsupported_frames";
+    public static final String COMMANDS = "commands";
+    public static final String ACKS = "acks";
+    public static final String NACKS = "nacks";
+    public static final String BUSY_NACKS = "busy_nacks";
+    public static final String COMMAND_ERRORS = "command_errors";
+    public static final String COMMAND_LATENCY = "command_latency";
+    public static final String RECONNECTS = "reconnects";
+    public static final String HANDSHAKE_DURATION = "handshake_duration";
+    public static final String EVENT_QUEUE_SIZE = "event_queue_size";
+    public static final String LISTENER_DURATION = "listener_duration";
+    public static final String SUBSCRIPTION_DISPATCH_DURATION = "subscription_dispatch_duration";
+    public static final String ACTUATION_LATENCY = "actuation_latency";
+    public static final String ACTUATIONS_UNCONFIRMED = "actuations_unconfirmed";
+
+    public static final String LABEL_GATEWAY = "gateway";
+    public static final String LABEL_WHO = "who";
+    public static final String LABEL_DEVICE = "device";
+
+    // max number of distinct WHO keys counted, to bound memory with garbage frames
+    private static final int MAX_WHO_KEYS = 64;
+    private static final String WHO_OTHER = "other";
+    private static final String WHO_UNKNOWN = "unknown";
+
+    private final Logger logger = LoggerFactory.getLogger(GatewayMetrics.class);
+
+    private final String name;
+    private final IntSupplier eventQueueSize;
+
+    private final AtomicLong framesIn = new AtomicLong();
+    private final AtomicLong framesOut = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final Map<String, AtomicLong> parseErrors = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> unsupportedFrames = new ConcurrentHashMap<>();
+    private final AtomicLong acks = new AtomicLong();
+    private final AtomicLong nacks = new AtomicLong();
+    private final AtomicLong busyNacks = new AtomicLong();
+    private final AtomicLong commandErrors = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final LatencyHistogram commandLatency = new LatencyHistogram();
+    private final LatencyHistogram handshakeDuration = new LatencyHistogram();
+    private final LatencyHistogram listenerDuration = new LatencyHistogram();
+    private final LatencyHistogram subscriptionDispatchDuration = new LatencyHistogram();
+    private final ActuationTracker actuation = new ActuationTracker();
+
+    private @Nullable ObjectName objectName;
+
+    /**
+     * Creates a new {@link GatewayMetrics}
+     *
+     * @param name gateway name, used as JMX name and <code>gateway</code> label
+     * @param eventQueueSize supplier of the number of events waiting to be notified
+     */
+    public GatewayMetrics(String name, IntSupplier eventQueueSize) {
+        this.name = name;
+        this.eventQueueSize = eventQueueSize;
+    }
+
+    /**
+     * Records a frame received
+     *
+     * @param bytes frame length in bytes
+     */
+    public void frameIn(int bytes) {
+        framesIn.incrementAndGet();
+        bytesIn.addAndGet(bytes);
+    }
+
+    /**
+     * Records a frame sent
+     *
+     * @param bytes frame length in bytes
+     */
+    public void frameOut(int bytes) {
+        framesOut.incrementAndGet();
+        bytesOut.addAndGet(bytes);
+    }
+
+    /**
+     * Records a frame that could not be parsed
+     *
+     * @param frame the frame
+     * @param unsupported true if the frame is valid but not supported by this library
+     */
+    public void parseError(String frame, boolean unsupported) {
+        Map<String, AtomicLong> map = unsupported ? unsupportedFrames : parseErrors;
+        String who = whoOf(frame);
+        AtomicLong c = map.get(who);
+        if (c == null) {
+            c = map.computeIfAbsent(map.size() < MAX_WHO_KEYS ? who : WHO_OTHER, k -> new AtomicLong());
+        }
+        c.incrementAndGet();
+    }
+
+    /**
+     * Records a command completed
+     *
+     * @param nanos time from send to final response, in nanoseconds
+     * @param finalResponse the final response (ACK/NACK/BUSY_NACK), or null if none was received
+     */
+    public void commandCompleted(long nanos, @Nullable OpenMessage finalResponse) {
+        commandLatency.record(nanos);
+        if (finalResponse == null) {
+            commandErrors.incrementAndGet();
+        } else if (finalResponse.isACK()) {
+            acks.incrementAndGet();
+        } else if (finalResponse.isBUSY_NACK()) {
+            busyNacks.incrementAndGet();
+        } else {
+            nacks.incrementAndGet();
+        }
+    }
+
+    /** Records a command failed because of a connection error */
+    public void commandFailed() {
+        commandErrors.incrementAndGet();
+    }
+
+    /** Records a successful reconnection */
+    public void reconnected() {
+        reconnects.incrementAndGet();
+    }
+
+    /**
+     * Records a handshake completed successfully
+     *
+     * @param nanos handshake duration in nanoseconds
+     */
+    public void handshakeCompleted(long nanos) {
+        handshakeDuration.record(nanos);
+    }
+
+    /**
+     * Records the execution time of a listener notification
+     *
+     * @param nanos execution time in nanoseconds
+     */
+    public void listenerExecuted(long nanos) {
+        listenerDuration.record(nanos);
+    }
+
+    /**
+     * Records the time to dispatch an event to all matching subscriptions
+     *
+     * @param nanos dispatch time in nanoseconds
+     */
+    public void subscriptionsDispatched(long nanos) {
+        subscriptionDispatchDuration.record(nanos);
+    }
+
+    /* returns the WHO digits of a frame (*WHO... or *#WHO...), or "unknown" */
+    static String whoOf(String frame) {
+        int start = frame.startsWith("*#") ? 2 : (frame.startsWith("*") ? 1 : -1);
+        if (start < 0) {
+            return WHO_UNKNOWN;
+        }
+        int end = start;
+        while (end < frame.length() && end - start < 4 && Character.isDigit(frame.charAt(end))) {
+            end++;
+        }
+        return end > start ? frame.substring(start, end) : WHO_UNKNOWN;
+    }
+
+    /**
+     * Passes the current value of all metrics to a {@link MetricsBridge}
+     *
+     * @param bridge the MetricsBridge
+     */
+    public void report(MetricsBridge bridge) {
+        Map<String, String> labels = Collections.singletonMap(LABEL_GATEWAY, name);
+        bridge.counter(FRAMES_IN, labels, getFramesIn());
+        bridge.counter(FRAMES_OUT, labels, getFramesOut());
+        bridge.counter(BYTES_IN, labels, getBytesIn());
+        bridge.counter(BYTES_OUT, labels, getBytesOut());
+        reportByWho(bridge, PARSE_ERRORS, parseErrors);
+        reportByWho(bridge, UNSUPPORTED_FRAMES, unsupportedFrames);
+        bridge.counter(COMMANDS, labels, getCommands());
+        bridge.counter(ACKS, labels, getAcks());
+        bridge.counter(NACKS, labels, getNacks());
+        bridge.counter(BUSY_NACKS, labels, getBusyNacks());
+        bridge.counter(COMMAND_ERRORS, labels, getCommandErrors());
+        bridge.histogram(COMMAND_LATENCY, labels, commandLatency);
+        bridge.counter(RECONNECTS, labels, getReconnects());
+        bridge.histogram(HANDSHAKE_DURATION, labels, handshakeDuration);
+        bridge.gauge(EVENT_QUEUE_SIZE, labels, getEventQueueSize());
+        bridge.histogram(LISTENER_DURATION, labels, listenerDuration);
+        bridge.histogram(SUBSCRIPTION_DISPATCH_DURATION, labels, subscriptionDispatchDuration);
+        for (Map.Entry<String, LatencyHistogram> e : actuation.getLatencyByWho().entrySet()) {
+            bridge.histogram(ACTUATION_LATENCY, labels(LABEL_WHO, e.getKey()), e.getValue());
+        }
+        for (Map.Entry<String, Long> e : actuation.getUnconfirmedByDevice().entrySet()) {
+            bridge.counter(ACTUATIONS_UNCONFIRMED, labels(LABEL_DEVICE, e.getKey()), e.getValue());
+        }
+    }
+
+    private Map<String, String> labels(String label, String value) {
+        Map<String, String> labels = new HashMap<>();
+        labels.put(LABEL_GATEWAY, name);
+        labels.put(label, value);
+        return labels;
+    }
+
+    private void reportByWho(MetricsBridge bridge, String metric, Map<String, AtomicLong> map) {
+        for (Map.Entry<String, AtomicLong> e : map.entrySet()) {
+            bridge.counter(metric, labels(LABEL_WHO, e.getKey()), e.getValue().get());
+        }
+    }
+
+    /**
+     * Registers these metrics as a JMX MXBean in the platform MBean server, with name
+     * <code>org.openwebnet4j:type=OpenGateway,name="&lt;gateway name&gt;"</code>. If an MBean with the same name is
+     * already registered (for example by another gateway to the same host), an <code>instance=N</code> key is added
+     * to the name, with N starting from 2. If these metrics are already registered, their ObjectName is returned.
+     * The MXBean is unregistered by {@link org.openwebnet4j.OpenGateway#closeConnection()}.
+     *
+     * @return the ObjectName of the MXBean
+     * @throws JMException in case the MXBean cannot be registered
+     */
+    public synchronized ObjectName registerMBean() throws JMException {
+        ObjectName on = objectName;
+        if (on != null) {
+            return on;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String base = JMX_DOMAIN + ":type=OpenGateway,name=" + ObjectName.quote(name);
+        for (int instance = 1;; instance++) {
+            on = new ObjectName(instance == 1 ? base : base + ",instance=" + instance);
+            try {
+                server.registerMBean(this, on);
+                break;
+            } catch (InstanceAlreadyExistsException e) {
+                logger.debug("##METRICS## MXBean {} already registered", on);
+            }
+        }
+        objectName = on;
+        logger.debug("##METRICS## registered MXBean {}", on);
+        return on;
+    }
+
+    /** Unregisters the JMX MXBean, if registered */
+    public synchronized void unregisterMBean() {
+        ObjectName on = objectName;
+        if (on != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(on);
+            } catch (JMException e) {
+                logger.debug("##METRICS## cannot unregister MXBean {}: {}", on, e.getMessage());
+            }
+            objectName = null;
+        }
+    }
+
+    private static Map<String, Long> snapshot(Map<String, AtomicLong> map) {
+        Map<String, Long> res = new TreeMap<>();
+        map.forEach((k, v) -> res.put(k, v.get()));
+        return res;
+    }
+
+    private static long sum(Map<String, AtomicLong> map) {
+        long total = 0;
+        for (AtomicLong v : map.values()) {
+            total += v.get();
+        }
+        return total;
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the histogram of command latencies, from send to final response
+     */
+    public LatencyHistogram getCommandLatency() {
+        return commandLatency;
+    }
+
+    /**
+     * @return the histogram of handshake durations
+     */
+    public LatencyHistogram getHandshakeDuration() {
+        return handshakeDuration;
+    }
+
+    /**
+     * @return the histogram of listener execution times
+     */
+    public LatencyHistogram getListenerDuration() {
+        return listenerDuration;
+    }
+
+    /**
+     * @return the histogram of event dispatch times to all matching subscriptions
+     */
+    public LatencyHistogram getSubscriptionDispatchDuration() {
+        return subscriptionDispatchDuration;
+    }
+
+    /**
+     * @return the {@link ActuationTracker} correlating commands sent with state events received
+     */
+    public ActuationTracker getActuation() {
+        return actuation;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getFramesIn() {
+        return framesIn.get();
+    }
+
+    @Override
+    public long getFramesOut() {
+        return framesOut.get();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    @Override
+    public long getParseErrors() {
+        return sum(parseErrors);
+    }
+
+    @Override
+    public Map<String, Long> getParseErrorsByWho() {
+        return snapshot(parseErrors);
+    }
+
+    @Override
+    public long getUnsupportedFrames() {
+        return sum(unsupportedFrames);
+    }
+
+    @Override
+    public Map<String, Long> getUnsupportedFramesByWho() {
+        return snapshot(unsupportedFrames);
+    }
+
+    @Override
+    public long getCommands() {
+        return commandLatency.getCount();
+    }
+
+    @Override
+    public long getAcks() {
+        return acks.get();
+    }
+
+    @Override
+    public long getNacks() {
+        return nacks.get();
+    }
+
+    @Override
+    public long getBusyNacks() {
+        return busyNacks.get();
+    }
+
+    @Override
+    public long getCommandErrors() {
+        return commandErrors.get();
+    }
+
+    @Override
+    public double getCommandLatencyMeanMillis() {
+        return commandLatency.getMeanMillis();
+    }
+
+    @Override
+    public double getCommandLatencyP50Millis() {
+        return commandLatency.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getCommandLatencyP99Millis() {
+        return commandLatency.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getCommandLatencyMaxMillis() {
+        return toMillis(commandLatency.getMaxNanos());
+    }
+
+    @Override
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    @Override
+    public long getHandshakes() {
+        return handshakeDuration.getCount();
+    }
+
+    @Override
+    public double getHandshakeMeanMillis() {
+        return handshakeDuration.getMeanMillis();
+    }
+
+    @Override
+    public double getHandshakeMaxMillis() {
+        return toMillis(handshakeDuration.getMaxNanos());
+    }
+
+    @Override
+    public int getEventQueueSize() {
+        return eventQueueSize.getAsInt();
+    }
+
+    @Override
+    public double getListenerTimeMeanMillis() {
+        return listenerDuration.getMeanMillis();
+    }
+
+    @Override
+    public double getListenerTimeP99Millis() {
+        return listenerDuration.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getListenerTimeMaxMillis() {
+        return toMillis(listenerDuration.getMaxNanos());
+    }
+
+    @Override
+    public double getSubscriptionDispatchMeanMillis() {
+        return subscriptionDispatchDuration.getMeanMillis();
+    }
+
+    @Override
+    public double getSubscriptionDispatchP99Millis() {
+        return subscriptionDispatchDuration.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getSubscriptionDispatchMaxMillis() {
+        return toMillis(subscriptionDispatchDuration.getMaxNanos());
+    }
+
+    @Override
+    public long getActuations() {
+        return actuation.getConfirmed();
+    }
+
+    @Override
+    public long getActuationsUnconfirmed() {
+        return actuation.getUnconfirmed();
+    }
+
+    @Override
+    public Map<String, Double> getActuationLatencyP50MillisByWho() {
+        return percentileByWho(50);
+    }
+
+    @Override
+    public Map<String, Double> getActuationLatencyP99MillisByWho() {
+        return percentileByWho(99);
+    }
+
+    @Override
+    public Map<String, Long> getActuationsUnconfirmedByDevice() {
+        return actuation.getUnconfirmedByDevice();
+    }
+
+    private Map<String, Double> percentileByWho(double percentile) {
+        Map<String, Double> res = new TreeMap<>();
+        actuation.getLatencyByWho().forEach((who, h) -> res.put(who, h.getPercentileMillis(percentile)));
+        return res;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX interface of {@link GatewayMetrics}. Durations are in milliseconds.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public interface GatewayMetricsMXBean {
+
+    String getName();
+
+    long getFramesIn();
+
+    long getFramesOut();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    long getParseErrors();
+
+    Map<String, Long> getParseErrorsByWho();
+
+    long getUnsupportedFrames();
+
+    Map<String, Long> getUnsupportedFramesByWho();
+
+    long getCommands();
+
+    long getAcks();
+
+    long getNacks();
+
+    long getBusyNacks();
+
+    long getCommandErrors();
+
+    double getCommandLatencyMeanMillis();
+
+    double getCommandLatencyP50Millis();
+
+    double getCommandLatencyP99Millis();
+
+    double getCommandLatencyMaxMillis();
+
+    long getReconnects();
+
+    long getHandshakes();
+
+    double getHandshakeMeanMillis();
+
+    double getHandshakeMaxMillis();
+
+    int getEventQueueSize();
+
+    double getListenerTimeMeanMillis();
+
+    double getListenerTimeP99Millis();
+
+    double getListenerTimeMaxMillis();
+
+    double getSubscriptionDispatchMeanMillis();
+
+    double getSubscriptionDispatchP99Millis();
+
+    double getSubscriptionDispatchMaxMillis();
+
+    long getActuations();
+
+    long getActuationsUnconfirmed();
+
+    Map<String, Double> getActuationLatencyP50MillisByWho();
+
+    Map<String, Double> getActuationLatencyP99MillisByWho();
+
+    Map<String, Long> getActuationsUnconfirmedByDevice();
+}
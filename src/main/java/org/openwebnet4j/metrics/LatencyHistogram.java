@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations with fixed exponential buckets from 50us to 30s, plus an overflow bucket. Recording
+ * a value does not allocate. Bucket bounds are the same for all histograms, so that they can be exported as they are
+ * (for example as Prometheus histogram buckets) and aggregated.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS_NANOS = { 50_000L, 100_000L, 250_000L, 500_000L, 1_000_000L, 2_500_000L,
+            5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L, 100_000_000L, 250_000_000L, 500_000_000L,
+            1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L, 30_000_000_000L };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_NANOS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a duration
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        int i = 0;
+        while (i < BOUNDS_NANOS.length && v > BOUNDS_NANOS[i]) {
+            i++;
+        }
+        buckets.incrementAndGet(i);
+        count.incrementAndGet();
+        sumNanos.addAndGet(v);
+        long max;
+        while (v > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, v)) {
+            // retry
+        }
+    }
+
+    /**
+     * Returns the upper bounds of buckets, in nanoseconds. The last bucket (overflow) has no upper bound and is not
+     * included.
+     *
+     * @return a copy of the bucket upper bounds
+     */
+    public static long[] getBucketBoundsNanos() {
+        return BOUNDS_NANOS.clone();
+    }
+
+    /**
+     * Returns the number of durations recorded in each bucket (not cumulative). The last element is the overflow
+     * bucket.
+     *
+     * @return a snapshot of bucket counts, one more than {@link #getBucketBoundsNanos()}
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * @return number of durations recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return sum of durations recorded, in nanoseconds
+     */
+    public long getSumNanos() {
+        return sumNanos.get();
+    }
+
+    /**
+     * @return max duration recorded, in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return mean duration in milliseconds, or 0 if no durations have been recorded
+     */
+    public double getMeanMillis() {
+        long c = count.get();
+        return c == 0 ? 0 : toMillis(sumNanos.get()) / c;
+    }
+
+    /**
+     * Returns an estimate of the given percentile: the upper bound of the bucket containing it, or the max value
+     * recorded if lower
+     *
+     * @param percentile percentile in [0, 100]
+     * @return percentile estimate in milliseconds, or 0 if no durations have been recorded
+     */
+    public double getPercentileMillis(double percentile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+        long max = maxNanos.get();
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) {
+                return toMillis(Math.min(BOUNDS_NANOS[i], max));
+            }
+        }
+        return toMillis(max);
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
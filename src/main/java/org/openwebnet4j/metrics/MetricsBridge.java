@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.metrics;
+
+import java.util.Map;
+
+/**
+ * Bridge to export {@link GatewayMetrics} to a metrics system (for example a Prometheus collector), without adding a
+ * dependency to this library. {@link GatewayMetrics#report(MetricsBridge)} passes the current value of each metric to
+ * the bridge: call it when metrics are collected (for example at each scrape).
+ *
+ * Metric names are in snake case without prefix and unit suffix (see constants in {@link GatewayMetrics}); labels
+ * always include <code>gateway</code>.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public interface MetricsBridge {
+
+    /**
+     * Reports a counter: a value that only increases
+     *
+     * @param name metric name
+     * @param labels metric labels
+     * @param value current value
+     */
+    void counter(String name, Map<String, String> labels, long value);
+
+    /**
+     * Reports a gauge: a value that can go up and down
+     *
+     * @param name metric name
+     * @param labels metric labels
+     * @param value current value
+     */
+    void gauge(String name, Map<String, String> labels, double value);
+
+    /**
+     * Reports a histogram of durations
+     *
+     * @param name metric name
+     * @param labels metric labels
+     * @param histogram the histogram, see {@link LatencyHistogram#getBucketBoundsNanos()} and
+     *            {@link LatencyHistogram#getBucketCounts()}
+     */
+    void histogram(String name, Map<String, String> labels, LatencyHistogram histogram);
+}
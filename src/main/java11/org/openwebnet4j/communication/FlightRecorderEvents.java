@@ -0,0 +1,304 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.OpenMessage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Facade to emit Java Flight Recorder (JFR) events for frame I/O, parsing, commands, handshake phases and listener
+ * dispatch.
+ *
+ * This is the Java 11+ version, emitting <code>org.openwebnet4j.*</code> JFR events. <code>begin*</code> methods
+ * return null (and allocate nothing) when the event is not enabled in a running recording, and <code>end*</code>
+ * methods do nothing with a null event.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public final class FlightRecorderEvents {
+
+    private static final String CATEGORY = "openwebnet4j";
+
+    // prototype events, only used to check if the event type is enabled
+    private static final FrameSent FRAME_SENT = new FrameSent();
+    private static final FrameReceived FRAME_RECEIVED = new FrameReceived();
+    private static final Parse PARSE = new Parse();
+    private static final Command COMMAND = new Command();
+    private static final Handshake HANDSHAKE = new Handshake();
+    private static final Dispatch DISPATCH = new Dispatch();
+
+    @Name("org.openwebnet4j.FrameSent")
+    @Label("Frame Sent")
+    @Description("An OpenWebNet frame written to a channel")
+    @Category({ CATEGORY, "Frame I/O" })
+    @StackTrace(false)
+    static class FrameSent extends Event {
+        @Label("Channel")
+        String channel;
+
+        @Label("Frame")
+        String frame;
+    }
+
+    @Name("org.openwebnet4j.FrameReceived")
+    @Label("Frame Received")
+    @Description("An OpenWebNet frame read from a channel")
+    @Category({ CATEGORY, "Frame I/O" })
+    @StackTrace(false)
+    static class FrameReceived extends Event {
+        @Label("Channel")
+        String channel;
+
+        @Label("Frame")
+        String frame;
+    }
+
+    @Name("org.openwebnet4j.Parse")
+    @Label("Frame Parse")
+    @Description("Parsing of a received OpenWebNet frame")
+    @Category({ CATEGORY, "Frame I/O" })
+    @StackTrace(false)
+    static class Parse extends Event {
+        @Label("Frame")
+        String frame;
+
+        @Label("Success")
+        boolean success;
+
+        @Label("Error")
+        String error;
+    }
+
+    @Name("org.openwebnet4j.Command")
+    @Label("Command Round Trip")
+    @Description("A command sent to the gateway and the correlated response")
+    @Category({ CATEGORY, "Command" })
+    @StackTrace(false)
+    static class Command extends Event {
+        @Label("Frame")
+        String frame;
+
+        @Label("Response")
+        String response;
+
+        @Label("Final Response")
+        String finalResponse;
+
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("org.openwebnet4j.Handshake")
+    @Label("Handshake Phase")
+    @Description("A phase of the handshake with the gateway")
+    @Category({ CATEGORY, "Handshake" })
+    @StackTrace(false)
+    static class Handshake extends Event {
+        @Label("Channel")
+        String channel;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Received")
+        String received;
+    }
+
+    @Name("org.openwebnet4j.Dispatch")
+    @Label("Listener Dispatch")
+    @Description("Notification of a listener")
+    @Category({ CATEGORY, "Dispatch" })
+    @StackTrace(false)
+    static class Dispatch extends Event {
+        @Label("Listener")
+        String listener;
+
+        @Label("Message")
+        String message;
+    }
+
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * @return true if JFR events are supported by this runtime
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Begins a frame sent event, to be ended with {@link #endFrameSent}
+     *
+     * @return the event, or null if not recording
+     */
+    public static @Nullable Object beginFrameSent() {
+        return FRAME_SENT.isEnabled() ? begin(new FrameSent()) : null;
+    }
+
+    /**
+     * Ends and commits a frame sent event
+     *
+     * @param event the event returned by {@link #beginFrameSent()}
+     * @param channel channel name
+     * @param frame frame sent
+     */
+    public static void endFrameSent(@Nullable Object event, String channel, String frame) {
+        if (event instanceof FrameSent) {
+            FrameSent e = (FrameSent) event;
+            e.channel = channel;
+            e.frame = frame;
+            e.commit();
+        }
+    }
+
+    /**
+     * Commits a frame received event
+     *
+     * @param channel channel name
+     * @param frame frame received
+     */
+    public static void frameReceived(String channel, String frame) {
+        if (FRAME_RECEIVED.isEnabled()) {
+            FrameReceived e = new FrameReceived();
+            e.channel = channel;
+            e.frame = frame;
+            e.commit();
+        }
+    }
+
+    /**
+     * Begins a frame parse event, to be ended with {@link #endParse}
+     *
+     * @return the event, or null if not recording
+     */
+    public static @Nullable Object beginParse() {
+        return PARSE.isEnabled() ? begin(new Parse()) : null;
+    }
+
+    /**
+     * Ends and commits a frame parse event
+     *
+     * @param event the event returned by {@link #beginParse()}
+     * @param frame frame parsed
+     * @param error the error if the frame could not be parsed, or null
+     */
+    public static void endParse(@Nullable Object event, String frame, @Nullable FrameException error) {
+        if (event instanceof Parse) {
+            Parse e = (Parse) event;
+            e.frame = frame;
+            e.success = error == null;
+            if (error != null) {
+                e.error = error.getClass().getSimpleName() + ": " + error.getMessage();
+            }
+            e.commit();
+        }
+    }
+
+    /**
+     * Begins a command round trip event, to be ended with {@link #endCommand}
+     *
+     * @return the event, or null if not recording
+     */
+    public static @Nullable Object beginCommand() {
+        return COMMAND.isEnabled() ? begin(new Command()) : null;
+    }
+
+    /**
+     * Ends and commits a command round trip event
+     *
+     * @param event the event returned by {@link #beginCommand()}
+     * @param frame command frame sent
+     * @param response the Response received, or null in case of error
+     */
+    public static void endCommand(@Nullable Object event, String frame, @Nullable Response response) {
+        if (event instanceof Command) {
+            Command e = (Command) event;
+            e.frame = frame;
+            if (response != null) {
+                e.response = response.getResponseMessages().toString();
+                OpenMessage fin = response.getFinalResponse();
+                e.finalResponse = fin == null ? null : fin.getFrameValue();
+                e.success = response.isSuccess();
+            }
+            e.commit();
+        }
+    }
+
+    /**
+     * Begins a handshake phase event, to be ended with {@link #endHandshake}
+     *
+     * @return the event, or null if not recording
+     */
+    public static @Nullable Object beginHandshake() {
+        return HANDSHAKE.isEnabled() ? begin(new Handshake()) : null;
+    }
+
+    /**
+     * Ends and commits a handshake phase event
+     *
+     * @param event the event returned by {@link #beginHandshake()}
+     * @param channel channel name
+     * @param phase handshake phase
+     * @param received frame received from the gateway at the end of the phase, or null
+     */
+    public static void endHandshake(@Nullable Object event, String channel, String phase, @Nullable String received) {
+        if (event instanceof Handshake) {
+            Handshake e = (Handshake) event;
+            e.channel = channel;
+            e.phase = phase;
+            e.received = received;
+            e.commit();
+        }
+    }
+
+    /**
+     * Begins a listener dispatch event, to be ended with {@link #endDispatch}
+     *
+     * @return the event, or null if not recording
+     */
+    public static @Nullable Object beginDispatch() {
+        return DISPATCH.isEnabled() ? begin(new Dispatch()) : null;
+    }
+
+    /**
+     * Ends and commits a listener dispatch event
+     *
+     * @param event the event returned by {@link #beginDispatch()}
+     * @param listener the listener notified
+     * @param message the message notified, or null if the notification is not about a message
+     */
+    public static void endDispatch(@Nullable Object event, Object listener, @Nullable OpenMessage message) {
+        if (event instanceof Dispatch) {
+            Dispatch e = (Dispatch) event;
+            e.listener = listener.getClass().getName();
+            e.message = message == null ? null : message.getFrameValue();
+            e.commit();
+        }
+    }
+
+    private static Event begin(Event e) {
+        e.begin();
+        return e;
+    }
+}
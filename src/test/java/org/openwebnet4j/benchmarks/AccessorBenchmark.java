@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.Dim;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.What;
+import org.openwebnet4j.message.Where;
+
+/**
+ * Benchmarks the lazy accessors of {@link BaseOpenMessage}: each benchmark parses a frame and reads one part of it, so
+ * that the cost of the accessor is the difference with the <code>parseOnly</code> benchmark of the same frame.
+ *
+ * @author M. Valla - Initial contribution
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessorBenchmark {
+
+    @State(Scope.Thread)
+    public static class CommandFrames {
+        @Param({ "*1*1*12##", "*2*1*41##", "*1*1*702053501#9##", "*4*2215*#0##" })
+        public String frame;
+    }
+
+    @State(Scope.Thread)
+    public static class DimensionFrames {
+        @Param({ "*#4*1*0*0215##", "*#18*51*113*1250##", "*#1*#25#4#01##", "*#13**22*09*37*30*102*03*01*05*2019##" })
+        public String frame;
+    }
+
+    @Benchmark
+    public BaseOpenMessage parseOnly(CommandFrames f) throws FrameException {
+        return (BaseOpenMessage) BaseOpenMessage.parse(f.frame);
+    }
+
+    @Benchmark
+    public What getWhat(CommandFrames f) throws FrameException {
+        return ((BaseOpenMessage) BaseOpenMessage.parse(f.frame)).getWhat();
+    }
+
+    @Benchmark
+    public Where getWhere(CommandFrames f) throws FrameException {
+        return ((BaseOpenMessage) BaseOpenMessage.parse(f.frame)).getWhere();
+    }
+
+    @Benchmark
+    public BaseOpenMessage parseOnlyDim(DimensionFrames f) throws FrameException {
+        return (BaseOpenMessage) BaseOpenMessage.parse(f.frame);
+    }
+
+    @Benchmark
+    public Dim getDim(DimensionFrames f) throws FrameException {
+        return ((BaseOpenMessage) BaseOpenMessage.parse(f.frame)).getDim();
+    }
+
+    @Benchmark
+    public String[] getDimValues(DimensionFrames f) throws FrameException {
+        return ((BaseOpenMessage) BaseOpenMessage.parse(f.frame)).getDimValues();
+    }
+}
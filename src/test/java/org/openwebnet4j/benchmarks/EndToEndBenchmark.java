@@ -0,0 +1,419 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.benchmarks;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openwebnet4j.BUSGateway;
+import org.openwebnet4j.GatewayListener;
+import org.openwebnet4j.OpenDeviceType;
+import org.openwebnet4j.OpenGateway;
+import org.openwebnet4j.USBGateway;
+import org.openwebnet4j.communication.BUSGatewaySimulator;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.VirtualInstallation;
+import org.openwebnet4j.communication.serial.emulator.EmulatedSerialPortProvider;
+import org.openwebnet4j.communication.serial.emulator.ZigBeeDongleEmulator;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Where;
+
+/**
+ * End-to-end benchmark of a {@link BUSGateway} or {@link USBGateway} connected to a local {@link BUSGatewaySimulator}
+ * or {@link ZigBeeDongleEmulator}. Three phases are run, each after a warmup:
+ * <ul>
+ * <li><b>command</b>: round-trip latency of {@link OpenGateway#send} from a single thread</li>
+ * <li><b>event</b>: latency from the moment an event is sent by the simulated gateway to its delivery to
+ * {@link GatewayListener#onEventMessage}, with events sent at a fixed rate</li>
+ * <li><b>throughput</b>: sustained commands per second and their latency, with several threads sending
+ * concurrently</li>
+ * </ul>
+ * Latencies are recorded in HdrHistograms and printed as percentile distributions in microseconds. With
+ * <code>--hlog &lt;file&gt;</code> histograms are also written in HdrHistogram log format, to be compared between
+ * releases. Run with <code>--help</code> for options.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class EndToEndBenchmark {
+
+    private static final String USAGE = "Usage: EndToEndBenchmark [options]\n" //
+            + "  --gateway bus|usb    gateway to benchmark (default: bus)\n" //
+            + "  --duration <s>       duration of each phase, in seconds (default: 10)\n" //
+            + "  --warmup <s>         warmup before each phase, in seconds (default: 3)\n" //
+            + "  --threads <n>        sending threads in the throughput phase (default: 4)\n" //
+            + "  --event-rate <n>     events per second in the event phase (default: 1000)\n" //
+            + "  --latency <us>       processing time of the simulated gateway, in microseconds (default: 0)\n" //
+            + "  --baud <n>           serial line speed of the emulated dongle, 0 for no pacing (default: 0)\n" //
+            + "  --hlog <file>        also write histograms to file, in HdrHistogram log format\n" //
+            + "  --log-level <level>  log level of the library (default: WARN)";
+
+    private static final String USB_PORT = "/dev/ttyBENCH0";
+    private static final int DEVICES = 9;
+    // event sequence numbers are recycled: events still in flight after SLOTS newer events are not measured
+    private static final int SLOTS = 4096;
+    private static final String BUS_EVENT_PREFIX = "*#18*51*113*";
+    private static final String USB_EVENT_PREFIX = "*1*1*";
+    private static final int USB_EVENT_ID_BASE = 1000000;
+    private static final long HIGHEST_TRACKABLE = TimeUnit.MINUTES.toNanos(1);
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private String gatewayType = "bus";
+    private int durationSec = 10;
+    private int warmupSec = 3;
+    private int threads = 4;
+    private int eventRate = 1000;
+    private int latencyMicros = 0;
+    private int baud = 0;
+    private String hlogFile;
+    private Level logLevel = Level.WARN;
+
+    private BUSGatewaySimulator simulator;
+    private ZigBeeDongleEmulator dongle;
+    private OpenGateway gateway;
+    private HistogramLogWriter logWriter;
+
+    // event phase: send time of each event, indexed by sequence number % SLOTS
+    private final AtomicLongArray eventSendTimes = new AtomicLongArray(SLOTS);
+    private volatile Histogram eventHistogram;
+    private final AtomicLong eventsReceived = new AtomicLong();
+    private final AtomicLong eventsLate = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        EndToEndBenchmark bench = new EndToEndBenchmark();
+        if (!bench.parseArgs(args)) {
+            System.out.println(USAGE);
+            return;
+        }
+        try {
+            bench.run();
+        } finally {
+            bench.stop();
+        }
+        System.exit(0);
+    }
+
+    private boolean parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String opt = args[i];
+            if ("--help".equals(opt) || "-h".equals(opt) || i + 1 >= args.length) {
+                return false;
+            }
+            String val = args[++i];
+            switch (opt) {
+                case "--gateway":
+                    gatewayType = val.toLowerCase();
+                    if (!"bus".equals(gatewayType) && !"usb".equals(gatewayType)) {
+                        return false;
+                    }
+                    break;
+                case "--duration":
+                    durationSec = Integer.parseInt(val);
+                    break;
+                case "--warmup":
+                    warmupSec = Integer.parseInt(val);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(val);
+                    break;
+                case "--event-rate":
+                    eventRate = Integer.parseInt(val);
+                    break;
+                case "--latency":
+                    latencyMicros = Integer.parseInt(val);
+                    break;
+                case "--baud":
+                    baud = Integer.parseInt(val);
+                    break;
+                case "--hlog":
+                    hlogFile = val;
+                    break;
+                case "--log-level":
+                    logLevel = Level.toLevel(val, Level.WARN);
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return durationSec > 0 && warmupSec >= 0 && threads > 0 && eventRate > 0;
+    }
+
+    private void run() throws Exception {
+        // the library logs every frame at DEBUG level: keep logging out of measurements
+        Configurator.setRootLevel(logLevel);
+        if (hlogFile != null) {
+            logWriter = new HistogramLogWriter(new PrintStream(hlogFile));
+            logWriter.outputComment("openwebnet4j end-to-end benchmark, gateway=" + gatewayType);
+            logWriter.outputLogFormatVersion();
+            logWriter.outputStartTime(System.currentTimeMillis());
+            logWriter.setBaseTime(System.currentTimeMillis());
+            logWriter.outputLegend();
+        }
+        startGateway();
+        System.out.printf("# gateway=%s duration=%ds warmup=%ds threads=%d event-rate=%d/s latency=%dus baud=%d%n",
+                gatewayType, durationSec, warmupSec, threads, eventRate, latencyMicros, baud);
+
+        commandPhase(warmupSec);
+        report("command", commandPhase(durationSec), durationSec);
+
+        eventPhase(warmupSec);
+        Histogram events = eventPhase(durationSec);
+        report("event", events, durationSec);
+
+        throughputPhase(warmupSec);
+        report("throughput", throughputPhase(durationSec), durationSec);
+    }
+
+    private void startGateway() throws Exception {
+        if ("bus".equals(gatewayType)) {
+            simulator = new BUSGatewaySimulator(VirtualInstallation.generate(DEVICES, 0, 0, 0));
+            simulator.setLatency(Duration.ofNanos(latencyMicros * 1000L), Duration.ofNanos(latencyMicros * 1000L));
+            simulator.start();
+            gateway = new BUSGateway(simulator.getHost(), simulator.getPort(), null);
+        } else {
+            dongle = new ZigBeeDongleEmulator();
+            for (int i = 0; i < DEVICES; i++) {
+                dongle.addSwitch(String.valueOf(7000000 + i), 1);
+            }
+            dongle.setBaudRate(baud);
+            dongle.setResponseDelay(Duration.ofNanos(latencyMicros * 1000L));
+            USBGateway usb = new USBGateway(USB_PORT);
+            usb.setSerialPortProvider(new EmulatedSerialPortProvider().addDongle(USB_PORT, dongle));
+            gateway = usb;
+        }
+        gateway.subscribe(new EventListener());
+        gateway.connect();
+    }
+
+    private void stop() {
+        if (gateway != null) {
+            gateway.closeConnection();
+        }
+        if (simulator != null) {
+            simulator.close();
+        }
+        if (dongle != null) {
+            dongle.close();
+        }
+        if (logWriter != null) {
+            logWriter.close();
+        }
+    }
+
+    private String lightWhere(int n) {
+        int i = n % DEVICES;
+        return "bus".equals(gatewayType) ? "1" + (i + 1) : (7000000 + i) + "01#9";
+    }
+
+    private Histogram commandPhase(int seconds) throws OWNException {
+        Histogram h = new Histogram(HIGHEST_TRACKABLE, 3);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int n = 0; System.nanoTime() < end; n++) {
+            String where = lightWhere(n);
+            Lighting cmd = (n / DEVICES) % 2 == 0 ? Lighting.requestTurnOn(where) : Lighting.requestTurnOff(where);
+            long start = System.nanoTime();
+            gateway.send(cmd);
+            h.recordValue(System.nanoTime() - start);
+        }
+        return h;
+    }
+
+    private Histogram eventPhase(int seconds) throws InterruptedException {
+        Histogram h = new Histogram(HIGHEST_TRACKABLE, 3);
+        eventsReceived.set(0);
+        eventsLate.set(0);
+        eventHistogram = h;
+        ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "BENCH-Events");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicLong seq = new AtomicLong();
+        sender.scheduleAtFixedRate(() -> sendEvent(seq.getAndIncrement()), 0, TimeUnit.SECONDS.toNanos(1) / eventRate,
+                TimeUnit.NANOSECONDS);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        sender.shutdownNow();
+        sender.awaitTermination(1, TimeUnit.SECONDS);
+        // let events in flight be delivered
+        Thread.sleep(500);
+        eventHistogram = null;
+        long sent = seq.get();
+        if (seconds == durationSec) {
+            System.out.printf("# events sent=%d received=%d not measured=%d%n", sent, eventsReceived.get(),
+                    sent - eventsReceived.get() + eventsLate.get());
+        }
+        synchronized (h) {
+            return h.copy();
+        }
+    }
+
+    private void sendEvent(long seq) {
+        int slot = (int) (seq % SLOTS);
+        eventSendTimes.set(slot, System.nanoTime());
+        if (simulator != null) {
+            simulator.broadcast(BUS_EVENT_PREFIX + slot + "##");
+        } else {
+            dongle.sendEvent(USB_EVENT_PREFIX + (USB_EVENT_ID_BASE + slot) + "01#9##");
+        }
+    }
+
+    /* returns the event slot encoded in a frame sent by the event phase, or -1 */
+    private int eventSlot(String frame) {
+        try {
+            if (simulator != null) {
+                if (frame.startsWith(BUS_EVENT_PREFIX)) {
+                    return Integer.parseInt(frame.substring(BUS_EVENT_PREFIX.length(), frame.length() - 2));
+                }
+            } else if (frame.startsWith(USB_EVENT_PREFIX + "1")) {
+                int start = USB_EVENT_PREFIX.length();
+                return Integer.parseInt(frame.substring(start, start + 7)) - USB_EVENT_ID_BASE;
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            // not an event of the event phase
+        }
+        return -1;
+    }
+
+    private Histogram throughputPhase(int seconds) throws InterruptedException {
+        List<Histogram> histograms = new ArrayList<>();
+        List<Thread> senders = new ArrayList<>();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        long[] endTime = new long[1];
+        for (int t = 0; t < threads; t++) {
+            Histogram h = new Histogram(HIGHEST_TRACKABLE, 3);
+            histograms.add(h);
+            int offset = t;
+            Thread sender = new Thread(() -> {
+                try {
+                    startLatch.await();
+                    for (int n = offset; System.nanoTime() < endTime[0]; n += threads) {
+                        Lighting cmd = Lighting.requestTurnOn(lightWhere(n));
+                        long start = System.nanoTime();
+                        try {
+                            gateway.send(cmd);
+                        } catch (OWNException e) {
+                            errors.incrementAndGet();
+                        }
+                        h.recordValue(System.nanoTime() - start);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "BENCH-Sender-" + t);
+            sender.setDaemon(true);
+            senders.add(sender);
+            sender.start();
+        }
+        endTime[0] = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        startLatch.countDown();
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        Histogram total = new Histogram(HIGHEST_TRACKABLE, 3);
+        for (Histogram h : histograms) {
+            total.add(h);
+        }
+        if (errors.get() > 0) {
+            System.out.printf("# throughput errors=%d%n", errors.get());
+        }
+        return total;
+    }
+
+    private void report(String phase, Histogram h, int seconds) {
+        System.out.printf("%n## %s latency (us) ##%n", phase);
+        h.outputPercentileDistribution(System.out, NANOS_PER_MICRO);
+        System.out.printf("# %-10s count=%d rate=%.1f/s p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n", phase,
+                h.getTotalCount(), (double) h.getTotalCount() / seconds,
+                h.getValueAtPercentile(50) / NANOS_PER_MICRO, h.getValueAtPercentile(99) / NANOS_PER_MICRO,
+                h.getValueAtPercentile(99.9) / NANOS_PER_MICRO, h.getMaxValue() / NANOS_PER_MICRO);
+        if (logWriter != null) {
+            h.setTag(phase);
+            long now = System.currentTimeMillis();
+            h.setStartTimeStamp(now - TimeUnit.SECONDS.toMillis(seconds));
+            h.setEndTimeStamp(now);
+            logWriter.outputIntervalHistogram(h);
+        }
+    }
+
+    private class EventListener implements GatewayListener {
+
+        @Override
+        public void onEventMessage(OpenMessage msg) {
+            long received = System.nanoTime();
+            Histogram h = eventHistogram;
+            if (h == null) {
+                return;
+            }
+            int slot = eventSlot(msg.getFrameValue());
+            if (slot < 0 || slot >= SLOTS) {
+                return;
+            }
+            eventsReceived.incrementAndGet();
+            long latency = received - eventSendTimes.get(slot);
+            if (latency < 0) {
+                // slot already reused by a newer event
+                eventsLate.incrementAndGet();
+                return;
+            }
+            synchronized (h) {
+                h.recordValue(Math.min(latency, HIGHEST_TRACKABLE));
+            }
+        }
+
+        @Override
+        public void onConnected() {
+        }
+
+        @Override
+        public void onConnectionError(OWNException error) {
+            System.err.println("# connection error: " + error.getMessage());
+        }
+
+        @Override
+        public void onConnectionClosed() {
+        }
+
+        @Override
+        public void onDisconnected(OWNException error) {
+            System.err.println("# disconnected: " + error.getMessage());
+        }
+
+        @Override
+        public void onReconnected() {
+        }
+
+        @Override
+        public void onNewDevice(Where where, OpenDeviceType deviceType, BaseOpenMessage message) {
+        }
+
+        @Override
+        public void onDiscoveryCompleted() {
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openwebnet4j.communication.EventJournal;
+
+/**
+ * Benchmarks {@link EventJournal#append(String)} as called on the MON receive thread for each frame, with the default
+ * segment size and flush interval and 2 segments, so that segment rollover is included. Should take a few hundred ns
+ * per frame and allocate nothing (<code>gc.alloc.rate.norm</code> close to 0).
+ *
+ * @author M. Valla - Initial contribution
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventJournalBenchmark {
+
+    private Path dir;
+    private EventJournal journal;
+    private String[] frames;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("own-journal-bench");
+        journal = new EventJournal(dir, EventJournal.DEFAULT_SEGMENT_SIZE, 2);
+        frames = new String[81];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = "*1*" + (i % 2) + "*" + (i / 9 + 1) + (i % 9 + 1) + "##";
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void append() {
+        journal.append(frames[next]);
+        next = (next + 1) % frames.length;
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.ParseDepth;
+
+/**
+ * Benchmarks {@link BaseOpenMessage#parse(String)} with one frame per WHO, with full and header-only
+ * {@link ParseDepth}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+    @Param({ "*#*1##", // ACK
+            "*0*2*05##", // SCENARIO
+            "*1*1*12##", // LIGHTING
+            "*1*1*702053501#9##", // LIGHTING ZigBee
+            "*2*1*41##", // AUTOMATION
+            "*#4*1*0*0215##", // THERMOREGULATION
+            "*5*11*#2##", // BURGLAR_ALARM
+            "*9*1*1##", // AUX
+            "*#13**16*1*2*3##", // GATEWAY_MANAGEMENT
+            "*15*02*22##", // CEN_SCENARIO_SCHEDULER
+            "*#18*51*113*1250##", // ENERGY_MANAGEMENT
+            "*25*22#2*22047##", // CEN_PLUS_SCENARIO_SCHEDULER
+            "*#1004*1*7*1*0*0*0*0*0*0*0*0*0##", // THERMOREGULATION_DIAGNOSTIC
+    })
+    public String frame;
+
+    @Benchmark
+    public OpenMessage parseFull() throws FrameException {
+        return BaseOpenMessage.parse(frame);
+    }
+
+    @Benchmark
+    public OpenMessage parseHeader() throws FrameException {
+        return BaseOpenMessage.parse(frame, ParseDepth.HEADER);
+    }
+}
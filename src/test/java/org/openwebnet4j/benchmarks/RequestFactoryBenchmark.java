@@ -0,0 +1,282 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.benchmarks;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openwebnet4j.message.Alarm;
+import org.openwebnet4j.message.Automation;
+import org.openwebnet4j.message.Auxiliary;
+import org.openwebnet4j.message.CEN;
+import org.openwebnet4j.message.CENPlusScenario;
+import org.openwebnet4j.message.EnergyManagement;
+import org.openwebnet4j.message.EnergyManagementDiagnostic;
+import org.openwebnet4j.message.GatewayMgmt;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.Lighting.WhatLighting;
+import org.openwebnet4j.message.MalformedFrameException;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Thermoregulation;
+import org.openwebnet4j.message.Thermoregulation.FanCoilSpeed;
+import org.openwebnet4j.message.Thermoregulation.Function;
+import org.openwebnet4j.message.Thermoregulation.OperationMode;
+import org.openwebnet4j.message.ThermoregulationDiagnostic;
+
+/**
+ * Benchmarks the <code>requestXxx</code> message factories. <code>Thermoregulation.requestWriteSetMode</code> is not
+ * included since its WhatThermo argument cannot be created outside of a Thermoregulation message.
+ *
+ * @author M. Valla - Initial contribution
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestFactoryBenchmark {
+
+    // fields, so that constants are not folded
+    public String w = "12";
+    public String zone = "1";
+    public String alarmZone = "2";
+    public String aux = "1";
+    public String cen = "22";
+    public String meter = "51";
+    public double setPoint = 21.5;
+    public int productIndex = 3;
+    public ZonedDateTime dateTime = ZonedDateTime.of(2024, 5, 1, 9, 37, 30, 0, ZoneOffset.ofHours(2));
+
+    @Benchmark
+    public OpenMessage lightingRequestTurnOn() {
+        return Lighting.requestTurnOn(w);
+    }
+
+    @Benchmark
+    public OpenMessage lightingRequestTurnOff() {
+        return Lighting.requestTurnOff(w);
+    }
+
+    @Benchmark
+    public OpenMessage lightingRequestStatus() {
+        return Lighting.requestStatus(w);
+    }
+
+    @Benchmark
+    public OpenMessage automationRequestStop() {
+        return Automation.requestStop(w);
+    }
+
+    @Benchmark
+    public OpenMessage automationRequestMoveUp() {
+        return Automation.requestMoveUp(w);
+    }
+
+    @Benchmark
+    public OpenMessage automationRequestMoveDown() {
+        return Automation.requestMoveDown(w);
+    }
+
+    @Benchmark
+    public OpenMessage automationRequestStatus() {
+        return Automation.requestStatus(w);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestFanCoilSpeed() {
+        return Thermoregulation.requestFanCoilSpeed(zone);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestMode() {
+        return Thermoregulation.requestMode(zone);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestLocalOffset() {
+        return Thermoregulation.requestLocalOffset(zone);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestValvesStatus() {
+        return Thermoregulation.requestValvesStatus(zone);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestTemperature() {
+        return Thermoregulation.requestTemperature(zone);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestSetPointTemperature() {
+        return Thermoregulation.requestSetPointTemperature(zone);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestStatus() {
+        return Thermoregulation.requestStatus(zone);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestActuatorsStatus() {
+        return Thermoregulation.requestActuatorsStatus(zone);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationDiagnosticRequestDiagnostic() {
+        return ThermoregulationDiagnostic.requestDiagnostic(zone);
+    }
+
+    @Benchmark
+    public OpenMessage alarmRequestZoneStatus() {
+        return Alarm.requestZoneStatus(alarmZone);
+    }
+
+    @Benchmark
+    public OpenMessage auxiliaryRequestTurnOn() {
+        return Auxiliary.requestTurnOn(aux);
+    }
+
+    @Benchmark
+    public OpenMessage auxiliaryRequestTurnOff() {
+        return Auxiliary.requestTurnOff(aux);
+    }
+
+    @Benchmark
+    public OpenMessage auxiliaryRequestStatus() {
+        return Auxiliary.requestStatus(aux);
+    }
+
+    @Benchmark
+    public OpenMessage cENRequestStatus() {
+        return CEN.requestStatus(cen);
+    }
+
+    @Benchmark
+    public OpenMessage cENPlusScenarioRequestStatus() {
+        return CENPlusScenario.requestStatus(cen);
+    }
+
+    @Benchmark
+    public OpenMessage energyManagementRequestActivePower() {
+        return EnergyManagement.requestActivePower(meter);
+    }
+
+    @Benchmark
+    public OpenMessage energyManagementRequestCurrentMonthTotalizer() {
+        return EnergyManagement.requestCurrentMonthTotalizer(meter);
+    }
+
+    @Benchmark
+    public OpenMessage energyManagementRequestCurrentDayTotalizer() {
+        return EnergyManagement.requestCurrentDayTotalizer(meter);
+    }
+
+    @Benchmark
+    public OpenMessage energyManagementDiagnosticRequestDiagnostic() {
+        return EnergyManagementDiagnostic.requestDiagnostic(meter);
+    }
+
+    @Benchmark
+    public OpenMessage alarmRequestSystemStatus() {
+        return Alarm.requestSystemStatus();
+    }
+
+    @Benchmark
+    public OpenMessage gatewayMgmtRequestSupervisor() {
+        return GatewayMgmt.requestSupervisor();
+    }
+
+    @Benchmark
+    public OpenMessage gatewayMgmtRequestKeepConnect() {
+        return GatewayMgmt.requestKeepConnect();
+    }
+
+    @Benchmark
+    public OpenMessage gatewayMgmtRequestMACAddress() {
+        return GatewayMgmt.requestMACAddress();
+    }
+
+    @Benchmark
+    public OpenMessage gatewayMgmtRequestModel() {
+        return GatewayMgmt.requestModel();
+    }
+
+    @Benchmark
+    public OpenMessage gatewayMgmtRequestFirmwareVersion() {
+        return GatewayMgmt.requestFirmwareVersion();
+    }
+
+    @Benchmark
+    public OpenMessage gatewayMgmtRequestScanNetwork() {
+        return GatewayMgmt.requestScanNetwork();
+    }
+
+    @Benchmark
+    public OpenMessage lightingRequestDimTo() {
+        return Lighting.requestDimTo(w, WhatLighting.DIMMER_LEVEL_5);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestWriteSetpointTemperature() throws MalformedFrameException {
+        return Thermoregulation.requestWriteSetpointTemperature(zone, setPoint, Function.HEATING);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestWriteFanCoilSpeed() {
+        return Thermoregulation.requestWriteFanCoilSpeed(zone, FanCoilSpeed.SPEED_2);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestWriteFunction() {
+        return Thermoregulation.requestWriteFunction(zone, Function.COOLING);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestWriteMode() {
+        return Thermoregulation.requestWriteMode(zone, OperationMode.MANUAL, Function.HEATING, setPoint);
+    }
+
+    @Benchmark
+    public OpenMessage thermoregulationRequestWriteWeeklyScenarioMode() {
+        return Thermoregulation.requestWriteWeeklyScenarioMode(zone, OperationMode.WEEKLY, Function.HEATING, 2);
+    }
+
+    @Benchmark
+    public OpenMessage energyManagementSetActivePowerNotificationsTime() {
+        return EnergyManagement.setActivePowerNotificationsTime(meter, 15);
+    }
+
+    @Benchmark
+    public OpenMessage gatewayMgmtRequestSetDateTime() {
+        return GatewayMgmt.requestSetDateTime(dateTime);
+    }
+
+    @Benchmark
+    public OpenMessage gatewayMgmtRequestProductInfo() {
+        return GatewayMgmt.requestProductInfo(productIndex);
+    }
+}
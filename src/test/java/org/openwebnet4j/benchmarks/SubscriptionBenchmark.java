@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openwebnet4j.BUSGateway;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+
+/**
+ * Benchmarks delivery of a Lighting event to typed subscriptions by WHERE
+ * ({@link BUSGateway#subscribe(Class, String, java.util.function.Consumer)}), with 1 to 1000 subscribers spread over
+ * 81 light points. The cost per event should not depend on the number of subscribers.
+ *
+ * @author M. Valla - Initial contribution
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SubscriptionBenchmark {
+
+    @Param({ "1", "100", "1000" })
+    public int subscribers;
+
+    private BUSGateway gateway;
+    private OpenMessage[] events;
+    private int next;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole bh) throws FrameException {
+        blackhole = bh;
+        gateway = new BUSGateway("localhost", 20000, null);
+        String[] wheres = new String[81];
+        events = new OpenMessage[wheres.length];
+        for (int i = 0; i < wheres.length; i++) {
+            wheres[i] = "" + (i / 9 + 1) + (i % 9 + 1);
+            events[i] = BaseOpenMessage.parse("*1*1*" + wheres[i] + "##");
+        }
+        for (int i = 0; i < subscribers; i++) {
+            gateway.subscribe(Lighting.class, wheres[i % wheres.length], msg -> blackhole.consume(msg));
+        }
+    }
+
+    @Benchmark
+    public void dispatch() {
+        gateway.onMessage(events[next]);
+        next = (next + 1) % events.length;
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openwebnet4j.message.Thermoregulation;
+
+/**
+ * Benchmarks {@link Thermoregulation#decodeTemperature(String)} and
+ * {@link Thermoregulation#encodeTemperature(double)}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TemperatureBenchmark {
+
+    public String positive = "0215";
+    public String negative = "1055";
+    public double positiveTemp = 21.5;
+    public double negativeTemp = -5.5;
+
+    @Benchmark
+    public double decodePositive() {
+        return Thermoregulation.decodeTemperature(positive);
+    }
+
+    @Benchmark
+    public double decodeNegative() {
+        return Thermoregulation.decodeTemperature(negative);
+    }
+
+    @Benchmark
+    public String encodePositive() {
+        return Thermoregulation.encodeTemperature(positiveTemp);
+    }
+
+    @Benchmark
+    public String encodeNegative() {
+        return Thermoregulation.encodeTemperature(negativeTemp);
+    }
+}
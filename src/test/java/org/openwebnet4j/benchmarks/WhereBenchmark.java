@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openwebnet4j.message.Where;
+import org.openwebnet4j.message.WhereAlarm;
+import org.openwebnet4j.message.WhereAuxiliary;
+import org.openwebnet4j.message.WhereCEN;
+import org.openwebnet4j.message.WhereEnergyManagement;
+import org.openwebnet4j.message.WhereLightAutom;
+import org.openwebnet4j.message.WhereThermo;
+import org.openwebnet4j.message.WhereZigBee;
+
+/**
+ * Benchmarks the {@link Where} subclasses constructors.
+ *
+ * @author M. Valla - Initial contribution
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WhereBenchmark {
+
+    // fields, so that constants are not folded
+    public String lightPoint = "12";
+    public String lightPointExt = "0311#4#01";
+    public String area = "5";
+    public String zigBee = "702053501#9";
+    public String thermoZone = "1";
+    public String thermoProbe = "500";
+    public String thermoActuator = "1#2";
+    public String energyMeter = "51";
+    public String alarmZone = "#2";
+    public String aux = "1";
+    public String cen = "22";
+
+    @Benchmark
+    public Where lightAutomPoint() {
+        return new WhereLightAutom(lightPoint);
+    }
+
+    @Benchmark
+    public Where lightAutomExtended() {
+        return new WhereLightAutom(lightPointExt);
+    }
+
+    @Benchmark
+    public Where lightAutomArea() {
+        return new WhereLightAutom(area);
+    }
+
+    @Benchmark
+    public Where zigBee() {
+        return new WhereZigBee(zigBee);
+    }
+
+    @Benchmark
+    public Where thermoZone() {
+        return new WhereThermo(thermoZone);
+    }
+
+    @Benchmark
+    public Where thermoProbe() {
+        return new WhereThermo(thermoProbe);
+    }
+
+    @Benchmark
+    public Where thermoActuator() {
+        return new WhereThermo(thermoActuator);
+    }
+
+    @Benchmark
+    public Where energyManagement() {
+        return new WhereEnergyManagement(energyMeter);
+    }
+
+    @Benchmark
+    public Where alarm() {
+        return new WhereAlarm(alarmZone);
+    }
+
+    @Benchmark
+    public Where auxiliary() {
+        return new WhereAuxiliary(aux);
+    }
+
+    @Benchmark
+    public Where cen() {
+        return new WhereCEN(cen);
+    }
+}
@@ -0,0 +1,632 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.OpenMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local simulator of an OpenWebNet BUS gateway, listening on a TCP port of the loopback interface, to test and
+ * benchmark {@link BUSConnector} and BUSGateway end to end without a real gateway.
+ *
+ * <p>
+ * Supports CMD (<code>*99*0##</code> and <code>*99*9##</code>) and MON (<code>*99*1##</code>) sessions, with no
+ * authentication, OPEN numeric password (nonce) or HMAC SHA-1/SHA-2 handshakes. Frames received on CMD sessions are
+ * answered from a {@link VirtualInstallation}: commands change device states and are notified as events on all MON
+ * sessions, status and dimension requests are answered with status frames followed by ACK, unsupported frames with
+ * NACK. CMD sessions are closed after {@link #setIdleCmdTimeout(Duration)} without frames received (default 120s), as
+ * real gateways do.
+ *
+ * <p>
+ * Response latency, a rate of random events and fault injection (NACK, BUSY_NACK, dropped connections, refused
+ * sessions) can be configured, also while running.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class BUSGatewaySimulator implements AutoCloseable {
+
+    /** Authentication required by the simulator */
+    public enum AuthMode {
+        NONE,
+        OPEN,
+        HMAC_SHA1,
+        HMAC_SHA2
+    }
+
+    public static final Duration DEFAULT_IDLE_CMD_TIMEOUT = Duration.ofSeconds(120);
+
+    private static final int HANDSHAKE_TIMEOUT = 30000; // ms
+    private static final long POWER_NOTIFICATION_PERIOD = 2000; // ms
+    private static final String HMAC_A = "736F70653E";
+    private static final String HMAC_B = "636F70653E";
+    private static final Pattern HMAC_CLIENT_PATTERN = Pattern.compile("\\*#(\\d+)\\*(\\d+)##");
+
+    private final Logger logger = LoggerFactory.getLogger(BUSGatewaySimulator.class);
+
+    private final VirtualInstallation installation;
+    private final List<FrameChannel> monChannels = new CopyOnWriteArrayList<>();
+    private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+    private final Random random = new Random();
+
+    private volatile AuthMode authMode = AuthMode.NONE;
+    private volatile @Nullable String password;
+    private volatile long latencyMinNanos = 0;
+    private volatile long latencyMaxNanos = 0;
+    private volatile long idleCmdTimeout = DEFAULT_IDLE_CMD_TIMEOUT.toMillis();
+    private volatile boolean cmdSessionAltOnly = false;
+    private volatile int maxCmdSessions = Integer.MAX_VALUE;
+    private volatile boolean refuseSessions = false;
+    private volatile double nackRate = 0;
+    private volatile double busyNackRate = 0;
+    private volatile double dropRate = 0;
+    private volatile Set<String> busyFrames = Collections.emptySet();
+
+    private @Nullable ServerSocket serverSocket;
+    private @Nullable ExecutorService sessionExecutor;
+    private @Nullable ScheduledExecutorService eventScheduler;
+    private @Nullable ScheduledFuture<?> randomEvents;
+    private double eventRate = 0;
+
+    private final AtomicInteger activeCmdSessions = new AtomicInteger();
+    private final AtomicLong cmdSessions = new AtomicLong();
+    private final AtomicLong cmdFrames = new AtomicLong();
+    private final AtomicLong eventsSent = new AtomicLong();
+    private final AtomicLong faults = new AtomicLong();
+
+    /**
+     * Creates a new simulator answering from the given virtual installation
+     *
+     * @param installation the virtual installation
+     */
+    public BUSGatewaySimulator(VirtualInstallation installation) {
+        this.installation = installation;
+    }
+
+    /**
+     * Sets the authentication required by the simulator
+     *
+     * @param mode authentication mode
+     * @param password numeric password for {@link AuthMode#OPEN}, alphanumeric for HMAC modes
+     */
+    public void setAuth(AuthMode mode, @Nullable String password) {
+        if (mode != AuthMode.NONE && password == null) {
+            throw new IllegalArgumentException("A password is required for auth mode " + mode);
+        }
+        this.authMode = mode;
+        this.password = password;
+    }
+
+    /**
+     * Sets the latency added before answering each frame received on CMD sessions, random between min and max
+     *
+     * @param min minimum latency
+     * @param max maximum latency
+     */
+    public void setLatency(Duration min, Duration max) {
+        this.latencyMinNanos = min.toNanos();
+        this.latencyMaxNanos = Math.max(min.toNanos(), max.toNanos());
+    }
+
+    /**
+     * Sets the rate of random events (device state changes) sent on MON sessions
+     *
+     * @param eventsPerSecond events per second, 0 to disable random events
+     */
+    public synchronized void setEventRate(double eventsPerSecond) {
+        this.eventRate = eventsPerSecond;
+        if (eventScheduler != null) {
+            scheduleRandomEvents();
+        }
+    }
+
+    /**
+     * Sets after how long without frames received a CMD session is closed by the simulator
+     *
+     * @param timeout idle timeout (default 120s)
+     */
+    public void setIdleCmdTimeout(Duration timeout) {
+        this.idleCmdTimeout = timeout.toMillis();
+    }
+
+    /**
+     * If true, the old CMD session request <code>*99*0##</code> is refused with NACK, and only
+     * <code>*99*9##</code> is accepted
+     *
+     * @param altOnly true to accept only <code>*99*9##</code>
+     */
+    public void setCmdSessionAltOnly(boolean altOnly) {
+        this.cmdSessionAltOnly = altOnly;
+    }
+
+    /**
+     * Sets the maximum number of concurrent CMD sessions: further CMD session requests are refused with NACK
+     *
+     * @param max maximum concurrent CMD sessions
+     */
+    public void setMaxCmdSessions(int max) {
+        this.maxCmdSessions = max;
+    }
+
+    /**
+     * Fault injection: if true, new connections are accepted and then closed immediately without handshake
+     *
+     * @param refuse true to refuse new sessions
+     */
+    public void setRefuseSessions(boolean refuse) {
+        this.refuseSessions = refuse;
+    }
+
+    /**
+     * Fault injection: sets the probabilities that a frame received on a CMD session is answered with NACK, with
+     * BUSY_NACK, or that the CMD session is closed without answering
+     *
+     * @param nackRate probability of NACK (0-1)
+     * @param busyNackRate probability of BUSY_NACK (0-1)
+     * @param dropRate probability of closing the session (0-1)
+     */
+    public void setFaultRates(double nackRate, double busyNackRate, double dropRate) {
+        this.nackRate = nackRate;
+        this.busyNackRate = busyNackRate;
+        this.dropRate = dropRate;
+    }
+
+    /**
+     * Fault injection: frames received on a CMD session that are always answered with BUSY_NACK
+     *
+     * @param frames the frames to be answered with BUSY_NACK
+     */
+    public void setBusyFrames(String... frames) {
+        this.busyFrames = new HashSet<>(Arrays.asList(frames));
+    }
+
+    /**
+     * Starts the simulator on a free port of the loopback interface
+     *
+     * @throws IOException if the server socket cannot be opened
+     */
+    public void start() throws IOException {
+        start(0);
+    }
+
+    /**
+     * Starts the simulator on the given port of the loopback interface
+     *
+     * @param port the port, 0 for a free port
+     * @throws IOException if the server socket cannot be opened
+     */
+    public synchronized void start(int port) throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("Simulator already started");
+        }
+        ServerSocket ss = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        serverSocket = ss;
+        ExecutorService exec = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "OWN-SIM-Session");
+            t.setDaemon(true);
+            return t;
+        });
+        sessionExecutor = exec;
+        ScheduledExecutorService sched = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "OWN-SIM-Events");
+            t.setDaemon(true);
+            return t;
+        });
+        eventScheduler = sched;
+        sched.scheduleAtFixedRate(() -> broadcast(installation.powerEvents(random)), POWER_NOTIFICATION_PERIOD,
+                POWER_NOTIFICATION_PERIOD, TimeUnit.MILLISECONDS);
+        scheduleRandomEvents();
+        Thread acceptor = new Thread(() -> acceptLoop(ss, exec), "OWN-SIM-Accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info("##SIM## simulator started on port {} (auth={}, devices={})", ss.getLocalPort(), authMode,
+                installation.size());
+    }
+
+    private void scheduleRandomEvents() {
+        ScheduledFuture<?> f = randomEvents;
+        if (f != null) {
+            f.cancel(false);
+            randomEvents = null;
+        }
+        ScheduledExecutorService sched = eventScheduler;
+        if (eventRate > 0 && sched != null) {
+            long period = (long) (TimeUnit.SECONDS.toNanos(1) / eventRate);
+            randomEvents = sched.scheduleAtFixedRate(() -> {
+                String ev = installation.randomEvent(random);
+                if (ev != null) {
+                    broadcast(ev);
+                }
+            }, period, period, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Returns the address the simulator is listening on (the loopback address)
+     *
+     * @return the host address
+     */
+    public String getHost() {
+        return InetAddress.getLoopbackAddress().getHostAddress();
+    }
+
+    /**
+     * Returns the port the simulator is listening on
+     *
+     * @return the port, or -1 if not started
+     */
+    public synchronized int getPort() {
+        ServerSocket ss = serverSocket;
+        return ss == null ? -1 : ss.getLocalPort();
+    }
+
+    /**
+     * Returns the virtual installation of this simulator
+     *
+     * @return the virtual installation
+     */
+    public VirtualInstallation getInstallation() {
+        return installation;
+    }
+
+    /**
+     * Sends an event frame on all MON sessions
+     *
+     * @param frame the event frame
+     */
+    public void broadcast(String frame) {
+        for (FrameChannel ch : monChannels) {
+            try {
+                ch.sendFrame(frame);
+                eventsSent.incrementAndGet();
+            } catch (IOException e) {
+                logger.debug("##SIM## cannot send event on {}, removing MON session: {}", ch.getName(),
+                        e.getMessage());
+                monChannels.remove(ch);
+            }
+        }
+    }
+
+    private void broadcast(List<String> frames) {
+        for (String fr : frames) {
+            broadcast(fr);
+        }
+    }
+
+    /**
+     * Fault injection: closes all MON sessions
+     */
+    public void closeMonSessions() {
+        for (FrameChannel ch : monChannels) {
+            ch.disconnect();
+        }
+        monChannels.clear();
+    }
+
+    /**
+     * Returns the number of MON sessions currently open
+     *
+     * @return open MON sessions
+     */
+    public int getActiveMonSessions() {
+        return monChannels.size();
+    }
+
+    /**
+     * Returns the number of CMD sessions currently open
+     *
+     * @return open CMD sessions
+     */
+    public int getActiveCmdSessions() {
+        return activeCmdSessions.get();
+    }
+
+    /**
+     * Returns the number of CMD sessions opened since start
+     *
+     * @return CMD sessions opened
+     */
+    public long getCmdSessions() {
+        return cmdSessions.get();
+    }
+
+    /**
+     * Returns the number of frames received on CMD sessions after handshake
+     *
+     * @return CMD frames received
+     */
+    public long getCmdFrames() {
+        return cmdFrames.get();
+    }
+
+    /**
+     * Returns the number of event frames sent on MON sessions
+     *
+     * @return events sent
+     */
+    public long getEventsSent() {
+        return eventsSent.get();
+    }
+
+    /**
+     * Returns the number of injected faults (NACK, BUSY_NACK, dropped or refused sessions)
+     *
+     * @return injected faults
+     */
+    public long getFaults() {
+        return faults.get();
+    }
+
+    private void acceptLoop(ServerSocket ss, ExecutorService exec) {
+        while (!ss.isClosed()) {
+            try {
+                Socket s = ss.accept();
+                if (refuseSessions) {
+                    faults.incrementAndGet();
+                    logger.debug("##SIM## refusing session from {}", s.getRemoteSocketAddress());
+                    s.close();
+                    continue;
+                }
+                sockets.add(s);
+                exec.execute(() -> runSession(s));
+            } catch (IOException e) {
+                if (!ss.isClosed()) {
+                    logger.warn("##SIM## accept failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void runSession(Socket s) {
+        FrameChannel ch = null;
+        boolean cmd = false;
+        try {
+            s.setTcpNoDelay(true);
+            s.setSoTimeout(HANDSHAKE_TIMEOUT);
+            ch = new FrameChannel(s.getInputStream(), s.getOutputStream(), "SIM-" + s.getPort());
+            ch.blockingMode = true;
+            String session = handshake(ch);
+            if (session == null) {
+                return;
+            }
+            if (BUSConnector.MON_SESSION.equals(session)) {
+                s.setSoTimeout(0);
+                monChannels.add(ch);
+                // MON: only keepalive ACKs are expected from the client
+                while (ch.readFrames() != null) {
+                    // ignore
+                }
+            } else {
+                cmd = true;
+                cmdSessions.incrementAndGet();
+                s.setSoTimeout((int) idleCmdTimeout);
+                runCmdSession(ch);
+            }
+        } catch (SocketTimeoutException e) {
+            logger.debug("##SIM## {} session idle, closing it", cmd ? "CMD" : "MON");
+        } catch (IOException e) {
+            logger.debug("##SIM## session closed: {}", e.getMessage());
+        } finally {
+            if (cmd) {
+                activeCmdSessions.decrementAndGet();
+            }
+            if (ch != null) {
+                monChannels.remove(ch);
+                ch.disconnect();
+            }
+            sockets.remove(s);
+            try {
+                s.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private void runCmdSession(FrameChannel ch) throws IOException {
+        List<String> responses = new ArrayList<>();
+        List<String> events = new ArrayList<>();
+        String fr;
+        while ((fr = ch.readFrames()) != null) {
+            cmdFrames.incrementAndGet();
+            sleepLatency();
+            double r = ThreadLocalRandom.current().nextDouble();
+            if (busyFrames.contains(fr)) {
+                faults.incrementAndGet();
+                ch.sendFrame(OpenMessage.FRAME_BUSY_NACK);
+                continue;
+            } else if (r < dropRate) {
+                faults.incrementAndGet();
+                logger.debug("##SIM## dropping CMD session on {}", fr);
+                return;
+            } else if (r < dropRate + nackRate) {
+                faults.incrementAndGet();
+                ch.sendFrame(OpenMessage.FRAME_NACK);
+                continue;
+            } else if (r < dropRate + nackRate + busyNackRate) {
+                faults.incrementAndGet();
+                ch.sendFrame(OpenMessage.FRAME_BUSY_NACK);
+                continue;
+            }
+            responses.clear();
+            events.clear();
+            if (installation.handle(fr, responses, events)) {
+                for (String resp : responses) {
+                    ch.sendFrame(resp);
+                }
+                ch.sendFrame(OpenMessage.FRAME_ACK);
+                broadcast(events);
+            } else {
+                ch.sendFrame(OpenMessage.FRAME_NACK);
+            }
+        }
+    }
+
+    private void sleepLatency() {
+        long min = latencyMinNanos;
+        long max = latencyMaxNanos;
+        if (max > 0) {
+            long nanos = max > min ? ThreadLocalRandom.current().nextLong(min, max + 1) : min;
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /*
+     * Runs the gateway side of the handshake. Returns the session type (MON_SESSION, CMD_SESSION or CMD_SESSION_ALT)
+     * if completed, null if the session has been refused
+     */
+    private @Nullable String handshake(FrameChannel ch) throws IOException {
+        ch.sendFrame(OpenMessage.FRAME_ACK);
+        String session = ch.readFrames();
+        if (BUSConnector.CMD_SESSION.equals(session) && cmdSessionAltOnly) {
+            ch.sendFrame(OpenMessage.FRAME_NACK);
+            session = ch.readFrames();
+        }
+        if (BUSConnector.CMD_SESSION.equals(session) || BUSConnector.CMD_SESSION_ALT.equals(session)) {
+            if (activeCmdSessions.incrementAndGet() > maxCmdSessions) {
+                activeCmdSessions.decrementAndGet();
+                faults.incrementAndGet();
+                ch.sendFrame(OpenMessage.FRAME_NACK);
+                return null;
+            }
+            if (!authenticate(ch)) {
+                activeCmdSessions.decrementAndGet();
+                return null;
+            }
+            return session;
+        } else if (BUSConnector.MON_SESSION.equals(session)) {
+            return authenticate(ch) ? session : null;
+        } else {
+            logger.debug("##SIM## invalid session request: {}", session);
+            ch.sendFrame(OpenMessage.FRAME_NACK);
+            return null;
+        }
+    }
+
+    private boolean authenticate(FrameChannel ch) throws IOException {
+        String pwd = password;
+        switch (authMode) {
+            case OPEN: {
+                String nonce = String.valueOf(10000000 + ThreadLocalRandom.current().nextInt(90000000));
+                ch.sendFrame(OpenMessage.FRAME_START_DIM + nonce + OpenMessage.FRAME_END);
+                String fr = ch.readFrames();
+                String expected = OpenMessage.FRAME_START_DIM + Auth.calcOpenPass(pwd, nonce)
+                        + OpenMessage.FRAME_END;
+                return ack(ch, expected.equals(fr));
+            }
+            case HMAC_SHA1:
+            case HMAC_SHA2: {
+                boolean sha1 = authMode == AuthMode.HMAC_SHA1;
+                String alg = sha1 ? Auth.SHA1 : Auth.SHA256;
+                ch.sendFrame(sha1 ? BUSConnector.HMAC_SHA1 : BUSConnector.HMAC_SHA2);
+                if (!OpenMessage.FRAME_ACK.equals(ch.readFrames())) {
+                    return false;
+                }
+                String ra = Auth.calcHash(alg, "ra" + System.nanoTime() + ThreadLocalRandom.current().nextLong());
+                ch.sendFrame(OpenMessage.FRAME_START_DIM + Auth.hexToDigit(ra) + OpenMessage.FRAME_END);
+                String fr = ch.readFrames();
+                Matcher m = HMAC_CLIENT_PATTERN.matcher(fr == null ? "" : fr);
+                if (!m.matches()) {
+                    return ack(ch, false);
+                }
+                String rb = Auth.digitToHex(m.group(1));
+                String kab = Auth.calcHash(alg, pwd);
+                if (!Auth.calcHash(alg, ra + rb + HMAC_A + HMAC_B + kab).equals(Auth.digitToHex(m.group(2)))) {
+                    return ack(ch, false);
+                }
+                ch.sendFrame(OpenMessage.FRAME_START_DIM + Auth.hexToDigit(Auth.calcHash(alg, ra + rb + kab))
+                        + OpenMessage.FRAME_END);
+                return OpenMessage.FRAME_ACK.equals(ch.readFrames());
+            }
+            default:
+                ch.sendFrame(OpenMessage.FRAME_ACK);
+                return true;
+        }
+    }
+
+    private boolean ack(FrameChannel ch, boolean ok) throws IOException {
+        if (!ok) {
+            logger.debug("##SIM## authentication failed on {}", ch.getName());
+        }
+        ch.sendFrame(ok ? OpenMessage.FRAME_ACK : OpenMessage.FRAME_NACK);
+        return ok;
+    }
+
+    /**
+     * Stops the simulator, closing all sessions
+     */
+    @Override
+    public synchronized void close() {
+        ServerSocket ss = serverSocket;
+        if (ss == null) {
+            return;
+        }
+        try {
+            ss.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        for (Socket s : sockets) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        ExecutorService exec = sessionExecutor;
+        if (exec != null) {
+            exec.shutdownNow();
+        }
+        ScheduledExecutorService sched = eventScheduler;
+        if (sched != null) {
+            sched.shutdownNow();
+        }
+        serverSocket = null;
+        sessionExecutor = null;
+        eventScheduler = null;
+        randomEvents = null;
+        logger.info("##SIM## simulator stopped");
+    }
+}
@@ -0,0 +1,419 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Thermoregulation;
+import org.openwebnet4j.message.WhereLightAutom;
+
+/**
+ * Virtual installation of devices used by {@link BUSGatewaySimulator}: keeps the state of lights, dimmers,
+ * automations, thermo zones and energy meters, applies commands and answers status and dimension requests as a BUS
+ * gateway would. Thread-safe.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class VirtualInstallation {
+
+    private static final String WHO_LIGHTING = "1";
+    private static final String WHO_AUTOMATION = "2";
+    private static final String WHO_THERMO = "4";
+    private static final String WHO_GATEWAY = "13";
+    private static final String WHO_ENERGY = "18";
+    private static final String WHO_THERMO_DIAG = "1004";
+    private static final String WHO_ENERGY_DIAG = "1018";
+
+    private enum Kind {
+        LIGHT,
+        DIMMER,
+        AUTOMATION,
+        THERMO_ZONE,
+        ENERGY_METER
+    }
+
+    private static class Device {
+        final Kind kind;
+        final String where;
+        final int area; // area for lights and automations, -1 otherwise
+        int what; // lights, dimmers and automations
+        double temperature; // thermo zones
+        int power; // energy meters, W
+        long monthTotal; // energy meters, Wh
+        long dayTotal; // energy meters, Wh
+
+        Device(Kind kind, String where) {
+            this.kind = kind;
+            this.where = where;
+            if (kind == Kind.LIGHT || kind == Kind.DIMMER || kind == Kind.AUTOMATION) {
+                this.area = new WhereLightAutom(where).getArea();
+            } else {
+                this.area = -1;
+            }
+        }
+
+        String who() {
+            switch (kind) {
+                case AUTOMATION:
+                    return WHO_AUTOMATION;
+                case THERMO_ZONE:
+                    return WHO_THERMO;
+                case ENERGY_METER:
+                    return WHO_ENERGY;
+                default:
+                    return WHO_LIGHTING;
+            }
+        }
+
+        /* frame with the current state of this device */
+        String stateFrame() {
+            switch (kind) {
+                case THERMO_ZONE:
+                    return "*#4*" + where + "*0*" + Thermoregulation.encodeTemperature(temperature) + "##";
+                case ENERGY_METER:
+                    return "*#18*" + where + "*113*" + power + "##";
+                default:
+                    return "*" + who() + "*" + what + "*" + where + "##";
+            }
+        }
+    }
+
+    private final Map<String, Device> devices = new LinkedHashMap<>(); // key: WHO*WHERE
+    private final List<Device> deviceList = new ArrayList<>();
+    private final Map<String, Long> powerNotifications = new LinkedHashMap<>(); // meter WHERE -> end time
+
+    /**
+     * Creates a virtual installation with the given number of devices: lights and automations in areas 1-9 (WHERE
+     * 11-99), thermo zones 1-99 at 20°C and energy meters 51-59 at 100W
+     *
+     * @param lights number of on/off lights (max 81)
+     * @param automations number of automations (max 81 - lights)
+     * @param thermoZones number of thermo zones (max 99)
+     * @param energyMeters number of energy meters (max 9)
+     * @return the virtual installation
+     */
+    public static VirtualInstallation generate(int lights, int automations, int thermoZones, int energyMeters) {
+        if (lights + automations > 81 || thermoZones > 99 || energyMeters > 9) {
+            throw new IllegalArgumentException("Too many devices");
+        }
+        VirtualInstallation inst = new VirtualInstallation();
+        for (int i = 0; i < lights + automations; i++) {
+            String where = "" + (i / 9 + 1) + (i % 9 + 1);
+            if (i < lights) {
+                inst.addLight(where);
+            } else {
+                inst.addAutomation(where);
+            }
+        }
+        for (int z = 1; z <= thermoZones; z++) {
+            inst.addThermoZone(String.valueOf(z), 20.0);
+        }
+        for (int n = 1; n <= energyMeters; n++) {
+            inst.addEnergyMeter("5" + n, 100);
+        }
+        return inst;
+    }
+
+    private synchronized VirtualInstallation add(Device d) {
+        if (devices.put(d.who() + "*" + d.where, d) == null) {
+            deviceList.add(d);
+        }
+        return this;
+    }
+
+    /**
+     * Adds an on/off light (WHO=1), initially off
+     *
+     * @param where light WHERE (APL)
+     * @return this installation
+     */
+    public VirtualInstallation addLight(String where) {
+        return add(new Device(Kind.LIGHT, where));
+    }
+
+    /**
+     * Adds a dimmer (WHO=1), initially off
+     *
+     * @param where dimmer WHERE (APL)
+     * @return this installation
+     */
+    public VirtualInstallation addDimmer(String where) {
+        return add(new Device(Kind.DIMMER, where));
+    }
+
+    /**
+     * Adds an automation (WHO=2), initially stopped
+     *
+     * @param where automation WHERE (APL)
+     * @return this installation
+     */
+    public VirtualInstallation addAutomation(String where) {
+        return add(new Device(Kind.AUTOMATION, where));
+    }
+
+    /**
+     * Adds a thermo zone (WHO=4)
+     *
+     * @param where zone WHERE (1-99)
+     * @param temperature initial temperature
+     * @return this installation
+     */
+    public VirtualInstallation addThermoZone(String where, double temperature) {
+        Device d = new Device(Kind.THERMO_ZONE, where);
+        d.temperature = temperature;
+        return add(d);
+    }
+
+    /**
+     * Adds an energy meter (WHO=18)
+     *
+     * @param where meter WHERE (5N)
+     * @param power initial active power (W)
+     * @return this installation
+     */
+    public VirtualInstallation addEnergyMeter(String where, int power) {
+        Device d = new Device(Kind.ENERGY_METER, where);
+        d.power = power;
+        return add(d);
+    }
+
+    /**
+     * Returns the number of devices in the installation
+     *
+     * @return number of devices
+     */
+    public synchronized int size() {
+        return deviceList.size();
+    }
+
+    /**
+     * Returns the frame with the current state of a device, as sent in a status response
+     *
+     * @param who device WHO value (1, 2, 4, 18)
+     * @param where device WHERE
+     * @return the state frame, or null if the device does not exist
+     */
+    public synchronized @Nullable String getState(String who, String where) {
+        Device d = devices.get(who + "*" + where);
+        return d == null ? null : d.stateFrame();
+    }
+
+    /**
+     * Handles a frame received on a CMD session. Response frames (not including the final ACK) are added to
+     * responses; events to be sent on MON sessions are added to events.
+     *
+     * @return false if the frame is not supported and must be answered with a NACK
+     */
+    synchronized boolean handle(String frame, List<String> responses, List<String> events) {
+        if (!frame.startsWith("*") || !frame.endsWith(OpenMessage.FRAME_END) || frame.length() < 6) {
+            return false;
+        }
+        String body = frame.substring(1, frame.length() - 2);
+        if (body.startsWith("#")) {
+            String[] parts = body.substring(1).split("\\*", -1);
+            if (parts.length < 2) {
+                return false;
+            }
+            return handleRequest(parts[0], parts[1], parts.length > 2 ? parts[2] : null,
+                    parts.length > 3 ? parts[3] : null, responses);
+        } else {
+            String[] parts = body.split("\\*", -1);
+            if (parts.length != 3) {
+                return false;
+            }
+            return handleCommand(parts[0], parts[1], parts[2], events);
+        }
+    }
+
+    private boolean handleCommand(String who, String what, String where, List<String> events) {
+        if (!WHO_LIGHTING.equals(who) && !WHO_AUTOMATION.equals(who)) {
+            return WHO_THERMO.equals(who) || WHO_ENERGY.equals(who); // accepted, no state change
+        }
+        int w;
+        try {
+            int hash = what.indexOf('#');
+            w = Integer.parseInt(hash < 0 ? what : what.substring(0, hash));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        for (Device d : matching(who, where)) {
+            if (d.kind == Kind.AUTOMATION) {
+                if (w > 2) {
+                    return false;
+                }
+                d.what = w;
+            } else if (w >= 2 && w <= 10) {
+                d.what = d.kind == Kind.DIMMER ? w : 1;
+            } else {
+                d.what = (w == 0) ? 0 : 1;
+            }
+            events.add(d.stateFrame());
+        }
+        return true;
+    }
+
+    private boolean handleRequest(String who, String where, @Nullable String dim, @Nullable String value,
+            List<String> responses) {
+        switch (who) {
+            case WHO_LIGHTING:
+            case WHO_AUTOMATION:
+                if (dim == null) {
+                    for (Device d : matching(who, where)) {
+                        responses.add(d.stateFrame());
+                    }
+                }
+                return true;
+            case WHO_THERMO:
+                if (dim == null || "0".equals(dim)) {
+                    for (Device d : matching(who, where)) {
+                        responses.add(d.stateFrame());
+                    }
+                }
+                return true;
+            case WHO_ENERGY:
+                if (dim != null && dim.startsWith("#1200") && value != null) {
+                    // active power notification for value minutes
+                    try {
+                        setPowerNotification(where, Integer.parseInt(value));
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                    return true;
+                }
+                for (Device d : matching(who, where)) {
+                    if ("113".equals(dim)) {
+                        responses.add(d.stateFrame());
+                    } else if ("53".equals(dim)) {
+                        responses.add("*#18*" + d.where + "*53*" + d.monthTotal + "##");
+                    } else if ("54".equals(dim)) {
+                        responses.add("*#18*" + d.where + "*54*" + d.dayTotal + "##");
+                    }
+                }
+                return true;
+            case WHO_THERMO_DIAG:
+            case WHO_ENERGY_DIAG:
+                if ("7".equals(dim)) {
+                    String target = WHO_THERMO_DIAG.equals(who) ? WHO_THERMO : WHO_ENERGY;
+                    for (Device d : matching(target, where)) {
+                        responses.add("*#" + who + "*" + d.where + "*7*0##");
+                    }
+                }
+                return true;
+            case WHO_GATEWAY:
+                if ("12".equals(dim)) {
+                    responses.add("*#13**12*0*3*80*1*2*3##");
+                } else if ("15".equals(dim)) {
+                    responses.add("*#13**15*2##");
+                } else if ("16".equals(dim)) {
+                    responses.add("*#13**16*3*1*0##");
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /* devices of the given WHO addressed by where: general/area/APL for lights and automations, 0 (all) or exact */
+    private List<Device> matching(String who, String where) {
+        List<Device> found = new ArrayList<>();
+        String target = WHO_LIGHTING.equals(who) || WHO_AUTOMATION.equals(who) ? null : who;
+        if (target == null) {
+            WhereLightAutom w;
+            try {
+                w = new WhereLightAutom(where);
+            } catch (IllegalArgumentException e) {
+                return found;
+            }
+            for (Device d : deviceList) {
+                if (d.who().equals(who) && (w.isGeneral() || (w.isArea() && d.area == w.getArea())
+                        || (!w.isArea() && !w.isGroup() && d.where.equals(where)))) {
+                    found.add(d);
+                }
+            }
+        } else {
+            for (Device d : deviceList) {
+                if (d.who().equals(who) && ("0".equals(where) || d.where.equals(where))) {
+                    found.add(d);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Changes the state of a random device and returns the corresponding event frame
+     *
+     * @return event frame, or null if the installation is empty
+     */
+    synchronized @Nullable String randomEvent(Random random) {
+        if (deviceList.isEmpty()) {
+            return null;
+        }
+        Device d = deviceList.get(random.nextInt(deviceList.size()));
+        switch (d.kind) {
+            case LIGHT:
+                d.what = 1 - d.what;
+                break;
+            case DIMMER:
+                d.what = d.what == 0 ? 2 + random.nextInt(9) : 0;
+                break;
+            case AUTOMATION:
+                d.what = random.nextInt(3);
+                break;
+            case THERMO_ZONE:
+                d.temperature = Math.round((d.temperature + (random.nextBoolean() ? 0.1 : -0.1)) * 10) / 10.0;
+                break;
+            case ENERGY_METER:
+                return powerEvent(d, random);
+        }
+        return d.stateFrame();
+    }
+
+    private void setPowerNotification(String where, int minutes) {
+        for (Device d : matching(WHO_ENERGY, where)) {
+            if (minutes > 0) {
+                powerNotifications.put(d.where, System.currentTimeMillis() + minutes * 60000L);
+            } else {
+                powerNotifications.remove(d.where);
+            }
+        }
+    }
+
+    /**
+     * Returns active power events, with random power variations, for energy meters with an active power notification
+     */
+    synchronized List<String> powerEvents(Random random) {
+        List<String> events = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        powerNotifications.values().removeIf(until -> until < now);
+        for (String where : powerNotifications.keySet()) {
+            events.add(powerEvent(devices.get(WHO_ENERGY + "*" + where), random));
+        }
+        return events;
+    }
+
+    private String powerEvent(Device d, Random random) {
+        d.power = Math.max(0, d.power + random.nextInt(21) - 10);
+        d.dayTotal += 1;
+        d.monthTotal += 1;
+        return d.stateFrame();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication.serial.emulator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.communication.serial.spi.SerialPort;
+import org.openwebnet4j.communication.serial.spi.SerialPortEventListener;
+
+/**
+ * {@link SerialPort} connected to a {@link ZigBeeDongleEmulator}. Only one port at a time can be open on the same
+ * emulated dongle.
+ *
+ * @author M. Valla - Initial contribution
+ */
+@NonNullByDefault
+public class EmulatedSerialPort implements SerialPort {
+
+    private final String name;
+    private final ZigBeeDongleEmulator dongle;
+    private boolean isOpen = false;
+
+    EmulatedSerialPort(String name, ZigBeeDongleEmulator dongle) {
+        this.name = name;
+        this.dongle = dongle;
+    }
+
+    @Override
+    public synchronized boolean open() {
+        if (!isOpen && dongle.attach()) {
+            isOpen = true;
+        }
+        return isOpen;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (isOpen) {
+            isOpen = false;
+            dongle.detach();
+        }
+    }
+
+    @Override
+    public boolean setSerialPortParams(int baudrate, int dataBits, int stopBits, int parity) {
+        return isOpen && dataBits == DATABITS_8 && stopBits == STOPBITS_1 && parity == PARITY_NONE;
+    }
+
+    @Override
+    public boolean addEventListener(SerialPortEventListener listener) {
+        return isOpen && dongle.setListener(listener);
+    }
+
+    @Override
+    public @Nullable InputStream getInputStream() throws IOException {
+        return isOpen ? dongle.getHostInputStream() : null;
+    }
+
+    @Override
+    public @Nullable OutputStream getOutputStream() throws IOException {
+        return isOpen ? dongle.getHostOutputStream() : null;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
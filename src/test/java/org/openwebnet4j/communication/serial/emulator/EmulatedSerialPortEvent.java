@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication.serial.emulator;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openwebnet4j.communication.serial.spi.SerialPortEvent;
+
+/**
+ * {@link SerialPortEvent} generated by an {@link EmulatedSerialPort}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+@NonNullByDefault
+public class EmulatedSerialPortEvent implements SerialPortEvent {
+
+    private final int eventType;
+
+    /**
+     * Constructor.
+     *
+     * @param eventType the event type
+     */
+    public EmulatedSerialPortEvent(int eventType) {
+        this.eventType = eventType;
+    }
+
+    @Override
+    public int getEventType() {
+        return eventType;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication.serial.emulator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.communication.serial.spi.SerialPort;
+import org.openwebnet4j.communication.serial.spi.SerialPortProvider;
+
+/**
+ * SerialPortProvider returning {@link EmulatedSerialPort}s connected to {@link ZigBeeDongleEmulator}s, to test and
+ * benchmark USBGateway without hardware. It is not registered for SPI discovery: set it with
+ * <code>USBGateway.setSerialPortProvider()</code>.
+ *
+ * @author M. Valla - Initial contribution
+ */
+@NonNullByDefault
+public class EmulatedSerialPortProvider implements SerialPortProvider {
+
+    private final Map<String, ZigBeeDongleEmulator> dongles = new ConcurrentSkipListMap<>();
+
+    /**
+     * Plugs an emulated dongle on a serial port name
+     *
+     * @param portName the serial port name (e.g. <code>/dev/ttyEMU0</code>)
+     * @param dongle the emulated dongle
+     * @return this provider
+     */
+    public EmulatedSerialPortProvider addDongle(String portName, ZigBeeDongleEmulator dongle) {
+        dongles.put(portName, dongle);
+        return this;
+    }
+
+    /**
+     * Removes the emulated dongle plugged on a serial port name
+     *
+     * @param portName the serial port name
+     */
+    public void removeDongle(String portName) {
+        dongles.remove(portName);
+    }
+
+    @Override
+    public @Nullable SerialPort getSerialPort(String portName) {
+        ZigBeeDongleEmulator dongle = dongles.get(portName);
+        return dongle == null ? null : new EmulatedSerialPort(portName, dongle);
+    }
+
+    @Override
+    public Stream<SerialPort> getSerialPorts() {
+        return dongles.entrySet().stream().map(e -> new EmulatedSerialPort(e.getKey(), e.getValue()));
+    }
+}
@@ -0,0 +1,677 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.communication.serial.emulator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openwebnet4j.communication.serial.spi.SerialPortEvent;
+import org.openwebnet4j.communication.serial.spi.SerialPortEventListener;
+import org.openwebnet4j.message.OpenMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory emulator of a ZigBee USB gateway (dongle), connected to the host through an {@link EmulatedSerialPort}.
+ *
+ * <p>
+ * Emulates: keep-connect handshake (<code>*13*60*##</code>), firmware version and MAC address requests, supervisor
+ * mode (<code>*13*66*##</code>), network scan (<code>*13*65*##</code>, followed by the number of products as event)
+ * and product information requests (<code>*#13**66*index##</code>), lighting and automation commands and status
+ * requests on a list of virtual products, and random unsolicited events. Events are sent only in supervisor mode.
+ *
+ * <p>
+ * Firmware versions &lt;= 1.2.3 reproduce the quirks of older gateways handled by USBConnector: no final ACK after
+ * lighting/automation status responses and an ACK after each unit in product information of 2-units products.
+ * Firmware versions &lt;= 1.2.0 also invert automation UP/DOWN.
+ *
+ * <p>
+ * Serial line speed is emulated by pacing frames in both directions at {@link #setBaudRate(int)} (8N1: 10 bits per
+ * byte, default 19200 baud). Frames sent to the host are made available as a whole, each one after its transmission
+ * time, and notified with {@link SerialPortEvent#EVENT_DATA_AVAILABLE}. Requests are processed one at a time, after
+ * their transmission time and {@link #setResponseDelay(Duration)}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+@NonNullByDefault
+public class ZigBeeDongleEmulator implements AutoCloseable {
+
+    public static final int DEFAULT_BAUD_RATE = 19200;
+    public static final String DEFAULT_FIRMWARE_VERSION = "1.3.0";
+
+    private static final int BITS_PER_BYTE = 10; // 8N1: start + 8 data + stop bits
+    private static final long SCAN_DELAY = 50; // ms before the number of products is sent after a scan
+    private static final String OLD_FIRMWARE_VERSION = "1.2.3";
+    private static final String AUTOMATION_BUG_FIRMWARE_VERSION = "1.2.0";
+    private static final int TYPE_SWITCH = 256; // ZIGBEE_ON_OFF_SWITCH
+    private static final int TYPE_SHUTTER = 513; // ZIGBEE_SHUTTER_SWITCH
+
+    private final Logger logger = LoggerFactory.getLogger(ZigBeeDongleEmulator.class);
+
+    private static class Product {
+        final String id;
+        final int deviceType;
+        final int[] state; // WHAT of each unit
+
+        Product(String id, int units, int deviceType) {
+            this.id = id;
+            this.deviceType = deviceType;
+            this.state = new int[units];
+        }
+
+        String who() {
+            return deviceType == TYPE_SHUTTER ? "2" : "1";
+        }
+
+        static String unitWhere(String id, int unit) {
+            return id + (unit < 10 ? "0" : "") + unit + "#9";
+        }
+    }
+
+    private final Map<String, Product> products = new LinkedHashMap<>(); // by ID, in product index order
+    private final Random random = new Random();
+
+    private volatile int baudRate = DEFAULT_BAUD_RATE;
+    private volatile long responseDelayNanos = 0;
+    private volatile String firmwareVersion = DEFAULT_FIRMWARE_VERSION;
+    private volatile double eventRate = 0;
+
+    // state of the current attachment to a serial port
+    private boolean attached = false;
+    private volatile boolean supervisor = false;
+    private @Nullable SerialPortEventListener listener;
+    private @Nullable HostInputStream hostIn;
+    private @Nullable HostOutputStream hostOut;
+    private @Nullable ExecutorService rx;
+    private @Nullable ExecutorService tx;
+    private @Nullable ScheduledExecutorService events;
+
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong framesSent = new AtomicLong();
+
+    /**
+     * Adds an on/off switch product with 1 or 2 units
+     *
+     * @param id ZigBee product ID (WHERE without unit and <code>#9</code>, e.g. <code>7654321</code>)
+     * @param units number of units (1-2)
+     * @return this emulator
+     */
+    public ZigBeeDongleEmulator addSwitch(String id, int units) {
+        if (units < 1 || units > 2) {
+            throw new IllegalArgumentException("units must be 1 or 2");
+        }
+        return addProduct(new Product(id, units, TYPE_SWITCH));
+    }
+
+    /**
+     * Adds a shutter switch product
+     *
+     * @param id ZigBee product ID (WHERE without unit and <code>#9</code>)
+     * @return this emulator
+     */
+    public ZigBeeDongleEmulator addShutter(String id) {
+        return addProduct(new Product(id, 1, TYPE_SHUTTER));
+    }
+
+    private synchronized ZigBeeDongleEmulator addProduct(Product p) {
+        products.put(p.id, p);
+        return this;
+    }
+
+    /**
+     * Returns the number of products in the emulated ZigBee network
+     *
+     * @return number of products
+     */
+    public synchronized int getProductsCount() {
+        return products.size();
+    }
+
+    /**
+     * Sets the emulated serial line speed
+     *
+     * @param baud baud rate, 0 for no pacing
+     */
+    public void setBaudRate(int baud) {
+        this.baudRate = baud;
+    }
+
+    /**
+     * Sets the time taken by the dongle to process each request, after it has been received
+     *
+     * @param delay processing delay
+     */
+    public void setResponseDelay(Duration delay) {
+        this.responseDelayNanos = delay.toNanos();
+    }
+
+    /**
+     * Sets the firmware version returned by the dongle, e.g. <code>1.2.3</code>. Older versions reproduce the quirks
+     * of older gateways.
+     *
+     * @param version firmware version
+     */
+    public void setFirmwareVersion(String version) {
+        this.firmwareVersion = version;
+    }
+
+    /**
+     * Sets the rate of random unsolicited events (product state changes), sent in supervisor mode
+     *
+     * @param eventsPerSecond events per second, 0 to disable random events
+     */
+    public synchronized void setEventRate(double eventsPerSecond) {
+        this.eventRate = eventsPerSecond;
+        ScheduledExecutorService ev = events;
+        if (ev != null) {
+            scheduleRandomEvents(ev);
+        }
+    }
+
+    /**
+     * Sends an unsolicited event frame to the host, after its transmission time. The frame is sent only in supervisor
+     * mode, like events of real products.
+     *
+     * @param frame the event frame, e.g. <code>*1*1*765432101#9##</code>
+     */
+    public void sendEvent(String frame) {
+        if (supervisor) {
+            transmit(frame);
+        }
+    }
+
+    /**
+     * Returns the current state (WHAT) of a product unit
+     *
+     * @param id product ID
+     * @param unit unit (1-2)
+     * @return the unit state, or -1 if the product or unit does not exist
+     */
+    public synchronized int getState(String id, int unit) {
+        Product p = products.get(id);
+        return (p == null || unit < 1 || unit > p.state.length) ? -1 : p.state[unit - 1];
+    }
+
+    /**
+     * Returns true if the host has enabled supervisor mode
+     *
+     * @return true if supervisor mode is on
+     */
+    public boolean isSupervisor() {
+        return supervisor;
+    }
+
+    /**
+     * Returns the number of frames received from the host
+     *
+     * @return frames received
+     */
+    public long getFramesReceived() {
+        return framesReceived.get();
+    }
+
+    /**
+     * Returns the number of frames sent to the host
+     *
+     * @return frames sent
+     */
+    public long getFramesSent() {
+        return framesSent.get();
+    }
+
+    /**
+     * Emulates the removal of the dongle from the USB port: {@link SerialPortEvent#EVENT_PORT_DISCONNECTED} is sent
+     * to the listener and streams are closed
+     */
+    public void unplug() {
+        SerialPortEventListener l;
+        synchronized (this) {
+            l = listener;
+        }
+        detach();
+        if (l != null) {
+            l.serialEvent(new EmulatedSerialPortEvent(SerialPortEvent.EVENT_PORT_DISCONNECTED));
+        }
+    }
+
+    @Override
+    public void close() {
+        detach();
+    }
+
+    /* opens the dongle for a serial port: returns false if it is already open */
+    synchronized boolean attach() {
+        if (attached) {
+            return false;
+        }
+        attached = true;
+        supervisor = false;
+        hostIn = new HostInputStream();
+        hostOut = new HostOutputStream();
+        rx = Executors.newSingleThreadExecutor(r -> newThread(r, "OWN-USB-Emu-RX"));
+        tx = Executors.newSingleThreadExecutor(r -> newThread(r, "OWN-USB-Emu-TX"));
+        ScheduledExecutorService ev = Executors
+                .newSingleThreadScheduledExecutor(r -> newThread(r, "OWN-USB-Emu-Events"));
+        events = ev;
+        scheduleRandomEvents(ev);
+        logger.debug("##USB-EMU## attached (firmware={}, products={})", firmwareVersion, products.size());
+        return true;
+    }
+
+    private static Thread newThread(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    synchronized void detach() {
+        if (!attached) {
+            return;
+        }
+        attached = false;
+        listener = null;
+        HostInputStream in = hostIn;
+        if (in != null) {
+            in.close();
+        }
+        for (ExecutorService ex : new ExecutorService[] { rx, tx, events }) {
+            if (ex != null) {
+                ex.shutdownNow();
+            }
+        }
+        rx = null;
+        tx = null;
+        events = null;
+        logger.debug("##USB-EMU## detached");
+    }
+
+    synchronized boolean setListener(SerialPortEventListener l) {
+        if (!attached || listener != null) {
+            return false;
+        }
+        listener = l;
+        return true;
+    }
+
+    synchronized InputStream getHostInputStream() throws IOException {
+        HostInputStream in = hostIn;
+        if (!attached || in == null) {
+            throw new IOException("Emulated dongle is not attached");
+        }
+        return in;
+    }
+
+    synchronized OutputStream getHostOutputStream() throws IOException {
+        HostOutputStream out = hostOut;
+        if (!attached || out == null) {
+            throw new IOException("Emulated dongle is not attached");
+        }
+        return out;
+    }
+
+    private void scheduleRandomEvents(ScheduledExecutorService ev) {
+        // a new executor is created at each attach: here we only need to (re)start the random events task
+        if (eventRate > 0) {
+            long period = (long) (TimeUnit.SECONDS.toNanos(1) / eventRate);
+            ev.scheduleAtFixedRate(this::randomEvent, period, period, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void randomEvent() {
+        if (!supervisor) {
+            return;
+        }
+        String ev;
+        synchronized (this) {
+            if (products.isEmpty()) {
+                return;
+            }
+            List<Product> list = new ArrayList<>(products.values());
+            Product p = list.get(random.nextInt(list.size()));
+            int u = random.nextInt(p.state.length);
+            p.state[u] = "2".equals(p.who()) ? random.nextInt(3) : 1 - p.state[u];
+            ev = stateFrame(p, u + 1);
+        }
+        transmit(ev);
+    }
+
+    /* time to transmit n bytes on the serial line */
+    private long transmitNanos(int bytes) {
+        int baud = baudRate;
+        return baud > 0 ? TimeUnit.SECONDS.toNanos(1) * bytes * BITS_PER_BYTE / baud : 0;
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+
+    /* a frame has been written by the host */
+    private void received(String frame) {
+        framesReceived.incrementAndGet();
+        ExecutorService ex = rx;
+        if (ex != null && !ex.isShutdown()) {
+            ex.execute(() -> {
+                try {
+                    sleepNanos(transmitNanos(frame.length()) + responseDelayNanos);
+                    process(frame);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+
+    /* sends frames to the host as a single burst, after their transmission time */
+    private void transmit(String frames) {
+        ExecutorService ex = tx;
+        if (ex == null || ex.isShutdown()) {
+            return;
+        }
+        ex.execute(() -> {
+            try {
+                sleepNanos(transmitNanos(frames.length()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            HostInputStream in;
+            SerialPortEventListener l;
+            synchronized (this) {
+                in = hostIn;
+                l = listener;
+            }
+            if (in != null) {
+                in.append(frames.getBytes(StandardCharsets.US_ASCII));
+                framesSent.addAndGet(frames.split(OpenMessage.FRAME_END).length);
+                if (l != null) {
+                    l.serialEvent(new EmulatedSerialPortEvent(SerialPortEvent.EVENT_DATA_AVAILABLE));
+                }
+            }
+        });
+    }
+
+    private void process(String frame) {
+        List<String> eventFrames = new ArrayList<>();
+        String response = handle(frame, eventFrames);
+        logger.trace("##USB-EMU## {} -> {}", frame, response);
+        transmit(response);
+        if (supervisor) {
+            for (String ev : eventFrames) {
+                transmit(ev);
+            }
+        }
+    }
+
+    /* handles a frame from the host, returning the whole response and adding events to eventFrames */
+    private synchronized String handle(String frame, List<String> eventFrames) {
+        String ack = OpenMessage.FRAME_ACK;
+        if (!frame.startsWith("*") || frame.length() < 6) {
+            return OpenMessage.FRAME_NACK;
+        }
+        String body = frame.substring(1, frame.length() - 2);
+        boolean request = body.startsWith("#");
+        String[] parts = (request ? body.substring(1) : body).split("\\*", -1);
+        if ("13".equals(parts[0])) {
+            return handleGatewayMgmt(request, parts);
+        }
+        if (!"1".equals(parts[0]) && !"2".equals(parts[0])) {
+            return OpenMessage.FRAME_NACK;
+        }
+        boolean automationBug = compareVersion(firmwareVersion, AUTOMATION_BUG_FIRMWARE_VERSION) <= 0;
+        String where = parts[request ? 1 : 2];
+        if (parts.length != (request ? 2 : 3) || !where.endsWith("#9") || where.length() < 5) {
+            return OpenMessage.FRAME_NACK;
+        }
+        String addr = where.substring(0, where.length() - 2);
+        Product p = products.get(addr.substring(0, addr.length() - 2));
+        int unit;
+        try {
+            unit = Integer.parseInt(addr.substring(addr.length() - 2));
+        } catch (NumberFormatException e) {
+            return OpenMessage.FRAME_NACK;
+        }
+        if (p == null || !p.who().equals(parts[0]) || unit > p.state.length) {
+            return OpenMessage.FRAME_NACK;
+        }
+        int from = unit == 0 ? 1 : unit;
+        int to = unit == 0 ? p.state.length : unit;
+        StringBuilder resp = new StringBuilder();
+        if (request) {
+            for (int u = from; u <= to; u++) {
+                resp.append(stateFrame(p, u));
+            }
+            if (compareVersion(firmwareVersion, OLD_FIRMWARE_VERSION) > 0) {
+                resp.append(ack);
+            }
+            return resp.toString();
+        }
+        int what;
+        try {
+            what = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            return OpenMessage.FRAME_NACK;
+        }
+        if ("2".equals(p.who())) {
+            if (what > 2) {
+                return OpenMessage.FRAME_NACK;
+            }
+            what = automationBug ? invertUpDown(what) : what;
+        } else if (what > 1) {
+            return OpenMessage.FRAME_NACK;
+        }
+        for (int u = from; u <= to; u++) {
+            p.state[u - 1] = what;
+            eventFrames.add(stateFrame(p, u));
+        }
+        return ack;
+    }
+
+    private String handleGatewayMgmt(boolean request, String[] parts) {
+        String ack = OpenMessage.FRAME_ACK;
+        if (!request && parts.length == 3) {
+            switch (parts[1]) {
+                case "60": // keep connect
+                    return ack;
+                case "66": // supervisor
+                    supervisor = true;
+                    return ack;
+                case "65": // scan
+                    ScheduledExecutorService ev = events;
+                    if (ev != null) {
+                        int n = products.size();
+                        ev.schedule(() -> transmit("*#13**67*" + n + "##"), SCAN_DELAY, TimeUnit.MILLISECONDS);
+                    }
+                    return ack;
+                default:
+                    return OpenMessage.FRAME_NACK;
+            }
+        } else if (request && parts.length >= 3 && parts[1].isEmpty()) {
+            switch (parts[2]) {
+                case "12": // MAC address
+                    return "*#13**12*0*25*0*0*1*35*69*103##" + ack;
+                case "16": // firmware version
+                    return "*#13**16*" + firmwareVersion.replace('.', '*') + "##" + ack;
+                case "66": // product information
+                    if (parts.length == 4) {
+                        return productInfo(parts[3]);
+                    }
+                    return OpenMessage.FRAME_NACK;
+                default:
+                    return OpenMessage.FRAME_NACK;
+            }
+        }
+        return OpenMessage.FRAME_NACK;
+    }
+
+    private String productInfo(String indexStr) {
+        int index;
+        try {
+            index = Integer.parseInt(indexStr);
+        } catch (NumberFormatException e) {
+            return OpenMessage.FRAME_NACK;
+        }
+        if (index < 0 || index >= products.size()) {
+            return OpenMessage.FRAME_NACK;
+        }
+        Product p = new ArrayList<>(products.values()).get(index);
+        boolean oldFirmware = compareVersion(firmwareVersion, OLD_FIRMWARE_VERSION) <= 0;
+        StringBuilder resp = new StringBuilder();
+        for (int u = 1; u <= p.state.length; u++) {
+            resp.append("*#13*").append(Product.unitWhere(p.id, u)).append("*66*").append(index).append('*')
+                    .append(p.state.length).append("*0*0*").append(p.deviceType).append("##");
+            if (oldFirmware && p.state.length > 1) {
+                resp.append(OpenMessage.FRAME_ACK); // older gateways send an ACK after each unit
+            }
+        }
+        if (!(oldFirmware && p.state.length > 1)) {
+            resp.append(OpenMessage.FRAME_ACK);
+        }
+        return resp.toString();
+    }
+
+    private String stateFrame(Product p, int unit) {
+        int what = p.state[unit - 1];
+        if ("2".equals(p.who()) && compareVersion(firmwareVersion, AUTOMATION_BUG_FIRMWARE_VERSION) <= 0) {
+            what = invertUpDown(what);
+        }
+        return "*" + p.who() + "*" + what + "*" + Product.unitWhere(p.id, unit) + "##";
+    }
+
+    private static int invertUpDown(int what) {
+        return what == 1 ? 2 : (what == 2 ? 1 : what);
+    }
+
+    private static int compareVersion(String v1, String v2) {
+        String[] a = v1.split("\\.");
+        String[] b = v2.split("\\.");
+        for (int i = 0; i < Math.max(a.length, b.length); i++) {
+            int x = i < a.length ? Integer.parseInt(a[i]) : 0;
+            int y = i < b.length ? Integer.parseInt(b[i]) : 0;
+            if (x != y) {
+                return Integer.compare(x, y);
+            }
+        }
+        return 0;
+    }
+
+    /* stream of bytes sent by the dongle to the host */
+    private static class HostInputStream extends InputStream {
+        private byte[] buf = new byte[1024];
+        private int start = 0;
+        private int end = 0;
+        private boolean closed = false;
+
+        synchronized void append(byte[] bytes) {
+            if (closed) {
+                return;
+            }
+            if (end + bytes.length > buf.length) {
+                int size = end - start;
+                byte[] nb = (size + bytes.length > buf.length) ? new byte[Math.max(buf.length * 2, size + bytes.length)]
+                        : buf;
+                System.arraycopy(buf, start, nb, 0, size);
+                buf = nb;
+                start = 0;
+                end = size;
+            }
+            System.arraycopy(bytes, 0, buf, end, bytes.length);
+            end += bytes.length;
+            notifyAll();
+        }
+
+        private void waitData() throws IOException {
+            try {
+                while (start == end && !closed) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        @Override
+        public synchronized int available() {
+            return end - start;
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            waitData();
+            return start == end ? -1 : buf[start++] & 0xFF;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            waitData();
+            if (start == end) {
+                return -1;
+            }
+            int n = Math.min(len, end - start);
+            System.arraycopy(buf, start, b, off, n);
+            start += n;
+            return n;
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    /* stream of bytes sent by the host to the dongle: complete frames are passed to the dongle */
+    private class HostOutputStream extends OutputStream {
+        private final StringBuilder frame = new StringBuilder();
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            synchronized (ZigBeeDongleEmulator.this) {
+                if (!attached || hostOut != this) {
+                    throw new IOException("Emulated serial port is closed");
+                }
+            }
+            char c = (char) (b & 0xFF);
+            frame.append(c);
+            int len = frame.length();
+            if (c == '#' && len >= 2 && frame.charAt(len - 2) == '#') {
+                String f = frame.toString();
+                frame.setLength(0);
+                received(f);
+            }
+        }
+    }
+}
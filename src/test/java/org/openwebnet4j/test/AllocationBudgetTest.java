@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openwebnet4j.BUSGateway;
+import org.openwebnet4j.GatewayListener;
+import org.openwebnet4j.OpenDeviceType;
+import org.openwebnet4j.communication.CommandCache;
+import org.openwebnet4j.communication.EventJournal;
+import org.openwebnet4j.communication.FrameChannel;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Where;
+
+/**
+ * Allocation budget tests for the hot paths: frame parsing, request messages creation, command cache hits, frame
+ * reading, event journaling and event dispatching. Bytes allocated per operation by the threads involved are measured with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} and must stay below a budget, so that
+ * allocation regressions break the build.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class AllocationBudgetTest {
+
+    private static final int WARMUP_OPS = 20000;
+    private static final int OPS = 10000;
+
+    // budgets in bytes per operation, with some margin over the measured values
+    private static final long PARSE_BUDGET = 3000;
+    private static final long ENCODE_BUDGET = 4000;
+    private static final long PREPARE_HIT_BUDGET = 16;
+    private static final long READ_BUDGET = 256;
+    private static final long JOURNAL_APPEND_BUDGET = 16;
+    private static final long DISPATCH_BUDGET = 512;
+
+    private static final String[] FRAMES = { "*1*1*12##", "*1*0*0311##", "*2*1*41##", "*#4*1*0*0215##",
+            "*#18*51*113*1250##", "*#1*12*1##", "*#*1##" };
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static Level level;
+
+    @FunctionalInterface
+    private interface Op {
+        void run(int i) throws Exception;
+    }
+
+    /** Subclass to access the protected FrameChannel API */
+    private static class TestChannel extends FrameChannel {
+        TestChannel(InputStream in) {
+            super(in, new ByteArrayOutputStream(), "TEST");
+        }
+
+        String read() throws IOException {
+            return readFrames();
+        }
+    }
+
+    /* counts events and records the notifier thread */
+    private static class NoOpListener implements GatewayListener {
+        final AtomicLong events = new AtomicLong();
+        volatile @Nullable Thread notifier;
+
+        @Override
+        public void onConnected() {
+        }
+
+        @Override
+        public void onConnectionError(OWNException error) {
+        }
+
+        @Override
+        public void onConnectionClosed() {
+        }
+
+        @Override
+        public void onDisconnected(OWNException error) {
+        }
+
+        @Override
+        public void onReconnected() {
+        }
+
+        @Override
+        public void onEventMessage(OpenMessage msg) {
+            notifier = Thread.currentThread();
+            events.incrementAndGet();
+        }
+
+        @Override
+        public void onNewDevice(Where where, OpenDeviceType deviceType, BaseOpenMessage message) {
+        }
+
+        @Override
+        public void onDiscoveryCompleted() {
+        }
+    }
+
+    @BeforeAll
+    public static void setUp() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        assumeTrue(mx instanceof com.sun.management.ThreadMXBean, "thread allocated bytes not supported");
+        threads = (com.sun.management.ThreadMXBean) mx;
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "thread allocated bytes not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        // log statements are not part of the budget
+        level = LogManager.getLogger("org.openwebnet4j").getLevel();
+        Configurator.setLevel("org.openwebnet4j", Level.WARN);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (level != null) {
+            Configurator.setLevel("org.openwebnet4j", level);
+        }
+    }
+
+    /* returns bytes allocated per operation by the current thread, after a warmup */
+    private static long allocatedPerOp(String name, Op op) throws Exception {
+        for (int i = 0; i < WARMUP_OPS; i++) {
+            op.run(i);
+        }
+        long id = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < OPS; i++) {
+            op.run(i);
+        }
+        long perOp = (threads.getThreadAllocatedBytes(id) - start) / OPS;
+        System.out.println("AllocationBudgetTest: " + name + " = " + perOp + " bytes/op");
+        return perOp;
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        long bytes = allocatedPerOp("parse", i -> BaseOpenMessage.parse(FRAMES[i % FRAMES.length]));
+        assertTrue(bytes <= PARSE_BUDGET, "parse allocates " + bytes + " bytes/frame, budget " + PARSE_BUDGET);
+    }
+
+    @Test
+    public void testEncodeCommand() throws Exception {
+        String[] wheres = new String[9];
+        for (int i = 0; i < wheres.length; i++) {
+            wheres[i] = String.valueOf(11 + i);
+        }
+        long bytes = allocatedPerOp("encode", i -> Lighting.requestTurnOn(wheres[i % wheres.length]).getFrameValue());
+        assertTrue(bytes <= ENCODE_BUDGET, "encode allocates " + bytes + " bytes/command, budget " + ENCODE_BUDGET);
+    }
+
+    @Test
+    public void testPrepareCachedCommand() throws Exception {
+        CommandCache cache = new CommandCache();
+        String[] frames = new String[9];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = Lighting.requestTurnOn(String.valueOf(11 + i)).getFrameValue();
+        }
+        long bytes = allocatedPerOp("prepare (hit)", i -> cache.prepare(frames[i % frames.length]));
+        assertEquals(frames.length, cache.getMisses());
+        assertTrue(bytes <= PREPARE_HIT_BUDGET,
+                "prepare allocates " + bytes + " bytes/cached command, budget " + PREPARE_HIT_BUDGET);
+    }
+
+    @Test
+    public void testReadFrames() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < WARMUP_OPS + OPS; i++) {
+            sb.append(FRAMES[i % FRAMES.length]);
+        }
+        TestChannel ch = new TestChannel(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        long bytes = allocatedPerOp("readFrames", i -> assertNotNull(ch.read()));
+        assertTrue(bytes <= READ_BUDGET, "readFrames allocates " + bytes + " bytes/frame, budget " + READ_BUDGET);
+    }
+
+    /* waits until the listener has been notified of all events */
+    private static void awaitNotified(NoOpListener listener, long events) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (listener.events.get() < events && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(events, listener.events.get(), "events not notified");
+    }
+
+    @Test
+    public void testJournalAppend(@TempDir Path dir) throws Exception {
+        // segment large enough for all frames: no segment rollover while measuring
+        try (EventJournal journal = new EventJournal(dir, 4 * 1024 * 1024, 2, 0)) {
+            long bytes = allocatedPerOp("journal append", i -> journal.append(FRAMES[i % FRAMES.length]));
+            assertEquals(WARMUP_OPS + OPS, journal.getAppended());
+            assertTrue(bytes <= JOURNAL_APPEND_BUDGET,
+                    "journal append allocates " + bytes + " bytes/frame, budget " + JOURNAL_APPEND_BUDGET);
+        }
+    }
+
+    @Test
+    public void testDispatchEvent() throws Exception {
+        BUSGateway gw = new BUSGateway("localhost", 20000, null);
+        try {
+            AtomicLong count = new AtomicLong();
+            gw.subscribe(Lighting.class, l -> count.incrementAndGet());
+            NoOpListener listener = new NoOpListener();
+            gw.subscribe(listener);
+            OpenMessage[] events = new OpenMessage[FRAMES.length];
+            for (int i = 0; i < FRAMES.length; i++) {
+                events[i] = BaseOpenMessage.parse(FRAMES[i]);
+            }
+            // events are dispatched to subscriptions on the calling thread and to listeners on the notifier thread:
+            // count allocations of both, after all events have been notified
+            for (int i = 0; i < WARMUP_OPS; i++) {
+                gw.onMessage(events[i % events.length]);
+            }
+            awaitNotified(listener, WARMUP_OPS);
+            Thread notifier = listener.notifier;
+            assertNotNull(notifier);
+            long[] ids = { Thread.currentThread().getId(), notifier.getId() };
+            long start = threads.getThreadAllocatedBytes(ids[0]) + threads.getThreadAllocatedBytes(ids[1]);
+            for (int i = 0; i < OPS; i++) {
+                gw.onMessage(events[i % events.length]);
+            }
+            awaitNotified(listener, WARMUP_OPS + OPS);
+            assertSame(notifier, listener.notifier);
+            long bytes = (threads.getThreadAllocatedBytes(ids[0]) + threads.getThreadAllocatedBytes(ids[1]) - start)
+                    / OPS;
+            System.out.println("AllocationBudgetTest: dispatch = " + bytes + " bytes/op");
+            assertTrue(count.get() > 0);
+            assertTrue(bytes <= DISPATCH_BUDGET,
+                    "dispatch allocates " + bytes + " bytes/event, budget " + DISPATCH_BUDGET);
+        } finally {
+            gw.closeConnection();
+        }
+    }
+}
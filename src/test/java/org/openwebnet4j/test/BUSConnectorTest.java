@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.communication.Auth;
+import org.openwebnet4j.communication.BUSConnector;
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.message.OpenMessage;
+
+/**
+ * Tests for {@link BUSConnector} against a scripted gateway, independent of the BUS gateway simulator
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class BUSConnectorTest {
+
+    @FunctionalInterface
+    private interface Script {
+        void run(InputStream in, OutputStream out) throws Exception;
+    }
+
+    /* accepts a single connection and runs the script on it */
+    private static class ScriptedGateway implements AutoCloseable {
+        private final ServerSocket server;
+        private final Thread thread;
+        private volatile Throwable error;
+
+        ScriptedGateway(Script script) throws IOException {
+            server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            thread = new Thread(() -> {
+                try (Socket sk = server.accept()) {
+                    script.run(sk.getInputStream(), sk.getOutputStream());
+                } catch (Throwable e) {
+                    error = e;
+                }
+            }, "ScriptedGateway");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return server.getLocalPort();
+        }
+
+        /* waits for the script to complete and rethrows its failure, if any */
+        void await() throws Throwable {
+            thread.join(5000);
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            sb.append((char) c);
+            int len = sb.length();
+            if (len > 2 && sb.charAt(len - 1) == '#' && sb.charAt(len - 2) == '#') {
+                return sb.toString();
+            }
+        }
+        throw new EOFException("connection closed, received: " + sb);
+    }
+
+    private static void send(OutputStream out, String frame) throws IOException {
+        out.write(frame.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    /* gives access to the protected Auth helpers */
+    private static class AuthVectors extends Auth {
+        static String hash(String algorithm, String message) {
+            return calcHash(algorithm, message);
+        }
+
+        static String toHex(String digits) {
+            return digitToHex(digits);
+        }
+
+        static String toDigits(String hex) {
+            return hexToDigit(hex);
+        }
+    }
+
+    /* reference implementations, independent of Auth */
+    private static String hash(String algorithm, String message) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance(algorithm).digest(message.getBytes(StandardCharsets.UTF_8))) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static String toDigits(String hex) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : hex.toCharArray()) {
+            int v = Character.digit(c, 16);
+            sb.append(v / 10).append(v % 10);
+        }
+        return sb.toString();
+    }
+
+    private static String toHex(String digits) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < digits.length(); i += 2) {
+            sb.append(Character.forDigit(Integer.parseInt(digits.substring(i, i + 2)), 16));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testBusyNackIsFinalResponse() throws Throwable {
+        try (ScriptedGateway gw = new ScriptedGateway((in, out) -> {
+            send(out, OpenMessage.FRAME_ACK);
+            assertEquals(BUSConnector.CMD_SESSION, read(in));
+            send(out, OpenMessage.FRAME_ACK);
+            assertEquals("*1*1*11##", read(in));
+            send(out, OpenMessage.FRAME_BUSY_NACK);
+        })) {
+            BUSConnector conn = new BUSConnector("localhost", gw.getPort(), null);
+            conn.openCmdConn();
+            try {
+                long start = System.currentTimeMillis();
+                Response res = conn.sendCommandSynch("*1*1*11##");
+                // before BUSY_NACK was final the request waited for the CMD read timeout (30s)
+                assertTrue(System.currentTimeMillis() - start < 5000);
+                assertTrue(res.getFinalResponse().isBUSY_NACK());
+                assertFalse(res.isSuccess());
+                gw.await();
+            } finally {
+                conn.disconnect();
+            }
+        }
+    }
+
+    @Test
+    public void testHashVectors() {
+        // FIPS 180 test vectors
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", AuthVectors.hash("SHA-1", "abc"));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                AuthVectors.hash("SHA-256", "abc"));
+        assertEquals("8cb2237d0679ca88db6464eac60da96345513964", AuthVectors.hash("SHA-1", "12345"));
+        // each hex digit is sent as 2 decimal digits
+        assertEquals("0af0", AuthVectors.toHex("00101500"));
+        assertEquals("00101500", AuthVectors.toDigits("0af0"));
+    }
+
+    @Test
+    public void testHmacSha1Handshake() throws Throwable {
+        testHmacHandshake(BUSConnector.HMAC_SHA1, "SHA-1");
+    }
+
+    @Test
+    public void testHmacSha256Handshake() throws Throwable {
+        testHmacHandshake(BUSConnector.HMAC_SHA2, "SHA-256");
+    }
+
+    private void testHmacHandshake(String hmacType, String algorithm) throws Throwable {
+        final String pwd = "12345";
+        final String a = "736F70653E";
+        final String b = "636F70653E";
+        try (ScriptedGateway gw = new ScriptedGateway((in, out) -> {
+            send(out, OpenMessage.FRAME_ACK);
+            assertEquals(BUSConnector.CMD_SESSION, read(in));
+            send(out, hmacType);
+            assertEquals(OpenMessage.FRAME_ACK, read(in));
+            String ra = hash(algorithm, "ra");
+            send(out, "*#" + toDigits(ra) + "##");
+            Matcher m = Pattern.compile("\\*#(\\d+)\\*(\\d+)##").matcher(read(in));
+            assertTrue(m.matches());
+            String rb = toHex(m.group(1));
+            assertEquals(ra.length(), rb.length(), "Rb must be a " + algorithm + " digest");
+            String kab = hash(algorithm, pwd);
+            assertEquals(hash(algorithm, ra + rb + a + b + kab), toHex(m.group(2)));
+            send(out, "*#" + toDigits(hash(algorithm, ra + rb + kab)) + "##");
+            assertEquals(OpenMessage.FRAME_ACK, read(in));
+        })) {
+            BUSConnector conn = new BUSConnector("localhost", gw.getPort(), pwd);
+            try {
+                conn.openCmdConn();
+                gw.await();
+                assertTrue(conn.isCmdConnected());
+            } finally {
+                conn.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.BUSGateway;
+import org.openwebnet4j.communication.BUSGatewaySimulator;
+import org.openwebnet4j.communication.BUSGatewaySimulator.AuthMode;
+import org.openwebnet4j.communication.OWNAuthException;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.communication.VirtualInstallation;
+import org.openwebnet4j.message.Automation;
+import org.openwebnet4j.message.EnergyManagement;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Thermoregulation;
+
+/**
+ * Tests for {@link BUSGatewaySimulator}, using a real {@link BUSGateway}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class BUSGatewaySimulatorTest {
+
+    private static void waitFor(List<?> list, int size) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (list.size() < size && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void testCommandsStatusAndEvents() throws Exception {
+        VirtualInstallation inst = VirtualInstallation.generate(5, 2, 2, 1).addDimmer("0311");
+        try (BUSGatewaySimulator sim = new BUSGatewaySimulator(inst)) {
+            sim.start();
+            BUSGateway gw = new BUSGateway(sim.getHost(), sim.getPort(), null);
+            List<Lighting> events = Collections.synchronizedList(new ArrayList<>());
+            gw.subscribe(Lighting.class, events::add);
+            gw.connect();
+            try {
+                assertTrue(gw.isConnected());
+                assertEquals("3.1.0", gw.getFirmwareVersion());
+
+                Response res = gw.send(Lighting.requestTurnOn("12"));
+                assertTrue(res.isSuccess());
+                waitFor(events, 1);
+                assertEquals("*1*1*12##", events.get(0).getFrameValue());
+                assertEquals("*1*1*12##", inst.getState("1", "12"));
+
+                // area command: one event per light in area 1
+                events.clear();
+                gw.send(Lighting.requestTurnOff("1"));
+                waitFor(events, 5);
+                assertEquals(5, events.size());
+
+                res = gw.send(Lighting.requestStatus("0"));
+                assertTrue(res.isSuccess());
+                assertEquals(7, res.getResponseMessages().size()); // 6 lights + ACK
+
+                res = gw.send(Automation.requestStatus("0"));
+                assertEquals(3, res.getResponseMessages().size());
+
+                res = gw.send(Thermoregulation.requestTemperature("2"));
+                assertEquals("*#4*2*0*0200##", res.getResponseMessages().get(0).getFrameValue());
+
+                res = gw.send(EnergyManagement.requestActivePower("51"));
+                assertEquals("*#18*51*113*100##", res.getResponseMessages().get(0).getFrameValue());
+
+                // unknown device: ACK only
+                res = gw.send(Lighting.requestStatus("99"));
+                assertTrue(res.isSuccess());
+                assertEquals(1, res.getResponseMessages().size());
+            } finally {
+                gw.closeConnection();
+            }
+        }
+    }
+
+    @Test
+    public void testAuthModes() throws Exception {
+        for (AuthMode mode : AuthMode.values()) {
+            String pwd = mode == AuthMode.OPEN ? "12345" : "abcde123";
+            try (BUSGatewaySimulator sim = new BUSGatewaySimulator(VirtualInstallation.generate(2, 0, 0, 0))) {
+                sim.setAuth(mode, mode == AuthMode.NONE ? null : pwd);
+                sim.setCmdSessionAltOnly(mode == AuthMode.HMAC_SHA2);
+                sim.start();
+                BUSGateway gw = new BUSGateway(sim.getHost(), sim.getPort(), pwd);
+                gw.connect();
+                try {
+                    assertTrue(gw.isConnected(), "auth " + mode);
+                    assertTrue(gw.send(Lighting.requestTurnOn("11")).isSuccess(), "auth " + mode);
+                    assertEquals(1, sim.getActiveMonSessions());
+                } finally {
+                    gw.closeConnection();
+                }
+                if (mode != AuthMode.NONE) {
+                    BUSGateway wrong = new BUSGateway(sim.getHost(), sim.getPort(), "98765");
+                    assertThrows(OWNAuthException.class, wrong::connect, "auth " + mode);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIdleCmdTimeoutAndEventRate() throws Exception {
+        try (BUSGatewaySimulator sim = new BUSGatewaySimulator(VirtualInstallation.generate(3, 3, 3, 3))) {
+            sim.setIdleCmdTimeout(Duration.ofMillis(300));
+            sim.setEventRate(100);
+            sim.start();
+            BUSGateway gw = new BUSGateway(sim.getHost(), sim.getPort(), null);
+            List<OpenMessage> events = Collections.synchronizedList(new ArrayList<>());
+            gw.subscribe(Lighting.class, events::add);
+            gw.subscribe(Automation.class, events::add);
+            gw.subscribe(Thermoregulation.class, events::add);
+            gw.subscribe(EnergyManagement.class, events::add);
+            gw.connect();
+            try {
+                waitFor(events, 20);
+                assertTrue(events.size() >= 20);
+
+                Thread.sleep(600);
+                assertEquals(0, sim.getActiveCmdSessions());
+                // CMD session closed by the simulator: a new one is opened
+                assertTrue(gw.send(Lighting.requestTurnOn("11")).isSuccess());
+                assertEquals(2, sim.getCmdSessions());
+            } finally {
+                gw.closeConnection();
+            }
+        }
+    }
+
+    @Test
+    public void testFaultInjection() throws Exception {
+        try (BUSGatewaySimulator sim = new BUSGatewaySimulator(VirtualInstallation.generate(3, 0, 0, 0))) {
+            sim.start();
+            BUSGateway gw = new BUSGateway(sim.getHost(), sim.getPort(), null);
+            gw.connect();
+            try {
+                sim.setFaultRates(0, 1, 0);
+                Response res = gw.send(Lighting.requestTurnOn("11"));
+                assertTrue(res.getFinalResponse().isBUSY_NACK());
+                sim.setFaultRates(1, 0, 0);
+                assertTrue(gw.send(Lighting.requestTurnOn("11")).getFinalResponse().isNACK());
+                sim.setFaultRates(0, 0, 0);
+                assertTrue(gw.send(Lighting.requestTurnOn("11")).isSuccess());
+                assertEquals(2, sim.getFaults());
+
+                sim.setRefuseSessions(true);
+                BUSGateway other = new BUSGateway(sim.getHost(), sim.getPort(), null);
+                assertThrows(OWNException.class, other::connect);
+            } finally {
+                gw.closeConnection();
+            }
+        }
+    }
+}
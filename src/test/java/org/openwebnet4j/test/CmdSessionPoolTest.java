@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.communication.CmdSessionPool;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.OpenConnector;
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.FrameException;
+
+/**
+ * Tests for {@link CmdSessionPool}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class CmdSessionPoolTest {
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger maxInFlight = new AtomicInteger();
+
+    /* connector that takes some time to answer, and that can refuse CMD connections */
+    private static class SlowConnector extends OpenConnector {
+        private final boolean refuse;
+
+        SlowConnector(boolean connected, boolean refuse) {
+            this.isCmdConnected = connected;
+            this.refuse = refuse;
+        }
+
+        @Override
+        public void openCmdConn() throws OWNException {
+            if (refuse) {
+                throw new OWNException("too many sessions");
+            }
+            isCmdConnected = true;
+        }
+
+        @Override
+        public void openMonConn() throws OWNException {
+        }
+
+        @Override
+        protected Response sendCommandSynchInternal(String frame) throws IOException, FrameException {
+            int n = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(n, Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return new Response(BaseOpenMessage.parse(frame));
+        }
+
+        @Override
+        protected void processFrame(String newFrame) {
+        }
+    }
+
+    @Test
+    public void testSessionsUpToGatewayLimit() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        // gateway accepts only one additional session
+        CmdSessionPool pool = new CmdSessionPool(new SlowConnector(true, false),
+                () -> new SlowConnector(false, created.incrementAndGet() > 1), 4);
+        ExecutorService exec = Executors.newFixedThreadPool(6);
+        List<Future<Response>> results = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            results.add(exec.submit(() -> pool.send("*#1*0##", null)));
+        }
+        for (Future<Response> r : results) {
+            assertNotNull(r.get());
+        }
+        exec.shutdown();
+        assertEquals(2, pool.getSessions());
+        assertEquals(2, maxInFlight.get());
+        pool.close();
+        assertThrows(OWNException.class, () -> pool.send("*#1*0##", null));
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.BUSGateway;
+import org.openwebnet4j.DeepDiscoveryConfig;
+import org.openwebnet4j.DiscoveredDevice;
+import org.openwebnet4j.OpenDeviceType;
+import org.openwebnet4j.communication.BUSGatewaySimulator;
+import org.openwebnet4j.communication.VirtualInstallation;
+
+/**
+ * Tests for deep discovery ({@link BUSGateway#setDeepDiscovery(DeepDiscoveryConfig)}), using
+ * {@link BUSGatewaySimulator}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class DeepDiscoveryTest {
+
+    private static final int CONCURRENCY = 4;
+    private static final double RATE = 200;
+
+    @Test
+    public void testDeepDiscovery() throws Exception {
+        // lights 11-19, 21-23 and automations 24-26
+        try (BUSGatewaySimulator sim = new BUSGatewaySimulator(VirtualInstallation.generate(12, 3, 0, 0))) {
+            // general requests are refused: lights and automations can only be found by probing
+            sim.setBusyFrames("*#1*0##", "*#2*0##");
+            sim.setLatency(Duration.ofMillis(1), Duration.ofMillis(2));
+            sim.start();
+            BUSGateway gw = new BUSGateway(sim.getHost(), sim.getPort(), null);
+            // all 165 light points (A=0-10, PL=1-15) for lights and automations: 330 probes without miss limit
+            gw.setDeepDiscovery(new DeepDiscoveryConfig().withLightPoints(0, 10, 1, 15).withThermoZones(1, 0)
+                    .withEnergyMeters(1, 0).withAuxiliaries(1, 0).withConcurrency(CONCURRENCY).withRateLimit(RATE)
+                    .withAreaMissLimit(5));
+            AtomicInteger probes = new AtomicInteger();
+            gw.addWireTap((channel, outbound, data, length, timeNanos) -> {
+                String frame = new String(data, 0, length, StandardCharsets.US_ASCII);
+                if (outbound && (frame.startsWith("*#1*") || frame.startsWith("*#2*")) && !frame.endsWith("*0##")) {
+                    probes.incrementAndGet();
+                }
+            });
+            gw.connect();
+            try {
+                long sessions = sim.getCmdSessions();
+                long start = System.nanoTime();
+                gw.discoverDevices();
+                long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+                List<DiscoveredDevice> devices = gw.getKnownDevices();
+                assertEquals(12, devices.stream().filter(d -> d.getType() == OpenDeviceType.SCS_ON_OFF_SWITCH)
+                        .count(), devices.toString());
+                assertEquals(3, devices.stream().filter(d -> d.getType() == OpenDeviceType.SCS_SHUTTER_CONTROL)
+                        .count(), devices.toString());
+
+                // lights: A0 5, A1 14 (11-19 + 5 misses), A2 8 (21-23 + 5 misses), A3-A10 5 each
+                // automations: A0 5, A1 5, A2 11 (3 misses, 24-26, 5 misses), A3-A10 5 each
+                // 67 + 61 = 128 probes sent: 202 of 330 skipped after 5 consecutive misses in an area
+                assertEquals(330 - 202, probes.get());
+
+                // paced by the rate limiter, on at most CONCURRENCY sessions
+                assertTrue(elapsedMillis >= (long) ((probes.get() - 1) * 1000 / RATE), elapsedMillis + "ms");
+                assertTrue(elapsedMillis < 5000, elapsedMillis + "ms");
+                long newSessions = sim.getCmdSessions() - sessions;
+                assertTrue(newSessions >= 1 && newSessions <= CONCURRENCY, newSessions + " sessions");
+            } finally {
+                gw.closeConnection();
+            }
+        }
+    }
+}
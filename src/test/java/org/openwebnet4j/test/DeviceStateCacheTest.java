@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.BUSGateway;
+import org.openwebnet4j.DeviceState;
+import org.openwebnet4j.DeviceStateCache;
+import org.openwebnet4j.message.Automation.WhatAutomation;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Thermoregulation.DimThermo;
+import org.openwebnet4j.message.Who;
+
+/**
+ * Tests for {@link DeviceStateCache}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class DeviceStateCacheTest {
+
+    @Test
+    public void testStatesAndChangeNotifications() throws FrameException {
+        DeviceStateCache cache = new DeviceStateCache();
+        List<DeviceState> changes = new ArrayList<>();
+        cache.addListener((prev, curr) -> changes.add(curr));
+
+        assertNull(cache.isLightOn("51"));
+        assertTrue(cache.update(BaseOpenMessage.parse("*1*1*51##")));
+        assertEquals(Boolean.TRUE, cache.isLightOn("51"));
+        assertFalse(cache.update(BaseOpenMessage.parse("*1*1*51##"))); // same value: no change
+        assertEquals(1, changes.size());
+        assertTrue(cache.update(BaseOpenMessage.parse("*1*0*51##")));
+        assertEquals(Boolean.FALSE, cache.isLightOn("51"));
+        assertTrue(cache.update(BaseOpenMessage.parse("*1*8*52##")));
+        assertEquals(Boolean.TRUE, cache.isLightOn("52"));
+        assertEquals(3, changes.size());
+
+        DeviceState s = cache.getState(Who.LIGHTING, "51");
+        assertNotNull(s);
+        assertTrue(s.getLastUpdated() >= s.getLastChanged());
+
+        cache.update(BaseOpenMessage.parse("*2*1000#2*71##"));
+        assertEquals(WhatAutomation.DOWN, cache.getAutomationState("71"));
+
+        cache.update(BaseOpenMessage.parse("*#4*1*0*0215##"));
+        assertEquals(21.5, cache.getTemperature("1"));
+        assertNotNull(cache.getState(Who.THERMOREGULATION, "1", DimThermo.TEMPERATURE));
+
+        // ignored messages
+        int size = cache.size();
+        assertFalse(cache.update(BaseOpenMessage.parse(OpenMessage.FRAME_ACK)));
+        assertFalse(cache.update(BaseOpenMessage.parse("*#1*51##")));
+        assertFalse(cache.update(BaseOpenMessage.parse("*#4*1*#14*0215*3##")));
+        assertEquals(size, cache.size());
+    }
+
+    @Test
+    public void testAreaCommandPropagation() throws FrameException {
+        DeviceStateCache cache = new DeviceStateCache();
+        cache.update(BaseOpenMessage.parse("*1*1*51##"));
+        cache.update(BaseOpenMessage.parse("*1*1*52##"));
+        cache.update(BaseOpenMessage.parse("*1*1*61##"));
+
+        cache.update(BaseOpenMessage.parse("*1*0*5##"));
+        assertEquals(Boolean.FALSE, cache.isLightOn("51"));
+        assertEquals(Boolean.FALSE, cache.isLightOn("52"));
+        assertEquals(Boolean.TRUE, cache.isLightOn("61"));
+
+        cache.update(BaseOpenMessage.parse("*1*1*0##"));
+        assertEquals(Boolean.TRUE, cache.isLightOn("51"));
+        assertEquals(Boolean.TRUE, cache.isLightOn("61"));
+    }
+
+    @Test
+    public void testGatewayStateCache() throws FrameException {
+        BUSGateway gw = new BUSGateway("localhost", 20000, "12345");
+        assertNull(gw.getStateCache());
+        gw.setStateCacheEnabled(true);
+        DeviceStateCache cache = gw.getStateCache();
+        assertNotNull(cache);
+        gw.onMessage(BaseOpenMessage.parse("*1*1*51##"));
+        assertEquals(Boolean.TRUE, cache.isLightOn("51"));
+        gw.setStateCacheEnabled(false);
+        assertNull(gw.getStateCache());
+    }
+}
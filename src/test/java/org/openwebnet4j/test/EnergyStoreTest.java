@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.EnergyStore;
+import org.openwebnet4j.EnergyStore.Aggregate;
+import org.openwebnet4j.EnergyStore.Sample;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.EnergyManagement.DimEnergyMgmt;
+import org.openwebnet4j.message.FrameException;
+
+/**
+ * Tests for {@link EnergyStore}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class EnergyStoreTest {
+
+    private static final long T0 = 1700000000000L;
+
+    @Test
+    public void testCompressionRoundTrip() {
+        EnergyStore store = new EnergyStore();
+        long t = T0;
+        for (int i = 0; i < 10000; i++) {
+            t += 5000 + (i % 7) * 10; // jittered notification interval
+            store.add("51", DimEnergyMgmt.ACTIVE_POWER, t, 1000 + (i % 100) * ((i % 3) - 1));
+        }
+        List<Sample> samples = store.getSamples("51", DimEnergyMgmt.ACTIVE_POWER, 0, Long.MAX_VALUE);
+        assertEquals(10000, samples.size());
+        t = T0;
+        for (int i = 0; i < 10000; i++) {
+            t += 5000 + (i % 7) * 10;
+            assertEquals(t, samples.get(i).getTime());
+            assertEquals(1000 + (i % 100) * ((i % 3) - 1), samples.get(i).getValue());
+        }
+        // about 3 bytes per sample instead of 16
+        assertTrue(store.getUsedBytes() < 10000 * 4, "used bytes: " + store.getUsedBytes());
+        // range query
+        assertEquals(11, store.getSamples("51", DimEnergyMgmt.ACTIVE_POWER, T0, T0 + 60000).size());
+        assertTrue(store.getSamples("52", DimEnergyMgmt.ACTIVE_POWER, 0, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testDownsample() {
+        EnergyStore store = new EnergyStore();
+        for (int i = 0; i < 120; i++) { // 2 minutes, 1 sample per second
+            store.add("51", DimEnergyMgmt.ACTIVE_POWER, T0 + i * 1000, i < 60 ? i : 100);
+        }
+        List<Aggregate> minutes = store.downsample("51", DimEnergyMgmt.ACTIVE_POWER, 0, Long.MAX_VALUE,
+                Duration.ofMinutes(1));
+        assertEquals(3, minutes.size()); // T0 is not aligned to a minute
+        int total = 0;
+        for (Aggregate a : minutes) {
+            assertEquals(0, a.getStart() % 60000);
+            total += a.getCount();
+        }
+        assertEquals(120, total);
+        assertEquals(100, minutes.get(2).getMax());
+        assertEquals(1, store.downsample("51", DimEnergyMgmt.ACTIVE_POWER, 0, Long.MAX_VALUE, Duration.ofHours(1))
+                .size());
+    }
+
+    @Test
+    public void testMemoryBudget() {
+        EnergyStore store = new EnergyStore(8 * 1024);
+        for (int i = 0; i < 20000; i++) {
+            store.add("5" + (1 + i % 3), DimEnergyMgmt.ACTIVE_POWER, T0 + i * 1000, i * 37 % 5000);
+        }
+        assertTrue(store.getUsedBytes() <= 8 * 1024);
+        assertTrue(store.getDiscardedChunks() > 0);
+        // newest samples are kept
+        List<Sample> s = store.getSamples("51", DimEnergyMgmt.ACTIVE_POWER, 0, Long.MAX_VALUE);
+        assertEquals(T0 + 19998 * 1000L, s.get(s.size() - 1).getTime());
+    }
+
+    @Test
+    public void testUpdateFromMessages() throws FrameException {
+        EnergyStore store = new EnergyStore();
+        assertTrue(store.update(BaseOpenMessage.parse("*#18*51*113*1250##")));
+        assertTrue(store.update(BaseOpenMessage.parse("*#18*51*54*3400##")));
+        assertFalse(store.update(BaseOpenMessage.parse("*#18*51*113##")));
+        assertFalse(store.update(BaseOpenMessage.parse("*1*1*21##")));
+        List<Sample> power = store.getSamples("51", DimEnergyMgmt.ACTIVE_POWER, 0, Long.MAX_VALUE);
+        assertEquals(1, power.size());
+        assertEquals(1250, power.get(0).getValue());
+        assertEquals(3400, store.getSamples("51", DimEnergyMgmt.PARTIAL_TOTALIZER_CURRENT_DAY, 0, Long.MAX_VALUE)
+                .get(0).getValue());
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openwebnet4j.communication.EventJournal;
+import org.openwebnet4j.message.OpenMessage;
+
+/**
+ * Tests for {@link EventJournal}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class EventJournalTest {
+
+    private static final Instant MIN = Instant.EPOCH;
+    private static final Instant MAX = Instant.now().plusSeconds(3600);
+
+    @Test
+    public void testQueryByWhereAndTime(@TempDir Path dir) throws IOException, InterruptedException {
+        try (EventJournal journal = new EventJournal(dir)) {
+            for (int i = 0; i < 200; i++) {
+                journal.append("*1*" + (i % 2) + "*" + (11 + i % 5) + "##");
+            }
+            journal.append("*#4*1*0*0215##");
+            Thread.sleep(5);
+            Instant middle = Instant.now();
+            Thread.sleep(5);
+            journal.append("*1*1*21##");
+            journal.append("*#4*#1*0*0220##");
+
+            assertEquals(203, journal.query(MIN, MAX).size());
+            assertEquals(40, journal.query(MIN, MAX, "12").size());
+            List<OpenMessage> thermo = journal.query(MIN, MAX, "1");
+            assertEquals(1, thermo.size());
+            assertEquals("*#4*1*0*0215##", thermo.get(0).getFrameValue());
+            assertEquals(1, journal.query(MIN, MAX, "#1").size());
+            assertEquals(2, journal.query(middle, MAX).size());
+            assertEquals(0, journal.query(middle, MAX, "12").size());
+            assertEquals(1, journal.query(middle, MAX, "21").size());
+            assertEquals(203, journal.getAppended());
+        }
+    }
+
+    @Test
+    public void testSegmentsRetention(@TempDir Path dir) throws IOException {
+        try (EventJournal journal = new EventJournal(dir, 1024, 2)) {
+            for (int i = 0; i < 500; i++) {
+                journal.append("*1*1*" + (11 + i % 80) + "##");
+            }
+            assertEquals(2, journal.getSegments());
+            assertEquals(2, countFiles(dir));
+            List<OpenMessage> all = journal.query(MIN, MAX);
+            assertTrue(all.size() > 0 && all.size() < 500);
+            assertEquals("*1*1*" + (11 + 499 % 80) + "##", all.get(all.size() - 1).getFrameValue());
+            assertEquals(0, journal.getDropped());
+        }
+    }
+
+    @Test
+    public void testReopen(@TempDir Path dir) throws IOException {
+        try (EventJournal journal = new EventJournal(dir, 4096, 4)) {
+            for (int i = 0; i < 100; i++) {
+                journal.append("*2*1*" + (11 + i % 20) + "##");
+            }
+        }
+        try (EventJournal journal = new EventJournal(dir, 4096, 4)) {
+            assertEquals(100, journal.query(MIN, MAX).size());
+            journal.append("*2*0*55##");
+            List<OpenMessage> all = journal.query(MIN, MAX);
+            assertEquals(101, all.size());
+            assertEquals("*2*0*55##", all.get(100).getFrameValue());
+            assertEquals(5, journal.query(MIN, MAX, "11").size());
+        }
+    }
+
+    @Test
+    public void testCloseReleasesSegments(@TempDir Path dir) throws IOException {
+        EventJournal journal = new EventJournal(dir, 1024, 3, 10);
+        for (int i = 0; i < 100; i++) {
+            journal.append("*1*0*" + (11 + i % 80) + "##");
+        }
+        journal.flush();
+        journal.close();
+        assertEquals(0, journal.query(MIN, MAX).size());
+        journal.append("*1*1*11##");
+        assertEquals(1, journal.getDropped());
+        // segments are unmapped: files can be reopened and deleted
+        try (EventJournal reopened = new EventJournal(dir, 1024, 3, 0)) {
+            assertTrue(reopened.query(MIN, MAX).size() > 0);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                Files.delete(f);
+            }
+        }
+        assertEquals(0, countFiles(dir));
+    }
+
+    private static long countFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+}
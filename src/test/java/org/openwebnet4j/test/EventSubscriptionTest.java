@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.BUSGateway;
+import org.openwebnet4j.EventSubscription;
+import org.openwebnet4j.message.Automation;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Thermoregulation;
+
+/**
+ * Tests for typed and indexed event subscriptions on {@link org.openwebnet4j.OpenGateway}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class EventSubscriptionTest {
+
+    private static final int SUBSCRIBERS = 1000;
+
+    private static List<String> lightWheres() {
+        List<String> wheres = new ArrayList<>();
+        for (int a = 1; a <= 9; a++) {
+            for (int pl = 1; pl <= 9; pl++) {
+                wheres.add("" + a + pl);
+            }
+        }
+        return wheres;
+    }
+
+    @Test
+    public void testIndexedDispatch() throws FrameException {
+        BUSGateway gw = new BUSGateway("localhost", 20000, "12345");
+        List<String> wheres = lightWheres();
+        AtomicInteger[] received = new AtomicInteger[SUBSCRIBERS];
+        List<EventSubscription<Lighting>> subs = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            final AtomicInteger counter = new AtomicInteger();
+            final String w = wheres.get(i % wheres.size());
+            received[i] = counter;
+            subs.add(gw.subscribe(Lighting.class, w, msg -> {
+                assertEquals(w, msg.getWhere().value());
+                counter.incrementAndGet();
+            }));
+        }
+        AtomicInteger automations = new AtomicInteger();
+        EventSubscription<Automation> autSub = gw.subscribe(Automation.class, msg -> automations.incrementAndGet());
+
+        for (String w : wheres) {
+            gw.onMessage(BaseOpenMessage.parse("*1*1*" + w + "##"));
+        }
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            assertEquals(1, received[i].get(), "subscriber " + i);
+        }
+        assertEquals(0, automations.get());
+        gw.onMessage(BaseOpenMessage.parse("*2*1*11##"));
+        gw.onMessage(BaseOpenMessage.parse("*2*0*12##"));
+        gw.onMessage(BaseOpenMessage.parse(OpenMessage.FRAME_ACK));
+        assertEquals(2, automations.get());
+        assertEquals(1, received[0].get());
+
+        // unsubscribe
+        gw.unsubscribe(subs.get(0));
+        gw.unsubscribe(autSub);
+        gw.onMessage(BaseOpenMessage.parse("*1*0*" + wheres.get(0) + "##"));
+        gw.onMessage(BaseOpenMessage.parse("*2*1*11##"));
+        assertEquals(1, received[0].get());
+        assertEquals(2, received[wheres.size()].get());
+        assertEquals(2, automations.get());
+    }
+
+    @Test
+    public void testDispatchWith1kSubscribers() throws FrameException {
+        BUSGateway gw = new BUSGateway("localhost", 20000, "12345");
+        List<String> wheres = lightWheres();
+        AtomicInteger delivered = new AtomicInteger();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            gw.subscribe(Lighting.class, wheres.get(i % wheres.size()), msg -> delivered.incrementAndGet());
+        }
+        OpenMessage[] events = new OpenMessage[wheres.size()];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = BaseOpenMessage.parse("*1*1*" + wheres.get(i) + "##");
+        }
+        int rounds = 10;
+        for (int r = 0; r < rounds; r++) {
+            for (OpenMessage ev : events) {
+                gw.onMessage(ev);
+            }
+        }
+        assertEquals(rounds * SUBSCRIBERS, delivered.get());
+    }
+
+    @Test
+    public void testSupertypeSubscription() throws FrameException {
+        BUSGateway gw = new BUSGateway("localhost", 20000, "12345");
+        List<BaseOpenMessage> all = new ArrayList<>();
+        List<BaseOpenMessage> light11 = new ArrayList<>();
+        EventSubscription<BaseOpenMessage> allSub = gw.subscribe(BaseOpenMessage.class, all::add);
+        gw.subscribe(BaseOpenMessage.class, "11", light11::add);
+        AtomicInteger lights = new AtomicInteger();
+        gw.subscribe(Lighting.class, msg -> lights.incrementAndGet());
+
+        gw.onMessage(BaseOpenMessage.parse("*1*1*11##"));
+        gw.onMessage(BaseOpenMessage.parse("*2*1*12##"));
+        gw.onMessage(BaseOpenMessage.parse(OpenMessage.FRAME_ACK));
+        assertEquals(2, all.size());
+        assertEquals(1, light11.size());
+        assertEquals(1, lights.get());
+
+        // the resolved types are updated when subscriptions change
+        gw.unsubscribe(allSub);
+        gw.onMessage(BaseOpenMessage.parse("*1*0*11##"));
+        assertEquals(2, all.size());
+        assertEquals(2, light11.size());
+        assertEquals(2, lights.get());
+    }
+
+    @Test
+    public void testCanonicalWhere() throws FrameException {
+        BUSGateway gw = new BUSGateway("localhost", 20000, "12345");
+        AtomicInteger light = new AtomicInteger();
+        AtomicInteger zone = new AtomicInteger();
+        AtomicInteger unit01 = new AtomicInteger();
+        AtomicInteger unit02 = new AtomicInteger();
+        gw.subscribe(Lighting.class, "0101", msg -> light.incrementAndGet());
+        gw.subscribe(Thermoregulation.class, "#1", msg -> zone.incrementAndGet());
+        gw.subscribe(Lighting.class, "765432101#9", msg -> unit01.incrementAndGet());
+        gw.subscribe(Lighting.class, "765432102#9", msg -> unit02.incrementAndGet());
+
+        gw.onMessage(BaseOpenMessage.parse("*1*1*11##"));
+        gw.onMessage(BaseOpenMessage.parse("*1*1*0101##"));
+        gw.onMessage(BaseOpenMessage.parse("*1*1*12##"));
+        assertEquals(2, light.get());
+
+        gw.onMessage(BaseOpenMessage.parse("*#4*1*0*0215##"));
+        gw.onMessage(BaseOpenMessage.parse("*#4*#1*0*0215##"));
+        gw.onMessage(BaseOpenMessage.parse("*#4*1#1*20*1##"));
+        gw.onMessage(BaseOpenMessage.parse("*#4*2*0*0215##"));
+        assertEquals(3, zone.get());
+
+        gw.onMessage(BaseOpenMessage.parse("*1*1*765432101#9##"));
+        assertEquals(1, unit01.get());
+        assertEquals(0, unit02.get());
+        // unit 00: all units of the device
+        gw.onMessage(BaseOpenMessage.parse("*1*0*765432100#9##"));
+        assertEquals(2, unit01.get());
+        assertEquals(1, unit02.get());
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.openwebnet4j.OpenDeviceType;
+import org.openwebnet4j.OpenGateway;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.WhereLightAutom;
+
+/**
+ * Connected {@link OpenGateway} without connector, for tests: messages sent are recorded with their time and
+ * answered by a {@link Responder}. Discovery sends a general lights status request and notifies a
+ * {@link OpenDeviceType#SCS_ON_OFF_SWITCH} for each light in its response.
+ *
+ * @author M. Valla - Initial contribution
+ */
+class FakeGateway extends OpenGateway {
+
+    /**
+     * Computes the response to a message sent to the gateway
+     */
+    @FunctionalInterface
+    interface Responder {
+        /**
+         * Returns the response to a message sent
+         *
+         * @param msg the message sent
+         * @return the response
+         * @throws FrameException if the response cannot be created
+         */
+        Response respond(OpenMessage msg) throws FrameException;
+    }
+
+    /** frames sent, in order */
+    final List<String> frames = Collections.synchronizedList(new ArrayList<>());
+    /** time each frame was sent ({@link System#currentTimeMillis()}) */
+    final List<Long> times = Collections.synchronizedList(new ArrayList<>());
+
+    private final Responder responder;
+
+    /**
+     * Creates a FakeGateway answering all messages with ACK only
+     */
+    FakeGateway() {
+        this(msg -> ack(msg));
+    }
+
+    /**
+     * Creates a FakeGateway answering messages with the given {@link Responder}
+     *
+     * @param responder the Responder
+     */
+    FakeGateway(Responder responder) {
+        this.responder = responder;
+        isConnected = true;
+    }
+
+    /**
+     * Returns a successful response made of the given frames and an ACK
+     *
+     * @param request the request
+     * @param frames the response frames, excluding the ACK
+     * @return the Response
+     * @throws FrameException if a frame cannot be parsed
+     */
+    static Response ack(OpenMessage request, String... frames) throws FrameException {
+        List<OpenMessage> msgs = new ArrayList<>(frames.length);
+        for (String frame : frames) {
+            msgs.add(BaseOpenMessage.parse(frame));
+        }
+        return Response.fromMessages(request, msgs);
+    }
+
+    @Override
+    protected void initConnector() {
+    }
+
+    @Override
+    public boolean isCmdConnectionReady() {
+        return true;
+    }
+
+    @Override
+    protected void discoverDevicesInternal() throws OWNException {
+        Response res = sendInternal(Lighting.requestStatus(WhereLightAutom.GENERAL.value()));
+        for (OpenMessage msg : res.getResponseMessages()) {
+            if (msg instanceof Lighting) {
+                Lighting light = (Lighting) msg;
+                notifyNewDevice(light.getWhere(), OpenDeviceType.SCS_ON_OFF_SWITCH, light);
+            }
+        }
+        isDiscovering = false;
+        notifyDiscoveryCompleted();
+    }
+
+    @Override
+    protected Response sendInternal(OpenMessage msg) throws OWNException {
+        times.add(System.currentTimeMillis());
+        frames.add(msg.getFrameValue());
+        try {
+            return responder.respond(msg);
+        } catch (FrameException e) {
+            throw new OWNException(e.getMessage());
+        }
+    }
+}
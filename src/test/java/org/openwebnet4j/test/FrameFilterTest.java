@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.communication.FrameFilter;
+import org.openwebnet4j.communication.FrameFilter.FrameType;
+import org.openwebnet4j.message.EnergyManagement;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Thermoregulation;
+import org.openwebnet4j.message.Who;
+
+/**
+ * Tests for {@link FrameFilter}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class FrameFilterTest {
+
+    @Test
+    public void testWhoFilter() {
+        FrameFilter f = FrameFilter.forWho(Who.LIGHTING);
+        assertTrue(f.matches("*1*1*51##"));
+        assertTrue(f.matches("*#1*51*1*150##"));
+        assertFalse(f.matches("*18*1*51##"));
+        assertFalse(f.matches("*#18*51*113*100##"));
+        assertFalse(f.matches(OpenMessage.FRAME_ACK));
+        assertEquals(2, f.getHits());
+
+        FrameFilter energy = FrameFilter.forWho(Who.ENERGY_MANAGEMENT).withFrameType(FrameType.STATUS);
+        assertTrue(energy.matches("*#18*51*113*100##"));
+        assertFalse(energy.matches("*18*26*51##"));
+    }
+
+    @Test
+    public void testWherePrefixFilter() {
+        FrameFilter f = FrameFilter.forWho(Who.LIGHTING).withWherePrefix("5");
+        assertTrue(f.matches("*1*1*51##"));
+        assertTrue(f.matches("*1*1000#0*52##"));
+        assertTrue(f.matches("*#1*59*1*150##"));
+        assertFalse(f.matches("*1*1*41##"));
+        assertFalse(f.matches("*#1*41*1*150##"));
+        assertFalse(f.matches("*2*1*51##"));
+
+        FrameFilter any = FrameFilter.forWherePrefix("12");
+        assertTrue(any.matches("*2*0*12##"));
+        assertTrue(any.matches("*#4*12*0*0215##"));
+        assertFalse(any.matches("*#4*1*0*0215##"));
+        assertFalse(any.matches("*#*1##"));
+        assertThrows(IllegalArgumentException.class, () -> FrameFilter.forWherePrefix("a"));
+    }
+
+    @Test
+    public void testDimFilter() {
+        FrameFilter f = FrameFilter.forWho(Who.THERMOREGULATION).withDim(Thermoregulation.DimThermo.TEMPERATURE);
+        assertTrue(f.matches("*#4*1*0*0215##"));
+        assertFalse(f.matches("*#4*1*20*0##"));
+        assertFalse(f.matches("*#4*1*14*0215*3##"));
+        assertFalse(f.matches("*4*1*1##"));
+
+        FrameFilter notif = FrameFilter.forWho(Who.ENERGY_MANAGEMENT).withWherePrefix("51")
+                .withDim(EnergyManagement.DimEnergyMgmt.ACTIVE_POWER_NOTIFICATION_TIME);
+        assertTrue(notif.matches("*#18*51*#1200#1*10##"));
+        assertFalse(notif.matches("*#18*52*#1200#1*10##"));
+        assertThrows(IllegalArgumentException.class, () -> FrameFilter.forWho(Who.THERMOREGULATION)
+                .withDim(Thermoregulation.DimThermo.TEMPERATURE).withFrameType(FrameType.COMMAND));
+    }
+}
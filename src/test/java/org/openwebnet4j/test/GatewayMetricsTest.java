@@ -0,0 +1,258 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.BUSGateway;
+import org.openwebnet4j.communication.BUSGatewaySimulator;
+import org.openwebnet4j.communication.VirtualInstallation;
+import org.openwebnet4j.message.Automation;
+import org.openwebnet4j.message.Auxiliary;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Who;
+import org.openwebnet4j.metrics.ActuationTracker;
+import org.openwebnet4j.metrics.GatewayMetrics;
+import org.openwebnet4j.metrics.LatencyHistogram;
+import org.openwebnet4j.metrics.MetricsBridge;
+
+/**
+ * Tests for {@link GatewayMetrics}, using a {@link BUSGatewaySimulator}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class GatewayMetricsTest {
+
+    private static void waitFor(GatewayMetrics m, long parseErrors) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (m.getParseErrors() + m.getUnsupportedFrames() < parseErrors && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void testGatewayMetrics() throws Exception {
+        try (BUSGatewaySimulator sim = new BUSGatewaySimulator(VirtualInstallation.generate(3, 0, 0, 0))) {
+            sim.start();
+            BUSGateway gw = new BUSGateway(sim.getHost(), sim.getPort(), null);
+            GatewayMetrics m = gw.getMetrics();
+            gw.subscribe(Lighting.class, l -> {
+            });
+            gw.connect();
+            try {
+                assertEquals("BUS_" + sim.getHost() + ":" + sim.getPort(), m.getName());
+                assertEquals(2, m.getHandshakes()); // MON + CMD
+                assertTrue(m.getHandshakeMeanMillis() > 0);
+
+                gw.send(Lighting.requestTurnOn("11"));
+                sim.setFaultRates(1, 0, 0);
+                gw.send(Lighting.requestTurnOn("11"));
+                sim.setFaultRates(0, 1, 0);
+                gw.send(Lighting.requestTurnOn("11"));
+                sim.setFaultRates(0, 0, 0);
+                // 2 management requests at connection + 3 commands
+                assertEquals(5, m.getCommands());
+                assertEquals(3, m.getAcks());
+                assertEquals(1, m.getNacks());
+                assertEquals(1, m.getBusyNacks());
+                assertTrue(m.getCommandLatencyP99Millis() >= m.getCommandLatencyP50Millis());
+                assertTrue(m.getCommandLatencyMaxMillis() > 0);
+
+                sim.broadcast("*1*1*1a##");
+                sim.broadcast("*16*1*1##");
+                sim.broadcast("*16*0*1##");
+                waitFor(m, 3);
+                assertEquals(1, m.getParseErrors());
+                assertEquals(2, m.getUnsupportedFrames());
+                assertEquals(Long.valueOf(2), m.getUnsupportedFramesByWho().get("16"));
+                assertTrue(m.getFramesIn() > 5);
+                assertTrue(m.getFramesOut() >= 5);
+                assertTrue(m.getBytesIn() > m.getFramesIn());
+                // subscription dispatch is not counted as listener execution
+                assertTrue(m.getSubscriptionDispatchDuration().getCount() > 0);
+                assertEquals(0, m.getListenerDuration().getCount());
+
+                // JMX
+                ObjectName on = m.registerMBean();
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                assertEquals(3L, server.getAttribute(on, "Acks"));
+                TabularData byWho = (TabularData) server.getAttribute(on, "UnsupportedFramesByWho");
+                assertEquals(1, byWho.size());
+                // a second gateway with the same name gets a different MXBean name
+                GatewayMetrics m2 = new GatewayMetrics(m.getName(), () -> 0);
+                ObjectName on2 = m2.registerMBean();
+                assertNotEquals(on, on2);
+                assertEquals("2", on2.getKeyProperty("instance"));
+                assertEquals(3L, server.getAttribute(on, "Acks"));
+                assertEquals(on2, m2.registerMBean());
+                m2.unregisterMBean();
+                assertFalse(server.isRegistered(on2));
+                // unregistered when the gateway is closed
+                gw.closeConnection();
+                assertFalse(server.isRegistered(on));
+
+                // bridge
+                Map<String, Long> counters = new HashMap<>();
+                Map<String, Long> histograms = new HashMap<>();
+                m.report(new MetricsBridge() {
+                    @Override
+                    public void counter(String name, Map<String, String> labels, long value) {
+                        assertEquals(m.getName(), labels.get(GatewayMetrics.LABEL_GATEWAY));
+                        counters.merge(name, value, Long::sum);
+                    }
+
+                    @Override
+                    public void gauge(String name, Map<String, String> labels, double value) {
+                    }
+
+                    @Override
+                    public void histogram(String name, Map<String, String> labels, LatencyHistogram histogram) {
+                        histograms.put(name, histogram.getCount());
+                    }
+                });
+                assertEquals(1, counters.get(GatewayMetrics.NACKS));
+                assertEquals(2, counters.get(GatewayMetrics.UNSUPPORTED_FRAMES));
+                assertEquals(5, histograms.get(GatewayMetrics.COMMAND_LATENCY));
+            } finally {
+                gw.closeConnection();
+            }
+        }
+    }
+
+    @Test
+    public void testActuation() throws Exception {
+        try (BUSGatewaySimulator sim = new BUSGatewaySimulator(VirtualInstallation.generate(3, 0, 0, 0))) {
+            sim.start();
+            BUSGateway gw = new BUSGateway(sim.getHost(), sim.getPort(), null);
+            ActuationTracker actuation = gw.getMetrics().getActuation();
+            gw.connect();
+            try {
+                gw.send(Lighting.requestTurnOn("11"));
+                long end = System.currentTimeMillis() + 5000;
+                while (actuation.getConfirmed() < 1 && System.currentTimeMillis() < end) {
+                    Thread.sleep(20);
+                }
+                assertEquals(1, actuation.getConfirmed());
+                assertEquals(0, actuation.getPending());
+                assertEquals(1, actuation.getLatencyByWho().get("1").getCount());
+                assertTrue(gw.getMetrics().getActuationLatencyP99MillisByWho().get("1") > 0);
+            } finally {
+                gw.closeConnection();
+            }
+        }
+    }
+
+    @Test
+    public void testActuationTracker() throws Exception {
+        ActuationTracker t = new ActuationTracker(50);
+        long now = System.nanoTime();
+        t.commandSent(Lighting.requestTurnOn("12"), now);
+        t.commandSent(Lighting.requestTurnOn("13"), now);
+        t.commandSent(Lighting.requestTurnOn("0"), now); // general: not tracked
+        t.commandSent(Lighting.requestTurnOff("14"), now);
+        assertEquals(3, t.getPending());
+        t.commandFailed(Lighting.requestTurnOff("14"));
+        assertEquals(2, t.getPending());
+
+        t.eventReceived(event("*1*0*12##"), now + 1_000_000); // different WHAT
+        t.eventReceived(event("*1*5*13##"), now + 2_000_000); // dimmer level confirms ON
+        assertEquals(1, t.getConfirmed());
+        assertEquals(1, t.getLatencyByWho().get("1").getCount());
+
+        Thread.sleep(100);
+        assertEquals(1, t.getUnconfirmed());
+        assertEquals(Long.valueOf(1), t.getUnconfirmedByDevice().get("1*12"));
+        assertEquals(0, t.getPending());
+    }
+
+    @Test
+    public void testActuationExpiryOrder() throws Exception {
+        ActuationTracker t = new ActuationTracker(10);
+        long ms = 1_000_000;
+        t.commandSent(Lighting.requestTurnOn("21"), 0);
+        t.commandSent(Lighting.requestTurnOn("22"), 2 * ms);
+        t.commandSent(Lighting.requestTurnOff("21"), 4 * ms); // replaces ON 21
+        t.commandSent(Lighting.requestTurnOn("23"), 6 * ms);
+        t.eventReceived(event("*1*1*22##"), 8 * ms);
+        assertEquals(1, t.getConfirmed());
+        // replaced and confirmed commands are skipped, then the oldest pending one is not expired yet
+        t.expire(11 * ms);
+        assertEquals(2, t.getPending());
+        t.expire(15 * ms);
+        assertEquals(1, t.getPending());
+        t.expire(17 * ms);
+        assertEquals(0, t.getPending());
+        assertEquals(2, t.getUnconfirmed());
+        Map<String, Long> byDevice = t.getUnconfirmedByDevice();
+        assertEquals(Long.valueOf(1), byDevice.get("1*21"));
+        assertEquals(Long.valueOf(1), byDevice.get("1*23"));
+        assertNull(byDevice.get("1*22"));
+    }
+
+    @Test
+    public void testActuationTrackedWhos() throws Exception {
+        ActuationTracker t = new ActuationTracker(10);
+        assertEquals(ActuationTracker.DEFAULT_TRACKED_WHOS, t.getTrackedWhos());
+        t.commandSent(Automation.requestMoveUp("31"), 0);
+        // no same-WHAT state event: not tracked by default
+        t.commandSent(Auxiliary.requestTurnOn("1"), 0);
+        t.commandSent(event("*4*303*1##"), 0);
+        t.commandSent(event("*25*21#1*212##"), 0);
+        assertEquals(1, t.getPending());
+        t.eventReceived(event("*2*1*31##"), 1_000_000);
+        assertEquals(1, t.getLatencyByWho().get("2").getCount());
+
+        t.setTrackedWhos(EnumSet.of(Who.AUX));
+        t.commandSent(Auxiliary.requestTurnOn("1"), 2_000_000);
+        t.commandSent(Automation.requestMoveUp("31"), 2_000_000);
+        assertEquals(1, t.getPending());
+        t.expire(20_000_000);
+        assertEquals(Long.valueOf(1), t.getUnconfirmedByDevice().get("9*1"));
+    }
+
+    private static OpenMessage event(String frame) throws Exception {
+        return BaseOpenMessage.parse(frame);
+    }
+
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getPercentileMillis(50));
+        for (int i = 0; i < 98; i++) {
+            h.record(200_000); // 0.2ms
+        }
+        h.record(40_000_000); // 40ms
+        h.record(40_000_000_000L); // 40s, overflow
+        assertEquals(100, h.getCount());
+        assertEquals(0.25, h.getPercentileMillis(50));
+        assertEquals(50, h.getPercentileMillis(99));
+        assertEquals(40000, h.getPercentileMillis(100));
+        long[] counts = h.getBucketCounts();
+        assertEquals(LatencyHistogram.getBucketBoundsNanos().length + 1, counts.length);
+        assertEquals(1, counts[counts.length - 1]);
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openwebnet4j.BUSGateway;
+import org.openwebnet4j.GatewayListener;
+import org.openwebnet4j.GatewaySnapshot;
+import org.openwebnet4j.OpenDeviceType;
+import org.openwebnet4j.OpenGateway;
+import org.openwebnet4j.communication.BUSGatewaySimulator;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.VirtualInstallation;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Where;
+
+/**
+ * Tests for {@link GatewaySnapshot} and device reconciliation.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class GatewaySnapshotTest {
+
+    /* gateway answering the general lights status request with the given lights */
+    private static FakeGateway lightsGateway(List<String> lights) {
+        return new FakeGateway(msg -> FakeGateway.ack(msg,
+                lights.stream().map(w -> "*1*0*" + w + "##").toArray(String[]::new)));
+    }
+
+    private static FakeGateway lightsGateway(String... lights) {
+        return lightsGateway(Arrays.asList(lights));
+    }
+
+    private static class RecordingListener implements GatewayListener {
+        final List<String> added = Collections.synchronizedList(new ArrayList<>());
+        final List<String> removed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void onConnected() {
+        }
+
+        @Override
+        public void onConnectionError(OWNException error) {
+        }
+
+        @Override
+        public void onConnectionClosed() {
+        }
+
+        @Override
+        public void onDisconnected(OWNException error) {
+        }
+
+        @Override
+        public void onReconnected() {
+        }
+
+        @Override
+        public void onEventMessage(OpenMessage msg) {
+        }
+
+        @Override
+        public void onNewDevice(Where where, OpenDeviceType deviceType, BaseOpenMessage message) {
+            added.add(where.value());
+        }
+
+        @Override
+        public void onDiscoveryCompleted() {
+            completed.countDown();
+        }
+
+        @Override
+        public void onDeviceRemoved(Where where, OpenDeviceType deviceType) {
+            removed.add(where.value());
+        }
+    }
+
+    @Test
+    public void testSaveRestoreReconcile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("gw.snapshot");
+        FakeGateway gw = lightsGateway("51", "52");
+        gw.setStateCacheEnabled(true);
+        gw.discoverDevices();
+        gw.onMessage(BaseOpenMessage.parse("*1*1*51##"));
+        gw.saveSnapshot(file);
+
+        // restore on a new gateway
+        List<String> lights = new ArrayList<>();
+        FakeGateway gw2 = lightsGateway(lights);
+        gw2.setStateCacheEnabled(true);
+        RecordingListener listener = new RecordingListener();
+        gw2.subscribe(listener);
+        GatewaySnapshot snap = gw2.restoreSnapshot(file);
+        assertEquals(2, snap.getDevices().size());
+        assertEquals(2, gw2.getKnownDevices().size());
+        assertEquals(Boolean.TRUE, gw2.getStateCache().isLightOn("51"));
+        waitFor(() -> listener.added.size() == 2);
+
+        // reconcile: 52 removed, 53 added, 51 unchanged
+        listener.added.clear();
+        lights.add("51");
+        lights.add("53");
+        gw2.reconcileDevices();
+        assertTrue(listener.completed.await(5, TimeUnit.SECONDS));
+        waitFor(() -> listener.added.size() == 1 && listener.removed.size() == 1);
+        assertEquals("53", listener.added.get(0));
+        assertEquals("52", listener.removed.get(0));
+        assertEquals(2, gw2.getKnownDevices().size());
+    }
+
+    @Test
+    public void testReconcileKeepsFamilyNotDiscovered() throws Exception {
+        try (BUSGatewaySimulator sim = new BUSGatewaySimulator(VirtualInstallation.generate(4, 2, 0, 0))) {
+            sim.start();
+            BUSGateway gw = new BUSGateway(sim.getHost(), sim.getPort(), null);
+            RecordingListener listener = new RecordingListener();
+            gw.subscribe(listener);
+            gw.connect();
+            try {
+                gw.discoverDevices();
+                assertTrue(listener.completed.await(5, TimeUnit.SECONDS));
+                waitFor(() -> listener.added.size() == 6);
+                assertEquals(6, gw.getKnownDevices().size());
+
+                // busy bus: lights discovery is answered with BUSY_NACK, lights must not be removed
+                sim.setBusyFrames("*#1*0##");
+                listener.completed = new CountDownLatch(1);
+                gw.reconcileDevices();
+                assertTrue(listener.completed.await(5, TimeUnit.SECONDS));
+                assertEquals(Collections.emptyList(), listener.removed);
+                assertEquals(6, gw.getKnownDevices().size());
+                assertEquals(6, listener.added.size());
+            } finally {
+                gw.closeConnection();
+            }
+        }
+    }
+
+    private static void waitFor(BooleanSupplier cond) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (!cond.getAsBoolean() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertTrue(cond.getAsBoolean());
+    }
+}
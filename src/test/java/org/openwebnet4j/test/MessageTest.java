@@ -18,6 +18,9 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -37,12 +40,14 @@ import org.openwebnet4j.message.GatewayMgmt;
 import org.openwebnet4j.message.Lighting;
 import org.openwebnet4j.message.MalformedFrameException;
 import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.ParseDepth;
 import org.openwebnet4j.message.Scenario;
 import org.openwebnet4j.message.Thermoregulation;
 import org.openwebnet4j.message.Thermoregulation.Function;
 import org.openwebnet4j.message.Thermoregulation.OperationMode;
 import org.openwebnet4j.message.Thermoregulation.WhatThermo;
 import org.openwebnet4j.message.Thermoregulation.WhatThermoType;
+import org.openwebnet4j.message.Where;
 import org.openwebnet4j.message.UnsupportedFrameException;
 import org.openwebnet4j.message.WhereAlarm;
 import org.openwebnet4j.message.WhereLightAutom;
@@ -248,6 +253,34 @@ public class MessageTest {
 
     }
 
+    @Test
+    public void testWhereCanonicalValue() {
+        // Lighting/Automation: shortest APL form, area without leading zero, interface kept
+        assertEquals("11", new WhereLightAutom("0101").canonicalValue());
+        assertEquals("11", new WhereLightAutom("11").canonicalValue());
+        assertEquals("0113", new WhereLightAutom("0113").canonicalValue());
+        assertEquals("0003", new WhereLightAutom("0003").canonicalValue());
+        assertEquals("1003", new WhereLightAutom("1003").canonicalValue());
+        assertEquals("1", new WhereLightAutom("01").canonicalValue());
+        assertEquals("00", new WhereLightAutom("00").canonicalValue());
+        assertEquals("100", new WhereLightAutom("100").canonicalValue());
+        assertEquals("#25", new WhereLightAutom("#25").canonicalValue());
+        assertEquals("0", new WhereLightAutom("0").canonicalValue());
+        assertEquals("11#4#01", new WhereLightAutom("0101#4#01").canonicalValue());
+        assertEquals("#2#3", new WhereLightAutom("#2#3").canonicalValue());
+        // Thermo: zone, zone via central unit and actuators share the zone, probes keep pZZ
+        assertEquals("1", new WhereThermo("1").canonicalValue());
+        assertEquals("1", new WhereThermo("#1").canonicalValue());
+        assertEquals("1", new WhereThermo("1#1").canonicalValue());
+        assertEquals("1", new WhereThermo("#1#2").canonicalValue());
+        assertEquals("202", new WhereThermo("202").canonicalValue());
+        assertEquals("001", new WhereThermo("01").canonicalValue());
+        assertEquals("#0", new WhereThermo("#0").canonicalValue());
+        assertEquals("0", new WhereThermo("0").canonicalValue());
+        // others: value
+        assertEquals("765432101#9", new WhereZigBee("765432101#9").canonicalValue());
+    }
+
     @Test
     public void testLightingOn() {
 
@@ -961,4 +994,62 @@ public class MessageTest {
             Assertions.fail();
         }
     }
+
+    @Test
+    public void testHeaderParseDepth() {
+        assertEquals(Who.LIGHTING, BaseOpenMessage.peekWho("*1*1*51##"));
+        assertEquals(Who.THERMOREGULATION_DIAGNOSTIC, BaseOpenMessage.peekWho("*#1004*1*7*0##"));
+        assertEquals(Who.BURGLAR_ALARM, BaseOpenMessage.peekWho("*#5##"));
+        assertNull(BaseOpenMessage.peekWho(OpenMessage.FRAME_ACK));
+        assertNull(BaseOpenMessage.peekWho("*a*1*51##"));
+        assertNull(BaseOpenMessage.peekWho("*777*1*51##"));
+        try {
+            Lighting lightMsg = (Lighting) BaseOpenMessage.parse("*1*1*51##", ParseDepth.HEADER);
+            assertEquals(Who.LIGHTING, lightMsg.getWho());
+            assertTrue(lightMsg.isCommand());
+            assertTrue(lightMsg.isOn());
+            assertEquals("51", lightMsg.getWhere().value());
+            Thermoregulation thMsg = (Thermoregulation) BaseOpenMessage.parse("*#4*1*0*0215##", ParseDepth.HEADER);
+            assertFalse(thMsg.isCommand());
+            assertEquals(Thermoregulation.DimThermo.TEMPERATURE, thMsg.getDim());
+            assertEquals(21.5, Thermoregulation.parseTemperature(thMsg));
+            assertTrue(BaseOpenMessage.parse(OpenMessage.FRAME_ACK, ParseDepth.HEADER).isACK());
+            // bad characters are detected only when frame parts are accessed
+            lightMsg = (Lighting) BaseOpenMessage.parse("*1*1a*51##", ParseDepth.HEADER);
+            assertNull(lightMsg.getWhat());
+            assertNull(lightMsg.getWhere());
+        } catch (FrameException e) {
+            Assertions.fail();
+        }
+        assertThrows(MalformedFrameException.class, () -> BaseOpenMessage.parse("*1*1a*51##", ParseDepth.FULL));
+        assertThrows(MalformedFrameException.class, () -> BaseOpenMessage.parse("*#*12##", ParseDepth.HEADER));
+        assertThrows(UnsupportedFrameException.class, () -> BaseOpenMessage.parse("*6*1*51##", ParseDepth.HEADER));
+    }
+
+    @Test
+    public void testConcurrentLazyParsing() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 200; i++) {
+                Automation autMsg = (Automation) BaseOpenMessage.parse("*2*1000#1*" + (i % 8 + 11) + "##",
+                        ParseDepth.HEADER);
+                @SuppressWarnings("unchecked")
+                Future<Where>[] results = new Future[4];
+                for (int t = 0; t < results.length; t++) {
+                    results[t] = executor.submit(() -> {
+                        assertEquals(Automation.WhatAutomation.UP, autMsg.getWhat());
+                        assertEquals(0, autMsg.getWhatParams().length);
+                        assertTrue(autMsg.isCommandTranslation());
+                        return autMsg.getWhere();
+                    });
+                }
+                Where w = results[0].get();
+                for (Future<Where> r : results) {
+                    assertSame(w, r.get());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.BUSGateway;
+import org.openwebnet4j.GatewayListener;
+import org.openwebnet4j.OpenDeviceType;
+import org.openwebnet4j.communication.BUSGatewaySimulator;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.VirtualInstallation;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Where;
+
+/**
+ * Soak test of the MON event path (receive thread, frame processing, listener notification) with sustained and bursty
+ * traffic from a {@link BUSGatewaySimulator}. Reports event lag, event queue size, thread count and GC time, and
+ * fails if lag, queue or threads grow without bound. The sustained phase lasts 3 seconds: set system property
+ * <code>openwebnet4j.soak.seconds</code> for a longer soak, also followed by a rate ramp up to
+ * {@value #MAX_RAMP_RATE} events/s to report the max sustainable rate.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class MonEventSoakTest {
+
+    private static final String EVENT_PREFIX = "*#18*51*113*";
+    private static final int SUSTAINED_RATE = 2000;
+    private static final int BURSTS = 5;
+    private static final int BURST_SIZE = 500;
+    private static final int MAX_RAMP_RATE = 64000;
+    private static final int RAMP_STEP_MILLIS = 500;
+    // events in flight are at most those of a ramp step, as each step starts after all events have been received
+    private static final int SLOTS = Integer.highestOneBit(MAX_RAMP_RATE * RAMP_STEP_MILLIS / 1000) * 2;
+    private static final long MAX_LAG_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int MAX_EXTRA_THREADS = 10;
+
+    // send time of each event, indexed by sequence number % SLOTS
+    private final AtomicLongArray sendTimes = new AtomicLongArray(SLOTS);
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong maxLag = new AtomicLong();
+    private final AtomicLong overwritten = new AtomicLong(); // events received after their slot was reused
+
+    private BUSGatewaySimulator sim;
+    private BUSGateway gw;
+
+    private void send(int count) {
+        for (int i = 0; i < count; i++) {
+            long seq = sent.get();
+            sendTimes.set((int) (seq % SLOTS), System.nanoTime());
+            sent.incrementAndGet();
+            sim.broadcast(EVENT_PREFIX + seq + "##");
+        }
+    }
+
+    /* waits until all events sent have been received, returns false on timeout */
+    private boolean drain(long timeoutMs) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeoutMs;
+        while (received.get() < sent.get() && System.currentTimeMillis() < end) {
+            Thread.sleep(5);
+        }
+        return received.get() == sent.get();
+    }
+
+    /* sends events at the given rate for the given time, in batches every 10ms */
+    private void sendAtRate(int rate, long millis) throws InterruptedException {
+        ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor();
+        sender.scheduleAtFixedRate(() -> send(rate / 100), 0, 10, TimeUnit.MILLISECONDS);
+        Thread.sleep(millis);
+        sender.shutdown();
+        sender.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    @Test
+    public void testSustainedAndBurstyEvents() throws Exception {
+        long soakMs = TimeUnit.SECONDS.toMillis(Long.getLong("openwebnet4j.soak.seconds", 3));
+        boolean ramp = System.getProperty("openwebnet4j.soak.seconds") != null;
+        // logging every frame would dominate the measurements
+        Level level = LogManager.getLogger("org.openwebnet4j").getLevel();
+        Configurator.setLevel("org.openwebnet4j", Level.WARN);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        sim = new BUSGatewaySimulator(VirtualInstallation.generate(3, 0, 0, 0));
+        try {
+            sim.start();
+            gw = new BUSGateway(sim.getHost(), sim.getPort(), null);
+            gw.subscribe(new LagListener());
+            gw.connect();
+            int baseThreads = threads.getThreadCount();
+            threads.resetPeakThreadCount();
+            long baseGc = gcMillis();
+            int maxQueue = 0;
+
+            // sustained traffic: lag and queue sampled every 100ms must stay bounded
+            ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor();
+            sender.scheduleAtFixedRate(() -> send(SUSTAINED_RATE / 100), 0, 10, TimeUnit.MILLISECONDS);
+            long end = System.currentTimeMillis() + soakMs;
+            while (System.currentTimeMillis() < end) {
+                Thread.sleep(100);
+                maxQueue = Math.max(maxQueue, gw.getEventQueueSize());
+                assertTrue(maxLag.get() < MAX_LAG_NANOS, "lag growing: " + maxLag.get() / 1000000 + "ms");
+            }
+            sender.shutdown();
+            sender.awaitTermination(1, TimeUnit.SECONDS);
+            assertTrue(drain(5000), "events lost: sent=" + sent.get() + " received=" + received.get());
+            long sustainedLag = maxLag.getAndSet(0);
+
+            // bursts, like scenario activations and all-off commands
+            for (int b = 0; b < BURSTS; b++) {
+                send(BURST_SIZE);
+                maxQueue = Math.max(maxQueue, gw.getEventQueueSize());
+                Thread.sleep(200);
+            }
+            assertTrue(drain(5000), "events lost: sent=" + sent.get() + " received=" + received.get());
+            long burstLag = maxLag.getAndSet(0);
+
+            // rate ramp: the max sustainable rate is the last one where all events are delivered with bounded lag
+            int maxRate = 0;
+            for (int rate = 1000; ramp && rate <= MAX_RAMP_RATE; rate *= 2) {
+                sendAtRate(rate, RAMP_STEP_MILLIS);
+                if (!drain(500) || maxLag.getAndSet(0) > MAX_LAG_NANOS) {
+                    break;
+                }
+                maxRate = rate;
+            }
+            assertTrue(drain(10000), "events lost: sent=" + sent.get() + " received=" + received.get());
+            assertEquals(0, overwritten.get(), "send times overwritten, lag not measured");
+
+            int peakThreads = threads.getPeakThreadCount();
+            System.out.println("MonEventSoakTest: events=" + sent.get() + ", max lag sustained="
+                    + sustainedLag / 1000 + "us, max lag bursts=" + burstLag / 1000 + "us, max sustainable rate="
+                    + (ramp ? maxRate + "/s" : "not measured") + ", max event queue=" + maxQueue + ", threads base/peak=" + baseThreads + "/"
+                    + peakThreads + ", GC time=" + (gcMillis() - baseGc) + "ms");
+            assertTrue(sustainedLag < MAX_LAG_NANOS);
+            assertTrue(burstLag < MAX_LAG_NANOS);
+            assertEquals(0, gw.getEventQueueSize());
+            assertTrue(peakThreads <= baseThreads + MAX_EXTRA_THREADS,
+                    "threads growing: base=" + baseThreads + " peak=" + peakThreads);
+        } finally {
+            if (gw != null) {
+                gw.closeConnection();
+            }
+            sim.close();
+            Configurator.setLevel("org.openwebnet4j", level);
+        }
+    }
+
+    private class LagListener implements GatewayListener {
+
+        @Override
+        public void onEventMessage(OpenMessage msg) {
+            long now = System.nanoTime();
+            String frame = msg.getFrameValue();
+            if (!frame.startsWith(EVENT_PREFIX)) {
+                return;
+            }
+            long seq = Long.parseLong(frame.substring(EVENT_PREFIX.length(), frame.length() - 2));
+            if (sent.get() - seq >= SLOTS) {
+                overwritten.incrementAndGet();
+            }
+            long lag = now - sendTimes.get((int) (seq % SLOTS));
+            maxLag.accumulateAndGet(lag, Math::max);
+            received.incrementAndGet();
+        }
+
+        @Override
+        public void onConnected() {
+        }
+
+        @Override
+        public void onConnectionError(OWNException error) {
+        }
+
+        @Override
+        public void onConnectionClosed() {
+        }
+
+        @Override
+        public void onDisconnected(OWNException error) {
+        }
+
+        @Override
+        public void onReconnected() {
+        }
+
+        @Override
+        public void onNewDevice(Where where, OpenDeviceType deviceType, BaseOpenMessage message) {
+        }
+
+        @Override
+        public void onDiscoveryCompleted() {
+        }
+    }
+}
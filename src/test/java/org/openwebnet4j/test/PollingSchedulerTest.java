@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.OpenGateway;
+import org.openwebnet4j.PollingScheduler;
+import org.openwebnet4j.PollingScheduler.Poll;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.EnergyManagement;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.OpenMessage;
+
+/**
+ * Tests for {@link PollingScheduler}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class PollingSchedulerTest {
+
+    @Test
+    public void testPollAndSkipOnEvent() throws InterruptedException, FrameException {
+        FakeGateway gw = new FakeGateway();
+        PollingScheduler scheduler = gw.getPollingScheduler();
+        List<Response> responses = Collections.synchronizedList(new ArrayList<>());
+        Poll poll = scheduler.register(() -> EnergyManagement.requestCurrentDayTotalizer("51"),
+                Duration.ofSeconds(1), responses::add);
+        long deadline = System.currentTimeMillis() + 2000;
+        while (gw.frames.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Collections.singletonList("*#18*51*54##"), gw.frames);
+        assertEquals(1, responses.size());
+        // an event with the polled value makes next poll not needed
+        Thread.sleep(500);
+        gw.onMessage(BaseOpenMessage.parse("*#18*51*54*1234##"));
+        Thread.sleep(800);
+        assertEquals(1, gw.frames.size());
+        assertEquals(1, scheduler.getSkipped());
+        // poll is sent again one interval after the event
+        Thread.sleep(700);
+        assertEquals(2, gw.frames.size());
+        poll.close();
+        Thread.sleep(1200);
+        assertEquals(2, gw.frames.size());
+        assertEquals(2, scheduler.getPolls());
+        assertEquals(1.0, scheduler.getStretch());
+    }
+
+    @Test
+    public void testPollsWithSameKey() throws InterruptedException, FrameException {
+        FakeGateway gw = new FakeGateway();
+        PollingScheduler scheduler = gw.getPollingScheduler();
+        Poll p1 = scheduler.register(() -> EnergyManagement.requestCurrentDayTotalizer("51"), Duration.ofSeconds(2));
+        scheduler.register(() -> EnergyManagement.requestCurrentDayTotalizer("51"), Duration.ofSeconds(2));
+        long deadline = System.currentTimeMillis() + 3000;
+        while (gw.frames.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, gw.frames.size());
+        // closing a poll does not stop skipping the other one on events
+        p1.close();
+        for (int i = 0; i < 12; i++) {
+            gw.onMessage(BaseOpenMessage.parse("*#18*51*54*1234##"));
+            Thread.sleep(200);
+        }
+        assertEquals(2, gw.frames.size());
+        assertTrue(scheduler.getSkipped() >= 1);
+        // a new poll with the same key does not reset the last event time
+        gw.onMessage(BaseOpenMessage.parse("*#18*51*54*1234##"));
+        scheduler.register(() -> EnergyManagement.requestCurrentDayTotalizer("51"), Duration.ofSeconds(2));
+        Thread.sleep(300);
+        assertEquals(2, gw.frames.size());
+        scheduler.close();
+    }
+
+    @Test
+    public void testPollerThreadEnds() throws InterruptedException {
+        FakeGateway gw = new FakeGateway();
+        PollingScheduler scheduler = gw.getPollingScheduler();
+        Poll poll = scheduler.register(() -> EnergyManagement.requestCurrentDayTotalizer("52"), Duration.ofSeconds(5));
+        assertTrue(waitPollerThreads(1));
+        poll.close();
+        assertTrue(waitPollerThreads(0), "poller thread did not end with no polls");
+        scheduler.register(() -> EnergyManagement.requestCurrentDayTotalizer("52"), Duration.ofSeconds(5));
+        assertTrue(waitPollerThreads(1));
+        scheduler.close();
+        assertTrue(waitPollerThreads(0), "poller thread did not end on close");
+        scheduler.register(() -> EnergyManagement.requestCurrentDayTotalizer("52"), Duration.ofSeconds(5));
+        Thread.sleep(100);
+        assertEquals(0, pollerThreads());
+    }
+
+    private static boolean waitPollerThreads(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 7000;
+        while (pollerThreads() != count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return pollerThreads() == count;
+    }
+
+    private static long pollerThreads() {
+        return Thread.getAllStackTraces().keySet().stream().filter(t -> "OWN-Poller".equals(t.getName())).count();
+    }
+}
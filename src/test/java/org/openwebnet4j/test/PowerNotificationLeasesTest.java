@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.OpenGateway;
+import org.openwebnet4j.PowerNotificationLeases;
+import org.openwebnet4j.PowerNotificationLeases.Lease;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.message.OpenMessage;
+
+/**
+ * Tests for {@link PowerNotificationLeases}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class PowerNotificationLeasesTest {
+
+    private static void waitFor(List<?> list, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (list.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testDeduplicatedLeases() throws InterruptedException {
+        FakeGateway gw = new FakeGateway();
+        PowerNotificationLeases leases = gw.getPowerNotificationLeases();
+        Lease l1 = leases.acquire("51");
+        Lease l2 = leases.acquire("51");
+        waitFor(gw.frames, 1);
+        Thread.sleep(100);
+        assertEquals(Collections.singletonList("*#18*51*#1200#1*15##"), gw.frames);
+        assertEquals(1, leases.getMeters());
+        l1.close();
+        l1.close();
+        Thread.sleep(100);
+        assertEquals(1, gw.frames.size());
+        l2.close();
+        waitFor(gw.frames, 2);
+        assertEquals("*#18*51*#1200#1*0##", gw.frames.get(1));
+        assertEquals(0, leases.getMeters());
+    }
+
+    @Test
+    public void testStaggeredRenewals() throws InterruptedException {
+        FakeGateway gw = new FakeGateway();
+        PowerNotificationLeases leases = gw.getPowerNotificationLeases();
+        leases.setLeaseMinutes(1);
+        leases.setRenewBefore(Duration.ofMillis(59400)); // renew after about 600ms
+        leases.setMinSpacing(Duration.ofMillis(50));
+        for (int i = 1; i <= 4; i++) {
+            leases.acquire("5" + i);
+        }
+        waitFor(gw.frames, 8); // start + first renewal of 4 meters
+        assertTrue(gw.frames.size() >= 8);
+        for (int i = 1; i < gw.times.size(); i++) {
+            assertTrue(gw.times.get(i) - gw.times.get(i - 1) >= 40, "renewals not spaced: " + gw.times);
+        }
+        // each meter is started once, then renewed in the same order: not dependent on actual renewal times
+        List<String> starts = new ArrayList<>(gw.frames.subList(0, 4));
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(starts.contains("*#18*5" + i + "*#1200#1*1##"), "meter not started: " + starts);
+        }
+        assertEquals(starts, gw.frames.subList(4, 8));
+        leases.close();
+    }
+
+    @Test
+    public void testReacquireAfterRelease() throws InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            FakeGateway gw = new FakeGateway();
+            PowerNotificationLeases leases = gw.getPowerNotificationLeases();
+            leases.setMinSpacing(Duration.ZERO);
+            Lease l = leases.acquire("52");
+            waitFor(gw.frames, 1);
+            l.close();
+            leases.acquire("52");
+            waitFor(gw.frames, 3);
+            // stop of the released lease is sent before the start of the new one
+            assertEquals(Arrays.asList("*#18*52*#1200#1*15##", "*#18*52*#1200#1*0##", "*#18*52*#1200#1*15##"),
+                    gw.frames);
+            leases.close();
+        }
+    }
+
+    @Test
+    public void testCloseStopsNotifications() throws InterruptedException {
+        FakeGateway gw = new FakeGateway();
+        PowerNotificationLeases leases = gw.getPowerNotificationLeases();
+        leases.setMinSpacing(Duration.ZERO);
+        leases.acquire("51");
+        leases.acquire("52");
+        waitFor(gw.frames, 2);
+        leases.close();
+        assertEquals(4, gw.frames.size());
+        assertTrue(gw.frames.contains("*#18*51*#1200#1*0##"));
+        assertTrue(gw.frames.contains("*#18*52*#1200#1*0##"));
+        assertEquals(0, leases.getMeters());
+        leases.acquire("53").close();
+        Thread.sleep(50);
+        assertEquals(4, gw.frames.size());
+    }
+}
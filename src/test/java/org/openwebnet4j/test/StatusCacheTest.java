@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.OpenGateway;
+import org.openwebnet4j.StatusCache;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.message.BaseOpenMessage;
+import org.openwebnet4j.message.FrameException;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+import org.openwebnet4j.message.Thermoregulation;
+import org.openwebnet4j.message.Who;
+
+/**
+ * Tests for {@link StatusCache}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class StatusCacheTest {
+
+    /* gateway answering temperature requests with an increasing temperature */
+    private static FakeGateway thermoGateway() {
+        AtomicInteger sent = new AtomicInteger();
+        return new FakeGateway(msg -> {
+            int n = sent.incrementAndGet();
+            return msg.isCommand() ? FakeGateway.ack(msg) : FakeGateway.ack(msg, "*#4*1*0*020" + n + "##");
+        });
+    }
+
+    private static String value(Response res) {
+        return res.getResponseMessages().get(0).getFrameValue();
+    }
+
+    @Test
+    public void testHitAndMiss() throws OWNException {
+        FakeGateway gw = thermoGateway();
+        StatusCache cache = gw.getStatusCache();
+        Response r1 = gw.sendCached(Thermoregulation.requestTemperature("1"));
+        Response r2 = gw.sendCached(Thermoregulation.requestTemperature("1"));
+        assertTrue(r2.isSuccess());
+        assertEquals(value(r1), value(r2));
+        assertEquals(1, gw.frames.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate());
+        // commands are not cached
+        gw.sendCached(Lighting.requestTurnOn("21"));
+        gw.sendCached(Lighting.requestTurnOn("21"));
+        assertEquals(3, gw.frames.size());
+        assertFalse(cache.isCacheable(Lighting.requestTurnOn("21")));
+    }
+
+    @Test
+    public void testEventRefresh() throws OWNException, FrameException {
+        FakeGateway gw = thermoGateway();
+        gw.sendCached(Thermoregulation.requestTemperature("1"));
+        gw.onMessage(BaseOpenMessage.parse("*#4*1*0*0225##"));
+        Response res = gw.sendCached(Thermoregulation.requestTemperature("1"));
+        assertEquals("*#4*1*0*0225##", value(res));
+        assertEquals(1, gw.frames.size());
+    }
+
+    @Test
+    public void testAreaStatus() throws OWNException, FrameException {
+        FakeGateway gw = new FakeGateway(msg -> FakeGateway.ack(msg, "*1*1*31##", "*1*0*32##"));
+        StatusCache cache = gw.getStatusCache();
+        assertEquals(3, gw.sendCached(Lighting.requestStatus("3")).getResponseMessages().size());
+        // a light event does not change the cached area status
+        gw.onMessage(BaseOpenMessage.parse("*1*0*31##"));
+        Response res = gw.sendCached(Lighting.requestStatus("3"));
+        assertEquals(3, res.getResponseMessages().size());
+        assertEquals(1, gw.frames.size());
+        // an area command event is not the area status: the cached response is removed
+        gw.onMessage(BaseOpenMessage.parse("*1*0*3##"));
+        assertEquals(0, cache.size());
+        res = gw.sendCached(Lighting.requestStatus("3"));
+        assertEquals("*1*1*31##", value(res));
+        assertEquals(3, res.getResponseMessages().size());
+        assertEquals(2, gw.frames.size());
+    }
+
+    @Test
+    public void testZoneStatus() throws OWNException, FrameException {
+        FakeGateway gw = new FakeGateway(msg -> FakeGateway.ack(msg, "*#4*1*0*0215##", "*4*1*1##"));
+        gw.sendCached(Thermoregulation.requestStatus("1"));
+        // an event with the zone mode replaces only the mode in the cached zone status
+        gw.onMessage(BaseOpenMessage.parse("*4*0*1##"));
+        Response res = gw.sendCached(Thermoregulation.requestStatus("1"));
+        assertEquals(1, gw.frames.size());
+        assertEquals(3, res.getResponseMessages().size());
+        assertEquals("*#4*1*0*0215##", value(res));
+        assertEquals("*4*0*1##", res.getResponseMessages().get(1).getFrameValue());
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws OWNException, InterruptedException {
+        FakeGateway gw = thermoGateway();
+        StatusCache cache = gw.getStatusCache();
+        cache.setTtl(Who.THERMOREGULATION, 300);
+        cache.setStaleWindow(10000);
+        gw.sendCached(Thermoregulation.requestTemperature("1"));
+        Thread.sleep(400);
+        // stale value is returned and refreshed in background
+        Response stale = gw.sendCached(Thermoregulation.requestTemperature("1"));
+        assertEquals("*#4*1*0*0201##", value(stale));
+        assertEquals(1, cache.getStaleHits());
+        long deadline = System.currentTimeMillis() + 2000;
+        while (gw.frames.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(20);
+        Response fresh = gw.sendCached(Thermoregulation.requestTemperature("1"));
+        assertEquals("*#4*1*0*0202##", value(fresh));
+        assertEquals(1, cache.getRefreshes());
+        // TTL 0 disables caching
+        cache.setTtl(Who.THERMOREGULATION, 0);
+        gw.sendCached(Thermoregulation.requestTemperature("1"));
+        assertEquals(3, gw.frames.size());
+    }
+}
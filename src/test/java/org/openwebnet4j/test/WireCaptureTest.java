@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openwebnet4j.BUSGateway;
+import org.openwebnet4j.communication.BUSConnector;
+import org.openwebnet4j.communication.BUSGatewaySimulator;
+import org.openwebnet4j.communication.ConnectorListener;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.VirtualInstallation;
+import org.openwebnet4j.communication.WireCapture;
+import org.openwebnet4j.communication.WireReplay;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+
+/**
+ * Tests for {@link WireCapture} and {@link WireReplay}
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class WireCaptureTest {
+
+    private static final String[] EVENTS = { "*1*1*11##", "*1*0*12##", "*1*1*13##" };
+
+    private static void waitFor(List<?> list, int size) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (list.size() < size && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+    }
+
+    /* captures a session with a command and EVENTS sent 100ms apart */
+    private static Path capture(Path dir) throws Exception {
+        Path file = dir.resolve("session.owncap");
+        try (BUSGatewaySimulator sim = new BUSGatewaySimulator(VirtualInstallation.generate(3, 0, 0, 0));
+                WireCapture capture = new WireCapture(file)) {
+            sim.start();
+            BUSGateway gw = new BUSGateway(sim.getHost(), sim.getPort(), null);
+            List<Lighting> received = new CopyOnWriteArrayList<>();
+            gw.subscribe(Lighting.class, received::add);
+            gw.setWireCapture(capture);
+            gw.connect();
+            try {
+                gw.send(Lighting.requestTurnOn("11"));
+                for (String ev : EVENTS) {
+                    Thread.sleep(100);
+                    sim.broadcast(ev);
+                }
+                waitFor(received, EVENTS.length + 1);
+            } finally {
+                gw.closeConnection();
+            }
+            assertTrue(capture.getRecords() > 0);
+            assertEquals(0, capture.getDropped());
+        }
+        return file;
+    }
+
+    @Test
+    public void testCaptureAndReplay(@TempDir Path dir) throws Exception {
+        WireReplay replay = new WireReplay(capture(dir));
+        assertTrue(replay.getStartTime() > 0);
+        assertTrue(replay.getDurationNanos() >= 200_000_000L);
+
+        List<String> mon = replay.getReceivedFrames("BUS-MON");
+        assertEquals(EVENTS[EVENTS.length - 1], mon.get(mon.size() - 1));
+        for (String ev : EVENTS) {
+            assertTrue(mon.contains(ev), ev);
+        }
+        assertTrue(replay.getRecords().stream()
+                .anyMatch(r -> r.isOutbound() && r.getChannel().equals("BUS-CMD")
+                        && new String(r.getData()).equals(Lighting.requestTurnOn("11").getFrameValue())));
+
+        // original timing vs max speed
+        WireReplay.Result original = replay.replay("BUS-MON", 1, f -> {
+        });
+        WireReplay.Result max = replay.replay("BUS-MON", WireReplay.MAX_SPEED, f -> {
+        });
+        assertEquals(mon.size(), original.getFrames());
+        assertEquals(mon.size(), max.getFrames());
+        assertTrue(original.getDurationNanos() >= 200_000_000L, original.toString());
+        assertTrue(max.getDurationNanos() < original.getDurationNanos() / 2, max.toString());
+        WireReplay.Result fast = replay.replay("BUS-MON", 4, f -> {
+        });
+        assertTrue(fast.getDurationNanos() >= 50_000_000L, fast.toString());
+        assertTrue(fast.getDurationNanos() < original.getDurationNanos(), fast.toString());
+    }
+
+    @Test
+    public void testReplayToConnector(@TempDir Path dir) throws Exception {
+        WireReplay replay = new WireReplay(capture(dir));
+        List<OpenMessage> received = new CopyOnWriteArrayList<>();
+        BUSConnector connector = new BUSConnector("localhost", 20000, null);
+        connector.setListener(new ConnectorListener() {
+            @Override
+            public void onMessage(OpenMessage message) {
+                if (message instanceof Lighting) {
+                    received.add(message);
+                }
+            }
+
+            @Override
+            public void onMonDisconnected(OWNException e) {
+            }
+        });
+        WireReplay.Result res = replay.replayTo(connector, "BUS-MON", WireReplay.MAX_SPEED);
+        assertTrue(res.getFrames() > EVENTS.length);
+        // the command echo and EVENTS
+        waitFor(received, EVENTS.length + 1);
+        assertEquals(EVENTS.length + 1, received.size());
+        assertEquals(EVENTS[0], received.get(1).getFrameValue());
+    }
+
+    @Test
+    public void testReplayToSimulator(@TempDir Path dir) throws Exception {
+        WireReplay replay = new WireReplay(capture(dir));
+        try (BUSGatewaySimulator sim = new BUSGatewaySimulator(VirtualInstallation.generate(3, 0, 0, 0))) {
+            sim.start();
+            BUSGateway gw = new BUSGateway(sim.getHost(), sim.getPort(), null);
+            List<Lighting> received = new CopyOnWriteArrayList<>();
+            gw.subscribe(Lighting.class, received::add);
+            gw.connect();
+            try {
+                replay.replay("BUS-MON", 10, sim::broadcast);
+                waitFor(received, EVENTS.length + 1);
+                assertEquals(EVENTS.length + 1, received.size());
+                assertEquals(EVENTS[2], received.get(3).getFrameValue());
+            } finally {
+                gw.closeConnection();
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("invalid.owncap");
+        Files.write(file, new byte[] { 1, 2, 3, 4, 5 });
+        assertThrows(IOException.class, () -> new WireReplay(file));
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.BUSGateway;
+import org.openwebnet4j.communication.BUSGatewaySimulator;
+import org.openwebnet4j.communication.FrameFilter;
+import org.openwebnet4j.communication.LoggingWireTap;
+import org.openwebnet4j.communication.VirtualInstallation;
+import org.openwebnet4j.communication.WireTap;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.Who;
+
+/**
+ * Tests for {@link WireTap} and {@link LoggingWireTap}
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class WireTapTest {
+
+    private static final String FC_LOGGER = "org.openwebnet4j.communication.FrameChannel";
+    private static final byte[] FRAME = "*1*1*11##".getBytes();
+
+    private static void waitFor(LoggingWireTap tap, long frames) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while ((tap.getLogged() + tap.getSkipped() + tap.getDropped() < frames || tap.getQueueSize() > 0)
+                && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50); // last frame being logged
+    }
+
+    @Test
+    public void testWireTap() throws Exception {
+        try (BUSGatewaySimulator sim = new BUSGatewaySimulator(VirtualInstallation.generate(3, 0, 0, 0))) {
+            sim.start();
+            BUSGateway gw = new BUSGateway(sim.getHost(), sim.getPort(), null);
+            List<String> tapped = new CopyOnWriteArrayList<>();
+            WireTap tap = (channel, outbound, data, length, timeNanos) -> tapped
+                    .add(channel + (outbound ? ">" : "<") + new String(data, 0, length));
+            gw.addWireTap(tap);
+            gw.connect();
+            try {
+                gw.send(Lighting.requestTurnOn("11"));
+                sim.broadcast("*1*0*12##");
+                long end = System.currentTimeMillis() + 5000;
+                while (!tapped.contains("BUS-MON<*1*0*12##") && System.currentTimeMillis() < end) {
+                    Thread.sleep(20);
+                }
+                assertTrue(tapped.contains("BUS-CMD>*1*1*11##"), tapped.toString());
+                assertTrue(tapped.contains("BUS-MON<*1*0*12##"), tapped.toString());
+
+                gw.removeWireTap(tap);
+                int size = tapped.size();
+                gw.send(Lighting.requestTurnOff("11"));
+                assertEquals(size, tapped.size());
+            } finally {
+                gw.closeConnection();
+            }
+        }
+    }
+
+    @Test
+    public void testFilteredFramesNotLogged() throws Exception {
+        Level level = LogManager.getLogger(FC_LOGGER).getLevel();
+        Configurator.setLevel(FC_LOGGER, Level.INFO);
+        try (BUSGatewaySimulator sim = new BUSGatewaySimulator(VirtualInstallation.generate(3, 3, 0, 0))) {
+            sim.start();
+            BUSGateway gw = new BUSGateway(sim.getHost(), sim.getPort(), null);
+            LoggingWireTap logging = new LoggingWireTap(1, 0, 1000);
+            gw.setLoggingTap(logging);
+            gw.addEventFilter(FrameFilter.forWho(Who.LIGHTING));
+            gw.connect();
+            try {
+                waitFor(logging, 1);
+                long handshake = logging.getLogged();
+                for (int i = 0; i < 20; i++) {
+                    sim.broadcast("*2*0*21##");
+                }
+                sim.broadcast("*1*0*12##");
+                long end = System.currentTimeMillis() + 5000;
+                while (logging.getLogged() < handshake + 1 && System.currentTimeMillis() < end) {
+                    Thread.sleep(20);
+                }
+                Thread.sleep(200);
+                assertEquals(handshake + 1, logging.getLogged());
+            } finally {
+                gw.closeConnection();
+                Configurator.setLevel(FC_LOGGER, level);
+            }
+        }
+    }
+
+    @Test
+    public void testSamplingAndRateLimit() throws InterruptedException {
+        Level level = LogManager.getLogger(FC_LOGGER).getLevel();
+        Configurator.setLevel(FC_LOGGER, Level.INFO);
+        try {
+            LoggingWireTap sampled = new LoggingWireTap(10, 0, 1000);
+            for (int i = 0; i < 100; i++) {
+                sampled.onData("TEST", false, FRAME, FRAME.length, System.nanoTime());
+            }
+            waitFor(sampled, 100);
+            assertEquals(10, sampled.getLogged());
+            assertEquals(90, sampled.getSkipped());
+
+            LoggingWireTap limited = new LoggingWireTap(1, 5, 1000);
+            long now = 7_000_000_000L;
+            for (int i = 0; i < 20; i++) {
+                limited.onData("TEST", true, FRAME, FRAME.length, now);
+            }
+            limited.onData("TEST", true, FRAME, FRAME.length, now + 1_000_000_000L); // next second
+            waitFor(limited, 21);
+            assertEquals(6, limited.getLogged());
+            assertEquals(15, limited.getSkipped());
+
+            // logger not enabled: nothing is done
+            Configurator.setLevel(FC_LOGGER, Level.WARN);
+            LoggingWireTap disabled = new LoggingWireTap();
+            disabled.onData("TEST", true, FRAME, FRAME.length, System.nanoTime());
+            assertEquals(0, disabled.getLogged() + disabled.getSkipped() + disabled.getDropped());
+        } finally {
+            Configurator.setLevel(FC_LOGGER, level);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.OpenDeviceType;
+import org.openwebnet4j.USBGateway;
+import org.openwebnet4j.communication.OWNException;
+import org.openwebnet4j.communication.Response;
+import org.openwebnet4j.communication.serial.emulator.EmulatedSerialPortProvider;
+import org.openwebnet4j.communication.serial.emulator.ZigBeeDongleEmulator;
+import org.openwebnet4j.message.Automation;
+import org.openwebnet4j.message.Lighting;
+import org.openwebnet4j.message.OpenMessage;
+
+/**
+ * Tests for {@link ZigBeeDongleEmulator}, using a real {@link USBGateway}.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class ZigBeeDongleEmulatorTest {
+
+    private static final String PORT = "/dev/ttyEMU0";
+
+    private static USBGateway connect(ZigBeeDongleEmulator dongle) throws OWNException {
+        USBGateway gw = new USBGateway(PORT);
+        gw.setSerialPortProvider(new EmulatedSerialPortProvider().addDongle(PORT, dongle));
+        gw.connect();
+        return gw;
+    }
+
+    private static void waitFor(List<?> list, int size) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (list.size() < size && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+    }
+
+    private static void waitDiscovery(USBGateway gw) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (gw.isDiscovering() && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+        assertFalse(gw.isDiscovering());
+    }
+
+    /* waits for the emulator RX, TX and events threads to end */
+    private static void assertEmulatorThreadsEnd() throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        List<String> alive;
+        do {
+            alive = Thread.getAllStackTraces().keySet().stream().filter(Thread::isAlive).map(Thread::getName)
+                    .filter(n -> n.startsWith("OWN-USB-Emu-")).collect(Collectors.toList());
+            if (alive.isEmpty()) {
+                return;
+            }
+            Thread.sleep(20);
+        } while (System.currentTimeMillis() < end);
+        fail("emulator threads still running: " + alive);
+    }
+
+    @Test
+    public void testCommandsAndEvents() throws Exception {
+        ZigBeeDongleEmulator dongle = new ZigBeeDongleEmulator().addSwitch("7654321", 2).addShutter("1234567");
+        USBGateway gw = connect(dongle);
+        try {
+            assertTrue(gw.isConnected());
+            assertEquals("1.3.0", gw.getFirmwareVersion());
+            assertTrue(dongle.isSupervisor());
+            List<OpenMessage> events = Collections.synchronizedList(new ArrayList<>());
+            gw.subscribe(Lighting.class, events::add);
+            gw.subscribe(Automation.class, events::add);
+
+            assertTrue(gw.send(Lighting.requestTurnOn("765432102#9")).isSuccess());
+            assertEquals(1, dongle.getState("7654321", 2));
+            waitFor(events, 1);
+            assertEquals("*1*1*765432102#9##", events.get(0).getFrameValue());
+
+            assertTrue(gw.send(Automation.requestMoveUp("123456701#9")).isSuccess());
+            assertEquals(1, dongle.getState("1234567", 1));
+
+            // unknown product
+            assertFalse(gw.send(Lighting.requestTurnOn("111111101#9")).isSuccess());
+        } finally {
+            gw.closeConnection();
+        }
+        assertEmulatorThreadsEnd();
+    }
+
+    @Test
+    public void testPipelinedDiscovery() throws Exception {
+        ZigBeeDongleEmulator dongle = new ZigBeeDongleEmulator();
+        for (int i = 0; i < 20; i++) {
+            dongle.addSwitch(String.valueOf(7000000 + i), i % 4 == 0 ? 2 : 1);
+        }
+        dongle.addShutter("8000000");
+        dongle.setResponseDelay(Duration.ofMillis(2));
+        USBGateway gw = connect(dongle);
+        try {
+            gw.setDiscoveryWindow(4);
+            gw.discoverDevices();
+            waitDiscovery(gw);
+            // 15 single unit + 5 two-units switches + 1 shutter
+            assertEquals(26, gw.getKnownDevices().size());
+            assertEquals(OpenDeviceType.ZIGBEE_SHUTTER_SWITCH, gw.getKnownDevices().get(25).getType());
+        } finally {
+            gw.closeConnection();
+        }
+    }
+
+    @Test
+    public void testOldFirmwareQuirks() throws Exception {
+        ZigBeeDongleEmulator dongle = new ZigBeeDongleEmulator().addSwitch("7654321", 2).addShutter("1234567");
+        dongle.setFirmwareVersion("1.2.0");
+        USBGateway gw = connect(dongle);
+        try {
+            assertEquals("1.2.0", gw.getFirmwareVersion());
+            // UP/DOWN inverted by the gateway and converted back by the connector
+            assertTrue(gw.send(Automation.requestMoveDown("123456701#9")).isSuccess());
+            assertEquals(2, dongle.getState("1234567", 1));
+            // no final ACK after status response
+            Response res = gw.send(Lighting.requestStatus("765432101#9"));
+            assertTrue(res.isSuccess());
+            // an ACK after each unit in product information
+            gw.discoverDevices();
+            waitDiscovery(gw);
+            assertEquals(3, gw.getKnownDevices().size());
+        } finally {
+            gw.closeConnection();
+        }
+    }
+
+    @Test
+    public void testUnplug() throws Exception {
+        ZigBeeDongleEmulator dongle = new ZigBeeDongleEmulator().addSwitch("7654321", 1);
+        dongle.setEventRate(50);
+        USBGateway gw = connect(dongle);
+        List<OpenMessage> events = Collections.synchronizedList(new ArrayList<>());
+        gw.subscribe(Lighting.class, events::add);
+        waitFor(events, 5);
+        assertTrue(events.size() >= 5);
+        dongle.unplug();
+        assertEmulatorThreadsEnd();
+        assertThrows(OWNException.class, () -> gw.send(Lighting.requestTurnOn("765432101#9")));
+        gw.closeConnection();
+    }
+}
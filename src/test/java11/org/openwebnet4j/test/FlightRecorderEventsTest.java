@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2020-2024 Contributors to the openwebnet4j project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ */
+package org.openwebnet4j.test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.openwebnet4j.communication.FlightRecorderEvents;
+import org.openwebnet4j.message.FrameException;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tests the Java 11 {@link FlightRecorderEvents} of the multi-release jar (<code>META-INF/versions/11</code>, java11
+ * profile) against the Java 8 no-op version on the test classpath.
+ *
+ * @author M. Valla - Initial contribution
+ */
+public class FlightRecorderEventsTest {
+
+    private static final String CLASS_NAME = FlightRecorderEvents.class.getName();
+
+    private static Class<?> jfrEvents;
+
+    /**
+     * Loads FlightRecorderEvents and its events from META-INF/versions/11 of the classes directory, delegating all
+     * other classes to the test class loader
+     */
+    @BeforeAll
+    public static void loadVersionedClass() throws Exception {
+        URL location = FlightRecorderEvents.class.getProtectionDomain().getCodeSource().getLocation();
+        Path classes = Paths.get(location.toURI());
+        Path versioned = classes.resolve("META-INF/versions/11");
+        assertTrue(Files.isDirectory(versioned), versioned + " not found");
+        @SuppressWarnings("resource")
+        ClassLoader loader = new URLClassLoader(new URL[] { versioned.toUri().toURL() },
+                FlightRecorderEventsTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (!name.startsWith(CLASS_NAME)) {
+                    return super.loadClass(name, resolve);
+                }
+                synchronized (getClassLoadingLock(name)) {
+                    Class<?> c = findLoadedClass(name);
+                    return c != null ? c : findClass(name);
+                }
+            }
+        };
+        jfrEvents = loader.loadClass(CLASS_NAME);
+    }
+
+    @Test
+    public void testSameApi() throws Exception {
+        assertNotSame(FlightRecorderEvents.class, jfrEvents);
+        assertEquals(publicApi(FlightRecorderEvents.class), publicApi(jfrEvents));
+        assertFalse(FlightRecorderEvents.isSupported());
+        assertEquals(Boolean.TRUE, jfrEvents.getMethod("isSupported").invoke(null));
+    }
+
+    @Test
+    public void testEventsEmitted() throws Exception {
+        // not recording: nothing allocated
+        assertNull(jfrEvents.getMethod("beginParse").invoke(null));
+
+        Path file = Files.createTempFile("own-jfr", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.openwebnet4j.FrameReceived");
+            recording.enable("org.openwebnet4j.Parse");
+            recording.disable("org.openwebnet4j.Command");
+            recording.start();
+            jfrEvents.getMethod("frameReceived", String.class, String.class).invoke(null, "MON", "*1*1*11##");
+            Object parse = jfrEvents.getMethod("beginParse").invoke(null);
+            assertNotNull(parse);
+            jfrEvents.getMethod("endParse", Object.class, String.class, FrameException.class).invoke(null, parse,
+                    "*1*1*11##", null);
+            // disabled in the recording
+            assertNull(jfrEvents.getMethod("beginCommand").invoke(null));
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().startsWith("org.openwebnet4j."))
+                    .collect(Collectors.toList());
+            assertEquals(2, events.size(), events.toString());
+            RecordedEvent received = events.stream()
+                    .filter(e -> e.getEventType().getName().equals("org.openwebnet4j.FrameReceived")).findFirst()
+                    .orElseThrow();
+            assertEquals("MON", received.getString("channel"));
+            assertEquals("*1*1*11##", received.getString("frame"));
+            RecordedEvent parsed = events.stream()
+                    .filter(e -> e.getEventType().getName().equals("org.openwebnet4j.Parse")).findFirst()
+                    .orElseThrow();
+            assertEquals("*1*1*11##", parsed.getString("frame"));
+            assertTrue(parsed.getBoolean("success"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static Set<String> publicApi(Class<?> clazz) {
+        return Arrays.stream(clazz.getDeclaredMethods()).filter(m -> Modifier.isPublic(m.getModifiers()))
+                .map(FlightRecorderEventsTest::signature).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static String signature(Method m) {
+        return Modifier.toString(m.getModifiers()) + " " + m.getReturnType().getName() + " " + m.getName()
+                + Arrays.stream(m.getParameterTypes()).map(Class::getName).collect(Collectors.joining(",", "(", ")"));
+    }
+}